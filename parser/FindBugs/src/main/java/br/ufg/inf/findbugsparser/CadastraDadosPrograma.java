@@ -4,48 +4,48 @@
  */
 package br.ufg.inf.findbugsparser;
 
+import br.ufg.inf.findbugsparser.BugCollection.BugInstance;
+import br.ufg.inf.findbugsparser.BugCollection.BugInstance.Method;
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Unmarshaller;
-import javax.xml.stream.EventFilter;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
 
 /**
  * Programa principal responsável por ler o arquivo XML gerado pela FindBugs e
  * extrair as informações dos warnings inserindo-os em um banco de dados
  * relacional.
  *
- * Neste caso, está sendo usado um banco MySQL.
+ * O XML é percorrido com StAX e somente um BugInstance por vez é convertido
+ * em objeto pelo JAXB, de modo que o BugCollection inteiro nunca fica em
+ * memória. Os warnings são inseridos em lotes de {@link #TAMANHO_LOTE}.
  *
  * @author Auri Marcelo Rizzo Vincenzi
  */
 public class CadastraDadosPrograma {
 
+    static final int TAMANHO_LOTE = 1000;
+
     public static void main(String[] args) {
         try {
             if (args.length == 7) {
-                // Parse the data, filtering out the start elements
-                XMLInputFactory xmlif = XMLInputFactory.newInstance();
-                FileReader fr = new FileReader(args[0]);
-                XMLEventReader xmler = xmlif.createXMLEventReader(fr);
-                EventFilter filter = new EventFilter() {
-                    @Override
-					public boolean accept(XMLEvent event) {
-                        return event.isStartElement();
-                    }
-                };
-                XMLEventReader xmlfer = xmlif.createFilteredReader(xmler, filter);
-
                 String nomePrograma = args[1];
                 String versao = args[2];
                 String nomeArquivo = args[3];
@@ -53,16 +53,18 @@ public class CadastraDadosPrograma {
                 String password = args[5];
                 String diretorio = args[6];
 
-                // Parse into typed objects
-                JAXBContext ctx = JAXBContext.newInstance("br.ufg.inf.findbugsparser");
-                Unmarshaller um = ctx.createUnmarshaller();
-
-                int bugs = 0;
-                BugInstance bi = null;
+                long inicio = System.nanoTime();
+                Fontes fontes = new Fontes(diretorio + "/" + nomePrograma + "-java.txt", nomePrograma);
 
+                XMLInputFactory xmlif = XMLInputFactory.newInstance();
+                InputStream in = new BufferedInputStream(new FileInputStream(args[0]));
+                XMLStreamReader xmlr = xmlif.createXMLStreamReader(in);
 
+                JAXBContext ctx = JAXBContext.newInstance(BugInstance.class);
+                Unmarshaller um = ctx.createUnmarshaller();
 
                 Connection conn = ConexaoBD.getConnection(username, password);
+                conn.setAutoCommit(false);
 
                 /* Verificando se a ferramenta existe na tabela */
                 String sql5 = "select * from ferramenta where nome='findbugs'";
@@ -91,149 +93,189 @@ public class CadastraDadosPrograma {
                     stat3.setString(5, "bytecode");
                     stat3.setString(6, "");
                     stat3.executeUpdate();
+                    stat3.close();
                 }
+                rs3.close();
+                stmt.close();
+                conn.commit();
+
+                String sql3 = "insert into warning"
+                        + "(tool, "
+                        + "nameprogram, "
+                        + "nameclass, "
+                        + "namemethod, "
+                        + "beginline, "
+                        + "endline,"
+                        + "begincolumn, "
+                        + "endcolumn,"
+                        + "typewarning,"
+                        + "description,"
+                        + "priority,"
+                        + "externalinfourl,"
+                        + "ruleset ) values (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+                PreparedStatement stat3 = conn.prepareStatement(sql3);
+                stat3.setString(1, "FB0002");
+                stat3.setString(2, nomePrograma);
+                stat3.setInt(7, -1);
+                stat3.setInt(8, -1);
+                stat3.setString(12, "");
+                stat3.setString(13, "");
 
-
+                int bugs = 0;
+                int pendentes = 0;
 
                 /**
                  * Cadastrar Unidades do Arquivo
                  */
-                if (xmlfer.peek() != null) {
-                    Object o = um.unmarshal(xmler);
-
-                    if (o instanceof BugCollection) {
-                        BugCollection bc = (BugCollection) o;
-
-                        List bl = bc.getBugInstance();
-
-                        for (Iterator<BugInstance> it = bl.iterator(); it.hasNext();) {
-                            bi = it.next();
-                            // InsertWarnings warning = new InsertWarnings();
-                            // boolean resultado = warning.insertWarning(connection, bi, username, password);
-
-                            List<Object> itens = bi.getClazzOrTypeOrMethod();
-                            Method met = null;
-                            SourceLine sl = null;
-                            for (Iterator<Object> ctm = itens.iterator(); ctm.hasNext();) {
-                                Object item = ctm.next();  // No downcasting required.
-
-                                if (item instanceof Method) {
-                                    if (met == null) {
-                                        met = (Method) item;
-                                    }
-                                }
-
-                                if (item instanceof SourceLine) {
-                                    if (sl == null) {
-                                        sl = (SourceLine) item;
-                                    }
-                                }
-                            }
-
-
-                            String sql3 = "insert into warning"
-                                    + "(tool, "
-                                    + "nameprogram, "
-                                    + "nameclass, "
-                                    + "namemethod, "
-                                    + "beginline, "
-                                    + "endline,"
-                                    + "begincolumn, "
-                                    + "endcolumn,"
-                                    + "typewarning,"
-                                    + "description,"
-                                    + "priority,"
-                                    + "externalinfourl,"
-                                    + "ruleset ) values (?,?,?,?,?,?,?,?,?,?,?,?,?)";
-                            PreparedStatement stat3 = conn.prepareStatement(sql3);
-                            stat3.setString(1, "FB0002");
-                            stat3.setString(2, nomePrograma);
-                                String replace2 = null;
-                                String replace3 = null;
-
-                            try {
-                                BufferedReader in = new BufferedReader(new FileReader(diretorio+"/"+ nomePrograma + "-java.txt"));
-                                String str;
-                                while ((str = in.readLine()) != null) {
-                                    if (str.indexOf(sl.sourcefile) != -1) {
-                                        replace2 = str.replace(nomePrograma + "/source/", "");
-                                        replace3 = replace2.replace(".java", "");
-                                    }
-                                }
-
-                                in.close();
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-
+                while (xmlr.hasNext()) {
+                    if (xmlr.getEventType() != XMLStreamConstants.START_ELEMENT
+                            || !xmlr.getLocalName().equals("BugInstance")) {
+                        xmlr.next();
+                        continue;
+                    }
+                    // deixa o leitor no evento seguinte ao fim do BugInstance
+                    BugInstance bi = um.unmarshal(xmlr, BugInstance.class).getValue();
 
-                            String replace4=replace3.replace("/", ".");
-                          
+                    List<Object> itens = bi.getClazzOrTypeOrMethod();
+                    Method met = null;
+                    SourceLine sl = null;
+                    for (Iterator<Object> ctm = itens.iterator(); ctm.hasNext();) {
+                        Object item = ctm.next();  // No downcasting required.
 
+                        if (item instanceof Method) {
                             if (met == null) {
-                                stat3.setString(3, replace4);
-                                stat3.setString(4, "<no name>");
-                            } else {
-                                stat3.setString(3, replace4);
-                                stat3.setString(4, met.getName());
-
-                            }
-
-                            if (sl.getStart() == null) {
-                                stat3.setInt(5, -1);
-                            } else {
-                                stat3.setInt(5, sl.getStart());
+                                met = (Method) item;
                             }
+                        }
 
-                            if (sl.getEnd() == null) {
-                                stat3.setInt(6, -1);
-                            } else {
-                                stat3.setInt(6, sl.getEnd());
-                            }
-                            stat3.setInt(7, -1);
-                            stat3.setInt(8, -1);
-                            stat3.setString(9, bi.getType());
-                            stat3.setString(10, bi.getLongMessage());
-                            stat3.setInt(11, bi.getPriority());
-                            stat3.setString(12, "");
-                            stat3.setString(13, "");
-
-                            stat3.executeUpdate();
-                            bugs++;
-
-                            //System.out.println("BUG: " + bugs + "\tAbreviation: " + bi.getAbbrev());
-                            //System.out.println("\tType: " + bi.getType());
-                            //System.out.println("\tPriority: " + bi.getPriority());
-                            //System.out.println("\tCategory: " + bi.getCategory());
-                            if (met == null) {
-                                //System.out.println("\tClass Name: <no name>");
-                                //System.out.println("\tMethod Name:  <no name>");
-                            } else {
-                                //System.out.println("\tClass Name: " + met.getClassname());
-                                //System.out.println("\tMethod Name: " + met.getName());
+                        if (item instanceof SourceLine) {
+                            if (sl == null) {
+                                sl = (SourceLine) item;
                             }
-                            if (sl.getStart() == null) {
-                                // System.out.println("\tSource Line Start: -1");
-                                // System.out.println("\tSource Line End: -1");
-                            } else {
-                                // System.out.println("\tSource Line Start: " + sl.getStart());
-                                //  System.out.println("\tSource Line End: " + sl.getEnd());
-                            }
-                            //  System.out.println("\tShort Message: " + bi.getShortMessage());
-                            //System.out.println("\tLong Message: " + bi.getLongMessage());
-                            bugs++;
                         }
+                    }
+
+                    if (sl == null) {
+                        System.out.println("BugInstance sem SourceLine ignorado: " + bi.getType());
+                        continue;
+                    }
+
+                    stat3.setString(3, fontes.nomeClasse(sl));
+                    if (met == null) {
+                        stat3.setString(4, "<no name>");
+                    } else {
+                        stat3.setString(4, met.getName());
+                    }
 
+                    if (sl.getStart() == null) {
+                        stat3.setInt(5, -1);
+                    } else {
+                        stat3.setInt(5, sl.getStart());
                     }
-                   // System.out.println(o.toString());
+
+                    if (sl.getEnd() == null) {
+                        stat3.setInt(6, -1);
+                    } else {
+                        stat3.setInt(6, sl.getEnd());
+                    }
+                    stat3.setString(9, bi.getType());
+                    stat3.setString(10, bi.getLongMessage());
+                    stat3.setInt(11, bi.getPriority());
+                    stat3.addBatch();
+                    bugs++;
+
+                    if (++pendentes == TAMANHO_LOTE) {
+                        stat3.executeBatch();
+                        conn.commit();
+                        pendentes = 0;
+                    }
+                }
+                if (pendentes > 0) {
+                    stat3.executeBatch();
                 }
-                fr.close();
+                conn.commit();
+                stat3.close();
+                xmlr.close();
+                in.close();
                 conn.close();
+
+                long ms = Math.max(1, (System.nanoTime() - inicio) / 1000000);
+                System.out.println("FindBugs: " + bugs + " warnings em " + ms + " ms ("
+                        + (bugs * 1000L / ms) + " warnings/s), pico de heap "
+                        + (picoHeap() / (1024 * 1024)) + " MB");
             } else {
-                System.out.println("Uso: br.ufg.inf.findbugsparser.CadastraDadosPrograma <xml_findbugs> <nome_programa> <nome_classe> <db_username> <db_password>");
+                System.out.println("Uso: br.ufg.inf.findbugsparser.CadastraDadosPrograma <xml_findbugs> <nome_programa> <versao> <nome_arquivo> <db_username> <db_password> <diretorio_tmp>");
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Soma dos picos de uso dos pools de memória do heap desde o início da
+     * JVM.
+     */
+    static long picoHeap() {
+        long pico = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                pico += pool.getPeakUsage().getUsed();
+            }
+        }
+        return pico;
+    }
+
+    /**
+     * Lista dos fontes do programa (tmp/&lt;programa&gt;-java.txt, gerada por
+     * Run_FindBugs.sh), lida uma única vez em vez de uma vez por warning.
+     */
+    static class Fontes {
+
+        private final String nomePrograma;
+        private final List<String> linhas = new ArrayList<String>();
+        private final Map<String, String> porCaminho = new HashMap<String, String>();
+        private final Map<String, String> porArquivo = new HashMap<String, String>();
+
+        Fontes(String lista, String nomePrograma) throws IOException {
+            this.nomePrograma = nomePrograma;
+            BufferedReader in = new BufferedReader(new FileReader(lista));
+            try {
+                String str;
+                while ((str = in.readLine()) != null) {
+                    linhas.add(str);
+                    // prj/source/pkg/Foo.java -> pkg/Foo.java
+                    String caminho = str.replace(nomePrograma + "/source/", "");
+                    porCaminho.put(caminho, nomeClasse(caminho));
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        String nomeClasse(SourceLine sl) {
+            String classe = sl.getSourcepath() == null ? null : porCaminho.get(sl.getSourcepath());
+            if (classe != null) {
+                return classe;
+            }
+            // sem sourcepath: procura pelo nome do arquivo como antes,
+            // ficando com a última linha que o contém
+            classe = porArquivo.get(sl.getSourcefile());
+            if (classe == null && sl.getSourcefile() != null) {
+                for (String str : linhas) {
+                    if (str.indexOf(sl.getSourcefile()) != -1) {
+                        classe = nomeClasse(str.replace(nomePrograma + "/source/", ""));
+                    }
+                }
+                if (classe == null) {
+                    classe = sl.getClassname();
+                }
+                porArquivo.put(sl.getSourcefile(), classe);
+            }
+            return classe == null ? sl.getClassname() : classe;
+        }
+
+        private static String nomeClasse(String caminho) {
+            return caminho.replace(".java", "").replace("/", ".");
+        }
+    }
 }
@@ -67,7 +67,7 @@ public class Parser {
 
 			/* Verificando se a classe existe na tabela */
 
-			String sql3 = "select * from arquivo where nomeprograma='"
+			String sql3 = "select * from arquivo_corrente where nomeprograma='"
 					+ nomePrograma + "' AND nomearquivo='" + nameclass + "'";
 
 			ResultSet rs2 = stmt.executeQuery(sql3);
@@ -56,7 +56,7 @@ public class Conexao {
 
         /* Verificando se a classe existe na tabela */
 
-        String sql3 = "select * from arquivo where nomearquivo='" + classe + "' AND nomeprograma='" + prog + "'";
+        String sql3 = "select * from arquivo_corrente where nomearquivo='" + classe + "' AND nomeprograma='" + prog + "'";
 
 
 
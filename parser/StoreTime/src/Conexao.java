@@ -3,6 +3,7 @@
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class Conexao {
@@ -34,7 +35,80 @@ public class Conexao {
 
         } catch (SQLException ex) {
             System.out.println("erro:" + ex);
+        } finally {
+            cn.close();
         }
 
     }
+
+    /**
+     * Grava as medidas de uma etapa nas colunas criadas por
+     * scripts/runtime.sql. Valores negativos sao gravados como null
+     * (medida indisponivel).
+     */
+    public static void insert(String prog, String etapa, String ferramenta,
+            long wallMs, long cpuMs, long peakRssKb, long linhas)
+            throws SQLException, ClassNotFoundException {
+        open();
+
+        try {
+            PreparedStatement ps = cn.prepareStatement("insert into runtime"
+                    + "(nameprogram, info, etapa, ferramenta, wall_ms, cpu_ms, "
+                    + "peak_rss_kb, linhas) values (?,?,?,?,?,?,?,?)");
+
+            ps.setString(1, prog);
+            ps.setString(2, etapa + "-" + ferramenta);
+            ps.setString(3, etapa);
+            ps.setString(4, ferramenta);
+            setLong(ps, 5, wallMs);
+            setLong(ps, 6, cpuMs);
+            setLong(ps, 7, peakRssKb);
+            setLong(ps, 8, linhas);
+            ps.execute();
+            ps.close();
+
+        } catch (SQLException ex) {
+            System.out.println("erro:" + ex);
+        } finally {
+            cn.close();
+        }
+    }
+
+    /**
+     * Quantidade de warnings da ferramenta gravados para a versao em
+     * analise do programa, isto e, as linhas inseridas pelo parser nesta
+     * execucao.
+     */
+    public static long countWarnings(String prog, String ferramenta)
+            throws SQLException, ClassNotFoundException {
+        open();
+
+        try {
+            PreparedStatement ps = cn.prepareStatement("select count(*) from warning"
+                    + " where nameprogram=? AND tool=? AND versaoprograma=coalesce("
+                    + "(select versaoprograma from versao_corrente where nomeprograma=?), '')");
+            ps.setString(1, prog);
+            ps.setString(2, ferramenta);
+            ps.setString(3, prog);
+            ResultSet rs = ps.executeQuery();
+            long linhas = rs.next() ? rs.getLong(1) : -1;
+            rs.close();
+            ps.close();
+            return linhas;
+        } catch (SQLException ex) {
+            System.out.println("erro:" + ex);
+            return -1;
+        } finally {
+            cn.close();
+        }
+    }
+
+    private static void setLong(PreparedStatement ps, int index, long value)
+            throws SQLException {
+        if (value < 0) {
+            ps.setNull(index, java.sql.Types.BIGINT);
+        } else {
+            ps.setLong(index, value);
+        }
+    }
 }
@@ -3,6 +3,16 @@
 import java.io.BufferedReader;
 import java.sql.SQLException;
 
+/**
+ * Uso:
+ * <pre>
+ * Store &lt;programa&gt; &lt;info&gt;
+ * Store &lt;programa&gt; &lt;etapa&gt; &lt;ferramenta&gt; &lt;wall_ms&gt; &lt;cpu_ms&gt; &lt;peak_rss_kb&gt; [linhas]
+ * </pre>
+ * etapa e ferramenta, parser ou treemap. Medidas indisponiveis sao
+ * informadas como -1. Sem linhas, a etapa parser conta os warnings da
+ * ferramenta gravados para a versao atual do programa.
+ */
 public class Store {
 
     
@@ -12,9 +22,23 @@ public class Store {
 
     public static void main(String[] args) throws SQLException, ClassNotFoundException {
         nomePrograma = args[0];
-        informacao = args[1];
-        Conexao.insert(nomePrograma, informacao);
+        if (args.length < 6) {
+            informacao = args[1];
+            Conexao.insert(nomePrograma, informacao);
+            return;
+        }
+
+        String etapa = args[1];
+        String ferramenta = args[2];
+        long linhas = -1;
+        if (args.length > 6) {
+            linhas = Long.parseLong(args[6]);
+        } else if (etapa.equals("parser")) {
+            linhas = Conexao.countWarnings(nomePrograma, ferramenta);
+        }
+        Conexao.insert(nomePrograma, etapa, ferramenta, Long.parseLong(args[3]),
+                Long.parseLong(args[4]), Long.parseLong(args[5]), linhas);
     }
 
    
-}
\ No newline at end of file
+}
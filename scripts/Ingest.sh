@@ -0,0 +1,25 @@
+#####################################################
+#####    inserir no BD os relatórios de todas as
+#####    ferramentas numa única JVM
+#####
+#####    Ingest.sh <programa> [versao] [threads]
+#####
+#####    Substitui os Parser_*.sh: rodar os Run_*.sh com
+#####    WARNINGSFIX_INGEST=service e depois este script.
+#####################################################
+
+export JAVA_HOME=$WARNINGSFIX_HOME/tools/jdk1.7.0
+export PATH=$JAVA_HOME/bin:$PATH
+
+DIR_TMP=$WARNINGSFIX_HOME/tmp
+cd $WARNINGSFIX_HOME
+
+mvn -q -o dependency:build-classpath -Dmdep.outputFile=$DIR_TMP/classpath-ingest.txt
+
+CLASSPATH=$WARNINGSFIX_HOME/target/classes:`cat $DIR_TMP/classpath-ingest.txt`
+
+java -cp $CLASSPATH warningfix.ingest.IngestionService $1 $WARNINGSFIX_HOME/programs_analyzeds/$1 "$2" $3
+
+#####################################################
+#####           Terminando                      #####  
+#####################################################
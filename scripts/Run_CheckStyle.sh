@@ -3,6 +3,7 @@
         prj=$1
 	TOOLS=~/workspace/WarningsFIX/tools
         SCRIPTS=~/workspace/WarningsFIX/scripts
+        source $SCRIPTS/Timing.sh
         PARSER=~/workspace/WarningsFIX/parser
 
 export JAVA_HOME=$TOOLS/jdk1.7.0
@@ -12,19 +13,12 @@ export JAVA_HOME=$TOOLS/jdk1.7.0
 #                                                                                   #   
 #####################################################################################
 
-iniciodaexecucaodacheckstyle=`date +%s`
+inicio_etapa
 mkdir $PROG/$prj/outputs/04-checkstyle-$prj 
-java -jar $TOOLS/Checkstyle/checkstyle-5.6-all.jar -c $TOOLS/Checkstyle/sun_checks.xml -f xml -r $PROG/$prj/source > $PROG/$prj/outputs/04-checkstyle-$prj/04-checkstyle.xml 
+medir java -jar $TOOLS/Checkstyle/checkstyle-5.6-all.jar -c $TOOLS/Checkstyle/sun_checks.xml -f xml -r $PROG/$prj/source > $PROG/$prj/outputs/04-checkstyle-$prj/04-checkstyle.xml 
 
 
-terminiodaexecucaodacheckstyle=`date +%s`
-soma7=`expr $terminiodaexecucaodacheckstyle - $iniciodaexecucaodacheckstyle`
-resultado7=`expr 10800 + $soma7`
-tempo7=`date -d @$resultado7 +%H:%M:%S`
-#echo Tempo gasto para execução da Checkstyle: $tempo7
-info7="O-tempo-gasto-para-execução-da-Checkstyle"
-info7="$info7-$tempo7"
-#bash $SCRIPTS/Store.sh $prj $info7
+fim_etapa $prj ferramenta CS0004 Checkstyle
 
 #####################################################################################
 #                              Executar ferramenta Checkstyle                       #
@@ -36,25 +30,23 @@ info7="$info7-$tempo7"
 #                                                                                   #   
 #####################################################################################
 
-iniciodaexecucaodoparserdacheckstyle=`date +%s`
+# com WARNINGSFIX_INGEST=service os relatorios sao inseridos depois, por
+# scripts/Ingest.sh (warningfix.ingest.IngestionService), numa unica JVM
+if [ "$WARNINGSFIX_INGEST" != "service" ]
+then
+
+inicio_etapa
 
       
 XMLLL=$PROG/$prj/outputs/04-checkstyle-$prj/04-checkstyle.xml
 if [ `cat $XMLLL | wc -l` -ne 0 ] 
 then
-                        bash $SCRIPTS/Parser_Checkstyle2.sh $XMLLL $prj $PROG/$prj/source 
+                        medir bash $SCRIPTS/Parser_Checkstyle2.sh $XMLLL $prj $PROG/$prj/source 
 fi
 
-terminiodaexecucaodoparserdacheckstyle=`date +%s`
-soma8=`expr $terminiodaexecucaodoparserdacheckstyle - $iniciodaexecucaodoparserdacheckstyle`
-resultado8=`expr 10800 + $soma7 + $soma8`
-tempo8=`date -d @$resultado8 +%H:%M:%S`
-#echo Tempo gasto para execução parser Checkstyle: $tempo8
-info8="O-tempo-gasto-para-execução-parser-Checkstyle"
-info8="$info8-$tempo8"
-info_total_checkstyle="$tempo8"
-echo Tempo gasto para execução da ferramenta Checkstyle: $info_total_checkstyle
-#bash $SCRIPTS/Store.sh $prj $info8
+fim_etapa $prj parser CS0004 Checkstyle
+
+fi
 
 
 #####################################################################################
@@ -4,6 +4,7 @@
  prj=$1
  TOOLS=~/workspace/WarningsFIX/tools
  SCRIPTS=~/workspace/WarningsFIX/scripts
+ source $SCRIPTS/Timing.sh
  PARSER=~/workspace/WarningsFIX/parser
 
 cd $PROG/$prj
@@ -61,7 +62,7 @@ Deferred
 Writable
 "
 
-iniciodaexecucaodaescjava=`date +%s`
+inicio_etapa
 mkdir $PROG/$prj/outputs/07-esc-java-$prj 
 pwd
 for java7 in $(find source -name "*.java"); do
@@ -73,23 +74,15 @@ nome9=${java7//\//-}
                         cd $TOOLS/ESCJava
                         mkdir $PROG/$prj/outputs/07-esc-java-$prj/07-esc-java-$nome9                         
                         for TYPE in $TIPOS_AVISOS 
-                          do ./escjava2 -NoWarn All -Warn $TYPE -cp $PROG/$prj/source $PROG/$prj/$java7 >& $PROG/$prj/outputs/07-esc-java-#$prj/07-esc-java-$nome9/07-esc-java-$TYPE-$nome9.txt 
+                          do medir ./escjava2 -NoWarn All -Warn $TYPE -cp $PROG/$prj/source $PROG/$prj/$java7 >& $PROG/$prj/outputs/07-esc-java-#$prj/07-esc-java-$nome9/07-esc-java-$TYPE-$nome9.txt 
       			done                       
 done
 
-#terminiodaexecucaodaescjava=`date +%s`
-#soma13=`expr $terminiodaexecucaodaescjava - $iniciodaexecucaodaescjava`
-#resultado13=`expr 10800 + $soma13`
-#tempo13=`date -d @$resultado13 +%H:%M:%S`
-#echo Tempo gasto para execução da  ESCJava: $tempo13
-#info13="O-tempo-gasto-para-execução-da-ESCJava"
-#info13="$info13-$tempo13"
-
 # Redefinindo para JDK 1.7
 		        export JAVA_HOME=$TOOLS/jdk1.7.0
                         export PATH=$JAVA_HOME/bin:$PATH
 
-#bash $SCRIPTS/Store.sh $prj $info13
+fim_etapa $prj ferramenta EJ0007 ESCJava
 
 
 
@@ -105,7 +98,12 @@ done
 #####################################################################################
  
 cd $PROG/$prj 
-iniciodaexecucaodoparserdaescjava=`date +%s`
+# com WARNINGSFIX_INGEST=service os relatorios sao inseridos depois, por
+# scripts/Ingest.sh (warningfix.ingest.IngestionService), numa unica JVM
+if [ "$WARNINGSFIX_INGEST" != "service" ]
+then
+
+inicio_etapa
 
 for java8 in $(find source -name "*.java"); do
 nome10=${java8//\//-}
@@ -115,7 +113,7 @@ nome10=${java8//\//-}
                         do TXT2=$PROG/$prj/outputs/07-esc-java-$prj/07-esc-java-$nome10/07-esc-java-$TYPE2-$nome10.txt
 if [ `cat $TXT2 | wc -l` -ne 0 ] 
 then                        
-                        bash $SCRIPTS/Parser_ESCJava.sh $TXT2 $nome10 $prj $TYPE2 
+                        medir bash $SCRIPTS/Parser_ESCJava.sh $TXT2 $nome10 $prj $TYPE2 
 fi
                         done
 
@@ -124,16 +122,9 @@ done
 
 
 
-#terminiodaexecucaodoparserdaescjava=`date +%s`
-#soma14=`expr $terminiodaexecucaodoparserdaescjava - $iniciodaexecucaodoparserdaescjava`
-#resultado14=`expr 10800 + $soma13 + $soma14`
-#tempo14=`date -d @$resultado14 +%H:%M:%S`
-#echo Tempo gasto para execução parser  ESCJava: $tempo14 
-#info14="O-tempo-gasto-para-execução-parser-ESCJava"
-#info14="$info14-$tempo14"
-#info_total_escjava="$tempo14"
-#echo Tempo gasto para execução da ferramenta ESCJava: $info_total_escjava
-#bash $SCRIPTS/Store.sh $prj $info14
+fim_etapa $prj parser EJ0007 ESCJava
+
+fi
 
 
 #####################################################################################
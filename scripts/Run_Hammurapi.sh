@@ -20,6 +20,7 @@ unzip -o $2 -d  programs_analyzeds/
 	mkdir $PROG/$prj
 	TOOLS=/home/auri/NetBeansProjects/WarningsFIX/tools
         SCRIPTS=/home/auri/NetBeansProjects/WarningsFIX/scripts
+        source $SCRIPTS/Timing.sh
         PARSER=/home/auri/NetBeansProjects/WarningsFIX/parser
 
 
@@ -33,7 +34,7 @@ unzip -o $2 -d  programs_analyzeds/
 #                                                                                   #   
 #####################################################################################
 
-iniciodaexecucaodahammurapi=`date +%s`
+inicio_etapa
 
 	        # Executando Hammurapi
 		#echo -e "\tHammurapi"
@@ -43,13 +44,53 @@ iniciodaexecucaodahammurapi=`date +%s`
                 mkdir $PROG/$prj/treemap/suspection_rate 
                 mkdir $PROG/$prj/treemap/tools 
                 mkdir $PROG/$prj/treemap/warnings
-                mkdir $TOOLS/Hammurapi-3.18.4/projects/$prj 
-		cp -r $TOOLS/Hammurapi-3.18.4/projects/empty/* $TOOLS/Hammurapi-3.18.4/projects/$prj
+                # O projeto (e o banco DB/$prj) e mantido entre execucoes: o
+                # Hammurapi reaproveita os resultados das unidades cujo
+                # tamanho e checksum nao mudaram e so revisa as alteradas.
+                # Para revisar tudo de novo: ant clean no diretorio do projeto.
+                if [ ! -d $TOOLS/Hammurapi-3.18.4/projects/$prj ]
+                then
+                    mkdir $TOOLS/Hammurapi-3.18.4/projects/$prj 
+		    cp -r $TOOLS/Hammurapi-3.18.4/projects/empty/* $TOOLS/Hammurapi-3.18.4/projects/$prj
+                fi
+                # projetos criados antes do violations.tsv recebem o build.xml
+                # do modelo (projectName vem por -D); os demais mantem o seu,
+                # que pode ter waivers, stylesheets ou classpath proprios
+                if ! grep -q hammurapi.violationsFile $TOOLS/Hammurapi-3.18.4/projects/$prj/build.xml
+                then
+                    cp $TOOLS/Hammurapi-3.18.4/projects/empty/build.xml $TOOLS/Hammurapi-3.18.4/projects/$prj
+                fi
+                # fontes removidos do programa nao podem continuar na revisao
+                rm -rf $TOOLS/Hammurapi-3.18.4/projects/$prj/src/*
 		cp -r $PROG/$prj/source/* $TOOLS/Hammurapi-3.18.4/projects/$prj/src
+                # review/ e mantido: o Hammurapi so reescreve as paginas das
+                # unidades revisadas de novo. As paginas (e as copias em
+                # outputs) dos fontes que sairam do programa sao apagadas, o
+                # parser as leria como warnings
+                if [ -d $TOOLS/Hammurapi-3.18.4/projects/$prj/review/source ]
+                then
+                    cd $TOOLS/Hammurapi-3.18.4/projects/$prj/review/source
+                    for PAGE in $(find . -name '*.java.html')
+                    do
+                        if [ ! -f $PROG/$prj/source/${PAGE%.html} ]
+                        then
+                            rm -f $PAGE
+                            rm -f $PROG/$prj/outputs/01-hammurapi-$prj/source/$PAGE
+                            rm -f $PROG/$prj/outputs/01-hammurapi-$prj/review/source/$PAGE
+                        fi
+                    done
+                fi
                 cp -r $PROG/$prj/lib/* $TOOLS/Hammurapi-3.18.4/projects/$prj/lib 
                 cd $TOOLS/Hammurapi-3.18.4/projects/$prj
-                ant clean 
-	        ant -DprojectName=$prj  > /dev/null 2>&1
+                # Com o warningsFixOutput (Hammurapi compilado desta arvore) os
+                # warnings vao direto para o banco; WARNINGSFIX_HTML=nao
+                # dispensa tambem as paginas HTML
+                HTML_OPT=
+                if [ "$WARNINGSFIX_HTML" = "nao" ]
+                then
+                    HTML_OPT=-Dhammurapi.noHtml=true
+                fi
+	        medir ant -DprojectName=$prj $HTML_OPT > /dev/null 2>&1
                
             	# Copiando relatorios para programa
 		cp -rf $TOOLS/Hammurapi-3.18.4/projects/$prj/review/* $PROG/$prj/outputs/01-hammurapi-$prj 
@@ -57,14 +98,7 @@ iniciodaexecucaodahammurapi=`date +%s`
 
               
 
-terminiodaexecucaodahammurapi=`date +%s`
-soma=`expr $terminiodaexecucaodahammurapi - $iniciodaexecucaodahammurapi`
-resultado=`expr 10800 + $soma`
-tempo=`date -d @$resultado +%H:%M:%S`
-#echo Tempo gasto para execução da hammurapi: $tempo
-info="O-tempo-gasto-para-execução-da-hammurapi"
-info="$info-$tempo"
-#bash $SCRIPTS/Store.sh $prj $info
+fim_etapa $prj ferramenta HA0001 Hammurapi
 
 
 #####################################################################################
@@ -77,7 +111,14 @@ info="$info-$tempo"
 #                                                                                   #   
 #####################################################################################
 
-iniciodaexecucaodoparserdahammurapi=`date +%s`  
+# com WARNINGSFIX_INGEST=service os relatorios sao inseridos depois, por
+# scripts/Ingest.sh (warningfix.ingest.IngestionService), numa unica JVM
+# com o warningsFixOutput os warnings ja estao no banco: as paginas HTML
+# nao sao lidas
+if [ "$WARNINGSFIX_INGEST" != "service" ] && [ ! -f $PROG/$prj/outputs/01-hammurapi-$prj/warningsfix-output ]
+then
+
+inicio_etapa
 
                       
                   				   
@@ -85,20 +126,13 @@ iniciodaexecucaodoparserdahammurapi=`date +%s`
 
    
               for HAMMU in $(find . -name '*.java.html')
-                  do bash $SCRIPTS/Parser_Hammurapi2.sh  $PROG/$prj/outputs/01-hammurapi-$prj/source/$HAMMU $prj $HAMMU 
+                  do medir bash $SCRIPTS/Parser_Hammurapi2.sh  $PROG/$prj/outputs/01-hammurapi-$prj/source/$HAMMU $prj $HAMMU 
               done
                  
    
-terminiodaexecucaodoparserdahammurapi=`date +%s`
-soma2=`expr $terminiodaexecucaodoparserdahammurapi - $iniciodaexecucaodoparserdahammurapi`
-resultado2=`expr 10800 + $soma1 + $soma2`
-tempo2=`date -d @$resultado2 +%H:%M:%S`
-#echo Tempo gasto para execução parser hammurapi: $tempo2 
-info2="O-tempo-gasto-para-execução-parser-hammurapi"
-info2="$info2-$tempo2"
-info_total_hammurapi="$tempo2"
-echo Tempo gasto para execução da ferramenta Hammurapi: $info_total_hammurapi
-#bash $SCRIPTS/Store.sh $prj $info2
+fim_etapa $prj parser HA0001 Hammurapi
+
+fi
 
                         
 #####################################################################################
@@ -3,6 +3,7 @@
         prj=$1
 	TOOLS=~/workspace/WarningsFIX/tools
         SCRIPTS=~/workspace/WarningsFIX/scripts
+        source $SCRIPTS/Timing.sh
         PARSER=~/workspace/WarningsFIX/parser
 
 export JAVA_HOME=$TOOLS/jdk1.7.0
@@ -15,7 +16,7 @@ cd $PROG/$prj
 #                              Executar ferramenta  JCSC                            #
 #                                                                                   #   
 #####################################################################################
-iniciodaexecucaodajcsc=`date +%s`
+inicio_etapa
 mkdir $PROG/$prj/outputs/03-jcsc-$prj 
 		# Encontrar lista dos fontes
 		for java in $(find source -name "*.java"); do                       
@@ -27,18 +28,11 @@ mkdir $PROG/$prj/outputs/03-jcsc-$prj
 			#echo "----- Arquivo: $java -----"
 			# Executando JCSC
 			echo -e "\tJCSC"
-		$TOOLS/JCSC/bin/jcsc.sh -r $TOOLS/JCSC/rules/jcsc.jcsc.xml $java > $PROG/$prj/outputs/03-jcsc-$prj/03-jcsc-$nome.txt
+		medir $TOOLS/JCSC/bin/jcsc.sh -r $TOOLS/JCSC/rules/jcsc.jcsc.xml $java > $PROG/$prj/outputs/03-jcsc-$prj/03-jcsc-$nome.txt
 
 done
 
-terminiodaexecucaodajcsc=`date +%s`
-soma5=`expr $terminiodaexecucaodajcsc - $iniciodaexecucaodajcsc`
-resultado5=`expr 10800 + $soma5`
-tempo5=`date -d @$resultado5 +%H:%M:%S`
-#echo Tempo gasto para execução da JCSC: $tempo5
-info5="O-tempo-gasto-para-execução-da-JCSC"
-info5="$info5-$tempo5"
-#bash $SCRIPTS/Store.sh $prj $info5
+fim_etapa $prj ferramenta JC0003 JCSC
 
 #####################################################################################
 #                              Executar ferramenta  JCSC                            #
@@ -50,28 +44,26 @@ info5="$info5-$tempo5"
 #                                    DADOS para Parser                              #
 #                                                                                   #   
 #####################################################################################
-iniciodaexecucaodoparserdajcsc=`date +%s`
+# com WARNINGSFIX_INGEST=service os relatorios sao inseridos depois, por
+# scripts/Ingest.sh (warningfix.ingest.IngestionService), numa unica JVM
+if [ "$WARNINGSFIX_INGEST" != "service" ]
+then
+
+inicio_etapa
 
 for java2 in $(find source -name "*.java"); do
 nome2=${java2//\//-}
 TXT3=$PROG/$prj/outputs/03-jcsc-$prj/03-jcsc-$nome2.txt 
 if [ `cat $TXT3 | wc -l` -ne 0 ] 
 then                        
-                        bash $SCRIPTS/Parser_JCSC.sh $TXT3 $prj $nome2 
+                        medir bash $SCRIPTS/Parser_JCSC.sh $TXT3 $prj $nome2 
 fi
 
 done
 
-terminiodaexecucaodoparserdajcsc=`date +%s`
-soma6=`expr $terminiodaexecucaodoparserdajcsc - $iniciodaexecucaodoparserdajcsc`
-resultado6=`expr 10800 + $soma5 + $soma6`
-tempo6=`date -d @$resultado6 +%H:%M:%S`
-#echo Tempo gasto para execução parser JCSC: $tempo6 
-info6="O-tempo-gasto-para-execução-parser-JCSC"
-info6="$info6-$tempo6"
-info_total_jcsc="$tempo6"
-echo Tempo gasto para execução da ferramenta JCSC: $info_total_jcsc 
-#bash $SCRIPTS/Store.sh $prj $info6
+fim_etapa $prj parser JC0003 JCSC
+
+fi
 
 #####################################################################################
 #                                    DADOS para Parser                              #
@@ -4,6 +4,7 @@
         prj=$1
 	TOOLS=~/workspace/WarningsFIX/tools
         SCRIPTS=~/workspace/WarningsFIX/scripts
+        source $SCRIPTS/Timing.sh
         PARSER=~/workspace/WarningsFIX/parser
 
 export JAVA_HOME=$TOOLS/jdk1.7.0
@@ -18,7 +19,7 @@ export JAVA_HOME=$TOOLS/jdk1.7.0
 
 cd $PROG/$prj
 
-iniciodaexecucaodajlint=`date +%s`
+inicio_etapa
 
 TIPOS_AVISOS="synchronization 
 deadlock 
@@ -53,18 +54,11 @@ class=${java9/%java/class}
 			#echo -e "\tJLint"
                         mkdir $PROG/$prj/outputs/05-jlint-$prj/05-jlint-$nome5 
                         for TYPE in $TIPOS_AVISOS 
-			do jlint -all +$TYPE $class >& $PROG/$prj/outputs/05-jlint-$prj/05-jlint-$nome5/05-jlint-$nome5-$TYPE.txt 
+			do medir jlint -all +$TYPE $class >& $PROG/$prj/outputs/05-jlint-$prj/05-jlint-$nome5/05-jlint-$nome5-$TYPE.txt 
                         done
 done
 
-terminiodaexecucaodajlint=`date +%s`
-soma9=`expr $terminiodaexecucaodajlint - $iniciodaexecucaodajlint`
-resultado9=`expr 10800 + $soma9`
-tempo9=`date -d @$resultado9 +%H:%M:%S`
-#echo Tempo gasto para execução da JLint: $tempo9
-info9="O-tempo-gasto-para-execução-da-JLint"
-info9="$info9-$tempo9"
-#bash $SCRIPTS/Store.sh $prj $info9
+fim_etapa $prj ferramenta JL0005 JLint
 
 #####################################################################################
 #                              Executar ferramenta JLint                            #
@@ -76,7 +70,12 @@ info9="$info9-$tempo9"
 #                                                                                   #   
 #####################################################################################
 
-iniciodaexecucaodoparserdajlint=`date +%s`
+# com WARNINGSFIX_INGEST=service os relatorios sao inseridos depois, por
+# scripts/Ingest.sh (warningfix.ingest.IngestionService), numa unica JVM
+if [ "$WARNINGSFIX_INGEST" != "service" ]
+then
+
+inicio_etapa
 
 for java10 in $(find source -name "*.java"); do
 nome6=${java10//\//-}
@@ -86,22 +85,15 @@ TXT2=$PROG/$prj/outputs/05-jlint-$prj/05-jlint-$nome6/05-jlint-$nome6-$TYPE2.txt
 if [ `cat $TXT2 | wc -l` -ne 0 ] 
 then
                         
-                        bash $SCRIPTS/Parser_JLint.sh $TXT2 $prj $nome6 $TYPE2 
+                        medir bash $SCRIPTS/Parser_JLint.sh $TXT2 $prj $nome6 $TYPE2 
 fi
                         done
 
 done
 
-terminiodaexecucaodoparserdajlint=`date +%s`
-soma10=`expr $terminiodaexecucaodoparserdajlint - $iniciodaexecucaodoparserdajlint`
-resultado10=`expr 10800 + $soma9 + $soma10`
-tempo10=`date -d @$resultado10 +%H:%M:%S`
-#echo Tempo gasto para execução parser JLint: $tempo10 
-info10="O-tempo-gasto-para-execução-parser-JLint"
-info10="$info10-$tempo10"
-info_total_jlint="$tempo10"
-echo Tempo gasto para execução da ferramenta Jlint: $info_total_jlint
-#bash $SCRIPTS/Store.sh $prj $info10
+fim_etapa $prj parser JL0005 JLint
+
+fi
 
 #####################################################################################
 #                                    DADOS para Parser                              #
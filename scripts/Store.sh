@@ -1,9 +1,12 @@
 #####################################################
 #####    armazenar dados de duração de execução no BD
+#####
+#####    Store.sh <programa> <info>
+#####    Store.sh <programa> <etapa> <ferramenta> <wall_ms> <cpu_ms> <peak_rss_kb> [linhas]
 #####################################################
 
-JARS_DIR=$WARNING_HOME/parser/StoreTime/lib 
-DIR_TMP=$WARNING_HOME/tmp					   
+JARS_DIR=$WARNINGSFIX_HOME/parser/StoreTime/lib 
+DIR_TMP=$WARNINGSFIX_HOME/tmp					   
 cd $JARS_DIR
 
 ls *.jar >& $DIR_TMP/libs-jar-store.txt
@@ -15,9 +18,9 @@ do JARS=$JARS_DIR/$JAR:$JARS
 done
 
 
-cd /home/vr/Dropbox/WarningsFix/parser/StoreTime/bin
+cd $WARNINGSFIX_HOME/parser/StoreTime/bin
 CLASSPATH=$CLASSPATH:$JARS
-java -cp $CLASSPATH Store $1 $2
+java -cp $CLASSPATH Store "$@"
 
 #####################################################
 #####           Terminando                      #####  
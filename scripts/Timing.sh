@@ -0,0 +1,43 @@
+#####################################################
+#####    medir duração das etapas do pipeline
+#####
+#####    source $SCRIPTS/Timing.sh
+#####    inicio_etapa
+#####    medir <comando> ...        (cada processo da etapa)
+#####    fim_etapa $prj <ferramenta|parser> <id ferramenta> <nome>
+#####
+#####    Grava no BD (tabela runtime, scripts/runtime.sql) o tempo
+#####    de relógio, o tempo de CPU somado dos processos medidos, o
+#####    maior RSS entre eles e, para parsers, os warnings inseridos.
+#####################################################
+
+ETAPA_RUSAGE=${DIR_TMP:-/tmp}/etapa-$$.txt
+
+inicio_etapa() {
+	ETAPA_INICIO=`date +%s%N`
+	: > $ETAPA_RUSAGE
+}
+
+medir() {
+	if [ -x /usr/bin/time ]
+	then
+		/usr/bin/time -a -o $ETAPA_RUSAGE -f "%U %S %M" "$@"
+	else
+		"$@"
+	fi
+}
+
+fim_etapa() {
+	local etapa_fim=`date +%s%N`
+	local wall_ms=$(( (etapa_fim - ETAPA_INICIO) / 1000000 ))
+	# linhas "Command exited with non-zero status" são ignoradas
+	local medidas=`awk 'NF == 3 && $1 ~ /^[0-9.]+$/ { n++; cpu += $1 + $2; if ($3 > rss) rss = $3 }
+		END { if (n == 0) print "-1 -1"; else printf "%d %d\n", cpu * 1000, rss }' $ETAPA_RUSAGE`
+	local tempo=`date -u -d @$(( wall_ms / 1000 )) +%H:%M:%S`
+	echo Tempo gasto para execução $2 $4: $tempo
+	bash $SCRIPTS/Store.sh $1 $2 $3 $wall_ms $medidas
+}
+
+#####################################################
+#####           Terminando                      #####  
+#####################################################
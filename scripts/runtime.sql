@@ -0,0 +1,63 @@
+-----------------------------------------------------------------------------
+-- Tempo de execucao por etapa do pipeline (ferramenta, parser, treemap)
+--
+-- psql -U postgres -d conquest -f scripts/runtime.sql
+--
+-- Requer scripts/versioning.sql (tabela versao_corrente).
+-----------------------------------------------------------------------------
+
+-- info continua aceitando o texto livre gravado pelas versoes antigas do
+-- Store; as medidas passam a ser gravadas em colunas tipadas.
+ALTER TABLE runtime ADD COLUMN versaoprograma character varying(255) DEFAULT '';
+ALTER TABLE runtime ADD COLUMN etapa character varying(16);
+ALTER TABLE runtime ADD COLUMN ferramenta character varying(64);
+ALTER TABLE runtime ADD COLUMN registrado timestamp DEFAULT now();
+ALTER TABLE runtime ADD COLUMN wall_ms bigint;
+ALTER TABLE runtime ADD COLUMN cpu_ms bigint;
+-- Pico de memoria residente do processo que executou a etapa: o da
+-- ferramenta para as etapas medidas pelos scripts; o da JVM inteira ate o
+-- fim da etapa para as etapas medidas em Java (parser e treemap), que
+-- inclui as etapas anteriores e os parsers executados ao mesmo tempo.
+ALTER TABLE runtime ADD COLUMN peak_rss_kb bigint;
+ALTER TABLE runtime ADD COLUMN linhas bigint;
+
+CREATE INDEX runtime_programa_idx ON runtime (nameprogram, etapa, ferramenta);
+
+-- A mesma trigger de warning e arquivo preenche a versao analisada.
+CREATE OR REPLACE FUNCTION versao_atual_programa() RETURNS trigger AS $$
+DECLARE
+    programa_atual character varying(1024);
+BEGIN
+    IF NEW.versaoprograma IS NULL OR NEW.versaoprograma = '' THEN
+        IF TG_TABLE_NAME = 'arquivo' THEN
+            programa_atual := NEW.nomeprograma;
+        ELSE
+            programa_atual := NEW.nameprogram;
+        END IF;
+        SELECT v.versaoprograma INTO NEW.versaoprograma
+          FROM versao_corrente v
+         WHERE v.nomeprograma = programa_atual;
+        IF NEW.versaoprograma IS NULL THEN
+            NEW.versaoprograma := '';
+        END IF;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER runtime_versao BEFORE INSERT ON runtime
+    FOR EACH ROW EXECUTE PROCEDURE versao_atual_programa();
+
+-- Tempo de cada etapa por versao analisada: permite comparar execucoes e
+-- encontrar regressoes (warningfix.runtime.RuntimeReport).
+CREATE VIEW runtime_por_etapa AS
+    SELECT nameprogram, versaoprograma, etapa, ferramenta,
+           count(*) AS execucoes,
+           sum(wall_ms) AS wall_ms,
+           sum(cpu_ms) AS cpu_ms,
+           max(peak_rss_kb) AS peak_rss_kb,
+           sum(linhas) AS linhas,
+           min(registrado) AS inicio
+      FROM runtime
+     WHERE etapa IS NOT NULL
+     GROUP BY nameprogram, versaoprograma, etapa, ferramenta;
@@ -0,0 +1,131 @@
+-----------------------------------------------------------------------------
+-- Versoes de programa e diferenca de warnings entre duas versoes
+--
+-- psql -U postgres -d conquest -f scripts/versioning.sql
+-----------------------------------------------------------------------------
+
+ALTER TABLE warning ADD COLUMN versaoprograma character varying(255) DEFAULT '';
+
+CREATE INDEX warning_programa_versao_idx ON warning (nameprogram, versaoprograma);
+
+-- Versao em analise de cada programa. warningfix.diff.ProgramVersion grava
+-- a versao informada a cada execucao, inclusive quando uma versao ja
+-- registrada e analisada de novo; programa guarda so a ordem das versoes.
+CREATE TABLE versao_corrente (
+    nomeprograma character varying(1024) PRIMARY KEY,
+    versaoprograma character varying(255) NOT NULL
+);
+
+-- Os parsers nao conhecem a versao analisada: ela e registrada em
+-- versao_corrente (warningfix.diff.ProgramVersion) antes das ferramentas
+-- executarem e copiada para arquivo e warning no momento da insercao.
+-- Linhas gravadas com a versao explicita (warningfix.ingest) nao mudam.
+CREATE FUNCTION versao_atual_programa() RETURNS trigger AS $$
+DECLARE
+    programa_atual character varying(1024);
+BEGIN
+    IF NEW.versaoprograma IS NULL OR NEW.versaoprograma = '' THEN
+        IF TG_TABLE_NAME = 'warning' THEN
+            programa_atual := NEW.nameprogram;
+        ELSE
+            programa_atual := NEW.nomeprograma;
+        END IF;
+        SELECT v.versaoprograma INTO NEW.versaoprograma
+          FROM versao_corrente v
+         WHERE v.nomeprograma = programa_atual;
+        IF NEW.versaoprograma IS NULL THEN
+            NEW.versaoprograma := '';
+        END IF;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER warning_versao BEFORE INSERT ON warning
+    FOR EACH ROW EXECUTE PROCEDURE versao_atual_programa();
+
+CREATE TRIGGER arquivo_versao BEFORE INSERT ON arquivo
+    FOR EACH ROW EXECUTE PROCEDURE versao_atual_programa();
+
+-- Resultado do ultimo diff de cada programa (warningfix.diff.WarningDiff).
+-- status: NEW, FIXED ou PERSISTING
+CREATE TABLE warning_diff (
+    id serial PRIMARY KEY,
+    nameprogram character varying(1024),
+    versaoanterior character varying(255),
+    versaoatual character varying(255),
+    nameclass character varying(1024),
+    beginline integer,
+    tool character varying(64),
+    typewarning character varying(255),
+    status character varying(16)
+);
+
+CREATE INDEX warning_diff_programa_idx ON warning_diff (nameprogram, status, nameclass);
+
+-- warning e arquivo guardam todas as versoes registradas; as consultas de
+-- exibicao usam so as linhas da versao em analise. Programas analisados
+-- antes do registro de versoes nao tem versao_corrente e ficam com ''.
+CREATE VIEW warning_corrente AS
+    SELECT w.*
+      FROM warning w
+     WHERE coalesce(w.versaoprograma, '') = coalesce((SELECT v.versaoprograma
+                                                         FROM versao_corrente v
+                                                        WHERE v.nomeprograma = w.nameprogram), '');
+
+CREATE VIEW arquivo_corrente AS
+    SELECT a.*
+      FROM arquivo a
+     WHERE coalesce(a.versaoprograma, '') = coalesce((SELECT v.versaoprograma
+                                                         FROM versao_corrente v
+                                                        WHERE v.nomeprograma = a.nomeprograma), '');
+
+-- As views que leem warning e arquivo passam a ler a versao em analise,
+-- com as mesmas colunas: as views que dependem delas nao mudam.
+CREATE OR REPLACE VIEW quantity_warnings_line_priority AS
+    SELECT DISTINCT warning.nameprogram, warning.nameclass, warning.beginline,
+           CASE warning.priority WHEN 1 THEN count(warning.priority) ELSE 0::bigint END AS qnt_nv1,
+           CASE warning.priority WHEN 2 THEN count(warning.priority) ELSE 0::bigint END AS qnt_nv2,
+           CASE warning.priority WHEN 3 THEN count(warning.priority) ELSE 0::bigint END AS qnt_nv3,
+           CASE warning.priority WHEN 4 THEN count(warning.priority) ELSE 0::bigint END AS qnt_nv4,
+           CASE warning.priority WHEN 5 THEN count(warning.priority) ELSE 0::bigint END AS qnt_nv5
+      FROM warning_corrente warning
+     GROUP BY warning.nameprogram, warning.nameclass, warning.beginline, warning.priority
+     ORDER BY warning.nameprogram, warning.nameclass, warning.beginline;
+
+CREATE OR REPLACE VIEW quantity_tool_and_warnings_for_line AS
+    SELECT DISTINCT warning.nameprogram, warning.nameclass, warning.beginline,
+           count(DISTINCT warning.description) AS quantidade_warning,
+           count(DISTINCT warning.tool) AS quantidade_ferramentas
+      FROM warning_corrente warning
+     WHERE warning.nameclass !~~ '%.jar' AND warning.nameclass !~~ '%.class'
+     GROUP BY warning.nameprogram, warning.nameclass, warning.beginline
+     ORDER BY warning.nameprogram, warning.nameclass, warning.beginline;
+
+CREATE OR REPLACE VIEW quantity_warnings_for_tool_for_line AS
+    SELECT warning.nameprogram, warning.nameclass, warning.beginline,
+           CASE warning.tool WHEN 'HA0001' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_ha,
+           CASE warning.tool WHEN 'FB0002' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_fb,
+           CASE warning.tool WHEN 'JC0003' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_jc,
+           CASE warning.tool WHEN 'CS0004' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_cs,
+           CASE warning.tool WHEN 'JL0005' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_jl,
+           CASE warning.tool WHEN 'PM0006' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_pm,
+           CASE warning.tool WHEN 'EJ0007' THEN count(warning.tool) ELSE 0::bigint END AS qnt_avisos_ej
+      FROM warning_corrente warning
+     WHERE warning.nameclass !~~ '%.jar' AND warning.nameclass !~~ '%.class'
+     GROUP BY warning.nameprogram, warning.nameclass, warning.beginline, warning.tool
+     ORDER BY warning.nameprogram, warning.nameclass, warning.beginline;
+
+CREATE OR REPLACE VIEW quantity_tools_for_package AS
+    SELECT a.nameclass, b.nomepacote, count(DISTINCT a.tool) AS quant_tools
+      FROM warning_corrente a
+      JOIN arquivo_corrente b ON a.nameprogram = b.nomeprograma AND a.nameclass = b.nomearquivo
+           AND a.nameclass !~~ '%.class' AND a.nameclass !~~ '%jlint%' AND a.nameclass !~~ '%.zip'
+     GROUP BY a.nameclass, b.nomepacote;
+
+CREATE OR REPLACE VIEW quantity_warnings_for_package AS
+    SELECT a.nameclass, b.nomepacote, count(*) AS quant_warnings
+      FROM warning_corrente a
+      JOIN arquivo_corrente b ON a.nameprogram = b.nomeprograma AND a.nameclass = b.nomearquivo
+           AND a.nameclass !~~ '%.class' AND a.nameclass !~~ '%jlint%' AND a.nameclass !~~ '%.zip'
+     GROUP BY a.nameclass, b.nomepacote;
@@ -0,0 +1,123 @@
+-----------------------------------------------------------------------------
+-- Dicionario de tipos e descricoes de warning
+--
+-- psql -U postgres -d conquest -f scripts/warning_type.sql
+-- (depois de scripts/versioning.sql)
+--
+-- Cada linha de warning repetia typewarning e description por extenso; as
+-- poucas centenas de tipos e alguns milhares de descricoes distintas passam
+-- a ser gravados uma unica vez e referenciados por id inteiro.
+-----------------------------------------------------------------------------
+
+-- O tipo e relativo a ferramenta (o mesmo nome pode existir em duas).
+CREATE TABLE warning_type (
+    id serial PRIMARY KEY,
+    tool character varying(64) NOT NULL,
+    typewarning character varying(255) NOT NULL,
+    UNIQUE (tool, typewarning)
+);
+
+-- A descricao e global, de modo que count(DISTINCT descriptionid) conta o
+-- mesmo que o antigo count(DISTINCT description). O indice unico usa md5 por
+-- causa do limite de tamanho das chaves de btree.
+CREATE TABLE warning_description (
+    id serial PRIMARY KEY,
+    description character varying(1024) NOT NULL
+);
+
+CREATE UNIQUE INDEX warning_description_md5_idx ON warning_description (md5(description));
+
+ALTER TABLE warning ADD COLUMN typeid integer REFERENCES warning_type (id);
+ALTER TABLE warning ADD COLUMN descriptionid integer REFERENCES warning_description (id);
+
+-- warning_corrente (scripts/versioning.sql) passa a ter as novas colunas
+CREATE OR REPLACE VIEW warning_corrente AS
+    SELECT w.*
+      FROM warning w
+     WHERE coalesce(w.versaoprograma, '') = coalesce((SELECT v.versaoprograma
+                                                         FROM versao_corrente v
+                                                        WHERE v.nomeprograma = w.nameprogram), '');
+
+-- Migracao das linhas ja cadastradas
+INSERT INTO warning_type (tool, typewarning)
+    SELECT DISTINCT tool, coalesce(typewarning, '') FROM warning;
+
+INSERT INTO warning_description (description)
+    SELECT DISTINCT coalesce(description, '') FROM warning;
+
+UPDATE warning w
+   SET typeid = t.id,
+       descriptionid = d.id,
+       typewarning = NULL,
+       description = NULL
+  FROM warning_type t, warning_description d
+ WHERE t.tool = w.tool
+   AND t.typewarning = coalesce(w.typewarning, '')
+   AND md5(d.description) = md5(coalesce(w.description, ''))
+   AND d.description = coalesce(w.description, '');
+
+-- Os parsers antigos (parser/*) continuam inserindo o texto: a trigger troca
+-- o texto pelos ids. warningfix.ingest.WarningWriter ja insere os ids,
+-- resolvidos pelo cache warningfix.ingest.WarningTypes.
+CREATE FUNCTION tipo_warning() RETURNS trigger AS $$
+BEGIN
+    IF NEW.typeid IS NULL THEN
+        SELECT t.id INTO NEW.typeid
+          FROM warning_type t
+         WHERE t.tool = NEW.tool
+           AND t.typewarning = coalesce(NEW.typewarning, '');
+        IF NEW.typeid IS NULL THEN
+            INSERT INTO warning_type (tool, typewarning)
+                VALUES (NEW.tool, coalesce(NEW.typewarning, ''))
+                RETURNING id INTO NEW.typeid;
+        END IF;
+    END IF;
+    IF NEW.descriptionid IS NULL THEN
+        SELECT d.id INTO NEW.descriptionid
+          FROM warning_description d
+         WHERE md5(d.description) = md5(coalesce(NEW.description, ''))
+           AND d.description = coalesce(NEW.description, '');
+        IF NEW.descriptionid IS NULL THEN
+            INSERT INTO warning_description (description)
+                VALUES (coalesce(NEW.description, ''))
+                RETURNING id INTO NEW.descriptionid;
+        END IF;
+    END IF;
+    NEW.typewarning := NULL;
+    NEW.description := NULL;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER warning_tipo BEFORE INSERT ON warning
+    FOR EACH ROW EXECUTE PROCEDURE tipo_warning();
+
+-- Warnings com o texto de tipo e descricao, para as consultas de exibicao
+CREATE VIEW warning_texto AS
+    SELECT w.id, w.tool, w.nameprogram, w.nameclass, w.namemethod,
+           w.beginline, w.endline, w.begincolumn, w.endcolumn,
+           t.typewarning, d.description, w.priority, w.externalinfourl,
+           w.ruleset, w.versaoprograma, w.typeid, w.descriptionid
+      FROM warning w
+      JOIN warning_type t ON t.id = w.typeid
+      JOIN warning_description d ON d.id = w.descriptionid;
+
+-- warning_texto so da versao em analise, para as telas do WarningsFIX
+CREATE VIEW warning_texto_corrente AS
+    SELECT t.*
+      FROM warning_texto t
+     WHERE coalesce(t.versaoprograma, '') = coalesce((SELECT v.versaoprograma
+                                                         FROM versao_corrente v
+                                                        WHERE v.nomeprograma = t.nameprogram), '');
+
+-- Mesmas colunas de antes: as views que dependem desta nao mudam.
+CREATE OR REPLACE VIEW quantity_tool_and_warnings_for_line AS
+    SELECT DISTINCT warning.nameprogram, warning.nameclass, warning.beginline,
+           count(DISTINCT warning.descriptionid) AS quantidade_warning,
+           count(DISTINCT warning.tool) AS quantidade_ferramentas
+      FROM warning_corrente warning
+     WHERE warning.nameclass !~~ '%.jar' AND warning.nameclass !~~ '%.class'
+     GROUP BY warning.nameprogram, warning.nameclass, warning.beginline
+     ORDER BY warning.nameprogram, warning.nameclass, warning.beginline;
+
+VACUUM FULL ANALYZE warning;
@@ -13,11 +13,7 @@ public class Conexao {
 	public static Connection cn;
 
 	public static void open() throws SQLException, ClassNotFoundException {
-		final String url = "jdbc:postgresql://localhost:5432/conquest";
-		final String usuario = "postgres";
-		final String senha = "postgres";
-		Class.forName("org.postgresql.Driver");
-		cn = DriverManager.getConnection(url, usuario, senha);
+		cn = newConnection();
                 
                 
 //                final String url = "jdbc:derby://localhost:1527/conquest";
@@ -28,4 +24,17 @@ public class Conexao {
 
 	}
 
+	/**
+	 * Opens a connection that is not shared through {@link #cn}, for work
+	 * that streams one result set while writing through another statement.
+	 */
+	public static Connection newConnection() throws SQLException,
+			ClassNotFoundException {
+		final String url = "jdbc:postgresql://localhost:5432/conquest";
+		final String usuario = "postgres";
+		final String senha = "postgres";
+		Class.forName("org.postgresql.Driver");
+		return DriverManager.getConnection(url, usuario, senha);
+	}
+
 }
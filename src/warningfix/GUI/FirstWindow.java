@@ -14,10 +14,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 
 import javax.swing.*;
 
+import warningfix.diff.ProgramVersion;
+import warningfix.diff.WarningDiff;
+import warningfix.ingest.IngestionService;
+import warningfix.runtime.StageTimer;
+
 @SuppressWarnings("unused")
 public class FirstWindow extends JPanel implements ActionListener,
 		PropertyChangeListener {
@@ -36,6 +43,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 	private JPanel panel_first_window_bottom;
 	private JFrame frame;
 	private JTextField choose;
+	private JTextField version;
 	private String name_tool_running;
 	Process p1, p2, p3, p4, p5, p6, p7;
 	private int quant_tools;
@@ -60,12 +68,26 @@ public class FirstWindow extends JPanel implements ActionListener,
 				Thread.sleep(random.nextInt(1000));
 			} catch (InterruptedException ignore) {
 			}
+
+			// registra a versão antes das ferramentas: os parsers gravam os
+			// avisos com a versão em análise do programa
+			String program_version = version.getText().trim();
+			if (program_version.equals("")) {
+				program_version = ProgramVersion.defaultVersion();
+			}
+			try {
+				ProgramVersion.register(program_name, program_version);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			} catch (ClassNotFoundException e) {
+				e.printStackTrace();
+			}
 			while (quant_tools <= 7) {
 				switch (quant_tools) {					
 				
 				case 1:
 					try {
-						p1 = Runtime.getRuntime().exec(
+						p1 = exec(
 								"bash scripts/Run_Hammurapi.sh " + program_name
 										+ " " + choose.getText());
 						p1.waitFor();
@@ -92,7 +114,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 				
 				case 2:
 					try {
-						p2 = Runtime.getRuntime().exec(
+						p2 = exec(
 								"bash scripts/Run_FindBugs.sh " + program_name);
 						p2.waitFor(); // espera pelo processo terminar
 						setNameToolRunning("Findbugs");
@@ -117,7 +139,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 
 				case 3:
 					try {
-						p3 = Runtime.getRuntime().exec(
+						p3 = exec(
 								"bash scripts/Run_JCSC.sh " + program_name);
 						p3.waitFor(); // espera pelo processo terminar
 						setNameToolRunning("JCSC");
@@ -142,7 +164,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 
 				case 4:
 					try {
-						p4 = Runtime.getRuntime().exec(
+						p4 = exec(
 								"bash scripts/Run_CheckStyle.sh "
 										+ program_name);
 						p4.waitFor(); // espera pelo processo terminar
@@ -168,7 +190,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 
 				case 5:
 					try {
-						p5 = Runtime.getRuntime().exec(
+						p5 = exec(
 								"bash scripts/Run_JLint.sh " + program_name);
 						p5.waitFor(); // espera pelo processo terminar
 						setNameToolRunning("JLint");
@@ -194,7 +216,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 
 				case 6:
 					try {
-						p6 = Runtime.getRuntime().exec(
+						p6 = exec(
 								"bash scripts/Run_PMD.sh " + program_name);
 						p6.waitFor(); // espera pelo processo terminar
 						setNameToolRunning("PMD");
@@ -219,7 +241,7 @@ public class FirstWindow extends JPanel implements ActionListener,
 
 				case 7:
 					try {
-						p7 = Runtime.getRuntime().exec(
+						p7 = exec(
 								"bash scripts/Run_ESCJAVA.sh " + program_name);
 						p7.waitFor(); // espera pelo processo terminar
 						setNameToolRunning("ESCJava");
@@ -245,6 +267,36 @@ public class FirstWindow extends JPanel implements ActionListener,
 				quant_tools++;
 				setProgress(getProgressGlobal());
 			}
+
+			// insere os relatórios das ferramentas numa única JVM
+			try {
+				new IngestionService().ingest(program_name, new File(
+						"programs_analyzeds/" + program_name), program_version);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			} catch (ClassNotFoundException e) {
+				e.printStackTrace();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+
+			// compara com a versão anterior, se houver
+			try {
+				String previous_version = ProgramVersion.previous(
+						program_name, program_version);
+				if (previous_version != null) {
+					WarningDiff diff = new WarningDiff();
+					diff.diff(program_name, previous_version, program_version);
+					System.out.println("Diff " + previous_version + " -> "
+							+ program_version + ": " + diff.getNewWarnings()
+							+ " new, " + diff.getFixedWarnings() + " fixed, "
+							+ diff.getPersistingWarnings() + " persisting");
+				}
+			} catch (SQLException e) {
+				e.printStackTrace();
+			} catch (ClassNotFoundException e) {
+				e.printStackTrace();
+			}
 			return null;
 		}
 
@@ -295,6 +347,10 @@ public class FirstWindow extends JPanel implements ActionListener,
 		// choose.setText("Procure um arquivo com os dados do programa que será anilisado!!!");
 		panel_first_window_top.add(choose);
 
+		panel_first_window_top.add(new JLabel("Version"));
+		version = new JTextField(10);
+		panel_first_window_top.add(version);
+
 		analyze = new JButton("FIND");
 		panel_first_window_top.add(analyze);
 		analyze.addActionListener(new Action() {
@@ -428,11 +484,35 @@ public class FirstWindow extends JPanel implements ActionListener,
 
 	}
 
+	/**
+	 * Runs one of the Run_*.sh scripts. The reports are ingested afterwards
+	 * by {@link IngestionService}, so the scripts skip their parsers.
+	 */
+	private static Process exec(String command) throws IOException {
+		Map<String, String> env = new HashMap<String, String>(System.getenv());
+		env.put("WARNINGSFIX_INGEST", "service");
+		String[] envp = new String[env.size()];
+		int i = 0;
+		for (Map.Entry<String, String> var : env.entrySet()) {
+			envp[i++] = var.getKey() + "=" + var.getValue();
+		}
+		return Runtime.getRuntime().exec(command, envp);
+	}
+
 	private void createTreeMap() throws PropertyVetoException,
 			InterruptedException, NumberFormatException,
 			ClassNotFoundException, SQLException {
 		frame.setVisible(false);
+		StageTimer timer = new StageTimer(program_name, StageTimer.TREEMAP,
+				"WarningsFIX");
 		final TABs_GUI tabs = new TABs_GUI(program_name);
+		try {
+			timer.stop(-1);
+			System.out.println("Tempo gasto para criar TreeMap: "
+					+ timer.getWallMs() + " ms");
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
 		SwingUtilities.invokeLater(new Runnable() {
 			
 			public void run() {
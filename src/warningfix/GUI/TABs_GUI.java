@@ -18,6 +18,7 @@ import javax.swing.JTable;
 import javax.swing.SwingConstants;
 import javax.swing.table.JTableHeader;
 
+import warningfix.runtime.RuntimeReport;
 import warningfix.treemap.JTreeMapWarningsFIX;
 
 public class TABs_GUI extends JPanel {
@@ -42,7 +43,7 @@ public class TABs_GUI extends JPanel {
 		tabbedPane.setMnemonicAt(0, KeyEvent.VK_1);
 
 		// criar aba de geração de relatório
-		String sql1 = "SELECT A.nameclass, A.beginline, B.nome as tool_name, A.description, A.priority FROM warning A INNER JOIN ferramenta B ON A.tool=B.id AND A.nameprogram='"
+		String sql1 = "SELECT A.nameclass, A.beginline, B.nome as tool_name, A.description, A.priority FROM warning_texto_corrente A INNER JOIN ferramenta B ON A.tool=B.id AND A.nameprogram='"
 				+ programa_name
 				+ "' AND (A.nameclass NOT LIKE '%.class' AND A.nameclass NOT LIKE '%jlint%' AND A.nameclass NOT LIKE '%.zip') order by A.nameclass, A.beginline";
 		JTable warnings = new JTable(JTreeMapWarningsFIX.Search(sql1));
@@ -66,6 +67,19 @@ public class TABs_GUI extends JPanel {
 		tabbedPane.addTab("Report", null, scrollPane, "Report");
 		tabbedPane.setMnemonicAt(0, KeyEvent.VK_2);
 
+		// aba com o tempo gasto em cada etapa das análises do programa
+		JComponent runtime;
+		try {
+			JTable stages = new JTable(RuntimeReport.byStage(programa_name));
+			stages.setAutoCreateRowSorter(true);
+			runtime = new JScrollPane(stages);
+		} catch (SQLException e) {
+			// banco sem as colunas de scripts/runtime.sql
+			e.printStackTrace();
+			runtime = makeTextPanel("Runtime not available: " + e.getMessage());
+		}
+		tabbedPane.addTab("Runtime", null, runtime, "Runtime");
+
 		add(tabbedPane);
 		// The following line enables to use scrolling tabs.
 		tabbedPane.setTabLayoutPolicy(JTabbedPane.SCROLL_TAB_LAYOUT);
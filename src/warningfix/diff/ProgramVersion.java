@@ -0,0 +1,133 @@
+package warningfix.diff;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import warningfix.Connection.Conexao;
+
+/**
+ * Registers the version of a program before its tools run. The version is
+ * stored in versao_corrente, which the insert triggers created by
+ * scripts/versioning.sql copy into every arquivo and warning row written by
+ * the parsers; {@link warningfix.ingest.WarningWriter} writes it explicitly.
+ */
+public class ProgramVersion {
+
+	/**
+	 * Version used when the user does not inform one.
+	 */
+	public static String defaultVersion() {
+		return new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+	}
+
+	/**
+	 * Makes <code>version</code> the version under analysis of the program.
+	 * A version analyzed before keeps its place in the version order, and
+	 * the warning and arquivo rows of its previous analysis are removed, so
+	 * the new analysis replaces them.
+	 *
+	 * @return the registered version
+	 */
+	public static String register(String program, String version)
+			throws SQLException, ClassNotFoundException {
+		Connection cn = Conexao.newConnection();
+		try {
+			cn.setAutoCommit(false);
+			PreparedStatement ps = cn
+					.prepareStatement("select id from programa where nomeprograma=? AND versaoprograma=?");
+			ps.setString(1, program);
+			ps.setString(2, version);
+			ResultSet rs = ps.executeQuery();
+			boolean exists = rs.next();
+			rs.close();
+			ps.close();
+
+			if (exists) {
+				ps = cn.prepareStatement("delete from warning where nameprogram=? AND versaoprograma=?");
+				ps.setString(1, program);
+				ps.setString(2, version);
+				ps.executeUpdate();
+				ps.close();
+				ps = cn.prepareStatement("delete from arquivo where nomeprograma=? AND versaoprograma=?");
+				ps.setString(1, program);
+				ps.setString(2, version);
+				ps.executeUpdate();
+				ps.close();
+			} else {
+				ps = cn.prepareStatement("insert into programa (nomeprograma, descricaoprograma, versaoprograma) values (?,?,?)");
+				ps.setString(1, program);
+				ps.setString(2, "");
+				ps.setString(3, version);
+				ps.executeUpdate();
+				ps.close();
+			}
+
+			ps = cn.prepareStatement("update versao_corrente set versaoprograma=? where nomeprograma=?");
+			ps.setString(1, version);
+			ps.setString(2, program);
+			int updated = ps.executeUpdate();
+			ps.close();
+			if (updated == 0) {
+				ps = cn.prepareStatement("insert into versao_corrente (nomeprograma, versaoprograma) values (?,?)");
+				ps.setString(1, program);
+				ps.setString(2, version);
+				ps.executeUpdate();
+				ps.close();
+			}
+			cn.commit();
+			return version;
+		} finally {
+			cn.close();
+		}
+	}
+
+	/**
+	 * Version under analysis of the program, or the empty string for
+	 * programs analyzed before versions were recorded.
+	 */
+	public static String current(String program) throws SQLException,
+			ClassNotFoundException {
+		Connection cn = Conexao.newConnection();
+		try {
+			PreparedStatement ps = cn
+					.prepareStatement("select versaoprograma from versao_corrente where nomeprograma=?");
+			ps.setString(1, program);
+			ResultSet rs = ps.executeQuery();
+			String version = rs.next() ? rs.getString(1) : "";
+			rs.close();
+			ps.close();
+			return version;
+		} finally {
+			cn.close();
+		}
+	}
+
+	/**
+	 * Version registered right before <code>version</code>, or
+	 * <code>null</code> if there is none.
+	 */
+	public static String previous(String program, String version)
+			throws SQLException, ClassNotFoundException {
+		Connection cn = Conexao.newConnection();
+		try {
+			PreparedStatement ps = cn
+					.prepareStatement("select versaoprograma from programa where nomeprograma=? AND id < (select min(id) from programa where nomeprograma=? AND versaoprograma=?) order by id desc");
+			ps.setString(1, program);
+			ps.setString(2, program);
+			ps.setString(3, version);
+			ps.setMaxRows(1);
+			ResultSet rs = ps.executeQuery();
+			String previous = rs.next() ? rs.getString(1) : null;
+			rs.close();
+			ps.close();
+			return previous;
+		} finally {
+			cn.close();
+		}
+	}
+
+}
@@ -0,0 +1,333 @@
+package warningfix.diff;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import warningfix.Connection.Conexao;
+
+/**
+ * Compares the warnings of two analyzed versions of a program and stores in
+ * warning_diff which warnings are new, fixed or persisting.
+ * <p>
+ * Warnings are matched by (class, tool, type, normalized description) and a
+ * line that may have moved at most {@link #getLineTolerance()} lines. The older
+ * version is the build side of a hash join: only its keys and lines are kept
+ * in memory, packed in int arrays. The newer version is streamed through a
+ * database cursor and probed against that table in a single pass, so neither
+ * side is ever materialized as a list of warning objects.
+ */
+public class WarningDiff {
+
+	public static final String NEW = "NEW";
+	public static final String FIXED = "FIXED";
+	public static final String PERSISTING = "PERSISTING";
+
+	private static final int FETCH_SIZE = 10000;
+	private static final int BATCH_SIZE = 1000;
+
+	private static final String SELECT_WARNINGS = "select nameclass, tool, typewarning, description, beginline from warning_texto where nameprogram=? AND versaoprograma=?";
+
+	private int lineTolerance = 3;
+	private int newWarnings;
+	private int fixedWarnings;
+	private int persistingWarnings;
+
+	/**
+	 * Lines of the older version sharing the same key. Matched lines are
+	 * flagged instead of removed, so the unmatched ones are the fixed warnings.
+	 */
+	private static class LineBucket {
+		String nameclass;
+		String tool;
+		String typewarning;
+		int[] lines = new int[2];
+		int size;
+		BitSet matched = new BitSet();
+
+		void add(int line) {
+			if (size == lines.length) {
+				int[] newLines = new int[size * 2];
+				System.arraycopy(lines, 0, newLines, 0, size);
+				lines = newLines;
+			}
+			lines[size++] = line;
+		}
+
+		/**
+		 * Claims the unmatched line closest to <code>line</code>.
+		 *
+		 * @return false if no unmatched line is within the tolerance
+		 */
+		boolean match(int line, int tolerance) {
+			int best = -1;
+			int bestDistance = tolerance + 1;
+			for (int i = matched.nextClearBit(0); i < size; i = matched
+					.nextClearBit(i + 1)) {
+				int distance = Math.abs(lines[i] - line);
+				if (distance < bestDistance) {
+					best = i;
+					bestDistance = distance;
+					if (distance == 0) {
+						break;
+					}
+				}
+			}
+			if (best == -1) {
+				return false;
+			}
+			matched.set(best);
+			return true;
+		}
+	}
+
+	public int getLineTolerance() {
+		return lineTolerance;
+	}
+
+	public void setLineTolerance(int lineTolerance) {
+		this.lineTolerance = lineTolerance;
+	}
+
+	public int getNewWarnings() {
+		return newWarnings;
+	}
+
+	public int getFixedWarnings() {
+		return fixedWarnings;
+	}
+
+	public int getPersistingWarnings() {
+		return persistingWarnings;
+	}
+
+	/**
+	 * Line and column references of a description, e.g. "line 12",
+	 * "linha 12:5" or "column 7". Other numbers are real values and are kept.
+	 */
+	private static final Pattern POSITION = Pattern.compile(
+			"\\b(line|lines|linha|linhas|column|col|coluna)(\\s*[:=]?\\s*)\\d+(:\\d+)?",
+			Pattern.CASE_INSENSITIVE);
+
+	/**
+	 * Replaces line and column references of a warning description with #,
+	 * collapses blanks and ignores case, so messages such as "Variable x
+	 * declared at line 12 is never used" match across versions while
+	 * "Line is longer than 80 characters (is 93)" and "(is 95)" do not.
+	 */
+	static String normalize(String description) {
+		if (description == null) {
+			return "";
+		}
+		String positionless = POSITION.matcher(description).replaceAll(
+				"$1$2#");
+		StringBuilder sb = new StringBuilder(positionless.length());
+		boolean blank = false;
+		for (int i = 0; i < positionless.length(); i++) {
+			char c = positionless.charAt(i);
+			if (Character.isWhitespace(c)) {
+				if (!blank && sb.length() > 0) {
+					sb.append(' ');
+				}
+				blank = true;
+			} else {
+				sb.append(Character.toLowerCase(c));
+				blank = false;
+			}
+		}
+		int length = sb.length();
+		if (length > 0 && sb.charAt(length - 1) == ' ') {
+			sb.setLength(length - 1);
+		}
+		return sb.toString();
+	}
+
+	private static String key(String nameclass, String tool,
+			String typewarning, String description) {
+		return nameclass + '\u0000' + tool + '\u0000' + typewarning + '\u0000'
+				+ normalize(description);
+	}
+
+	/**
+	 * Diffs two versions of the same program.
+	 */
+	public void diff(String program, String previousVersion,
+			String currentVersion) throws SQLException, ClassNotFoundException {
+		diff(program, previousVersion, program, currentVersion);
+	}
+
+	/**
+	 * Diffs two analyzed programs, which may have been registered under
+	 * different names. The result replaces the previous diff of
+	 * <code>currentProgram</code>.
+	 */
+	public void diff(String previousProgram, String previousVersion,
+			String currentProgram, String currentVersion) throws SQLException,
+			ClassNotFoundException {
+		newWarnings = 0;
+		fixedWarnings = 0;
+		persistingWarnings = 0;
+
+		Connection reader = Conexao.newConnection();
+		Connection writer = Conexao.newConnection();
+		try {
+			// o driver do postgres so usa cursor fora do modo autocommit
+			reader.setAutoCommit(false);
+			writer.setAutoCommit(false);
+
+			Map<String, LineBucket> buckets = build(reader, previousProgram,
+					previousVersion);
+
+			PreparedStatement delete = writer
+					.prepareStatement("delete from warning_diff where nameprogram=?");
+			delete.setString(1, currentProgram);
+			delete.executeUpdate();
+			delete.close();
+
+			PreparedStatement insert = writer
+					.prepareStatement("insert into warning_diff (nameprogram, versaoanterior, versaoatual, nameclass, beginline, tool, typewarning, status) values (?,?,?,?,?,?,?,?)");
+			insert.setString(1, currentProgram);
+			insert.setString(2, previousVersion);
+			insert.setString(3, currentVersion);
+			int pending = 0;
+
+			PreparedStatement select = reader.prepareStatement(SELECT_WARNINGS);
+			select.setFetchSize(FETCH_SIZE);
+			select.setString(1, currentProgram);
+			select.setString(2, currentVersion);
+			ResultSet rs = select.executeQuery();
+			while (rs.next()) {
+				String nameclass = rs.getString(1);
+				String tool = rs.getString(2);
+				String typewarning = rs.getString(3);
+				int line = rs.getInt(5);
+				LineBucket bucket = buckets.get(key(nameclass, tool,
+						typewarning, rs.getString(4)));
+
+				String status;
+				if (bucket != null && bucket.match(line, lineTolerance)) {
+					status = PERSISTING;
+					persistingWarnings++;
+				} else {
+					status = NEW;
+					newWarnings++;
+				}
+				addRow(insert, nameclass, line, tool, typewarning, status);
+				if (++pending == BATCH_SIZE) {
+					insert.executeBatch();
+					pending = 0;
+				}
+			}
+			rs.close();
+			select.close();
+
+			Iterator<LineBucket> it = buckets.values().iterator();
+			while (it.hasNext()) {
+				LineBucket bucket = it.next();
+				for (int i = bucket.matched.nextClearBit(0); i < bucket.size; i = bucket.matched
+						.nextClearBit(i + 1)) {
+					addRow(insert, bucket.nameclass, bucket.lines[i],
+							bucket.tool, bucket.typewarning, FIXED);
+					fixedWarnings++;
+					if (++pending == BATCH_SIZE) {
+						insert.executeBatch();
+						pending = 0;
+					}
+				}
+			}
+			if (pending > 0) {
+				insert.executeBatch();
+			}
+			insert.close();
+			writer.commit();
+			reader.commit();
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	private static void addRow(PreparedStatement insert, String nameclass,
+			int line, String tool, String typewarning, String status)
+			throws SQLException {
+		insert.setString(4, nameclass);
+		insert.setInt(5, line);
+		insert.setString(6, tool);
+		insert.setString(7, typewarning);
+		insert.setString(8, status);
+		insert.addBatch();
+	}
+
+	/**
+	 * Streams the older version into the hash table of the join.
+	 */
+	private static Map<String, LineBucket> build(Connection reader,
+			String program, String version) throws SQLException {
+		Map<String, LineBucket> buckets = new HashMap<String, LineBucket>();
+		PreparedStatement select = reader.prepareStatement(SELECT_WARNINGS);
+		select.setFetchSize(FETCH_SIZE);
+		select.setString(1, program);
+		select.setString(2, version);
+		ResultSet rs = select.executeQuery();
+		while (rs.next()) {
+			String nameclass = rs.getString(1);
+			String tool = rs.getString(2);
+			String typewarning = rs.getString(3);
+			String key = key(nameclass, tool, typewarning, rs.getString(4));
+			LineBucket bucket = buckets.get(key);
+			if (bucket == null) {
+				bucket = new LineBucket();
+				bucket.nameclass = nameclass;
+				bucket.tool = tool;
+				bucket.typewarning = typewarning;
+				buckets.put(key, bucket);
+			}
+			bucket.add(rs.getInt(5));
+		}
+		rs.close();
+		select.close();
+		return buckets;
+	}
+
+	/**
+	 * Usage: WarningDiff &lt;program&gt; [previous version] [current version]
+	 * [line tolerance]. Without versions the version under analysis is
+	 * compared with the version registered before it.
+	 */
+	public static void main(String[] args) throws SQLException,
+			ClassNotFoundException {
+		if (args.length < 1) {
+			System.out
+					.println("Uso: warningfix.diff.WarningDiff <programa> [versao_anterior] [versao_atual] [tolerancia_linhas]");
+			return;
+		}
+		String program = args[0];
+		String currentVersion = args.length > 2 ? args[2] : ProgramVersion
+				.current(program);
+		String previousVersion = args.length > 1 ? args[1] : ProgramVersion
+				.previous(program, currentVersion);
+		if (previousVersion == null) {
+			System.out.println("Programa " + program
+					+ " possui apenas uma versao analisada");
+			return;
+		}
+
+		WarningDiff diff = new WarningDiff();
+		if (args.length > 3) {
+			diff.setLineTolerance(Integer.parseInt(args[3]));
+		}
+		long start = System.currentTimeMillis();
+		diff.diff(program, previousVersion, currentVersion);
+		System.out.println(program + " " + previousVersion + " -> "
+				+ currentVersion + ": " + diff.getNewWarnings() + " new, "
+				+ diff.getFixedWarnings() + " fixed, "
+				+ diff.getPersistingWarnings() + " persisting ("
+				+ (System.currentTimeMillis() - start) + " ms)");
+	}
+}
@@ -0,0 +1,84 @@
+package warningfix.ingest;
+
+import java.io.File;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * outputs/04-checkstyle-&lt;program&gt;/04-checkstyle.xml, read with StAX.
+ */
+public class CheckstyleReportParser implements ReportParser {
+
+	public String getToolId() {
+		return "CS0004";
+	}
+
+	public String getToolName() {
+		return "checkstyle";
+	}
+
+	public String getToolType() {
+		return "codigo fonte";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File report = new File(Reports.outputs(programDir), "04-checkstyle-"
+				+ program + "/04-checkstyle.xml");
+		if (Reports.isEmpty(report)) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+
+		InputStream in = Reports.xml(report);
+		try {
+			XMLStreamReader xml = XMLInputFactory.newInstance()
+					.createXMLStreamReader(in);
+			String nameclass = null;
+			while (xml.hasNext()) {
+				if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String element = xml.getLocalName();
+				if (element.equals("file")) {
+					nameclass = Reports.className(
+							xml.getAttributeValue(null, "name"), program);
+				} else if (element.equals("error") && nameclass != null) {
+					int line = Reports.parseInt(
+							xml.getAttributeValue(null, "line"), -1);
+					int column = Reports.parseInt(
+							xml.getAttributeValue(null, "column"), -1);
+					session.warning(getToolId(), program, nameclass, "", line,
+							line, column, column,
+							xml.getAttributeValue(null, "source"),
+							xml.getAttributeValue(null, "message"),
+							priority(xml.getAttributeValue(null, "severity")),
+							"", "");
+				}
+			}
+			xml.close();
+		} finally {
+			in.close();
+		}
+		return true;
+	}
+
+	private static int priority(String severity) {
+		if ("ignore".equals(severity)) {
+			return 1;
+		}
+		if ("info".equals(severity)) {
+			return 2;
+		}
+		if ("warning".equals(severity)) {
+			return 3;
+		}
+		if ("error".equals(severity)) {
+			return 4;
+		}
+		return 0;
+	}
+}
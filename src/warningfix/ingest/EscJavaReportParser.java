@@ -0,0 +1,107 @@
+package warningfix.ingest;
+
+import java.io.BufferedReader;
+import java.io.File;
+
+/**
+ * outputs/07-esc-java-&lt;program&gt;/07-esc-java-&lt;source&gt;.txt, or one
+ * directory per class with one file per warning type when the program was
+ * analyzed by Run_ESCJAVA2.sh. Lines are file:line:severity:description
+ * (Type).
+ */
+public class EscJavaReportParser implements ReportParser {
+
+	private static final String PREFIX = "07-esc-java-";
+
+	public String getToolId() {
+		return "EJ0007";
+	}
+
+	public String getToolName() {
+		return "escjava";
+	}
+
+	public String getToolType() {
+		return "codigo fonte";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File dir = new File(Reports.outputs(programDir), PREFIX + program);
+		if (!dir.isDirectory()) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+
+		File[] files = Reports.list(dir);
+		for (int i = 0; i < files.length; i++) {
+			String name = files[i].getName();
+			if (!name.startsWith(PREFIX)) {
+				continue;
+			}
+			if (files[i].isDirectory()) {
+				String nameclass = Reports.classNameOfDashed(name
+						.substring(PREFIX.length()));
+				File[] reports = Reports.list(files[i]);
+				for (int j = 0; j < reports.length; j++) {
+					parseReport(program, nameclass, reports[j], session);
+				}
+			} else if (name.endsWith(".txt")) {
+				parseReport(program, Reports.classNameOfDashed(name.substring(
+						PREFIX.length(), name.length() - 4)), files[i],
+						session);
+			}
+		}
+		return true;
+	}
+
+	private void parseReport(String program, String nameclass, File report,
+			WarningWriter.Session session) throws Exception {
+		if (Reports.isEmpty(report)) {
+			return;
+		}
+		String source = "/source/" + nameclass.replace('.', '/');
+		BufferedReader in = Reports.reader(report);
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.indexOf(source) == -1) {
+					continue;
+				}
+				String[] fields = line.split(":");
+				if (fields.length <= 3) {
+					continue;
+				}
+				int beginline = Reports.parseInt(fields[1], -1);
+				session.warning(getToolId(), program, nameclass, "",
+						beginline, beginline, -1, -1, type(fields[3]),
+						fields[3], priority(fields[2]), "", "");
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String type(String description) {
+		int open = description.indexOf('(');
+		if (open < 0) {
+			return "all";
+		}
+		int close = description.indexOf(')', open);
+		return close < 0 ? description.substring(open + 1) : description
+				.substring(open + 1, close);
+	}
+
+	private static int priority(String severity) {
+		if (severity.indexOf("FatalError") != -1) {
+			return 4;
+		}
+		if (severity.indexOf("Error") != -1) {
+			return 3;
+		}
+		if (severity.indexOf("Caution") != -1) {
+			return 2;
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,118 @@
+package warningfix.ingest;
+
+import java.io.File;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * outputs/02-findbugs-&lt;program&gt;.xml. Only the attributes that are
+ * persisted are read from each BugInstance: its type and priority, the long
+ * message and the first Method and SourceLine directly under it.
+ */
+public class FindBugsReportParser implements ReportParser {
+
+	public String getToolId() {
+		return "FB0002";
+	}
+
+	public String getToolName() {
+		return "findbugs";
+	}
+
+	public String getToolType() {
+		return "bytecode";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File report = new File(Reports.outputs(programDir), "02-findbugs-"
+				+ program + ".xml");
+		if (Reports.isEmpty(report)) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+
+		InputStream in = Reports.xml(report);
+		try {
+			XMLStreamReader xml = XMLInputFactory.newInstance()
+					.createXMLStreamReader(in);
+			int depth = 0;
+			int bugDepth = 0;
+			String type = null;
+			int priority = 0;
+			String nameclass = null;
+			String namemethod = null;
+			String sourcepath = null;
+			int start = -1;
+			int end = -1;
+			String longMessage = null;
+			while (xml.hasNext()) {
+				int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					String element = xml.getLocalName();
+					if (element.equals("BugInstance")) {
+						bugDepth = depth;
+						type = xml.getAttributeValue(null, "type");
+						priority = Reports.parseInt(
+								xml.getAttributeValue(null, "priority"), 0);
+						nameclass = null;
+						namemethod = null;
+						sourcepath = null;
+						start = -1;
+						end = -1;
+						longMessage = null;
+					} else if (bugDepth > 0 && depth == bugDepth + 1) {
+						if (element.equals("Class") && nameclass == null) {
+							nameclass = xml.getAttributeValue(null, "classname");
+						} else if (element.equals("Method")
+								&& namemethod == null) {
+							namemethod = xml.getAttributeValue(null, "name");
+						} else if (element.equals("SourceLine")
+								&& sourcepath == null) {
+							sourcepath = xml.getAttributeValue(null,
+									"sourcepath");
+							start = Reports.parseInt(
+									xml.getAttributeValue(null, "start"), -1);
+							end = Reports.parseInt(
+									xml.getAttributeValue(null, "end"), -1);
+						} else if (element.equals("LongMessage")) {
+							// getElementText consome o END_ELEMENT
+							longMessage = xml.getElementText();
+							depth--;
+						}
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth == bugDepth) {
+						bugDepth = 0;
+						String className = sourcepath != null ? Reports
+								.className(sourcepath, program)
+								: outerClass(nameclass);
+						if (className != null) {
+							session.warning(getToolId(), program, className,
+									namemethod == null ? "<no name>"
+											: namemethod, start, end, -1, -1,
+									type, longMessage, priority, "", "");
+						}
+					}
+					depth--;
+				}
+			}
+			xml.close();
+		} finally {
+			in.close();
+		}
+		return true;
+	}
+
+	private static String outerClass(String classname) {
+		if (classname == null) {
+			return null;
+		}
+		int inner = classname.indexOf('$');
+		return inner < 0 ? classname : classname.substring(0, inner);
+	}
+}
@@ -0,0 +1,125 @@
+package warningfix.ingest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+
+/**
+ * outputs/01-hammurapi-&lt;program&gt;/violations.tsv, written by the output
+ * element of the review (class, line, column, inspector, severity and
+ * message separated by tabs). Reviews without it are read from
+ * outputs/01-hammurapi-&lt;program&gt;/source/&lt;pkg&gt;/&lt;Class&gt;.java.html:
+ * the rows of the Violations table of each page (#, line, column, inspector,
+ * severity, description).
+ * <p>
+ * Reviews marked with warningsfix-output wrote their warnings to the
+ * database themselves (warningsFixOutput) and are not read again.
+ */
+public class HammurapiReportParser implements ReportParser {
+
+	private static final String VIOLATIONS = "<B style=\"color:blue\">Violations</B>";
+
+	public String getToolId() {
+		return "HA0001";
+	}
+
+	public String getToolName() {
+		return "hammurapi";
+	}
+
+	public String getToolType() {
+		return "codigo fonte";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File review = new File(Reports.outputs(programDir), "01-hammurapi-"
+				+ program);
+		if (new File(review, "warningsfix-output").isFile()) {
+			return false;
+		}
+
+		File violations = new File(review, "violations.tsv");
+		if (violations.isFile()) {
+			session.tool(getToolId(), getToolName(), getToolType());
+			parseViolations(program, violations, session);
+			return true;
+		}
+
+		File source = new File(review, "source");
+		if (!source.isDirectory()) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+		parseDir(program, source, "", session);
+		return true;
+	}
+
+	private void parseViolations(String program, File violations,
+			WarningWriter.Session session) throws Exception {
+		BufferedReader in = new BufferedReader(new InputStreamReader(
+				new FileInputStream(violations), "UTF-8"));
+		try {
+			String line;
+			while ((line = in.readLine()) != null) {
+				String[] fields = line.split("\t", -1);
+				if (fields.length < 6) {
+					continue;
+				}
+				int beginline = Reports.parseInt(fields[1], -1);
+				int column = Reports.parseInt(fields[2], -1);
+				session.warning(getToolId(), program, fields[0], "",
+						beginline, beginline, column, column, fields[3],
+						fields[5], Reports.parseInt(fields[4], 0), "", "");
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private void parseDir(String program, File dir, String packageName,
+			WarningWriter.Session session) throws Exception {
+		File[] files = Reports.list(dir);
+		for (int i = 0; i < files.length; i++) {
+			String name = files[i].getName();
+			if (files[i].isDirectory()) {
+				parseDir(program, files[i], packageName + name + ".", session);
+			} else if (name.endsWith(".java.html")) {
+				parsePage(program, files[i], packageName
+						+ name.substring(0, name.length() - 10), session);
+			}
+		}
+	}
+
+	private void parsePage(String program, File page, String nameclass,
+			WarningWriter.Session session) throws Exception {
+		BufferedReader in = Reports.reader(page);
+		try {
+			boolean violations = false;
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (!violations) {
+					violations = line.contains(VIOLATIONS);
+				} else if (line.trim().equals("</table>")) {
+					violations = false;
+				} else {
+					String[] cells = line.split("</td>");
+					if (cells.length < 6) {
+						continue;
+					}
+					int beginline = Reports.parseInt(Reports.text(cells[1]),
+							-1);
+					int column = Reports.parseInt(Reports.text(cells[2]), -1);
+					session.warning(getToolId(), program, nameclass, "",
+							beginline, beginline, column, column,
+							Reports.text(cells[3]), Reports.text(cells[5]),
+							Reports.parseInt(Reports.text(cells[4]), 0), "",
+							"");
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package warningfix.ingest;
+
+import java.io.File;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import warningfix.diff.ProgramVersion;
+import warningfix.runtime.StageTimer;
+
+/**
+ * Ingests the reports of all tools of an analyzed program in a single JVM,
+ * replacing the Parser_*.sh scripts, which started one JVM and one
+ * connection per report file. The parsers run concurrently and share one
+ * {@link WarningWriter}; the time and rows of each one are recorded in the
+ * runtime table as a parser stage.
+ */
+public class IngestionService {
+
+	private final List<ReportParser> parsers = new ArrayList<ReportParser>();
+
+	private int threads;
+
+	public IngestionService() {
+		parsers.add(new HammurapiReportParser());
+		parsers.add(new FindBugsReportParser());
+		parsers.add(new JcscReportParser());
+		parsers.add(new CheckstyleReportParser());
+		parsers.add(new JlintReportParser());
+		parsers.add(new PmdReportParser());
+		parsers.add(new EscJavaReportParser());
+		Iterator<ReportParser> it = ServiceLoader.load(ReportParser.class)
+				.iterator();
+		while (it.hasNext()) {
+			parsers.add(it.next());
+		}
+		threads = Math.min(parsers.size(), Runtime.getRuntime()
+				.availableProcessors());
+	}
+
+	public List<ReportParser> getParsers() {
+		return parsers;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Number of parsers run at the same time, and of pooled connections.
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Ingests the reports under programs_analyzeds/&lt;program&gt;/outputs.
+	 * A parser that fails does not stop the others.
+	 *
+	 * @param version version the warnings are recorded with, see
+	 *            {@link ProgramVersion#register(String, String)}
+	 * @return rows written by each tool that left a report, by tool id
+	 */
+	public Map<String, Long> ingest(final String program,
+			final File programDir, String version) throws SQLException,
+			ClassNotFoundException, InterruptedException {
+		final WarningWriter writer = new WarningWriter(threads, version);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		Map<String, Long> rows = new LinkedHashMap<String, Long>();
+		try {
+			List<Future<Long>> results = new ArrayList<Future<Long>>();
+			for (final ReportParser parser : parsers) {
+				results.add(executor.submit(new Callable<Long>() {
+					public Long call() throws Exception {
+						return ingest(program, programDir, parser, writer);
+					}
+				}));
+			}
+			for (int i = 0; i < parsers.size(); i++) {
+				try {
+					Long written = results.get(i).get();
+					if (written != null) {
+						rows.put(parsers.get(i).getToolId(), written);
+					}
+				} catch (ExecutionException e) {
+					System.out.println("Erro ao inserir relatorio da "
+							+ parsers.get(i).getToolName() + ":");
+					e.getCause().printStackTrace();
+				}
+			}
+		} finally {
+			executor.shutdown();
+			writer.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * @return rows written, or null if the tool left no report
+	 */
+	private static Long ingest(String program, File programDir,
+			ReportParser parser, WarningWriter writer) throws Exception {
+		// a espera por uma conexao do pool nao conta como tempo do parser
+		WarningWriter.Session session = writer.open();
+		StageTimer timer = new StageTimer(program, StageTimer.PARSER,
+				parser.getToolId());
+		boolean parsed = false;
+		try {
+			parsed = parser.parse(program, programDir, session);
+		} finally {
+			session.close(parsed);
+		}
+		if (!parsed) {
+			return null;
+		}
+		timer.stop(session.getRows());
+		System.out.println("Tempo gasto para execução parser "
+				+ parser.getToolName() + ": " + timer.getWallMs() + " ms, "
+				+ session.getRows() + " warnings");
+		return Long.valueOf(session.getRows());
+	}
+
+	/**
+	 * Usage: IngestionService &lt;program&gt; [program directory] [version]
+	 * [threads]. The version, when informed, is registered before the
+	 * reports are ingested; otherwise the version under analysis is used.
+	 */
+	public static void main(String[] args) throws SQLException,
+			ClassNotFoundException, InterruptedException {
+		if (args.length < 1) {
+			System.out
+					.println("Uso: warningfix.ingest.IngestionService <programa> [diretorio_programa] [versao] [threads]");
+			return;
+		}
+		String program = args[0];
+		File programDir = new File(args.length > 1 ? args[1]
+				: "programs_analyzeds/" + program);
+		String version = args.length > 2 && args[2].length() > 0 ? ProgramVersion
+				.register(program, args[2])
+				: ProgramVersion.current(program);
+		IngestionService service = new IngestionService();
+		if (args.length > 3) {
+			service.setThreads(Integer.parseInt(args[3]));
+		}
+		long start = System.currentTimeMillis();
+		Map<String, Long> rows = service.ingest(program, programDir, version);
+		System.out.println(program + ": " + rows + " ("
+				+ (System.currentTimeMillis() - start) + " ms)");
+	}
+}
@@ -0,0 +1,79 @@
+package warningfix.ingest;
+
+import java.io.BufferedReader;
+import java.io.File;
+
+/**
+ * outputs/03-jcsc-&lt;program&gt;/03-jcsc-source-&lt;pkg&gt;-&lt;Class&gt;.java.txt,
+ * one file per class with lines file:line:column:description:type:severity.
+ */
+public class JcscReportParser implements ReportParser {
+
+	private static final String PREFIX = "03-jcsc-";
+
+	public String getToolId() {
+		return "JC0003";
+	}
+
+	public String getToolName() {
+		return "jcsc";
+	}
+
+	public String getToolType() {
+		return "codigo fonte";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File dir = new File(Reports.outputs(programDir), PREFIX + program);
+		if (!dir.isDirectory()) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+
+		File[] reports = Reports.list(dir);
+		for (int i = 0; i < reports.length; i++) {
+			String name = reports[i].getName();
+			if (!name.startsWith(PREFIX) || !name.endsWith(".txt")
+					|| Reports.isEmpty(reports[i])) {
+				continue;
+			}
+			String nameclass = Reports.classNameOfDashed(name.substring(
+					PREFIX.length(), name.length() - 4));
+			BufferedReader in = Reports.reader(reports[i]);
+			try {
+				String line;
+				while ((line = in.readLine()) != null) {
+					if (line.contains(".java")) {
+						warning(program, nameclass, line, session);
+					}
+				}
+			} finally {
+				in.close();
+			}
+		}
+		return true;
+	}
+
+	private void warning(String program, String nameclass, String line,
+			WarningWriter.Session session) throws Exception {
+		String[] fields = line.split(":");
+		String description;
+		int type;
+		if (fields.length == 6) {
+			description = fields[3];
+			type = 4;
+		} else if (fields.length == 7) {
+			// a descricao continha ':'
+			description = fields[3].concat(fields[4]);
+			type = 5;
+		} else {
+			return;
+		}
+		int beginline = Reports.parseInt(fields[1], -1);
+		int column = Reports.parseInt(fields[2], -1);
+		session.warning(getToolId(), program, nameclass, "", beginline,
+				beginline, column, column, fields[type], description,
+				Reports.parseInt(fields[type + 1], 0), "", "");
+	}
+}
@@ -0,0 +1,78 @@
+package warningfix.ingest;
+
+import java.io.BufferedReader;
+import java.io.File;
+
+/**
+ * outputs/05-jlint-&lt;program&gt;/05-jlint-&lt;source&gt;/05-jlint-&lt;source&gt;-&lt;type&gt;.txt:
+ * one directory per class and one file per warning type, as written by
+ * Run_JLint.sh.
+ */
+public class JlintReportParser implements ReportParser {
+
+	private static final String PREFIX = "05-jlint-";
+
+	public String getToolId() {
+		return "JL0005";
+	}
+
+	public String getToolName() {
+		return "jlint";
+	}
+
+	public String getToolType() {
+		return "bytecode";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File dir = new File(Reports.outputs(programDir), PREFIX + program);
+		if (!dir.isDirectory()) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+
+		File[] classes = Reports.list(dir);
+		for (int i = 0; i < classes.length; i++) {
+			if (!classes[i].isDirectory()
+					|| !classes[i].getName().startsWith(PREFIX)) {
+				continue;
+			}
+			String dashed = classes[i].getName().substring(PREFIX.length());
+			String nameclass = Reports.classNameOfDashed(dashed);
+			String source = nameclass.replace('.', '/') + ".java";
+			String typePrefix = PREFIX + dashed + "-";
+
+			File[] reports = Reports.list(classes[i]);
+			for (int j = 0; j < reports.length; j++) {
+				String name = reports[j].getName();
+				if (!name.startsWith(typePrefix) || !name.endsWith(".txt")
+						|| Reports.isEmpty(reports[j])) {
+					continue;
+				}
+				String type = name.substring(typePrefix.length(),
+						name.length() - 4);
+				BufferedReader in = Reports.reader(reports[j]);
+				try {
+					String line;
+					while ((line = in.readLine()) != null) {
+						if (line.indexOf(source) == -1) {
+							continue;
+						}
+						String[] fields = line.split(":");
+						if (fields.length < 3) {
+							continue;
+						}
+						int beginline = Reports.parseInt(fields[1], -1);
+						session.warning(getToolId(), program, nameclass, "",
+								beginline, beginline, -1, -1, type, fields[2],
+								1, "", "");
+					}
+				} finally {
+					in.close();
+				}
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,76 @@
+package warningfix.ingest;
+
+import java.io.File;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * outputs/06-pmd-&lt;program&gt;/06-pmd-&lt;program&gt;.xml, read with StAX.
+ */
+public class PmdReportParser implements ReportParser {
+
+	public String getToolId() {
+		return "PM0006";
+	}
+
+	public String getToolName() {
+		return "pmd";
+	}
+
+	public String getToolType() {
+		return "codigo fonte";
+	}
+
+	public boolean parse(String program, File programDir,
+			WarningWriter.Session session) throws Exception {
+		File report = new File(Reports.outputs(programDir), "06-pmd-"
+				+ program + "/06-pmd-" + program + ".xml");
+		if (Reports.isEmpty(report)) {
+			return false;
+		}
+		session.tool(getToolId(), getToolName(), getToolType());
+
+		InputStream in = Reports.xml(report);
+		try {
+			XMLStreamReader xml = XMLInputFactory.newInstance()
+					.createXMLStreamReader(in);
+			String nameclass = null;
+			while (xml.hasNext()) {
+				if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String element = xml.getLocalName();
+				if (element.equals("file")) {
+					nameclass = Reports.className(
+							xml.getAttributeValue(null, "name"), program);
+				} else if (element.equals("violation") && nameclass != null) {
+					int beginline = Reports.parseInt(
+							xml.getAttributeValue(null, "beginline"), -1);
+					int endline = Reports.parseInt(
+							xml.getAttributeValue(null, "endline"), -1);
+					int begincolumn = Reports.parseInt(
+							xml.getAttributeValue(null, "begincolumn"), -1);
+					int endcolumn = Reports.parseInt(
+							xml.getAttributeValue(null, "endcolumn"), -1);
+					String rule = xml.getAttributeValue(null, "rule");
+					String ruleset = xml.getAttributeValue(null, "ruleset");
+					int priority = Reports.parseInt(
+							xml.getAttributeValue(null, "priority"), 0);
+					String url = xml.getAttributeValue(null, "externalInfoUrl");
+					// consome o elemento ate o fim
+					String description = xml.getElementText().trim();
+					session.warning(getToolId(), program, nameclass, "",
+							beginline, endline, begincolumn, endcolumn, rule,
+							description, priority, url, ruleset);
+				}
+			}
+			xml.close();
+		} finally {
+			in.close();
+		}
+		return true;
+	}
+}
@@ -0,0 +1,39 @@
+package warningfix.ingest;
+
+import java.io.File;
+
+/**
+ * Reads the report of one tool from programs_analyzeds/&lt;program&gt;/outputs
+ * and writes its warnings through a {@link WarningWriter.Session}.
+ * <p>
+ * Parsers other than the built-in ones are found through
+ * {@link java.util.ServiceLoader} (META-INF/services/warningfix.ingest.ReportParser).
+ * Each parser runs in its own thread, with its own session.
+ */
+public interface ReportParser {
+
+	/**
+	 * Id of the tool in the ferramenta table, e.g. HA0001.
+	 */
+	String getToolId();
+
+	/**
+	 * Name of the tool in the ferramenta table, e.g. hammurapi.
+	 */
+	String getToolName();
+
+	/**
+	 * "codigo fonte" or "bytecode".
+	 */
+	String getToolType();
+
+	/**
+	 * @param program
+	 *            name of the analyzed program
+	 * @param programDir
+	 *            programs_analyzeds/&lt;program&gt;
+	 * @return false if the tool left no report for the program
+	 */
+	boolean parse(String program, File programDir, WarningWriter.Session session)
+			throws Exception;
+}
@@ -0,0 +1,120 @@
+package warningfix.ingest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+
+/**
+ * Conventions shared by the reports in programs_analyzeds/&lt;program&gt;/outputs,
+ * as laid out by the Run_*.sh scripts.
+ */
+class Reports {
+
+	static File outputs(File programDir) {
+		return new File(programDir, "outputs");
+	}
+
+	/**
+	 * Class of a source path reported by a tool, e.g.
+	 * /.../prj/source/pkg/Foo.java or /.../prj/prj.zip:source/pkg/Foo.java
+	 * gives pkg.Foo.
+	 */
+	static String className(String path, String program) {
+		String relative = path.replace('\\', '/');
+		int i = relative.indexOf(program + "/source/");
+		if (i >= 0) {
+			relative = relative.substring(i + program.length() + 8);
+		} else if ((i = relative.indexOf(program + ".zip:source/")) >= 0) {
+			relative = relative.substring(i + program.length() + 12);
+		} else if (relative.startsWith("source/")) {
+			relative = relative.substring(7);
+		}
+		return stripJava(relative).replace('/', '.');
+	}
+
+	/**
+	 * Class of a report named after the source file by the scripts, which
+	 * replace the slashes of source/pkg/Foo.java by dashes, e.g.
+	 * source-pkg-Foo.java gives pkg.Foo.
+	 */
+	static String classNameOfDashed(String dashed) {
+		String name = dashed;
+		if (name.startsWith("source-")) {
+			name = name.substring(7);
+		}
+		return stripJava(name).replace('-', '.');
+	}
+
+	static String packageName(String nameclass) {
+		int dot = nameclass.lastIndexOf('.');
+		return dot < 0 ? "No Package" : nameclass.substring(0, dot);
+	}
+
+	private static String stripJava(String name) {
+		return name.endsWith(".java") ? name.substring(0, name.length() - 5)
+				: name;
+	}
+
+	static int parseInt(String value, int defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Files of a directory in name order, or none if it does not exist.
+	 */
+	static File[] list(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return new File[0];
+		}
+		Arrays.sort(files);
+		return files;
+	}
+
+	/**
+	 * Text of an HTML table cell without its tags.
+	 */
+	static String text(String html) {
+		return html.replaceAll("<[^>]*>", "").trim();
+	}
+
+	static boolean isEmpty(File report) {
+		return !report.isFile() || report.length() == 0;
+	}
+
+	static BufferedReader reader(File report) throws IOException {
+		return new BufferedReader(new FileReader(report));
+	}
+
+	/**
+	 * Opens an XML report skipping whatever the tool printed before the
+	 * document (Run_PMD.sh used to remove that line with sed).
+	 */
+	static InputStream xml(File report) throws IOException {
+		PushbackInputStream in = new PushbackInputStream(
+				new BufferedInputStream(new FileInputStream(report)));
+		int c;
+		while ((c = in.read()) != -1 && c != '<') {
+			while (c != -1 && c != '\n') {
+				c = in.read();
+			}
+		}
+		if (c != -1) {
+			in.unread(c);
+		}
+		return in;
+	}
+}
@@ -0,0 +1,142 @@
+package warningfix.ingest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import warningfix.Connection.Conexao;
+
+/**
+ * In-memory cache of the warning_type and warning_description dictionaries
+ * (scripts/warning_type.sql). Parsers of the same ingestion share it through
+ * {@link WarningWriter}, so each type and description costs one round trip
+ * to the database the first time it is seen and none afterwards.
+ * <p>
+ * Entries missing from the dictionary are inserted through a connection of
+ * their own in autocommit mode: they are visible to the other processes at
+ * once and a warning batch rolled back never leaves a dangling id behind.
+ */
+public class WarningTypes {
+
+	private static final String UNIQUE_VIOLATION = "23505";
+
+	private final ConcurrentMap<String, Integer> types = new ConcurrentHashMap<String, Integer>();
+	private final ConcurrentMap<String, Integer> descriptions = new ConcurrentHashMap<String, Integer>();
+
+	private Connection cn;
+	private PreparedStatement selectType;
+	private PreparedStatement insertType;
+	private PreparedStatement selectDescription;
+	private PreparedStatement insertDescription;
+
+	public WarningTypes() throws SQLException, ClassNotFoundException {
+		cn = Conexao.newConnection();
+		try {
+			selectType = cn
+					.prepareStatement("select id from warning_type where tool=? AND typewarning=?");
+			insertType = cn
+					.prepareStatement("insert into warning_type (tool, typewarning) values (?,?) returning id");
+			selectDescription = cn
+					.prepareStatement("select id from warning_description where md5(description)=md5(?) AND description=?");
+			insertDescription = cn
+					.prepareStatement("insert into warning_description (description) values (?) returning id");
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Id of the type of warning of the tool, inserted if it is new.
+	 */
+	public int typeId(String tool, String typewarning) throws SQLException {
+		String type = typewarning == null ? "" : typewarning;
+		String key = tool + '\u0000' + type;
+		Integer id = types.get(key);
+		if (id == null) {
+			synchronized (this) {
+				id = types.get(key);
+				if (id == null) {
+					selectType.setString(1, tool);
+					selectType.setString(2, type);
+					insertType.setString(1, tool);
+					insertType.setString(2, type);
+					id = resolve(selectType, insertType);
+					types.put(key, id);
+				}
+			}
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Id of the description, inserted if it is new.
+	 */
+	public int descriptionId(String description) throws SQLException {
+		String text = description == null ? "" : description;
+		Integer id = descriptions.get(text);
+		if (id == null) {
+			synchronized (this) {
+				id = descriptions.get(text);
+				if (id == null) {
+					selectDescription.setString(1, text);
+					selectDescription.setString(2, text);
+					insertDescription.setString(1, text);
+					id = resolve(selectDescription, insertDescription);
+					descriptions.put(text, id);
+				}
+			}
+		}
+		return id.intValue();
+	}
+
+	/**
+	 * Selects the id and inserts the entry when it does not exist. If another
+	 * process inserts the same entry in between, the insert fails on the
+	 * unique index and the id is selected again.
+	 */
+	private static Integer resolve(PreparedStatement select,
+			PreparedStatement insert) throws SQLException {
+		Integer id = id(select);
+		if (id != null) {
+			return id;
+		}
+		try {
+			return id(insert);
+		} catch (SQLException e) {
+			if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+				throw e;
+			}
+		}
+		id = id(select);
+		if (id == null) {
+			throw new SQLException("warning dictionary entry not found after "
+					+ UNIQUE_VIOLATION);
+		}
+		return id;
+	}
+
+	private static Integer id(PreparedStatement ps) throws SQLException {
+		ResultSet rs = ps.executeQuery();
+		try {
+			return rs.next() ? Integer.valueOf(rs.getInt(1)) : null;
+		} finally {
+			rs.close();
+		}
+	}
+
+	public synchronized void close() {
+		if (cn == null) {
+			return;
+		}
+		try {
+			cn.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		cn = null;
+	}
+}
@@ -0,0 +1,251 @@
+package warningfix.ingest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import warningfix.Connection.Conexao;
+
+/**
+ * Writer shared by all the report parsers of an ingestion. It keeps a small
+ * pool of connections, opened once, and hands one to each
+ * {@link Session}. Warnings are inserted in JDBC batches and committed every
+ * {@link #BATCH_SIZE} rows; when a parser fails, the warnings its session
+ * already committed are deleted, so a report is either stored whole or not at
+ * all.
+ * <p>
+ * The ferramenta and arquivo rows the old Parser_*.sh programs checked for
+ * every warning are checked once per ingestion: the first session that sees a
+ * tool or a class inserts it, the others skip it. Types and descriptions are
+ * stored as ids of the dictionaries cached by {@link WarningTypes}.
+ */
+public class WarningWriter {
+
+	public static final int BATCH_SIZE = 1000;
+
+	private static final String INSERT_WARNING = "insert into warning (tool, nameprogram, nameclass, namemethod, beginline, endline, begincolumn, endcolumn, typeid, descriptionid, priority, externalinfourl, ruleset, versaoprograma) values (?,?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+	private final List<Connection> connections = new ArrayList<Connection>();
+	private final BlockingQueue<Connection> idle;
+	private final WarningTypes warningTypes;
+	private final ConcurrentMap<String, Boolean> knownTools = new ConcurrentHashMap<String, Boolean>();
+	private final ConcurrentMap<String, Boolean> knownFiles = new ConcurrentHashMap<String, Boolean>();
+
+	private final String version;
+
+	/**
+	 * @param version version of the program the warnings belong to
+	 */
+	public WarningWriter(int size, String version) throws SQLException,
+			ClassNotFoundException {
+		this.version = version;
+		idle = new ArrayBlockingQueue<Connection>(size);
+		warningTypes = new WarningTypes();
+		try {
+			for (int i = 0; i < size; i++) {
+				Connection cn = Conexao.newConnection();
+				cn.setAutoCommit(false);
+				connections.add(cn);
+				idle.add(cn);
+			}
+		} catch (SQLException e) {
+			close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Borrows a connection, waiting for one to be returned if all are in
+	 * use.
+	 */
+	public Session open() throws InterruptedException, SQLException {
+		return new Session(idle.take());
+	}
+
+	public void close() {
+		warningTypes.close();
+		for (Connection cn : connections) {
+			try {
+				cn.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		connections.clear();
+	}
+
+	/**
+	 * Writes the warnings of one report. Not thread safe: each parser uses
+	 * its own session.
+	 */
+	public class Session {
+		private Connection cn;
+		private final PreparedStatement insert;
+		private int pending;
+		private long rows;
+		/**
+		 * Tool and program of the warnings written, to delete them if the
+		 * parser fails
+		 */
+		private String tool;
+		private String program;
+
+		Session(Connection cn) throws SQLException {
+			this.cn = cn;
+			try {
+				insert = cn.prepareStatement(INSERT_WARNING);
+			} catch (SQLException e) {
+				idle.add(cn);
+				throw e;
+			}
+		}
+
+		/**
+		 * Inserts the tool in ferramenta if it is not there yet.
+		 */
+		public void tool(String id, String name, String type)
+				throws SQLException {
+			if (knownTools.putIfAbsent(id, Boolean.TRUE) != null) {
+				return;
+			}
+			PreparedStatement ps = cn
+					.prepareStatement("select id from ferramenta where id=?");
+			ps.setString(1, id);
+			ResultSet rs = ps.executeQuery();
+			boolean exists = rs.next();
+			rs.close();
+			ps.close();
+			if (!exists) {
+				ps = cn.prepareStatement("insert into ferramenta (id, descricao, linguagem, nome, tipo, versao) values (?,?,?,?,?,?)");
+				ps.setString(1, id);
+				ps.setString(2, "");
+				ps.setString(3, "java");
+				ps.setString(4, name);
+				ps.setString(5, type);
+				ps.setString(6, "");
+				ps.executeUpdate();
+				ps.close();
+			}
+			cn.commit();
+		}
+
+		/**
+		 * Inserts the class in arquivo if it is not there yet.
+		 */
+		public void file(String program, String nameclass) throws SQLException {
+			if (knownFiles.putIfAbsent(program + '\u0000' + version + '\u0000'
+					+ nameclass, Boolean.TRUE) != null) {
+				return;
+			}
+			PreparedStatement ps = cn
+					.prepareStatement("select nomearquivo from arquivo where nomeprograma=? AND versaoprograma=? AND nomearquivo=?");
+			ps.setString(1, program);
+			ps.setString(2, version);
+			ps.setString(3, nameclass);
+			ResultSet rs = ps.executeQuery();
+			boolean exists = rs.next();
+			rs.close();
+			ps.close();
+			if (!exists) {
+				ps = cn.prepareStatement("insert into arquivo (nomeprograma, nomepacote, nomearquivo, versaoprograma, descricaoarquivo, localizacao, fonte) values (?,?,?,?,?,?,?)");
+				ps.setString(1, program);
+				ps.setString(2, Reports.packageName(nameclass));
+				ps.setString(3, nameclass);
+				ps.setString(4, version);
+				ps.setString(5, "");
+				ps.setString(6, "");
+				ps.setString(7, "");
+				ps.executeUpdate();
+				ps.close();
+				// the batch is not executed yet, so only the class is
+				// committed: it stays even if the parser fails later, as
+				// other sessions may have skipped it
+				cn.commit();
+			}
+		}
+
+		public void warning(String tool, String program, String nameclass,
+				String namemethod, int beginline, int endline,
+				int begincolumn, int endcolumn, String typewarning,
+				String description, int priority, String externalinfourl,
+				String ruleset) throws SQLException {
+			file(program, nameclass);
+			this.tool = tool;
+			this.program = program;
+			insert.setString(1, tool);
+			insert.setString(2, program);
+			insert.setString(3, nameclass);
+			insert.setString(4, namemethod);
+			insert.setInt(5, beginline);
+			insert.setInt(6, endline);
+			insert.setInt(7, begincolumn);
+			insert.setInt(8, endcolumn);
+			insert.setInt(9, warningTypes.typeId(tool, typewarning));
+			insert.setInt(10, warningTypes.descriptionId(description));
+			insert.setInt(11, priority);
+			insert.setString(12, externalinfourl);
+			insert.setString(13, ruleset);
+			insert.setString(14, version);
+			insert.addBatch();
+			rows++;
+			if (++pending == BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		public void flush() throws SQLException {
+			if (pending > 0) {
+				insert.executeBatch();
+				pending = 0;
+			}
+			cn.commit();
+		}
+
+		/**
+		 * Warnings written by the session.
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * Flushes the pending warnings and returns the connection to the
+		 * pool. When the parser fails, the pending warnings are rolled back
+		 * and the ones already committed for its tool, program and version
+		 * are deleted.
+		 */
+		public void close(boolean commit) throws SQLException {
+			if (cn == null) {
+				return;
+			}
+			try {
+				if (commit) {
+					flush();
+				} else {
+					cn.rollback();
+					if (tool != null) {
+						PreparedStatement ps = cn
+								.prepareStatement("delete from warning where tool=? AND nameprogram=? AND versaoprograma=?");
+						ps.setString(1, tool);
+						ps.setString(2, program);
+						ps.setString(3, version);
+						ps.executeUpdate();
+						ps.close();
+						cn.commit();
+					}
+				}
+				insert.close();
+			} finally {
+				idle.add(cn);
+				cn = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package warningfix.runtime;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import javax.swing.table.DefaultTableModel;
+
+import warningfix.Connection.Conexao;
+
+/**
+ * Shows where the time of each analysis goes: one row per version, stage and
+ * tool from the runtime_por_etapa view (scripts/runtime.sql), with the
+ * variation of the wall time against the previous analysis of the same stage
+ * so regressions stand out.
+ */
+public class RuntimeReport {
+
+	private static final String[] COLUMNS = { "version", "stage", "tool",
+			"runs", "wall_ms", "cpu_ms", "process_peak_rss_kb", "rows", "rows_per_s",
+			"wall_delta" };
+
+	public static DefaultTableModel byStage(String program)
+			throws SQLException, ClassNotFoundException {
+		Vector<Object> columnNames = new Vector<Object>();
+		for (int i = 0; i < COLUMNS.length; i++) {
+			columnNames.add(COLUMNS[i]);
+		}
+		Vector<Vector<Object>> data = new Vector<Vector<Object>>();
+
+		Connection cn = Conexao.newConnection();
+		try {
+			PreparedStatement ps = cn
+					.prepareStatement("select r.versaoprograma, r.etapa, r.ferramenta, r.execucoes, r.wall_ms, r.cpu_ms, r.peak_rss_kb, r.linhas, coalesce(f.nome, r.ferramenta) from runtime_por_etapa r left join ferramenta f on f.id=r.ferramenta where r.nameprogram=? order by r.inicio, r.etapa, r.ferramenta");
+			ps.setString(1, program);
+			ResultSet rs = ps.executeQuery();
+			Map<String, Long> previousWall = new HashMap<String, Long>();
+			while (rs.next()) {
+				String stage = rs.getString(2);
+				long wall = rs.getLong(5);
+				long rows = rs.getLong(8);
+				boolean hasRows = !rs.wasNull();
+
+				Vector<Object> row = new Vector<Object>();
+				row.add(rs.getString(1));
+				row.add(stage);
+				row.add(rs.getString(9));
+				row.add(rs.getLong(4));
+				row.add(wall);
+				row.add(nullable(rs, 6));
+				row.add(nullable(rs, 7));
+				row.add(hasRows ? Long.valueOf(rows) : null);
+				row.add(hasRows && wall > 0 ? Long.valueOf(rows * 1000 / wall)
+						: null);
+
+				String key = stage + '\u0000' + rs.getString(3);
+				Long previous = previousWall.put(key, wall);
+				row.add(previous == null || previous.longValue() == 0 ? ""
+						: String.format("%+.1f%%",
+								100.0 * (wall - previous) / previous));
+				data.add(row);
+			}
+			rs.close();
+			ps.close();
+		} finally {
+			cn.close();
+		}
+		// mais recentes primeiro
+		Vector<Vector<Object>> reversed = new Vector<Vector<Object>>();
+		for (int i = data.size() - 1; i >= 0; i--) {
+			reversed.add(data.get(i));
+		}
+		return new DefaultTableModel(reversed, columnNames);
+	}
+
+	private static Long nullable(ResultSet rs, int column) throws SQLException {
+		long value = rs.getLong(column);
+		return rs.wasNull() ? null : Long.valueOf(value);
+	}
+
+	/**
+	 * Usage: RuntimeReport &lt;program&gt;
+	 */
+	public static void main(String[] args) throws SQLException,
+			ClassNotFoundException {
+		if (args.length < 1) {
+			System.out
+					.println("Uso: warningfix.runtime.RuntimeReport <programa>");
+			return;
+		}
+		DefaultTableModel model = byStage(args[0]);
+		StringBuilder sb = new StringBuilder();
+		for (int c = 0; c < model.getColumnCount(); c++) {
+			sb.append(String.format("%-16s", model.getColumnName(c)));
+		}
+		System.out.println(sb);
+		for (int r = 0; r < model.getRowCount(); r++) {
+			sb.setLength(0);
+			for (int c = 0; c < model.getColumnCount(); c++) {
+				Object value = model.getValueAt(r, c);
+				sb.append(String.format("%-16s", value == null ? "-" : value));
+			}
+			System.out.println(sb);
+		}
+	}
+}
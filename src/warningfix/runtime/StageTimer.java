@@ -0,0 +1,148 @@
+package warningfix.runtime;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import warningfix.Connection.Conexao;
+
+/**
+ * Measures one stage of the pipeline run inside the JVM (e.g. the treemap
+ * build) and stores it in the runtime table, with the same columns the
+ * scripts fill through scripts/Timing.sh. Measures that are not available
+ * on the platform are stored as null.
+ */
+public class StageTimer {
+
+	public static final String TOOL = "ferramenta";
+	public static final String PARSER = "parser";
+	public static final String TREEMAP = "treemap";
+
+	private static final ThreadMXBean THREADS = ManagementFactory
+			.getThreadMXBean();
+
+	private final String program;
+	private final String stage;
+	private final String tool;
+	private final long startNanos;
+	private final long startCpu;
+
+	private long wallMs = -1;
+	private long cpuMs = -1;
+	private long processPeakRssKb = -1;
+
+	/**
+	 * Starts measuring. CPU time is the one of the calling thread, so
+	 * {@link #stop(long)} must be called from the same thread.
+	 */
+	public StageTimer(String program, String stage, String tool) {
+		this.program = program;
+		this.stage = stage;
+		this.tool = tool;
+		this.startCpu = threadCpuTime();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring and records the stage.
+	 *
+	 * @param rows
+	 *            rows ingested by the stage, or -1 if it does not apply
+	 */
+	public void stop(long rows) throws SQLException, ClassNotFoundException {
+		wallMs = (System.nanoTime() - startNanos) / 1000000;
+		long cpu = threadCpuTime();
+		cpuMs = cpu < 0 || startCpu < 0 ? -1 : (cpu - startCpu) / 1000000;
+		processPeakRssKb = processPeakRssKb();
+
+		Connection cn = Conexao.newConnection();
+		try {
+			PreparedStatement ps = cn
+					.prepareStatement("insert into runtime (nameprogram, info, etapa, ferramenta, wall_ms, cpu_ms, peak_rss_kb, linhas) values (?,?,?,?,?,?,?,?)");
+			ps.setString(1, program);
+			ps.setString(2, stage + "-" + tool);
+			ps.setString(3, stage);
+			ps.setString(4, tool);
+			setLong(ps, 5, wallMs);
+			setLong(ps, 6, cpuMs);
+			setLong(ps, 7, processPeakRssKb);
+			setLong(ps, 8, rows);
+			ps.executeUpdate();
+			ps.close();
+		} finally {
+			cn.close();
+		}
+	}
+
+	public long getWallMs() {
+		return wallMs;
+	}
+
+	public long getCpuMs() {
+		return cpuMs;
+	}
+
+	/**
+	 * Peak resident set size of the JVM since it started, not of this stage
+	 * alone: stages run before, and parsers running at the same time, are
+	 * included.
+	 */
+	public long getProcessPeakRssKb() {
+		return processPeakRssKb;
+	}
+
+	private static long threadCpuTime() {
+		if (!THREADS.isCurrentThreadCpuTimeSupported()) {
+			return -1;
+		}
+		return THREADS.getCurrentThreadCpuTime();
+	}
+
+	/**
+	 * Peak resident set size of the JVM process (VmHWM), read from /proc
+	 * (Linux only).
+	 */
+	static long processPeakRssKb() {
+		BufferedReader in = null;
+		try {
+			in = new BufferedReader(new FileReader("/proc/self/status"));
+			String line;
+			while ((line = in.readLine()) != null) {
+				if (line.startsWith("VmHWM:")) {
+					String kb = line.substring(6).trim();
+					int blank = kb.indexOf(' ');
+					return Long.parseLong(blank < 0 ? kb : kb.substring(0,
+							blank));
+				}
+			}
+		} catch (IOException e) {
+			// fora do Linux a medida fica indisponivel
+		} catch (NumberFormatException e) {
+			e.printStackTrace();
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static void setLong(PreparedStatement ps, int index, long value)
+			throws SQLException {
+		if (value < 0) {
+			ps.setNull(index, Types.BIGINT);
+		} else {
+			ps.setLong(index, value);
+		}
+	}
+}
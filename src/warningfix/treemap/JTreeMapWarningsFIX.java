@@ -45,10 +45,13 @@ import java.awt.event.MouseListener;
 import java.awt.event.WindowEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
@@ -241,7 +244,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 
 			try {
 				Conexao.open();
-				String sql1 = "select beginline, quantidade_warning from quantity_tool_and_warnings_for_line A inner join arquivo B on (A.nameprogram=B.nomeprograma AND A.nameprogram='"
+				String sql1 = "select beginline, quantidade_warning from quantity_tool_and_warnings_for_line A inner join arquivo_corrente B on (A.nameprogram=B.nomeprograma AND A.nameprogram='"
 						+ program_analyzed
 						+ "') AND (A.nameclass='"
 						+ class_analyzed
@@ -319,7 +322,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			String tamanho_matriz = "";
 
 			ResultSet rs3 = sentenca
-					.executeQuery(" SELECT count(distinct A.nameclass) FROM quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo B on A.nameprogram=B.nomeprograma AND B.nomepacote='"
+					.executeQuery(" SELECT count(distinct A.nameclass) FROM quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo_corrente B on A.nameprogram=B.nomeprograma AND B.nomepacote='"
 							+ package_analyzed
 							+ "'  AND (A.nameclass=B.nomearquivo AND A.nameclass NOT LIKE '%.class' AND A.nameclass NOT LIKE '%jlint%' AND A.nameclass NOT LIKE '%.zip')");
 
@@ -335,7 +338,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			double[] mean = new double[5];
 
 			ResultSet rs4 = sentenca
-					.executeQuery(" SELECT A.nameclass, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5) FROM quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo B on A.nameprogram=B.nomeprograma AND B.nomepacote='"
+					.executeQuery(" SELECT A.nameclass, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5) FROM quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo_corrente B on A.nameprogram=B.nomeprograma AND B.nomepacote='"
 							+ package_analyzed
 							+ "' AND (A.nameclass=B.nomearquivo AND A.nameclass NOT LIKE '%.class' AND A.nameclass NOT LIKE '%jlint%' AND A.nameclass NOT LIKE '%.zip') group by A.nameclass");
 
@@ -393,7 +396,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			Element label = new Element("label");
 			label.addContent("" + package_analyzed);
 			root.addContent(label);
-			String sql1 = "select A.nameclass, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5)  from quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo B on A.nameprogram=B.nomeprograma AND B.nomepacote='"
+			String sql1 = "select A.nameclass, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5)  from quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo_corrente B on A.nameprogram=B.nomeprograma AND B.nomepacote='"
 					+ package_analyzed
 					+ "' AND (A.nameclass=B.nomearquivo AND A.nameclass NOT LIKE '%.class' AND A.nameclass NOT LIKE '%jlint%' AND A.nameclass NOT LIKE '%.zip') group by A.nameclass";
 			Statement stmt2;
@@ -487,7 +490,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			String tamanho_matriz = "";
 
 			ResultSet rs3 = sentenca
-					.executeQuery("select count(distinct nomepacote)from arquivo where nomeprograma='"
+					.executeQuery("select count(distinct nomepacote)from arquivo_corrente where nomeprograma='"
 							+ program_analyzed
 							+ "' AND nomepacote IS NOT NULL group by nomepacote");
 
@@ -499,7 +502,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			rs3.close();
 
 			ResultSet rs4 = sentenca
-					.executeQuery(" SELECT B.nomepacote, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5) FROM quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo B on (A.nameprogram='"
+					.executeQuery(" SELECT B.nomepacote, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5) FROM quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo_corrente B on (A.nameprogram='"
 							+ program_analyzed
 							+ "' AND A.nameprogram=B.nomeprograma) AND (nameclass NOT LIKE '%.class' AND nameclass NOT LIKE '%jlint%' AND nameclass NOT LIKE '%.zip') AND B.nomepacote IS NOT NULL group by B.nomepacote");
 
@@ -560,7 +563,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			Element label = new Element("label");
 			label.addContent("" + program_analyzed);
 			root.addContent(label);
-			String sql1 = "select B.nomepacote, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5)  from quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo B on (A.nameprogram='"
+			String sql1 = "select B.nomepacote, sum(qnt_nv1), sum(qnt_nv2), sum(qnt_nv3), sum(qnt_nv4), sum(qnt_nv5)  from quantity_warnings_for_tool_for_line_eliminar_linhas_repetidas A inner join arquivo_corrente B on (A.nameprogram='"
 					+ program_analyzed
 					+ "' AND A.nameprogram=B.nomeprograma)  AND   (nameclass NOT LIKE '%.class' AND nameclass NOT LIKE '%jlint%' AND nameclass NOT LIKE '%.zip') group by B.nomepacote";
 			Statement stmt2;
@@ -1085,7 +1088,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 
 	private JScrollPane createTABLE(String nameclass, String line)
 			throws ClassNotFoundException, SQLException {
-		String sql1 = "SELECT A.beginline, B.nome as tool_name, A.description, A.priority FROM warning A INNER JOIN ferramenta B ON A.tool=B.id AND A.nameprogram='"
+		String sql1 = "SELECT A.beginline, B.nome as tool_name, A.description, A.priority FROM warning_texto_corrente A INNER JOIN ferramenta B ON A.tool=B.id AND A.nameprogram='"
 				+ program_analyzed
 				+ "' AND A.nameclass='"
 				+ nameclass
@@ -1165,7 +1168,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			root.addContent(label);
 			try {
 				Conexao.open();
-				String sql1 = "select nameclass, count(*) from warning A inner join arquivo B on A.nameprogram=B.nomeprograma AND nomepacote='"
+				String sql1 = "select nameclass, count(*) from warning_corrente A inner join arquivo_corrente B on A.nameprogram=B.nomeprograma AND nomepacote='"
 						+ package_analyzed
 						+ "' AND (A.nameclass=B.nomearquivo AND nameclass NOT LIKE '%.class' AND nameclass NOT LIKE '%jlint%' AND nameclass NOT LIKE '%.zip') group by A.nameclass";
 
@@ -1254,7 +1257,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			label.addContent("" + program_analyzed);
 			root.addContent(label);
 
-			String sql0 = "select distinct nomepacote from arquivo where nomeprograma='"
+			String sql0 = "select distinct nomepacote from arquivo_corrente where nomeprograma='"
 					+ program_analyzed
 					+ "' AND nomepacote IS NOT NULL group by nomepacote";
 			Statement stmt0 = Conexao.cn.createStatement();
@@ -1331,7 +1334,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			Element label = new Element("label");
 			label.addContent("" + program_analyzed);
 			root.addContent(label);
-			String sql0 = "select distinct nomepacote from arquivo where nomeprograma='"
+			String sql0 = "select distinct nomepacote from arquivo_corrente where nomeprograma='"
 					+ program_analyzed
 					+ "' AND nomepacote IS NOT NULL group by nomepacote";
 			Statement stmt4;
@@ -1419,7 +1422,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			root.addContent(label);
 			try {
 				Conexao.open();
-				String sql1 = "select nameclass, sum(quantidade_warning)/count(*) from quantity_tool_and_warnings_for_line A inner join arquivo B on A.nameprogram=B.nomeprograma AND nomepacote='"
+				String sql1 = "select nameclass, sum(quantidade_warning)/count(*) from quantity_tool_and_warnings_for_line A inner join arquivo_corrente B on A.nameprogram=B.nomeprograma AND nomepacote='"
 						+ package_analyzed
 						+ "' AND (A.nameclass=B.nomearquivo AND nameclass NOT LIKE '%.class' AND nameclass NOT LIKE '%jlint%' AND nameclass NOT LIKE '%.zip') group by A.nameclass";
 				Statement stmt6;
@@ -1493,7 +1496,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			root.addContent(label);
 			try {
 				Conexao.open();
-				String sql1 = "select nameclass, count(distinct tool) from warning A inner join arquivo B on A.nameprogram=B.nomeprograma AND nomepacote='"
+				String sql1 = "select nameclass, count(distinct tool) from warning_corrente A inner join arquivo_corrente B on A.nameprogram=B.nomeprograma AND nomepacote='"
 						+ package_analyzed
 						+ "' AND (A.nameclass=B.nomearquivo AND nameclass NOT LIKE '%.class' AND nameclass NOT LIKE '%jlint%' AND nameclass NOT LIKE '%.zip') group by A.nameclass";
 
@@ -1579,7 +1582,7 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 			label.addContent("" + program_analyzed);
 			root.addContent(label);
 			Conexao.open();
-			String sql0 = "select distinct nomepacote from arquivo where nomeprograma='"
+			String sql0 = "select distinct nomepacote from arquivo_corrente where nomeprograma='"
 					+ program_analyzed
 					+ "' AND nomepacote is NOT NULL group by nomepacote";
 			Statement stmt9;
@@ -1652,6 +1655,161 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 		}
 	}
 
+	// Treemaps dos avisos novos em relação à versão anterior: o peso é a
+	// quantidade de avisos da versão atual e o valor, a quantidade de avisos
+	// novos calculada por warningfix.diff.WarningDiff
+	public void StrategiesNewWarningsforProgram() {
+		buildNewWarningsTreeMap(program_analyzed,
+				"select B.nomepacote, sum(case when A.status='NEW' then 1 else 0 end), count(*) from warning_diff A inner join (select distinct nomeprograma, nomepacote, nomearquivo from arquivo_corrente) B on A.nameprogram=B.nomeprograma AND A.nameclass=B.nomearquivo AND A.nameprogram='"
+						+ program_analyzed
+						+ "' AND A.status<>'FIXED' AND B.nomepacote IS NOT NULL group by B.nomepacote");
+	}
+
+	public void StrategiesNewWarningsforPackage() {
+		buildNewWarningsTreeMap(package_analyzed,
+				"select A.nameclass, sum(case when A.status='NEW' then 1 else 0 end), count(*) from warning_diff A inner join (select distinct nomeprograma, nomepacote, nomearquivo from arquivo_corrente) B on A.nameprogram=B.nomeprograma AND A.nameclass=B.nomearquivo AND A.nameprogram='"
+						+ program_analyzed
+						+ "' AND B.nomepacote='"
+						+ package_analyzed
+						+ "' AND A.status<>'FIXED' AND (A.nameclass NOT LIKE '%.class' AND A.nameclass NOT LIKE '%jlint%' AND A.nameclass NOT LIKE '%.zip') group by A.nameclass");
+	}
+
+	public void StrategiesNewWarningsforClass() {
+		buildNewWarningsTreeMap(class_analyzed,
+				"select beginline, sum(case when status='NEW' then 1 else 0 end), count(*) from warning_diff where nameprogram='"
+						+ program_analyzed + "' AND nameclass='"
+						+ class_analyzed
+						+ "' AND status<>'FIXED' group by beginline");
+	}
+
+	// Treemap do acoplamento entre pacotes calculado pelo Hammurapi
+	// (parametro coupling-file do inspetor Coupling): o peso e a
+	// quantidade de classes do pacote e o valor, a instabilidade Ce/(Ca+Ce)
+	// em porcentagem
+	public void StrategiesCouplingforProgram() {
+		File tsv = getCouplingFile();
+		File f = new File("programs_analyzeds/" + program_analyzed
+				+ "/treemap/coupling/" + program_analyzed + "_coupling.xml");
+		f.getParentFile().mkdirs();
+
+		Document doc = new Document();
+		Element root = new Element("root");
+		Element label = new Element("label");
+		label.addContent("" + program_analyzed);
+		root.addContent(label);
+		if (tsv.isFile()) {
+			try {
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						new FileInputStream(tsv), "UTF-8"));
+				try {
+					String line;
+					while ((line = in.readLine()) != null) {
+						// pacote, classes, Ca, Ce, instabilidade
+						String[] fields = line.split("\t");
+						if (fields.length < 5) {
+							continue;
+						}
+						Element branch = new Element("branch");
+						Element leaf = new Element("leaf");
+						Element label3 = new Element("label");
+						label3.addContent(fields[0]);
+						leaf.addContent(label3);
+						Element weight = new Element("weight");
+						weight.addContent(fields[1]);
+						Element value = new Element("value");
+						value.addContent(""
+								+ Math.round(Double.parseDouble(fields[4]) * 100));
+						leaf.addContent(weight);
+						leaf.addContent(value);
+						branch.addContent(leaf);
+						root.addContent(branch);
+					}
+				} finally {
+					in.close();
+				}
+			} catch (IOException e1) {
+				e1.printStackTrace();
+			} catch (NumberFormatException e1) {
+				e1.printStackTrace();
+			}
+		} else {
+			System.out.println("Acoplamento nao calculado: " + tsv);
+		}
+
+		doc.setRootElement(root);
+		XMLOutputter xout = new XMLOutputter();
+		try {
+			OutputStream out = new FileOutputStream(f);
+			xout.output(doc, out);
+			out.close();
+		} catch (IOException e1) {
+			e1.printStackTrace();
+		}
+		setXmlFile(f.getAbsolutePath());
+	}
+
+	// coupling.tsv e gerado pelo inspetor Coupling do Hammurapi; falta em
+	// analises feitas antes dele ou com o inspetor desabilitado
+	private File getCouplingFile() {
+		return new File("programs_analyzeds/" + program_analyzed
+				+ "/outputs/01-hammurapi-" + program_analyzed
+				+ "/coupling.tsv");
+	}
+
+	/**
+	 * Builds a treemap from a query returning (label, new warnings, warnings).
+	 * The XML is always regenerated because it changes with every diff.
+	 */
+	private void buildNewWarningsTreeMap(String name, String sql) {
+		File f = new File("programs_analyzeds/" + program_analyzed
+				+ "/treemap/new_warnings/" + name + "_new_warnings.xml");
+		f.getParentFile().mkdirs();
+
+		Document doc = new Document();
+		Element root = new Element("root");
+		Element label = new Element("label");
+		label.addContent("" + name);
+		root.addContent(label);
+		try {
+			Conexao.open();
+			Statement stmt = Conexao.cn.createStatement();
+			ResultSet rs = stmt.executeQuery(sql);
+			while (rs.next()) {
+				Element branch = new Element("branch");
+				Element leaf = new Element("leaf");
+				Element label3 = new Element("label");
+				label3.addContent("" + rs.getString(1));
+				leaf.addContent(label3);
+				Element weight = new Element("weight");
+				weight.addContent("" + rs.getString(3));
+				Element value = new Element("value");
+				value.addContent("" + rs.getString(2));
+				leaf.addContent(weight);
+				leaf.addContent(value);
+				branch.addContent(leaf);
+				root.addContent(branch);
+			}
+			rs.close();
+			stmt.close();
+			Conexao.cn.close();
+		} catch (ClassNotFoundException e1) {
+			e1.printStackTrace();
+		} catch (SQLException e1) {
+			e1.printStackTrace();
+		}
+
+		doc.setRootElement(root);
+		XMLOutputter xout = new XMLOutputter();
+		try {
+			OutputStream out = new FileOutputStream(f);
+			xout.output(doc, out);
+			out.close();
+		} catch (IOException e1) {
+			e1.printStackTrace();
+		}
+		setXmlFile(f.getAbsolutePath());
+	}
+
 	/**
 	 * init the window
 	 * 
@@ -1676,6 +1834,11 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 		typeProviders.add("Quantities of Warnings");
 		typeProviders.add("Quantities of Tools");
 		typeProviders.add("Suspection Rate");
+		typeProviders.add("New Warnings");
+		// sem coupling.tsv o treemap de acoplamento ficaria sempre vazio
+		if (getCouplingFile().isFile()) {
+			typeProviders.add("Coupling");
+		}
 		for (int i = 0; i < typeProviders.size(); i++) {
 			cmbTypeProvider.addItem(typeProviders.get(i));
 		}
@@ -1871,6 +2034,34 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 						}
 
 					}
+					if (type.equals("New Warnings")) {
+						if (getTYPEVIEW().equals("NEW")) {
+							// FAZ NADA
+						} else {
+							final JTreeMapWarningsFIX view_warnings = new JTreeMapWarningsFIX(
+									program_analyzed, "", "");
+							view_warnings.StrategiesNewWarningsforProgram();
+							setNewTreeMap(view_warnings.root);
+							// só os avisos novos recebem cor
+							jTreeMap.setColorProvider(new NewWarningsProvider(jTreeMap));
+							cmbMeansProvider.setEnabled(false);
+							setTYPEVIEW("NEW");
+						}
+					}
+					// acoplamento só existe em nível de programa (um nó por
+					// pacote)
+					if (type.equals("Coupling")) {
+						if (getTYPEVIEW().equals("COUPLING")) {
+							// FAZ NADA
+						} else {
+							final JTreeMapWarningsFIX view_warnings = new JTreeMapWarningsFIX(
+									program_analyzed, "", "");
+							view_warnings.StrategiesCouplingforProgram();
+							setNewTreeMap(view_warnings.root);
+							cmbMeansProvider.setEnabled(false);
+							setTYPEVIEW("COUPLING");
+						}
+					}
 				}
 			}
 
@@ -1929,6 +2120,20 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 							}
 
 						}
+						if (type.equals("New Warnings")) {
+							if (getTYPEVIEW().equals("NEW")) {
+								// FAZ NADA
+							} else {
+								final JTreeMapWarningsFIX view_warnings = new JTreeMapWarningsFIX(
+										program_analyzed, package_analyzed, "");
+								view_warnings.StrategiesNewWarningsforPackage();
+								setNewTreeMap(view_warnings.root);
+								// só os avisos novos recebem cor
+								jTreeMap.setColorProvider(new NewWarningsProvider(jTreeMap));
+								cmbMeansProvider.setEnabled(false);
+								setTYPEVIEW("NEW");
+							}
+						}
 					}
 				}
 
@@ -1993,6 +2198,21 @@ public class JTreeMapWarningsFIX extends JInternalFrame implements
 								}
 
 							}
+							if (type.equals("New Warnings")) {
+								if (getTYPEVIEW().equals("NEW")) {
+									// FAZ NADA
+								} else {
+									final JTreeMapWarningsFIX view_warnings = new JTreeMapWarningsFIX(
+											program_analyzed, package_analyzed,
+											class_analyzed);
+									view_warnings.StrategiesNewWarningsforClass();
+									setNewTreeMap(view_warnings.root);
+									// só os avisos novos recebem cor
+									jTreeMap.setColorProvider(new NewWarningsProvider(jTreeMap));
+									cmbMeansProvider.setEnabled(false);
+									setTYPEVIEW("NEW");
+								}
+							}
 						}
 					}
 
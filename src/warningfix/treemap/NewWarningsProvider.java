@@ -0,0 +1,97 @@
+package warningfix.treemap;
+
+import java.awt.Color;
+import java.awt.Graphics;
+
+import javax.swing.JPanel;
+
+import net.sf.jtreemap.swing.ColorProvider;
+import net.sf.jtreemap.swing.JTreeMap;
+import net.sf.jtreemap.swing.TreeMapNode;
+import net.sf.jtreemap.swing.Value;
+
+/**
+ * ColorProvider for the "New Warnings" view: leaves whose value (number of
+ * warnings introduced since the previous version) is zero are painted gray,
+ * the others in shades of red proportional to the number of new warnings.
+ */
+public class NewWarningsProvider extends ColorProvider {
+	private static final long serialVersionUID = -3416280570263958101L;
+
+	private static final Color NO_NEW_WARNINGS = new Color(190, 190, 190);
+
+	private static final int MIN_RED = 110;
+
+	private final JTreeMap jTreeMap;
+
+	private JPanel legend;
+
+	private double maxValue = -1;
+
+	public NewWarningsProvider(final JTreeMap jTreeMap) {
+		this.jTreeMap = jTreeMap;
+	}
+
+	@Override
+	public Color getColor(final Value value) {
+		if (maxValue < 0) {
+			maxValue = max(jTreeMap.getRoot());
+		}
+		final double dValue = (value != null ? value.getValue() : 0.00);
+		if (dValue <= 0 || maxValue <= 0) {
+			return NO_NEW_WARNINGS;
+		}
+		final int red = MIN_RED
+				+ (int) ((255 - MIN_RED) * Math.min(dValue, maxValue) / maxValue);
+		return new Color(red, 0, 0);
+	}
+
+	@Override
+	public JPanel getLegendPanel() {
+		if (legend == null) {
+			legend = new Legend();
+		}
+		return legend;
+	}
+
+	private static double max(final TreeMapNode node) {
+		if (node.isLeaf()) {
+			return node.getValue() != null ? node.getValue().getValue() : 0;
+		}
+		double max = 0;
+		for (final TreeMapNode child : node.getChildren()) {
+			max = Math.max(max, max(child));
+		}
+		return max;
+	}
+
+	/**
+	 * Panel with the legend
+	 */
+	private class Legend extends JPanel {
+		private static final long serialVersionUID = 6119462736152890771L;
+		private static final int X = 20;
+		private static final int Y = 25;
+		private static final int WIDTH = 10;
+		private static final int HEIGHT = 20;
+
+		public Legend() {
+			this.setPreferredSize(new java.awt.Dimension(160, 2 * (Y + HEIGHT)));
+		}
+
+		@Override
+		public void paintComponent(final Graphics g) {
+			super.paintComponent(g);
+			g.setColor(NO_NEW_WARNINGS);
+			g.fillRect(X, Y, WIDTH, HEIGHT);
+			for (int i = 0; i < 6; i++) {
+				g.setColor(new Color(MIN_RED + i * (255 - MIN_RED) / 5, 0, 0));
+				g.fillRect(X + (i + 2) * WIDTH, Y, WIDTH, HEIGHT);
+			}
+			g.setColor(Color.black);
+			g.drawString("0", X, Y - 7);
+			g.drawString("" + (int) Math.max(maxValue, 0), X + 7 * WIDTH,
+					Y - 7);
+		}
+	}
+}
@@ -182,8 +182,12 @@ CREATE TABLE RESULT (
      , COMMITED NUMBER DEFAULT '0' NOT NULL
      , COMPILATION_UNIT INTEGER
      , IS_NEW NUMBER DEFAULT '0' NOT NULL
+     , PACKAGE_NAME VARCHAR(250)
+     , CU_SIZE NUMBER
+     , CU_CHECKSUM NUMBER
      , PRIMARY KEY (ID)
 );
+CREATE INDEX IX_RESULT_NAME_SIZE_CHECKSUM ON RESULT (NAME, PACKAGE_NAME, CU_SIZE, CU_CHECKSUM);
 
 CREATE TABLE METRIC (
        RESULT_ID INTEGER DEFAULT '0' NOT NULL
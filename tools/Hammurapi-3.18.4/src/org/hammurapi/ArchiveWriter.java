@@ -0,0 +1,375 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+
+package org.hammurapi;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Zip writer which takes entries compressed beforehand, so entries can be
+ * compressed in several threads and written in one. Entries are either
+ * deflated in memory ({@link #deflate(String, byte[])}) or stored as is
+ * ({@link #store(String, File)}), the latter is meant for jar files which
+ * are already compressed.
+ * <p>
+ * Archives with more than 65535 entries get Zip64 end of central directory
+ * record. Archives and entries larger than 4 Gb are not supported.
+ * @version $Revision: 1.1 $
+ */
+class ArchiveWriter {
+	private static final int STORED=0;
+	private static final int DEFLATED=8;
+
+	/**
+	 * UTF-8 entry names
+	 */
+	private static final int FLAGS=0x0800;
+
+	private static final long MAX_SIZE=0xFFFFFFFFL;
+
+	/**
+	 * Archive entry. Data is calculated by {@link ArchiveWriter#deflate(String, byte[])}
+	 * and {@link ArchiveWriter#store(String, File)}, which can be invoked in
+	 * any thread.
+	 */
+	static class Entry {
+		final String name;
+		int method;
+		long crc;
+		long size;
+		long compressedSize;
+
+		/**
+		 * Compressed data of deflated entries
+		 */
+		byte[] data;
+
+		/**
+		 * File of stored entries
+		 */
+		File file;
+
+		/**
+		 * SHA-1 of file content of stored entries
+		 */
+		String digest;
+
+		long offset;
+
+		Entry(String name) {
+			this.name=name;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		/**
+		 * @return SHA-1 digest of stored entries, null for deflated entries
+		 */
+		String getDigest() {
+			return digest;
+		}
+	}
+
+	private OutputStream out;
+	private long written;
+	private List entries=new ArrayList();
+	private int dosTime;
+	private int dosDate;
+
+	ArchiveWriter(OutputStream out) {
+		this.out=new BufferedOutputStream(out, 65536);
+
+		Calendar now=Calendar.getInstance();
+		dosTime=now.get(Calendar.HOUR_OF_DAY)<<11 | now.get(Calendar.MINUTE)<<5 | now.get(Calendar.SECOND)>>1;
+		dosDate=(now.get(Calendar.YEAR)-1980)<<9 | (now.get(Calendar.MONTH)+1)<<5 | now.get(Calendar.DAY_OF_MONTH);
+	}
+
+	/**
+	 * @param file
+	 * @return File content
+	 * @throws IOException
+	 */
+	static byte[] read(File file) throws IOException {
+		long length=file.length();
+		if (length>Integer.MAX_VALUE) {
+			throw new IOException("File is too large to be deflated in memory: "+file.getAbsolutePath());
+		}
+
+		byte[] ret=new byte[(int) length];
+		InputStream in=new FileInputStream(file);
+		try {
+			int pos=0;
+			int l;
+			while (pos<ret.length && (l=in.read(ret, pos, ret.length-pos))!=-1) {
+				pos+=l;
+			}
+
+			if (pos<ret.length) {
+				throw new IOException("File was truncated while being read: "+file.getAbsolutePath());
+			}
+		} finally {
+			in.close();
+		}
+		return ret;
+	}
+
+	/**
+	 * Deflates content.
+	 * @param name Entry name
+	 * @param content
+	 * @return Entry to be written
+	 */
+	static Entry deflate(String name, byte[] content) {
+		Entry ret=new Entry(name);
+		ret.method=DEFLATED;
+		ret.size=content.length;
+
+		CRC32 crc=new CRC32();
+		crc.update(content);
+		ret.crc=crc.getValue();
+
+		Deflater deflater=new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(content);
+			deflater.finish();
+			ByteArrayOutputStream baos=new ByteArrayOutputStream(content.length/3+64);
+			byte[] buf=new byte[8192];
+			while (!deflater.finished()) {
+				int l=deflater.deflate(buf);
+				baos.write(buf, 0, l);
+			}
+			ret.data=baos.toByteArray();
+		} finally {
+			deflater.end();
+		}
+		ret.compressedSize=ret.data.length;
+		return ret;
+	}
+
+	/**
+	 * Calculates CRC and SHA-1 digest of file content. File is copied to
+	 * the archive when the entry is written.
+	 * @param name Entry name
+	 * @param file
+	 * @return Entry to be written
+	 * @throws IOException
+	 */
+	static Entry store(String name, File file) throws IOException {
+		Entry ret=new Entry(name);
+		ret.method=STORED;
+		ret.file=file;
+
+		MessageDigest md;
+		try {
+			md=MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new HammurapiRuntimeException(e);
+		}
+
+		CRC32 crc=new CRC32();
+		InputStream in=new FileInputStream(file);
+		try {
+			byte[] buf=new byte[65536];
+			int l;
+			while ((l=in.read(buf))!=-1) {
+				crc.update(buf, 0, l);
+				md.update(buf, 0, l);
+				ret.size+=l;
+			}
+		} finally {
+			in.close();
+		}
+
+		ret.crc=crc.getValue();
+		ret.compressedSize=ret.size;
+
+		byte[] digest=md.digest();
+		StringBuffer sb=new StringBuffer(digest.length*2);
+		for (int i=0; i<digest.length; i++) {
+			sb.append(Character.forDigit((digest[i]>>4) & 0xF, 16));
+			sb.append(Character.forDigit(digest[i] & 0xF, 16));
+		}
+		ret.digest=sb.toString();
+		return ret;
+	}
+
+	/**
+	 * Writes empty directory entry
+	 * @param name Entry name, shall end with /
+	 * @throws IOException
+	 */
+	void writeDirectory(String name) throws IOException {
+		Entry entry=new Entry(name);
+		entry.method=STORED;
+		entry.data=new byte[0];
+		write(entry);
+	}
+
+	void write(Entry entry) throws IOException {
+		if (entry.size>MAX_SIZE || entry.compressedSize>MAX_SIZE || written>MAX_SIZE) {
+			throw new IOException("Archives and entries larger than 4 Gb are not supported: "+entry.name);
+		}
+
+		entry.offset=written;
+		byte[] name=entry.name.getBytes("UTF-8");
+		writeInt(0x04034b50);
+		writeShort(20);
+		writeShort(FLAGS);
+		writeShort(entry.method);
+		writeShort(dosTime);
+		writeShort(dosDate);
+		writeInt(entry.crc);
+		writeInt(entry.compressedSize);
+		writeInt(entry.size);
+		writeShort(name.length);
+		writeShort(0);
+		writeBytes(name, name.length);
+
+		if (entry.data!=null) {
+			writeBytes(entry.data, entry.data.length);
+			entry.data=null;
+		} else {
+			InputStream in=new FileInputStream(entry.file);
+			try {
+				byte[] buf=new byte[65536];
+				long remaining=entry.size;
+				int l;
+				while (remaining>0 && (l=in.read(buf, 0, (int) Math.min(buf.length, remaining)))!=-1) {
+					writeBytes(buf, l);
+					remaining-=l;
+				}
+
+				if (remaining>0) {
+					throw new IOException("File was modified while being archived: "+entry.file.getAbsolutePath());
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+		entries.add(entry);
+	}
+
+	/**
+	 * Writes central directory and closes underlying stream.
+	 * @throws IOException
+	 */
+	void close() throws IOException {
+		long directoryOffset=written;
+		if (directoryOffset>MAX_SIZE) {
+			throw new IOException("Archives larger than 4 Gb are not supported");
+		}
+
+		for (int i=0, size=entries.size(); i<size; i++) {
+			Entry entry=(Entry) entries.get(i);
+			byte[] name=entry.name.getBytes("UTF-8");
+			writeInt(0x02014b50);
+			writeShort(20);
+			writeShort(20);
+			writeShort(FLAGS);
+			writeShort(entry.method);
+			writeShort(dosTime);
+			writeShort(dosDate);
+			writeInt(entry.crc);
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+			writeShort(name.length);
+			writeShort(0);
+			writeShort(0);
+			writeShort(0);
+			writeShort(0);
+			writeInt(0);
+			writeInt(entry.offset);
+			writeBytes(name, name.length);
+		}
+
+		long directorySize=written-directoryOffset;
+		int count=entries.size();
+		if (count>0xFFFF) {
+			long zip64Offset=written;
+			writeInt(0x06064b50);
+			writeLong(44);
+			writeShort(45);
+			writeShort(45);
+			writeInt(0);
+			writeInt(0);
+			writeLong(count);
+			writeLong(count);
+			writeLong(directorySize);
+			writeLong(directoryOffset);
+
+			writeInt(0x07064b50);
+			writeInt(0);
+			writeLong(zip64Offset);
+			writeInt(1);
+		}
+
+		writeInt(0x06054b50);
+		writeShort(0);
+		writeShort(0);
+		writeShort(Math.min(count, 0xFFFF));
+		writeShort(Math.min(count, 0xFFFF));
+		writeInt(directorySize);
+		writeInt(directoryOffset);
+		writeShort(0);
+
+		out.close();
+	}
+
+	private void writeShort(int v) throws IOException {
+		out.write(v & 0xFF);
+		out.write((v >>> 8) & 0xFF);
+		written+=2;
+	}
+
+	private void writeInt(long v) throws IOException {
+		writeShort((int) (v & 0xFFFF));
+		writeShort((int) ((v >>> 16) & 0xFFFF));
+	}
+
+	private void writeLong(long v) throws IOException {
+		writeInt(v & 0xFFFFFFFFL);
+		writeInt(v >>> 32);
+	}
+
+	private void writeBytes(byte[] b, int length) throws IOException {
+		out.write(b, 0, length);
+		written+=length;
+	}
+}
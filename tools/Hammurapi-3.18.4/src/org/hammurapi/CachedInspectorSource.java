@@ -0,0 +1,406 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+
+package org.hammurapi;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import com.pavelvlasov.config.ConfigurationException;
+
+/**
+ * Inspector source which reads descriptors from binary cache instead of
+ * parsing inspector set XML and evaluating XPath expressions for every
+ * descriptor. Cache file name contains SHA-1 digest of the XML, so a changed
+ * inspector set gets a new cache file. Cache is created on first load.
+ * <p>
+ * Inspector and parameter elements are kept as text and parsed only when
+ * inspector of the descriptor is instantiated, i.e. for enabled inspectors.
+ * <p>
+ * Cache directory is .hammurapi/inspectors in user.home, so users don't
+ * load cache files planted by others. It can be changed with 
+ * org.hammurapi.inspector-cache system property. Value none disables cache.
+ * Cache file is read completely and checked against the digest of the XML
+ * before it is used, a corrupt or truncated file is re-created.
+ * @version $Revision: 1.1 $
+ */
+public class CachedInspectorSource implements InspectorSource {
+	public static final String CACHE_DIR_PROPERTY="org.hammurapi.inspector-cache";
+
+	private static final int MAGIC=0x48494443;
+	private static final int VERSION=2;
+
+	private byte[] data;
+	private String source;
+
+	private CachedInspectorSource(byte[] data, String source) {
+		this.data=data;
+		this.source=source;
+	}
+
+	/**
+	 * Reads inspector set XML, creates cache if it doesn't exist.
+	 * @param in Inspector set XML, closed by this method
+	 * @param source Source description for inspector source info
+	 * @return Cached inspector source, or DOM inspector source if cache is disabled
+	 * @throws HammurapiException
+	 */
+	public static InspectorSource load(InputStream in, String source) throws HammurapiException {
+		byte[] content;
+		try {
+			try {
+				ByteArrayOutputStream baos=new ByteArrayOutputStream();
+				byte[] buf=new byte[8192];
+				int l;
+				while ((l=in.read(buf))!=-1) {
+					baos.write(buf, 0, l);
+				}
+				content=baos.toByteArray();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			throw new HammurapiException("Cannot read inspector descriptors from "+source, e);
+		}
+
+		File cacheDir=getCacheDir();
+		if (cacheDir==null) {
+			return new DomInspectorSource(new ByteArrayInputStream(content), source);
+		}
+
+		String contentDigest=digest(content);
+		File cacheFile=new File(cacheDir, "inspectors-"+contentDigest+".bin");
+		if (cacheFile.isFile()) {
+			try {
+				CachedInspectorSource ret=new CachedInspectorSource(ArchiveWriter.read(cacheFile), source);
+				ret.validate(contentDigest);
+				return ret;
+			} catch (IOException e) {
+				// Corrupt, truncated or outdated cache file is re-created
+				cacheFile.delete();
+			}
+		}
+
+		DomInspectorSource domSource=new DomInspectorSource(new ByteArrayInputStream(content), source);
+		byte[] data;
+		try {
+			data=serialize(domSource, contentDigest);
+		} catch (HammurapiException e) {
+			return domSource;
+		}
+		
+		try {
+			File tmpFile=File.createTempFile("inspectors", ".tmp", cacheDir);
+			OutputStream out=new FileOutputStream(tmpFile);
+			try {
+				out.write(data);
+			} finally {
+				out.close();
+			}
+
+			if (!tmpFile.renameTo(cacheFile)) {
+				// Another process might have created it
+				tmpFile.delete();
+			}
+		} catch (IOException e) {
+			// Cache is not writable, descriptors are served from memory
+		}
+		return new CachedInspectorSource(data, source);
+	}
+
+	/**
+	 * @return Cache directory, null if cache is disabled or directory cannot
+	 * be created
+	 */
+	private static File getCacheDir() {
+		String dirName=System.getProperty(CACHE_DIR_PROPERTY);
+		if ("none".equals(dirName)) {
+			return null;
+		}
+
+		File ret=dirName==null ? new File(new File(System.getProperty("user.home"), ".hammurapi"), "inspectors") : new File(dirName);
+		if (!ret.isDirectory() && !ret.mkdirs()) {
+			return null;
+		}
+		return ret;
+	}
+
+	private static String digest(byte[] content) {
+		MessageDigest md;
+		try {
+			md=MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new HammurapiRuntimeException(e);
+		}
+
+		byte[] digest=md.digest(content);
+		StringBuffer sb=new StringBuffer(digest.length*2);
+		for (int i=0; i<digest.length; i++) {
+			sb.append(Character.forDigit((digest[i]>>4) & 0xF, 16));
+			sb.append(Character.forDigit(digest[i] & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private static byte[] serialize(DomInspectorSource domSource, String contentDigest) throws HammurapiException {
+		Transformer serializer;
+		try {
+			serializer=TransformerFactory.newInstance().newTransformer();
+		} catch (TransformerException e) {
+			throw new HammurapiException(e);
+		}
+		serializer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+
+		try {
+			ByteArrayOutputStream baos=new ByteArrayOutputStream();
+			DataOutputStream out=new DataOutputStream(baos);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, contentDigest);
+
+			Element holder=domSource.getHolder();
+			writeString(out, holder.getAttribute("name"));
+			writeString(out, holder.getAttribute("revision"));
+			writeString(out, holder.hasAttribute("base") ? holder.getAttribute("base") : null);
+
+			List descriptors=domSource.getDescriptors();
+			out.writeInt(descriptors.size());
+			Iterator it=descriptors.iterator();
+			while (it.hasNext()) {
+				((DomInspectorDescriptor) it.next()).write(out, serializer);
+			}
+			out.close();
+			return baos.toByteArray();
+		} catch (IOException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	/**
+	 * Reads header
+	 * @return Digest of inspector set XML the cache was created from
+	 */
+	private String readHeader(DataInput in) throws IOException {
+		if (in.readInt()!=MAGIC || in.readInt()!=VERSION) {
+			throw new IOException("Not an inspector descriptor cache of version "+VERSION);
+		}
+		return readString(in);
+	}
+
+	/**
+	 * Reads the whole cache, so loadInspectors() doesn't fail on a truncated
+	 * or corrupt file.
+	 * @param contentDigest Digest of inspector set XML
+	 * @throws IOException If cache is not complete or was created from 
+	 * different XML
+	 */
+	private void validate(String contentDigest) throws IOException {
+		DataInputStream in=new DataInputStream(new ByteArrayInputStream(data));
+		try {
+			if (!contentDigest.equals(readHeader(in))) {
+				throw new IOException("Inspector descriptor cache was created from different XML");
+			}
+			
+			readString(in);
+			readString(in);
+			readString(in);
+			for (int i=0, count=in.readInt(); i<count; i++) {
+				new DomInspectorDescriptor(in);
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt inspector descriptor cache: "+e);
+		}
+		
+		if (in.read()!=-1) {
+			throw new IOException("Unexpected data at the end of inspector descriptor cache");
+		}
+	}
+
+	/**
+	 * Creates new descriptors on every invocation, so inspector sets loaded
+	 * from the same source don't share inspector instances.
+	 */
+	public void loadInspectors(InspectorSet inspectorSet) throws HammurapiException {
+		DataInputStream in=new DataInputStream(new ByteArrayInputStream(data));
+		try {
+			readHeader(in);
+			String name=readString(in);
+			String revision=readString(in);
+			String base=readString(in);
+			if (base!=null) {
+				try {
+					URL baseURL=new URL(base);
+					load(baseURL.openStream(), "URL: "+baseURL).loadInspectors(inspectorSet);
+				} catch (MalformedURLException e) {
+					throw new HammurapiException("Malformed base URL: "+e, e);
+				}
+			}
+
+			for (int i=0, count=in.readInt(); i<count; i++) {
+				inspectorSet.addDescriptor(new DomInspectorDescriptor(in));
+			}
+
+			inspectorSet.addInspectorSourceInfo(new InspectorSourceInfo(name, source, revision));
+		} catch (IOException e) {
+			throw new HammurapiException("Cannot read inspector descriptor cache of "+source, e);
+		} catch (ConfigurationException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	static String toXml(Element element, Transformer serializer) throws HammurapiException {
+		try {
+			StringWriter sw=new StringWriter();
+			serializer.transform(new DOMSource(element), new StreamResult(sw));
+			return sw.toString();
+		} catch (TransformerException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	static Element parse(String xml) throws ConfigurationException {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(xml))).getDocumentElement();
+		} catch (ParserConfigurationException e) {
+			throw new ConfigurationException(e);
+		} catch (SAXException e) {
+			throw new ConfigurationException(e);
+		} catch (IOException e) {
+			throw new ConfigurationException(e);
+		}
+	}
+
+	static void writeString(DataOutput out, String str) throws IOException {
+		if (str==null) {
+			out.writeInt(-1);
+		} else {
+			byte[] bytes=str.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	static String readString(DataInput in) throws IOException {
+		int length=in.readInt();
+		if (length==-1) {
+			return null;
+		}
+		
+		if (length<0) {
+			throw new IOException("Invalid string length: "+length);
+		}
+
+		byte[] bytes=new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	static void writeInteger(DataOutput out, Integer value) throws IOException {
+		out.writeBoolean(value!=null);
+		if (value!=null) {
+			out.writeInt(value.intValue());
+		}
+	}
+
+	static Integer readInteger(DataInput in) throws IOException {
+		return in.readBoolean() ? new Integer(in.readInt()) : null;
+	}
+
+	static void writeBoolean(DataOutput out, Boolean value) throws IOException {
+		out.writeByte(value==null ? -1 : value.booleanValue() ? 1 : 0);
+	}
+
+	static Boolean readBoolean(DataInput in) throws IOException {
+		switch (in.readByte()) {
+			case -1:
+				return null;
+			case 0:
+				return Boolean.FALSE;
+			default:
+				return Boolean.TRUE;
+		}
+	}
+
+	static void writeStrings(DataOutput out, Collection strings) throws IOException {
+		out.writeInt(strings.size());
+		Iterator it=strings.iterator();
+		while (it.hasNext()) {
+			writeString(out, (String) it.next());
+		}
+	}
+
+	static void readStrings(DataInput in, Collection strings) throws IOException {
+		for (int i=0, count=in.readInt(); i<count; i++) {
+			strings.add(readString(in));
+		}
+	}
+
+	static void writeMap(DataOutput out, Map map) throws IOException {
+		out.writeInt(map.size());
+		Iterator it=map.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry entry=(Map.Entry) it.next();
+			writeString(out, (String) entry.getKey());
+			writeString(out, (String) entry.getValue());
+		}
+	}
+
+	static void readMap(DataInput in, Map map) throws IOException {
+		for (int i=0, count=in.readInt(); i<count; i++) {
+			map.put(readString(in), readString(in));
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.pavelvlasov.util.DispatchingVisitor.Filter;
+import com.pavelvlasov.util.OrderedTarget;
+
+/**
+ * visit(), leave() and approve() methods of inspectors converted to method
+ * handles. The table is built once by {@link InspectorSet#initInspectors()},
+ * {@link HandleDispatchingVisitor} invokes the handles instead of
+ * Method.invoke() for every node.
+ * @version $Revision: 1.1 $
+ */
+public class DispatchTable {
+
+	/**
+	 * All handles take the visitee and return what the method returns,
+	 * null for void methods.
+	 */
+	static final MethodType HANDLE_TYPE=MethodType.methodType(Object.class, Object.class);
+
+	/**
+	 * Method of a target bound to the target.
+	 */
+	static class Handle {
+		final Object target;
+		final Method method;
+		final Class type;
+		final MethodHandle handle;
+
+		Handle(Object target, Method method) throws HammurapiException {
+			this.target=target;
+			this.method=method;
+			this.type=method.getParameterTypes()[0];
+			this.handle=unreflect(method).bindTo(target).asType(HANDLE_TYPE);
+		}
+
+		private static MethodHandle unreflect(Method method) throws HammurapiException {
+			try {
+				try {
+					return MethodHandles.publicLookup().unreflect(method);
+				} catch (IllegalAccessException e) {
+					// Public method of non-public class, e.g. anonymous inspector
+					method.setAccessible(true);
+					return MethodHandles.lookup().unreflect(method);
+				}
+			} catch (IllegalAccessException e) {
+				throw new HammurapiException("Cannot create method handle for "+method, e);
+			} catch (SecurityException e) {
+				throw new HammurapiException("Cannot create method handle for "+method, e);
+			}
+		}
+
+		/**
+		 * @param visitee
+		 * @return Method return value
+		 * @throws Throwable Exception thrown by the method
+		 */
+		Object invoke(Object visitee) throws Throwable {
+			return (Object) handle.invokeExact(visitee);
+		}
+	}
+
+	/**
+	 * Handles of one target.
+	 */
+	static class TargetHandles {
+		final Object target;
+		final Integer order;
+		final Handle[] visits;
+		final Handle[] leaves;
+
+		/**
+		 * approve() methods if target is a filter.
+		 */
+		final Handle[] approves;
+
+		/**
+		 * Targets the filter applies to.
+		 */
+		final Collection filtered;
+
+		TargetHandles(Object target) throws HammurapiException {
+			this.target=target;
+			this.order=target instanceof OrderedTarget ? ((OrderedTarget) target).getOrder() : null;
+			this.visits=handles(target, "visit");
+			this.leaves=handles(target, "leave");
+			if (target instanceof Filter) {
+				this.approves=handles(target, "approve");
+				this.filtered=((Filter) target).getTargets();
+			} else {
+				this.approves=new Handle[0];
+				this.filtered=null;
+			}
+		}
+	}
+
+	private Map targets=new IdentityHashMap();
+
+	/**
+	 * @param targets Inspectors
+	 * @throws HammurapiException If method handle can't be created
+	 */
+	public DispatchTable(Collection targets) throws HammurapiException {
+		Iterator it=targets.iterator();
+		while (it.hasNext()) {
+			Object target=it.next();
+			this.targets.put(target, new TargetHandles(target));
+		}
+	}
+
+	/**
+	 * @param target
+	 * @return Handles of the target or null if target is not in the table.
+	 */
+	TargetHandles getHandles(Object target) {
+		return (TargetHandles) targets.get(target);
+	}
+
+	/**
+	 * @return Number of targets in the table.
+	 */
+	public int size() {
+		return targets.size();
+	}
+
+	/**
+	 * Public one-argument methods with given name, in the same way
+	 * DispatchingVisitor selects them.
+	 */
+	private static Handle[] handles(Object target, String name) throws HammurapiException {
+		List ret=new ArrayList();
+		Method[] methods=target.getClass().getMethods();
+		for (int i=0; i<methods.length; i++) {
+			Method method=methods[i];
+			if (name.equals(method.getName())
+					&& method.getParameterTypes().length==1
+					&& !method.getParameterTypes()[0].isPrimitive()
+					&& !method.isBridge()) {
+				ret.add(new Handle(target, method));
+			}
+		}
+		return (Handle[]) ret.toArray(new Handle[ret.size()]);
+	}
+}
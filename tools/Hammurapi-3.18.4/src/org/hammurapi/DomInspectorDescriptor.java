@@ -23,6 +23,9 @@
  */
 package org.hammurapi;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -31,6 +34,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 
 import org.apache.xpath.CachedXPathAPI;
@@ -42,6 +46,7 @@ import org.w3c.dom.traversal.NodeIterator;
 import com.pavelvlasov.config.ConfigurationException;
 import com.pavelvlasov.config.DomConfigFactory;
 import com.pavelvlasov.config.Parameterizable;
+import com.pavelvlasov.config.RuntimeConfigurationException;
 import com.pavelvlasov.xml.dom.AbstractDomObject;
 
 /**
@@ -62,8 +67,20 @@ public class DomInspectorDescriptor extends AbstractDomObject implements Inspect
 	private Boolean isWaivable;
 	private String description;
 	private Element inspectorElement;
+	
+	/**
+	 * Inspector element text of descriptors read from cache, parsed
+	 * when inspector is instantiated.
+	 */
+	private String inspectorXml;
 	private Inspector inspector;
-	private List parameters=new LinkedList();
+	
+	/**
+	 * Parameter elements or their text, parameters are created on first
+	 * request. 
+	 */
+	private List parameterElements=new LinkedList();
+	private List parameters;
 	private List waiveCases=new LinkedList();
 	private Map messages=new HashMap();
 	
@@ -121,11 +138,10 @@ public class DomInspectorDescriptor extends AbstractDomObject implements Inspect
 			
 			inspectorElement=(Element) cxpa.selectSingleNode(holder, "inspector");
 			
-			DomConfigFactory factory=new DomConfigFactory();
 			NodeIterator nit=cxpa.selectNodeIterator(holder, "parameter");
 			Node n;
 			while ((n=nit.nextNode())!=null) {
-				parameters.add(new ParameterEntry(((Element) n).getAttribute("name"),factory.create(n)));
+				parameterElements.add(n);
 			}
 			
 			nit=cxpa.selectNodeIterator(holder, "waive-case");
@@ -194,6 +210,86 @@ public class DomInspectorDescriptor extends AbstractDomObject implements Inspect
 		}
 	}
 	
+	/**
+	 * Reads descriptor written by {@link #write(DataOutput, Transformer)}
+	 * @param in
+	 * @throws IOException
+	 */
+	DomInspectorDescriptor(DataInput in) throws IOException {
+		super();
+		fixSample=CachedInspectorSource.readString(in);
+		message=CachedInspectorSource.readString(in);
+		CachedInspectorSource.readMap(in, messages);
+		name=CachedInspectorSource.readString(in);
+		order=CachedInspectorSource.readInteger(in);
+		rationale=CachedInspectorSource.readString(in);
+		category=CachedInspectorSource.readString(in);
+		resources=CachedInspectorSource.readString(in);
+		severity=CachedInspectorSource.readInteger(in);
+		violationSample=CachedInspectorSource.readString(in);
+		isEnabled=CachedInspectorSource.readBoolean(in);
+		isWaivable=CachedInspectorSource.readBoolean(in);
+		description=CachedInspectorSource.readString(in);
+		inspectorXml=CachedInspectorSource.readString(in);
+		CachedInspectorSource.readStrings(in, parameterElements);
+		CachedInspectorSource.readStrings(in, waiveCases);
+		CachedInspectorSource.readMap(in, waivedInspectorNames);
+		CachedInspectorSource.readMap(in, waiveReasons);
+		CachedInspectorSource.readStrings(in, afterInspectorNames);
+		for (int i=0, count=in.readInt(); i<count; i++) {
+			FilterNameEntry fne=new FilterNameEntry();
+			fne.exclude=in.readBoolean();
+			fne.name=CachedInspectorSource.readString(in);
+			fne.category=CachedInspectorSource.readString(in);
+			filterEntries.add(fne);
+		}
+	}
+	
+	/**
+	 * Writes descriptor to inspector descriptor cache. Inspector and parameter 
+	 * elements are written as text.
+	 * @param out
+	 * @param serializer Identity transformer
+	 * @throws IOException
+	 * @throws HammurapiException
+	 */
+	void write(DataOutput out, Transformer serializer) throws IOException, HammurapiException {
+		CachedInspectorSource.writeString(out, fixSample);
+		CachedInspectorSource.writeString(out, message);
+		CachedInspectorSource.writeMap(out, messages);
+		CachedInspectorSource.writeString(out, name);
+		CachedInspectorSource.writeInteger(out, order);
+		CachedInspectorSource.writeString(out, rationale);
+		CachedInspectorSource.writeString(out, category);
+		CachedInspectorSource.writeString(out, resources);
+		CachedInspectorSource.writeInteger(out, severity);
+		CachedInspectorSource.writeString(out, violationSample);
+		CachedInspectorSource.writeBoolean(out, isEnabled);
+		CachedInspectorSource.writeBoolean(out, isWaivable);
+		CachedInspectorSource.writeString(out, description);
+		CachedInspectorSource.writeString(out, inspectorElement==null ? inspectorXml : CachedInspectorSource.toXml(inspectorElement, serializer));
+		
+		out.writeInt(parameterElements.size());
+		Iterator it=parameterElements.iterator();
+		while (it.hasNext()) {
+			Object pe=it.next();
+			CachedInspectorSource.writeString(out, pe instanceof Element ? CachedInspectorSource.toXml((Element) pe, serializer) : (String) pe);
+		}
+		
+		CachedInspectorSource.writeStrings(out, waiveCases);
+		CachedInspectorSource.writeMap(out, waivedInspectorNames);
+		CachedInspectorSource.writeMap(out, waiveReasons);
+		CachedInspectorSource.writeStrings(out, afterInspectorNames);
+		out.writeInt(filterEntries.size());
+		it=filterEntries.iterator();
+		while (it.hasNext()) {
+			FilterNameEntry fne=(FilterNameEntry) it.next();
+			out.writeBoolean(fne.exclude);
+			CachedInspectorSource.writeString(out, fne.name);
+			CachedInspectorSource.writeString(out, fne.category);
+		}
+	}
+	
 	/**
 	 * @return Returns the fixSample.
 	 */
@@ -269,6 +365,10 @@ public class DomInspectorDescriptor extends AbstractDomObject implements Inspect
 	}
 
 	public Inspector getInspector() throws ConfigurationException {
+		if (inspector==null && inspectorElement==null && inspectorXml!=null) {
+			inspectorElement=CachedInspectorSource.parse(inspectorXml);
+		}
+		
 		if (inspector==null && inspectorElement!=null) {
 			DomConfigFactory factory=new DomConfigFactory();
 			Object o = factory.create(inspectorElement);
@@ -295,6 +395,21 @@ public class DomInspectorDescriptor extends AbstractDomObject implements Inspect
 	}
 
 	public Collection getParameters() {
+		if (parameters==null) {
+			List ret=new LinkedList();
+			DomConfigFactory factory=new DomConfigFactory();
+			Iterator it=parameterElements.iterator();
+			while (it.hasNext()) {
+				Object pe=it.next();
+				try {
+					Element parameterElement=pe instanceof Element ? (Element) pe : CachedInspectorSource.parse((String) pe);
+					ret.add(new ParameterEntry(parameterElement.getAttribute("name"), factory.create(parameterElement)));
+				} catch (ConfigurationException e) {
+					throw new RuntimeConfigurationException("Invalid parameter of inspector "+name, e);
+				}
+			}
+			parameters=ret;
+		}
 		return parameters;
 	}
 
@@ -31,6 +31,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -100,17 +103,43 @@ public class DomInspectorSource implements InspectorSource {
         }
         
         try {
-            NodeIterator inspectorsIterator=XPathAPI.selectNodeIterator(holder, "inspector-descriptor");
-            Element inspectorElement;
-            while ((inspectorElement=(Element) inspectorsIterator.nextNode())!=null) {
-            	inspectorSet.addDescriptor(new DomInspectorDescriptor(inspectorElement));
+            Iterator it=getDescriptors().iterator();
+            while (it.hasNext()) {
+            	inspectorSet.addDescriptor((InspectorDescriptor) it.next());
             }        
-        } catch (TransformerException e) {
-            new HammurapiException(e);
         } catch (ConfigurationException e) {
-        	new HammurapiException(e);
+        	throw new HammurapiException(e);
 		}
 
         inspectorSet.addInspectorSourceInfo(new InspectorSourceInfo(holder.getAttribute("name"), source, holder.getAttribute("revision")));
     }
+    
+    /**
+     * @return Descriptors of inspector-descriptor elements in document order
+     * @throws HammurapiException
+     */
+    List getDescriptors() throws HammurapiException {
+        try {
+        	List ret=new ArrayList();
+            NodeIterator inspectorsIterator=XPathAPI.selectNodeIterator(holder, "inspector-descriptor");
+            Element inspectorElement;
+            while ((inspectorElement=(Element) inspectorsIterator.nextNode())!=null) {
+            	ret.add(new DomInspectorDescriptor(inspectorElement));
+            }
+            return ret;
+        } catch (TransformerException e) {
+            throw new HammurapiException(e);
+        }
+    }
+    
+    /**
+     * @return Holder element
+     */
+    Element getHolder() {
+    	return holder;
+    }
+    
+    String getSource() {
+    	return source;
+    }
 }
@@ -23,20 +23,34 @@
  */
 package org.hammurapi;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.zip.ZipFile;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.FactoryConfigurationError;
@@ -59,7 +73,9 @@ import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.Path;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
+import com.pavelvlasov.xml.dom.AbstractDomObject;
 import com.pavelvlasov.xml.dom.DOMUtils;
 
 /**
@@ -195,29 +211,193 @@ public class HammurapiArchiver extends Task {
 		return newName;
 	}
 	
-	private int zipFile(File in, ZipOutputStream out, String entryName) throws IOException {
-		if (in.isFile()) {
-		    log("Zipping file "+in.getAbsolutePath()+" as "+entryName, Project.MSG_VERBOSE);
-			out.putNextEntry(new ZipEntry(entryName));
-			byte[] buf=new byte[4096];
-			int l;
-			FileInputStream fis=new FileInputStream(in);
-			while ((l=fis.read(buf))!=-1) {
-				out.write(buf, 0, l);
+	private int threads=Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Number of threads to compress source files and to calculate digests
+	 * of jar files. Defaults to number of available processors. Entries are 
+	 * written to the archive in the current thread.
+	 * @ant.non-required
+	 * @param threads
+	 */
+	public void setThreads(int threads) {
+		this.threads=threads;
+	}
+	
+	private File archiveCache;
+	
+	/**
+	 * Directory with jar files named by SHA-1 digest of their content.
+	 * Jar files which are in the cache are not put into the archive, 
+	 * archive refers to them by digest. Jar files which are not in the 
+	 * cache are put into the archive and copied to the cache. Archive shall
+	 * be reviewed with the same cache, see archiveCache attribute of the 
+	 * review task.
+	 * @ant.non-required
+	 * @param archiveCache
+	 */
+	public void setArchiveCache(File archiveCache) {
+		this.archiveCache=archiveCache;
+	}
+	
+	private File changedSince;
+	
+	/**
+	 * Previous archive of the same sources. If this attribute is set then 
+	 * only source files which are not in the previous archive or which 
+	 * content is different are put into the archive.
+	 * @ant.non-required
+	 * @param changedSince
+	 */
+	public void setChangedSince(File changedSince) {
+		this.changedSince=changedSince;
+	}
+	
+	/**
+	 * @param cacheDir
+	 * @param digest SHA-1 digest of file content
+	 * @param name File or entry name
+	 * @return Cache file for the content, has the same extension as the name.
+	 */
+	static File getCacheFile(File cacheDir, String digest, String name) {
+		int idx=name.lastIndexOf('.');
+		return new File(cacheDir, idx==-1 || idx<name.lastIndexOf('/') ? digest : digest+name.substring(idx));
+	}
+	
+	private static final int SOURCE=0;
+	private static final int CLASS_FILE=1;
+	private static final int JAR=2;
+	
+	/**
+	 * Archive entry to be prepared in a worker thread.
+	 */
+	private class EntryJob implements Callable {
+		private String name;
+		private File file;
+		private int type;
+		private Element pathElement;
+		private boolean referenced;
+		private Future future;
+		
+		/**
+		 * @param name Entry name
+		 * @param file
+		 * @param type SOURCE, CLASS_FILE or JAR
+		 * @param pathElement Classpath element to put jar digest to, 
+		 * or source element of a source file
+		 */
+		EntryJob(String name, File file, int type, Element pathElement) {
+			this.name=name;
+			this.file=file;
+			this.type=type;
+			this.pathElement=pathElement;
+		}
+
+		/**
+		 * @return Entry or null if the entry shall not be written
+		 */
+		public Object call() throws IOException {
+			if (type==JAR) {
+				ArchiveWriter.Entry ret=ArchiveWriter.store(name, file);
+				if (archiveCache!=null) {
+					File cacheFile=getCacheFile(archiveCache, ret.getDigest(), name);
+					if (cacheFile.isFile()) {
+						referenced=true;
+					} else {
+						copyToCache(file, cacheFile);
+					}
+				}
+				return ret;
 			}
-			fis.close();				
-			out.closeEntry();
+			
+			byte[] content=ArchiveWriter.read(file);
+			if (type==SOURCE && baseEntries!=null) {
+				ZipEntry baseEntry=(ZipEntry) baseEntries.get(name);
+				if (baseEntry!=null && baseEntry.getSize()==content.length) {
+					CRC32 crc=new CRC32();
+					crc.update(content);
+					if (baseEntry.getCrc()==crc.getValue()) {
+						return null;
+					}
+				}
+			}
+			return ArchiveWriter.deflate(name, content);
+		}
+	}
+	
+	/**
+	 * Copies file to a temporary file in the cache directory and renames it,
+	 * so other archivers don't see partially copied files.
+	 */
+	private void copyToCache(File file, File cacheFile) throws IOException {
+		if (!archiveCache.isDirectory() && !archiveCache.mkdirs()) {
+			throw new IOException("Cannot create archive cache directory "+archiveCache.getAbsolutePath());
+		}
+		
+		File tmpFile=File.createTempFile("har", ".tmp", archiveCache);
+		InputStream in=new FileInputStream(file);
+		try {
+			OutputStream out=new FileOutputStream(tmpFile);
+			try {
+				byte[] buf=new byte[65536];
+				int l;
+				while ((l=in.read(buf))!=-1) {
+					out.write(buf, 0, l);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		
+		if (!tmpFile.renameTo(cacheFile)) {
+			tmpFile.delete();
+			if (!cacheFile.isFile()) {
+				throw new IOException("Cannot copy "+file.getAbsolutePath()+" to "+cacheFile.getAbsolutePath());
+			}
+		}
+		log("Copied "+file.getAbsolutePath()+" to "+cacheFile.getAbsolutePath(), Project.MSG_VERBOSE);
+	}
+	
+	/**
+	 * Entry name -> ZipEntry of the previous archive
+	 */
+	private Map baseEntries;
+	
+	private void loadBaseEntries() throws IOException {
+		baseEntries=new HashMap();
+		ZipFile zipFile=new ZipFile(changedSince);
+		try {
+			Enumeration entries=zipFile.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry=(ZipEntry) entries.nextElement();
+				baseEntries.put(entry.getName(), entry);
+			}
+		} finally {
+			zipFile.close();
+		}
+	}
+	
+	/**
+	 * Adds jobs for classpath directory or file
+	 * @param pathElement Classpath element of jar file, null for directories
+	 * @return Number of files
+	 */
+	private int addClassPathJobs(File in, String entryName, List jobs, Element pathElement) {
+		if (in.isFile()) {
+			String name=in.getName().toLowerCase();
+			boolean isJar=pathElement!=null && (name.endsWith(".jar") || name.endsWith(".zip"));
+			jobs.add(new EntryJob(entryName, in, isJar ? JAR : CLASS_FILE, pathElement));
 			return 1;
 		} else if (in.isDirectory()) {
 		    int ret=0;
 			File[] entries=in.listFiles();
 			if (entries!=null && entries.length>0) {
-			    log("Zipping directory "+in.getAbsolutePath()+" as "+entryName+"/", Project.MSG_VERBOSE);
-				out.putNextEntry(new ZipEntry(entryName+"/"));
+				jobs.add(entryName+"/");
 				for (int i=0; i<entries.length; i++) {
-					ret+=zipFile(entries[i], out, entryName+"/"+entries[i].getName());
+					ret+=addClassPathJobs(entries[i], entryName+"/"+entries[i].getName(), jobs, null);
 				}
-				out.closeEntry();
 			}
 			return ret;
 		} 
@@ -225,10 +405,134 @@ public class HammurapiArchiver extends Task {
 		return 0;
 	}
 	
+	/**
+	 * Source elements with at least one archived file
+	 */
+	private Set archivedSources=new HashSet();
+	
+	/**
+	 * Removes source elements whose files were all left out as unchanged,
+	 * the review task would otherwise look for them in the archive.
+	 * @param sourcesElement
+	 */
+	private void removeSkippedSources(Element sourcesElement) {
+		Node child=sourcesElement.getFirstChild();
+		while (child!=null) {
+			Node next=child.getNextSibling();
+			if (!archivedSources.contains(child)) {
+				log("All files of "+AbstractDomObject.getElementText((Element) child)+" are unchanged, source is not archived", Project.MSG_VERBOSE);
+				sourcesElement.removeChild(child);
+			}
+			child=next;
+		}
+	}
+	
+	/**
+	 * Prepares entries in worker threads and writes them in the order of 
+	 * jobs. Not more than threads*4 prepared entries are kept in memory.
+	 * @param jobs Directory entry names and EntryJob's
+	 * @param writer
+	 * @throws IOException
+	 */
+	private void writeEntries(List jobs, ArchiveWriter writer) throws IOException {
+		ExecutorService pool=threads<=1 ? null : Executors.newFixedThreadPool(
+				threads,
+				new ThreadFactory() {
+					private int counter;
+					
+					public synchronized Thread newThread(Runnable r) {
+						Thread ret=new Thread(r, "Hammurapi archiver "+(++counter));
+						ret.setDaemon(true);
+						return ret;
+					}
+				});
+		
+		int unchanged=0;
+		int referenced=0;
+		try {
+			LinkedList pending=new LinkedList();
+			Iterator it=jobs.iterator();
+			while (it.hasNext() || !pending.isEmpty()) {
+				while (it.hasNext() && (pending.isEmpty() || pool!=null && pending.size()<threads*4)) {
+					Object job=it.next();
+					if (job instanceof EntryJob && pool!=null) {
+						((EntryJob) job).future=pool.submit((EntryJob) job);
+					}
+					pending.add(job);
+				}
+				
+				Object job=pending.removeFirst();
+				if (job instanceof String) {
+					writer.writeDirectory((String) job);
+				} else {
+					EntryJob entryJob=(EntryJob) job;
+					ArchiveWriter.Entry entry=entryJob.future==null ? (ArchiveWriter.Entry) entryJob.call() : getEntry(entryJob.future);
+					if (entry==null) {
+						++unchanged;
+					} else {
+						if (entryJob.type==SOURCE) {
+							archivedSources.add(entryJob.pathElement);
+						} else if (entryJob.pathElement!=null) {
+							entryJob.pathElement.setAttribute("digest", entry.getDigest());
+						}
+						
+						if (entryJob.referenced) {
+							log("Archive refers to "+entryJob.file.getAbsolutePath()+" in the cache as "+entry.getDigest(), Project.MSG_VERBOSE);
+							++referenced;
+						} else {
+							log("Archiving file "+entryJob.file.getAbsolutePath()+" as "+entry.getName(), Project.MSG_VERBOSE);
+							writer.write(entry);
+						}
+					}
+				}
+			}
+		} finally {
+			if (pool!=null) {
+				pool.shutdownNow();
+			}
+		}
+		
+		if (changedSince!=null) {
+			log(unchanged+" unchanged source files skipped");
+		}
+		
+		if (archiveCache!=null) {
+			log(referenced+" classpath entries referenced from the archive cache");
+		}
+	}
+	
+	private static ArchiveWriter.Entry getEntry(Future future) throws IOException {
+		try {
+			return (ArchiveWriter.Entry) future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuildException("Archiving interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause=e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			
+			throw new BuildException(cause);
+		}
+	}
+	
 	public void execute() throws BuildException {
 		try {
-			ZipOutputStream zos=new ZipOutputStream(new FileOutputStream(output));			
+			if (changedSince!=null) {
+				loadBaseEntries();
+			}
+			
 			Set entryNames=new HashSet();
+			List jobs=new ArrayList();
 			
 			Document config=DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
 			Element root=config.createElement("hammurapi-archive");
@@ -272,8 +576,8 @@ public class HammurapiArchiver extends Task {
 					File cpEntry=new File(path[i]);
 					if (cpEntry.exists() && (cpEntry.isFile() || cpEntry.isDirectory())) {
 						String name=uniquilize("lib/"+cpEntry.getName(), entryNames);
-						if (zipFile(cpEntry, zos, name)>0) {
-							Element pathElement=config.createElement("path");
+						Element pathElement=config.createElement("path");
+						if (addClassPathJobs(cpEntry, name, jobs, cpEntry.isFile() ? pathElement : null)>0) {
 							classPathElement.appendChild(pathElement);
 							pathElement.appendChild(config.createTextNode(name));
 						}
@@ -297,7 +601,7 @@ public class HammurapiArchiver extends Task {
 				sourceElement.appendChild(config.createTextNode(name));
 				String[] files=scanner.getIncludedFiles();
 				for (int i=0; i<files.length; i++) {
-					zipFile(new File(scanner.getBasedir(), files[i]), zos, name+"/"+files[i].replace(File.separatorChar, '/'));
+					jobs.add(new EntryJob(name+"/"+files[i].replace(File.separatorChar, '/'), new File(scanner.getBasedir(), files[i]), SOURCE, sourceElement));
 				}
 			}
 			
@@ -312,15 +616,23 @@ public class HammurapiArchiver extends Task {
 				Element sourceElement=config.createElement("source");
 				sourcesElement.appendChild(sourceElement);
 				sourceElement.appendChild(config.createTextNode(entryName));
-				zipFile(file, zos, entryName);
+				if (file.isFile()) {
+					jobs.add(new EntryJob(entryName, file, SOURCE, sourceElement));
+				}
 			}
 			
-			ZipEntry configEntry=new ZipEntry("config.xml");
-			zos.putNextEntry(configEntry);
-			DOMUtils.serialize(config, zos);
-			zos.closeEntry();
-			
-			zos.close();
+			ArchiveWriter writer=new ArchiveWriter(new FileOutputStream(output));
+			try {
+				writeEntries(jobs, writer);
+				removeSkippedSources(sourcesElement);
+				
+				// Config is written last as jar digests are set by writeEntries()
+				ByteArrayOutputStream configBytes=new ByteArrayOutputStream();
+				DOMUtils.serialize(config, configBytes);
+				writer.write(ArchiveWriter.deflate("config.xml", configBytes.toByteArray()));
+			} finally {
+				writer.close();
+			}
 		} catch (IOException e) {
 			throw new BuildException(e.getMessage(), e);
 		} catch (ParserConfigurationException e) {
@@ -429,6 +741,33 @@ public class HammurapiArchiver extends Task {
         
         options.addOption(descriptionOption);
         
+        Option threadsOption=OptionBuilder
+        .withArgName("threads")
+        .hasArg()
+        .withDescription("Number of compression threads")
+        .isRequired(false)
+        .create("t");
+        
+        options.addOption(threadsOption);
+        
+        Option archiveCacheOption=OptionBuilder
+        .withArgName("directory")
+        .hasArg()
+        .withDescription("Archive cache directory")
+        .isRequired(false)
+        .create("C");
+        
+        options.addOption(archiveCacheOption);
+        
+        Option changedSinceOption=OptionBuilder
+        .withArgName("archive")
+        .hasArg()
+        .withDescription("Archive only sources changed since given archive")
+        .isRequired(false)
+        .create("I");
+        
+        options.addOption(changedSinceOption);
+        
         Option helpOption=OptionBuilder.withDescription("Print this message").isRequired(false).create("h");        
         options.addOption(helpOption);
         
@@ -490,6 +829,18 @@ public class HammurapiArchiver extends Task {
 		if (line.hasOption('B')) {
 			task.setBaselining(line.getOptionValue('B'));
 		}
+		
+		if (line.hasOption('t')) {
+			task.setThreads(Integer.parseInt(line.getOptionValue('t')));
+		}
+		
+		if (line.hasOption('C')) {
+			task.setArchiveCache(new File(line.getOptionValue('C')));
+		}
+		
+		if (line.hasOption('I')) {
+			task.setChangedSince(new File(line.getOptionValue('I')));
+		}
 
         task.setOutput(new File(largs[0]));
         
@@ -50,6 +50,7 @@ import org.apache.tools.ant.Project;
 import org.hammurapi.results.CompositeResults;
 import org.hammurapi.results.persistent.jdbc.ResultsFactory;
 import org.hammurapi.results.persistent.jdbc.ResultsFactoryConfig;
+import org.hammurapi.results.simple.SimpleResultsFactory;
 import org.w3c.dom.Element;
 
 import com.pavelvlasov.ant.ConnectionEntry;
@@ -215,6 +216,75 @@ public class HammurapiTask extends TaskBase {
 	
 	private String hostId;
 
+	private int reviewThreads=1;
+	
+	/**
+	 * Number of threads to review compilation units. Defaults to 1.
+	 * With more than one thread each thread gets its own instances of 
+	 * inspectors which look only at compilation units. Other inspectors
+	 * run in the main thread.
+	 * @ant.non-required
+	 * @param reviewThreads
+	 */
+	public void setReviewThreads(int reviewThreads) {
+		this.reviewThreads=reviewThreads;
+	}
+	
+	private boolean resultsInMemory;
+	
+	/**
+	 * Keep review results in memory instead of the database. This option
+	 * affects results only, it is not an in-memory repository: the source 
+	 * model is still built by the repository in a temporary SQL database 
+	 * (without results tables), which is discarded after review, and its 
+	 * storage format is not changed.
+	 * Every run is a full review, there are no old reports to compare with 
+	 * and clean up. Use it for one-shot reviews, e.g. in CI builds. 
+	 * Mutually exclusive with database attribute, server and connection 
+	 * nested elements, and baseLine. Defaults to false.
+	 * @ant.non-required
+	 * @param resultsInMemory
+	 */
+	public void setResultsInMemory(boolean resultsInMemory) {
+		this.resultsInMemory=resultsInMemory;
+	}
+	
+	/**
+	 * Creates inspector set and loads embedded and configured inspectors 
+	 * into it.
+	 * @param contextFactory
+	 * @param logger
+	 * @return Loaded inspector set
+	 * @throws HammurapiException
+	 * @throws ConfigurationException
+	 */
+	InspectorSet createInspectorSet(InspectorContextFactory contextFactory, Logger logger) throws HammurapiException, ConfigurationException {
+		InspectorSet inspectorSet=new InspectorSet(contextFactory, logger);
+		
+		if (embeddedInspectors) {
+			log("Loading embedded inspectors", Project.MSG_VERBOSE);
+			loadEmbeddedInspectors(inspectorSet);
+		}
+		
+		log("Loading inspectors", Project.MSG_VERBOSE);
+		Iterator it=inspectors.iterator();
+		while (it.hasNext()) {
+			Object o=it.next();
+			if (o instanceof InspectorSource) {
+				((InspectorSource) o).loadInspectors(inspectorSet);
+			} else {
+				InspectorEntry inspectorEntry = (InspectorEntry) o;
+				inspectorSet.addDescriptor(inspectorEntry);
+				inspectorSet.addInspectorSourceInfo(
+						new InspectorSourceInfo(
+								"Inline inspector "+inspectorEntry.getName(),
+								"Build file: "+inspectorEntry.getLocation().toString(),
+								""));
+			}
+		}
+		return inspectorSet;
+	}
+
 	public void execute() throws BuildException {
 		long started=System.currentTimeMillis();
 		
@@ -236,7 +306,7 @@ public class HammurapiTask extends TaskBase {
 			
 			final SessionImpl reviewSession=new SessionImpl();
 			
-			InspectorSet inspectorSet=new InspectorSet(
+			InspectorSet inspectorSet=createInspectorSet(
 					new InspectorContextFactory() {
 						public InspectorContext newContext(InspectorDescriptor descriptor, Logger logger) {
 							return new InspectorContextImpl(
@@ -249,34 +319,12 @@ public class HammurapiTask extends TaskBase {
 					},
 					logger);
 			
-			if (embeddedInspectors) {
-				log("Loading embedded inspectors", Project.MSG_VERBOSE);
-				loadEmbeddedInspectors(inspectorSet);
-			}
-			
-			log("Loading inspectors", Project.MSG_VERBOSE);
-			Iterator it=inspectors.iterator();
-			while (it.hasNext()) {
-				Object o=it.next();
-				if (o instanceof InspectorSource) {
-					((InspectorSource) o).loadInspectors(inspectorSet);
-				} else {
-					InspectorEntry inspectorEntry = (InspectorEntry) o;
-					inspectorSet.addDescriptor(inspectorEntry);
-					inspectorSet.addInspectorSourceInfo(
-							new InspectorSourceInfo(
-									"Inline inspector "+inspectorEntry.getName(),
-									"Build file: "+inspectorEntry.getLocation().toString(),
-									""));
-				}
-			}
-			
 			log("Inspectors loaded: "+inspectorSet.size(), Project.MSG_VERBOSE);
 			
 			log("Loading waivers", Project.MSG_VERBOSE);
 			Date now=new Date();
 			WaiverSet waiverSet=new WaiverSet();
-			it=waivers.iterator();
+			Iterator it=waivers.iterator();
 			while (it.hasNext()) {
 				((WaiverSource) it.next()).loadWaivers(waiverSet,now);
 			}
@@ -307,12 +355,17 @@ public class HammurapiTask extends TaskBase {
 			config.setCalculateDependencies(calculateDependencies);
 			config.setStoreSource(storeSource);
 			
+			// Repository parses files in the constructor, only files are counted
+			ParseStatistics parseStatistics=new ParseStatistics(1);
+			
 			it=srcFileSets.iterator();
 			while (it.hasNext()) {
 				HammurapiFileSet fs=(HammurapiFileSet) it.next();
 				fs.setDefaultIncludes();
 				DirectoryScanner scanner=fs.getDirectoryScanner(project);
-				config.addFile(scanner.getBasedir(), scanner.getIncludedFiles());				
+				String[] includedFiles=scanner.getIncludedFiles();
+				config.addFile(scanner.getBasedir(), includedFiles);				
+				parseStatistics.addFiles(includedFiles.length);
 			}
 			
 			/**
@@ -320,7 +373,9 @@ public class HammurapiTask extends TaskBase {
 			 */
 			it=srcFiles.iterator();
 			while (it.hasNext()) {
-				config.addFile((File) it.next());
+				File file=(File) it.next();
+				config.addFile(file);
+				parseStatistics.addFiles(file.isDirectory() ? countSourceFiles(file) : 1);
 			}
 			
 			config.setName(title);		
@@ -329,7 +384,7 @@ public class HammurapiTask extends TaskBase {
 				config.setRevisionMapper((RevisionMapper) revisionMapper.getObject(null));
 			}
 			
-			ConnectionPerThreadDataSource dataSource = createDataSource(reviewSession);
+			ConnectionPerThreadDataSource dataSource = resultsInMemory ? createResultlessDataSource(reviewSession) : createDataSource(reviewSession);
 			
 			reviewSession.setDatasource(dataSource);
 			
@@ -368,37 +423,48 @@ public class HammurapiTask extends TaskBase {
 			final SQLProcessor sqlProcessor=new SQLProcessor(dataSource, null);
 			sqlProcessor.setTimeIntervalCategory(tic);
 			
+			parseStatistics.start();
 			DbRepositoryImpl repositoryImpl = new DbRepositoryImpl(config);
+			parseStatistics.stop();
+			log(parseStatistics.toString());
 			Repository repository = wrap ? (Repository) repositoryImpl.getProxy() : repositoryImpl;
 			
-			//new SimpleResultsFactory(waiverSet).install();
-			
-			ResultsFactoryConfig rfConfig=new ResultsFactoryConfig();
-			rfConfig.setInspectorSet(inspectorSet);
-			rfConfig.setName(title);
-			rfConfig.setReportNumber(repository.getScanNumber());
-			rfConfig.setRepository(repository);
-			rfConfig.setSqlProcessor(sqlProcessor);
-			rfConfig.setHostId(hostId);	
-			rfConfig.setBaseLine(baseLine);
-			rfConfig.setDescription(reviewDescription);
-			
-			try {			
-				rfConfig.setHostName(InetAddress.getLocalHost().getHostName());
-			} catch (Exception e) {
-				log("Cannot resolve host name: "+e);
-			}
-			
 			CompositeStorage storage=new CompositeStorage();
 			storage.addStorage("jdbc", new JdbcStorage(sqlProcessor));
 			storage.addStorage("file", new FileStorage(new File(System.getProperties().getProperty("java.io.tmpdir"))));
 			storage.addStorage("memory", new MemoryStorage());			
 			
-			rfConfig.setStorage(storage);
-			rfConfig.setWaiverSet(waiverSet);
-			
-			ResultsFactory resultsFactory=new ResultsFactory(rfConfig);
-			resultsFactory.install();
+			ResultsFactory resultsFactory;
+			if (resultsInMemory) {
+				log("Review results in memory", Project.MSG_VERBOSE);
+				resultsFactory=null;
+				new SimpleResultsFactory(waiverSet).install();
+				
+				// Inspectors expect composite storage
+				reviewSession.setStorage(storage);
+			} else {
+				ResultsFactoryConfig rfConfig=new ResultsFactoryConfig();
+				rfConfig.setInspectorSet(inspectorSet);
+				rfConfig.setName(title);
+				rfConfig.setReportNumber(repository.getScanNumber());
+				rfConfig.setRepository(repository);
+				rfConfig.setSqlProcessor(sqlProcessor);
+				rfConfig.setHostId(hostId);	
+				rfConfig.setBaseLine(baseLine);
+				rfConfig.setDescription(reviewDescription);
+				
+				try {			
+					rfConfig.setHostName(InetAddress.getLocalHost().getHostName());
+				} catch (Exception e) {
+					log("Cannot resolve host name: "+e);
+				}
+				
+				rfConfig.setStorage(storage);
+				rfConfig.setWaiverSet(waiverSet);
+				
+				resultsFactory=new ResultsFactory(rfConfig);
+				resultsFactory.install();
+			}
 			
 			CompositeResults summary=ResultsFactory.getInstance().newCompositeResults(title);
 			ResultsFactory.getInstance().setSummary(summary);
@@ -439,7 +505,13 @@ public class HammurapiTask extends TaskBase {
 			
 			inspectorsPerSe.add(new ViolationFilterVisitor());
 			
-			SimpleReviewEngine rengine = new SimpleReviewEngine(inspectorsPerSe, this);
+			SimpleReviewEngine rengine;
+			if (reviewThreads>1) {
+				ParallelReview parallelReview=new ParallelReview(this, inspectorSet, collector, reviewThreads, dataSource, logger);
+				rengine = new SimpleReviewEngine(parallelReview.getMainTargets(inspectorsPerSe), this, inspectorSet, parallelReview);
+			} else {
+				rengine = new SimpleReviewEngine(inspectorsPerSe, this, inspectorSet);
+			}
 			reviewSession.setVisitor(rengine.getVisitor());
 			visitorStack[0]=rengine.getVisitorStack();
 						
@@ -449,14 +521,16 @@ public class HammurapiTask extends TaskBase {
 			
 			ResultsFactory.getInstance().commit(System.currentTimeMillis()-started);
 
-			if (cleanup) {
+			if (cleanup && resultsFactory!=null) {
 				repositoryImpl.cleanupOldScans();
 				resultsFactory.cleanupOldReports();
 			}
 			
 			repositoryImpl.shutdown();						
 			reviewSession.shutdown();
-			resultsFactory.shutdown();
+			if (resultsFactory!=null) {
+				resultsFactory.shutdown();
+			}
 			dataSource.shutdown();
 			
 			//log("SQL metrics:\n"+resultsFactory.getSQLMetrics(),Project.MSG_VERBOSE);
@@ -568,6 +642,52 @@ public class HammurapiTask extends TaskBase {
 		}
 		return dataSource;
 	}
+	
+	/**
+	 * @param dir Source directory given on the command line
+	 * @return Number of Java files in the directory and its subdirectories
+	 */
+	private static int countSourceFiles(File dir) {
+		int ret=0;
+		File[] children=dir.listFiles();
+		for (int i=0; children!=null && i<children.length; i++) {
+			if (children[i].isDirectory()) {
+				ret+=countSourceFiles(children[i]);
+			} else if (children[i].getName().endsWith(".java")) {
+				++ret;
+			}
+		}
+		return ret;
+	}
+	
+	/**
+	 * Data source for review with results in memory: a temporary database
+	 * for the source model, without results tables.
+	 * @param reviewSession
+	 * @return Temporary data source
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 * @throws SQLException
+	 */
+	private ConnectionPerThreadDataSource createResultlessDataSource(final SessionImpl reviewSession) throws ClassNotFoundException, IOException, SQLException {
+		if (database!=null || server!=null || connection!=null) {
+			throw new BuildException("resultsInMemory attribute is mutually exclusive with server nested element, connection nested element and database attribute");
+		}
+		
+		if (baseLine!=null) {
+			throw new BuildException("baseLine requires results database and cannot be used with resultsInMemory attribute");
+		}
+		
+		// Results tables are not needed
+		ConnectionPerThreadDataSource dataSource;
+		if (cloudscape) {
+			dataSource = new CloudscapeTmpDataSource(DbRepositoryImpl.CLOUDSCAPE_INIT_SCRIPT);					
+		} else {
+			dataSource = new HypersonicTmpDataSource(DbRepositoryImpl.HYPERSONIC_INIT_SCRIPT);
+		}
+		reviewSession.scheduleInitDb();
+		return dataSource;
+	}
 
 	/**
 	 * Host id to differentiate reports created on different machines.
@@ -650,6 +770,10 @@ public class HammurapiTask extends TaskBase {
         	setCloudscape(true);
         }
         
+        if (line.hasOption('M')) {
+        	setResultsInMemory(true);
+        }
+        
         if (line.hasOption('n')) {
         	setBaseLine(new Date(line.getOptionValue('n')));
         }
@@ -809,6 +933,13 @@ public class HammurapiTask extends TaskBase {
                                                 
         options.addOption(cloudscapeOption);
         
+        Option resultsInMemoryOption=OptionBuilder
+        .withDescription("Keep review results in memory, source model in a temporary database")
+        .isRequired(false)
+        .create("M");
+                                                
+        options.addOption(resultsInMemoryOption);
+        
         
         Option forceOnWaiversOption=OptionBuilder
         .withDescription("Do not force reviews on waivers")
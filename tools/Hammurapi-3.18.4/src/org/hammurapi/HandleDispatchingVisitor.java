@@ -0,0 +1,359 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.hammurapi.DispatchTable.Handle;
+import org.hammurapi.DispatchTable.TargetHandles;
+
+import com.pavelvlasov.util.DispatchingVisitor;
+import com.pavelvlasov.util.OrderedTarget;
+import com.pavelvlasov.util.VisitorExceptionSink;
+
+/**
+ * Dispatching visitor which invokes targets found in {@link DispatchTable}
+ * through method handles. Such targets are replaced by a single
+ * {@link TableTarget}, other targets (results collector, listeners, parallel
+ * review) are dispatched by DispatchingVisitor as before.
+ * <p>
+ * For each node class TableTarget resolves the invocations once: methods
+ * of all table targets which accept the node, in the order of targets,
+ * with approve() methods of filters which apply to the target.
+ * @version $Revision: 1.1 $
+ */
+public class HandleDispatchingVisitor extends DispatchingVisitor {
+
+	private static final Invocation[] NO_INVOCATIONS=new Invocation[0];
+
+	// Returned instead of result when filters didn't approve invocation
+	private static final Object NOT_INVOKED=new Object();
+
+	private static class Invocation {
+		final Handle handle;
+		final Handle[] filters;
+
+		Invocation(Handle handle, Handle[] filters) {
+			this.handle=handle;
+			this.filters=filters;
+		}
+	}
+
+	/**
+	 * Target registered with DispatchingVisitor on behalf of inspectors
+	 * in the dispatch table.
+	 */
+	public static class TableTarget implements OrderedTarget {
+		private final List targets=new ArrayList();
+		private final Collection otherTargets=new ArrayList();
+		private final Map filters=new IdentityHashMap();
+		private final Map visitCache=new HashMap();
+		private final Map leaveCache=new HashMap();
+		private final VisitorExceptionSink exceptionSink;
+		private final DispatchingVisitor.Listener listener;
+		private Integer order;
+		private DispatchingVisitor dispatcher;
+
+		/**
+		 * DispatchingVisitor counts one invocation per call of this target.
+		 * This is the difference to invocations of inspectors behind it.
+		 */
+		private final ThreadLocal invocationAdjustment=new ThreadLocal() {
+			protected Object initialValue() {
+				return new long[1];
+			}
+		};
+
+		TableTarget(Collection targets, DispatchTable table, VisitorExceptionSink exceptionSink, DispatchingVisitor.Listener listener) {
+			this.exceptionSink=exceptionSink;
+			this.listener=listener;
+
+			Iterator it=targets.iterator();
+			while (it.hasNext()) {
+				Object target=it.next();
+				TargetHandles handles=table.getHandles(target);
+				if (handles==null) {
+					otherTargets.add(target);
+				} else {
+					this.targets.add(handles);
+				}
+			}
+
+			// Same order as DispatchingVisitor: ordered targets first
+			Collections.sort(this.targets, new Comparator() {
+				public int compare(Object o1, Object o2) {
+					Integer order1=((TargetHandles) o1).order;
+					Integer order2=((TargetHandles) o2).order;
+					if (order1==null) {
+						return order2==null ? 0 : 1;
+					}
+					return order2==null ? -1 : order1.compareTo(order2);
+				}
+			});
+
+			if (!this.targets.isEmpty()) {
+				order=((TargetHandles) this.targets.get(0)).order;
+				otherTargets.add(this);
+			}
+
+			// Filters apply only if they are dispatched by the same visitor
+			it=this.targets.iterator();
+			while (it.hasNext()) {
+				TargetHandles filter=(TargetHandles) it.next();
+				if (filter.filtered!=null) {
+					Iterator fit=filter.filtered.iterator();
+					while (fit.hasNext()) {
+						Object filtered=fit.next();
+						List approves=(List) filters.get(filtered);
+						if (approves==null) {
+							approves=new ArrayList();
+							filters.put(filtered, approves);
+						}
+						for (int i=0; i<filter.approves.length; i++) {
+							approves.add(filter.approves[i]);
+						}
+					}
+				}
+			}
+
+			if (listener!=null) {
+				it=this.targets.iterator();
+				while (it.hasNext()) {
+					TargetHandles handles=(TargetHandles) it.next();
+					listener.onTargetRegistration(handles.target);
+					registerInvocations(handles, handles.visits);
+					registerInvocations(handles, handles.leaves);
+				}
+			}
+		}
+
+		private void registerInvocations(TargetHandles handles, Handle[] methods) {
+			List approves=(List) filters.get(handles.target);
+			for (int i=0; i<methods.length; i++) {
+				listener.onInvocationRegistration(handles.target, methods[i].method);
+				if (approves!=null) {
+					Iterator it=approves.iterator();
+					while (it.hasNext()) {
+						listener.onFilterRegistration(((Handle) it.next()).method, methods[i].method);
+					}
+				}
+			}
+		}
+
+		public Integer getOrder() {
+			return order;
+		}
+
+		public boolean visit(Object visitee) {
+			Invocation[] invocations=getInvocations(visitee.getClass(), visitCache, true);
+			boolean ret=true;
+			int invoked=0;
+			for (int i=0; i<invocations.length; i++) {
+				Object result=invoke(invocations[i], visitee);
+				if (result!=NOT_INVOKED) {
+					++invoked;
+					if (Boolean.FALSE.equals(result)) {
+						ret=false;
+					}
+				}
+			}
+			((long[]) invocationAdjustment.get())[0]+=invoked-1;
+			return ret;
+		}
+
+		public void leave(Object visitee) {
+			Invocation[] invocations=getInvocations(visitee.getClass(), leaveCache, false);
+			int invoked=0;
+			for (int i=0; i<invocations.length; i++) {
+				if (invoke(invocations[i], visitee)!=NOT_INVOKED) {
+					++invoked;
+				}
+			}
+			((long[]) invocationAdjustment.get())[0]+=invoked-1;
+		}
+
+		/**
+		 * @return Invocations of inspectors by the current thread which 
+		 * DispatchingVisitor statistics don't account for. 
+		 */
+		long getInvocationAdjustment() {
+			return ((long[]) invocationAdjustment.get())[0];
+		}
+
+		void resetInvocationAdjustment() {
+			((long[]) invocationAdjustment.get())[0]=0;
+		}
+
+		private Object invoke(Invocation invocation, Object visitee) {
+			for (int i=0; i<invocation.filters.length; i++) {
+				if (!Boolean.TRUE.equals(invoke(invocation.filters[i], visitee))) {
+					return NOT_INVOKED;
+				}
+			}
+
+			if (listener!=null) {
+				listener.onInvocation(invocation.handle.target, invocation.handle.method, visitee);
+			}
+
+			return invoke(invocation.handle, visitee);
+		}
+
+		private Object invoke(Handle handle, Object visitee) {
+			try {
+				return handle.invoke(visitee);
+			} catch (Error e) {
+				throw e;
+			} catch (Exception e) {
+				if (exceptionSink==null) {
+					throw new HammurapiRuntimeException(e);
+				}
+				exceptionSink.consume(dispatcher, handle.target, handle.method, visitee, e);
+				return null;
+			} catch (Throwable e) {
+				throw new HammurapiRuntimeException(e);
+			}
+		}
+
+		/**
+		 * @param visiteeClass
+		 * @param cache
+		 * @param visit true for visit(), false for leave(). Targets leave in reverse order.
+		 * @return Invocations for the class of visitee
+		 */
+		private Invocation[] getInvocations(Class visiteeClass, Map cache, boolean visit) {
+			synchronized (cache) {
+				Invocation[] ret=(Invocation[]) cache.get(visiteeClass);
+				if (ret==null) {
+					List invocations=new ArrayList();
+					for (int i=0, size=targets.size(); i<size; i++) {
+						TargetHandles handles=(TargetHandles) targets.get(visit ? i : size-i-1);
+						Handle[] methods=visit ? handles.visits : handles.leaves;
+						for (int j=0; j<methods.length; j++) {
+							if (methods[j].type.isAssignableFrom(visiteeClass)) {
+								invocations.add(new Invocation(methods[j], getFilters(handles.target, visiteeClass)));
+							}
+						}
+					}
+					ret=invocations.isEmpty() ? NO_INVOCATIONS : (Invocation[]) invocations.toArray(new Invocation[invocations.size()]);
+					cache.put(visiteeClass, ret);
+				}
+				return ret;
+			}
+		}
+
+		private Handle[] getFilters(Object target, Class visiteeClass) {
+			List approves=(List) filters.get(target);
+			if (approves==null) {
+				return new Handle[0];
+			}
+
+			List ret=new ArrayList();
+			Iterator it=approves.iterator();
+			while (it.hasNext()) {
+				Handle approve=(Handle) it.next();
+				if (approve.type.isAssignableFrom(visiteeClass)) {
+					ret.add(approve);
+				}
+			}
+			return (Handle[]) ret.toArray(new Handle[ret.size()]);
+		}
+
+		/**
+		 * Removes target from the table targets and clears resolved invocations.
+		 * @param target
+		 */
+		void remove(Object target) {
+			synchronized (visitCache) {
+				synchronized (leaveCache) {
+					Iterator it=targets.iterator();
+					while (it.hasNext()) {
+						if (((TargetHandles) it.next()).target==target) {
+							it.remove();
+						}
+					}
+					filters.remove(target);
+					visitCache.clear();
+					leaveCache.clear();
+				}
+			}
+		}
+
+		Collection getOtherTargets() {
+			return otherTargets;
+		}
+	}
+
+	private final TableTarget tableTarget;
+
+	/**
+	 * @param targets Visitor targets, those found in the table are dispatched through method handles
+	 * @param table Dispatch table
+	 * @param exceptionSink
+	 * @param listener
+	 */
+	public HandleDispatchingVisitor(Collection targets, DispatchTable table, VisitorExceptionSink exceptionSink, DispatchingVisitor.Listener listener) {
+		this(new TableTarget(targets, table, exceptionSink, listener), exceptionSink, listener);
+	}
+
+	private HandleDispatchingVisitor(TableTarget tableTarget, VisitorExceptionSink exceptionSink, DispatchingVisitor.Listener listener) {
+		super(tableTarget.getOtherTargets(), exceptionSink, listener);
+		this.tableTarget=tableTarget;
+		tableTarget.dispatcher=this;
+	}
+
+	public void remove(Object target) {
+		tableTarget.remove(target);
+		super.remove(target);
+	}
+
+	/**
+	 * @return Statistics where each inspector invocation counts separately,
+	 * as with plain DispatchingVisitor.
+	 */
+	public Stats getThreadStats() {
+		final Stats stats=super.getThreadStats();
+		return new Stats() {
+			public long getVisits() {
+				return stats.getVisits();
+			}
+
+			public long getInvocations() {
+				return stats.getInvocations()+tableTarget.getInvocationAdjustment();
+			}
+
+			public void reset() {
+				stats.reset();
+				tableTarget.resetInvocationAdjustment();
+			}
+		};
+	}
+}
@@ -0,0 +1,414 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.hammurapi.results.AnnotationContext;
+import org.hammurapi.results.LinkedAnnotation;
+
+import com.pavelvlasov.util.DispatchingVisitor;
+
+/**
+ * Number of invocations and time of inspectors per node type.
+ * <p>
+ * Each visitor gets its own listener from {@link #newListener(DispatchingVisitor.Listener)}.
+ * Time of an invocation is the time from its onInvocation() to the next
+ * event of the same visitor, so it includes dispatching of the invocation.
+ * With sample rate N only every N-th invocation is timed and time of the
+ * other invocations is estimated from the timed ones, all invocations are
+ * counted.
+ * @version $Revision: 1.1 $
+ */
+public class InspectorProfiler {
+
+	/**
+	 * Invocations of a target for a node type.
+	 */
+	static class Stat {
+		long invocations;
+		long sampled;
+		long time;
+
+		void add(Stat stat) {
+			invocations+=stat.invocations;
+			sampled+=stat.sampled;
+			time+=stat.time;
+		}
+
+		/**
+		 * @return Measured time for sample rate 1, estimated time otherwise, in nanoseconds.
+		 */
+		long getTime() {
+			return sampled==0 ? 0 : (long) ((double) time*invocations/sampled);
+		}
+	}
+
+	private class ProfilingListener implements DispatchingVisitor.Listener {
+		private DispatchingVisitor.Listener delegate;
+
+		/**
+		 * target -> node class -> Stat
+		 */
+		private Map stats=new IdentityHashMap();
+		private Stat current;
+		private long start;
+		private int countdown;
+
+		ProfilingListener(DispatchingVisitor.Listener delegate) {
+			this.delegate=delegate;
+		}
+
+		private void stop() {
+			if (current!=null) {
+				current.time+=System.nanoTime()-start;
+				current.sampled++;
+				current=null;
+			}
+		}
+
+		public void onInvocation(Object target, Method method, Object visitable) {
+			stop();
+
+			Map targetStats=(Map) stats.get(target);
+			if (targetStats==null) {
+				targetStats=new IdentityHashMap();
+				stats.put(target, targetStats);
+			}
+
+			Class type=visitable.getClass();
+			Stat stat=(Stat) targetStats.get(type);
+			if (stat==null) {
+				stat=new Stat();
+				targetStats.put(type, stat);
+			}
+
+			stat.invocations++;
+			if (--countdown<=0) {
+				countdown=sampleRate;
+				current=stat;
+				start=System.nanoTime();
+			}
+
+			if (delegate!=null) {
+				delegate.onInvocation(target, method, visitable);
+			}
+		}
+
+		public void onVisit(Object target) {
+			stop();
+			if (delegate!=null) {
+				delegate.onVisit(target);
+			}
+		}
+
+		public void onLeave(Object target) {
+			stop();
+			if (delegate!=null) {
+				delegate.onLeave(target);
+			}
+		}
+
+		public void onInvocationRegistration(Object target, Method method) {
+			if (delegate!=null) {
+				delegate.onInvocationRegistration(target, method);
+			}
+		}
+
+		public void onTargetRegistration(Object target) {
+			if (delegate!=null) {
+				delegate.onTargetRegistration(target);
+			}
+		}
+
+		public void noInvocationsWarning(Object target) {
+			if (delegate!=null) {
+				delegate.noInvocationsWarning(target);
+			}
+		}
+
+		public void onFilterRegistration(Method filter, Method target) {
+			if (delegate!=null) {
+				delegate.onFilterRegistration(filter, target);
+			}
+		}
+	}
+
+	private int sampleRate;
+	private List listeners=new ArrayList();
+
+	/**
+	 * @param sampleRate Time every sampleRate-th invocation, 1 to time all invocations.
+	 */
+	public InspectorProfiler(int sampleRate) {
+		this.sampleRate=Math.max(1, sampleRate);
+	}
+
+	/**
+	 * @param delegate Listener to pass events to, can be null.
+	 * @return Listener for a visitor.
+	 */
+	public DispatchingVisitor.Listener newListener(DispatchingVisitor.Listener delegate) {
+		ProfilingListener ret=new ProfilingListener(delegate);
+		synchronized (listeners) {
+			listeners.add(ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Inspectors of parallel review workers are merged by name.
+	 * @return target name -> node type name -> Stat, sorted by names
+	 */
+	Map getProfile() {
+		Map ret=new TreeMap();
+		synchronized (listeners) {
+			Iterator it=listeners.iterator();
+			while (it.hasNext()) {
+				Iterator sit=((ProfilingListener) it.next()).stats.entrySet().iterator();
+				while (sit.hasNext()) {
+					Map.Entry entry=(Map.Entry) sit.next();
+					String name=getName(entry.getKey());
+					Map typeStats=(Map) ret.get(name);
+					if (typeStats==null) {
+						typeStats=new TreeMap();
+						ret.put(name, typeStats);
+					}
+
+					Iterator tit=((Map) entry.getValue()).entrySet().iterator();
+					while (tit.hasNext()) {
+						Map.Entry typeEntry=(Map.Entry) tit.next();
+						String typeName=((Class) typeEntry.getKey()).getName();
+						Stat stat=(Stat) typeStats.get(typeName);
+						if (stat==null) {
+							stat=new Stat();
+							typeStats.put(typeName, stat);
+						}
+						stat.add((Stat) typeEntry.getValue());
+					}
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static String getName(Object target) {
+		if (target instanceof Inspector) {
+			InspectorContext context=((Inspector) target).getContext();
+			if (context!=null && context.getDescriptor()!=null && context.getDescriptor().getName()!=null) {
+				return context.getDescriptor().getName();
+			}
+		}
+		return target.getClass().getName();
+	}
+
+	/**
+	 * @param groupByType true to sum by node type, false to sum by target
+	 * @return Totals sorted by time, descending. Elements are Object[] {name, Stat}.
+	 */
+	List getTotals(boolean groupByType) {
+		Map totals=new TreeMap();
+		Iterator it=getProfile().entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry entry=(Map.Entry) it.next();
+			Iterator tit=((Map) entry.getValue()).entrySet().iterator();
+			while (tit.hasNext()) {
+				Map.Entry typeEntry=(Map.Entry) tit.next();
+				Object key=groupByType ? typeEntry.getKey() : entry.getKey();
+				Stat total=(Stat) totals.get(key);
+				if (total==null) {
+					total=new Stat();
+					totals.put(key, total);
+				}
+				total.add((Stat) typeEntry.getValue());
+			}
+		}
+
+		List ret=new ArrayList();
+		it=totals.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry entry=(Map.Entry) it.next();
+			ret.add(new Object[] {entry.getKey(), entry.getValue()});
+		}
+
+		Collections.sort(ret, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long t1=((Stat) ((Object[]) o1)[1]).getTime();
+				long t2=((Stat) ((Object[]) o2)[1]).getTime();
+				return t1==t2 ? 0 : (t1>t2 ? -1 : 1);
+			}
+		});
+		return ret;
+	}
+
+	/**
+	 * Writes profile as CSV: inspector, node type, invocations, timed
+	 * invocations, time in milliseconds.
+	 * @param file
+	 * @throws IOException
+	 */
+	public void writeCsv(File file) throws IOException {
+		Writer out=new FileWriter(file);
+		try {
+			out.write("inspector,node_type,invocations,sampled,time_ms\n");
+			Iterator it=getProfile().entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry entry=(Map.Entry) it.next();
+				Iterator tit=((Map) entry.getValue()).entrySet().iterator();
+				while (tit.hasNext()) {
+					Map.Entry typeEntry=(Map.Entry) tit.next();
+					Stat stat=(Stat) typeEntry.getValue();
+					out.write(entry.getKey()+","+typeEntry.getKey()+","+stat.invocations+","+stat.sampled+","+millis(stat.getTime())+"\n");
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static String millis(long nanos) {
+		return MessageFormat.format("{0,number,0.000}", new Object[] {new Double(nanos/1000000.0)});
+	}
+
+	/**
+	 * @param max Maximum number of lines
+	 * @return Inspectors which took most time, one per line.
+	 */
+	public String getTopInspectors(int max) {
+		StringBuffer ret=new StringBuffer();
+		Iterator it=getTotals(false).iterator();
+		for (int i=0; i<max && it.hasNext(); i++) {
+			Object[] total=(Object[]) it.next();
+			Stat stat=(Stat) total[1];
+			ret.append("\t").append(total[0]).append(": ").append(millis(stat.getTime())).append(" ms, ").append(stat.invocations).append(" invocations\n");
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * @return Annotation with profile tables for review summary.
+	 */
+	public LinkedAnnotation getAnnotation() {
+		List byInspector=getTotals(false);
+		List byType=getTotals(true);
+		long total=0;
+		Iterator it=byInspector.iterator();
+		while (it.hasNext()) {
+			total+=((Stat) ((Object[]) it.next())[1]).getTime();
+		}
+
+		StringBuffer html=new StringBuffer("<HTML><BODY><H1>Inspector profile</H1>");
+		if (sampleRate>1) {
+			html.append("<P>Every "+sampleRate+"th invocation timed, times are estimates.</P>");
+		}
+		html.append("<H2>Inspectors</H2>");
+		table(html, "Inspector", byInspector, total);
+		html.append("<H2>Node types</H2>");
+		table(html, "Node type", byType, total);
+		html.append("</BODY></HTML>");
+		return new ProfileAnnotation(html.toString());
+	}
+
+	private static void table(StringBuffer html, String title, List totals, long total) {
+		html.append("<TABLE border=\"1\"><TR><TH>"+title+"</TH><TH>Invocations</TH><TH>Time, ms</TH><TH>%</TH></TR>");
+		Iterator it=totals.iterator();
+		while (it.hasNext()) {
+			Object[] row=(Object[]) it.next();
+			Stat stat=(Stat) row[1];
+			html.append("<TR><TD>").append(escape((String) row[0])).append("</TD>");
+			html.append("<TD align=\"right\">").append(stat.invocations).append("</TD>");
+			html.append("<TD align=\"right\">").append(millis(stat.getTime())).append("</TD>");
+			html.append("<TD align=\"right\">").append(total==0 ? "" : MessageFormat.format("{0,number,0.0}", new Object[] {new Double(100.0*stat.getTime()/total)})).append("</TD></TR>");
+		}
+		html.append("</TABLE>");
+	}
+
+	private static String escape(String str) {
+		StringBuffer ret=new StringBuffer();
+		for (int i=0; i<str.length(); i++) {
+			char ch=str.charAt(i);
+			switch (ch) {
+				case '<': ret.append("&lt;"); break;
+				case '>': ret.append("&gt;"); break;
+				case '&': ret.append("&amp;"); break;
+				default: ret.append(ch);
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * Profile page linked from the summary.
+	 */
+	private static class ProfileAnnotation implements LinkedAnnotation, Serializable {
+		private String html;
+		private String path;
+
+		ProfileAnnotation(String html) {
+			this.html=html;
+		}
+
+		public String getName() {
+			return "Inspector profile";
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public void render(AnnotationContext context) throws HammurapiException {
+			AnnotationContext.FileEntry fileEntry=context.getNextFile(context.getExtension());
+			path=fileEntry.getPath();
+			try {
+				Writer out=new FileWriter(fileEntry.getFile());
+				try {
+					out.write(html);
+				} finally {
+					out.close();
+				}
+			} catch (IOException e) {
+				throw new HammurapiException("Cannot save "+fileEntry.getFile().getAbsolutePath(), e);
+			}
+		}
+
+		public Properties getProperties() {
+			return null;
+		}
+	}
+}
@@ -104,11 +104,11 @@ public class InspectorSet {
 			Iterator it=descriptors.values().iterator();			
 			while (it.hasNext()) {
 				InspectorDescriptor inspectorDescriptor=(InspectorDescriptor) it.next();
-				InspectorContext ic=contextFactory.newContext(inspectorDescriptor, logger);
+				// Disabled inspectors are neither instantiated nor get a context 
 				if (Boolean.TRUE.equals(inspectorDescriptor.isEnabled())) {
 					Inspector inspector=inspectorDescriptor.getInspector();
 					if (inspector!=null) {
-						inspector.setContext(ic);
+						inspector.setContext(contextFactory.newContext(inspectorDescriptor, logger));
 						inspectors.add(inspector);
 
 						if (inspector instanceof FilteringInspector) {
@@ -127,8 +127,11 @@ public class InspectorSet {
 		return inspectors;
 	}
 	
+	private DispatchTable dispatchTable;
+	
 	/**
-	 * Invokes init() for all inspectors in the set
+	 * Invokes init() for all inspectors in the set and builds 
+	 * dispatch table of their visit(), leave() and approve() methods.
 	 * @throws HammurapiException
 	 * @throws ConfigurationException
 	 */
@@ -137,6 +140,14 @@ public class InspectorSet {
 	    while (it.hasNext()) {
 	        ((Inspector) it.next()).init();
 	    }
+	    dispatchTable=new DispatchTable(getInspectors());
+	}
+	
+	/**
+	 * @return Dispatch table of inspectors, null if inspectors were not initialized.
+	 */
+	public DispatchTable getDispatchTable() {
+		return dispatchTable;
 	}
 	
 	private void assignOrders() throws HammurapiException {
@@ -24,16 +24,33 @@
 
 package org.hammurapi;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
@@ -53,11 +70,14 @@ import org.hammurapi.results.CompositeResults;
 import org.hammurapi.results.InspectorSummary;
 import org.hammurapi.results.ReportMixer;
 import org.hammurapi.results.ReviewResults;
+import org.w3c.dom.Document;
 
 import com.pavelvlasov.config.ConfigurationException;
+import com.pavelvlasov.config.Parameterizable;
 import com.pavelvlasov.metrics.MeasurementCategoryFactory;
 import com.pavelvlasov.metrics.Metric;
 import com.pavelvlasov.metrics.TimeIntervalCategory;
+import com.pavelvlasov.review.SourceMarker;
 import com.pavelvlasov.render.RenderRequest;
 import com.pavelvlasov.render.RenderingException;
 import com.pavelvlasov.render.dom.AbstractRenderer;
@@ -139,6 +159,33 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         this.extension=extension;
     }
     
+    private int threads=Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * Number of threads which apply stylesheets to rendered pages. 
+     * Pages are rendered to DOM in the results thread, transformation and
+     * writing of files is done by rendering threads. 1 - pages are 
+     * transformed in the results thread as they are rendered.
+     * Defaults to the number of available processors.
+     * @ant.non-required
+     */
+    public void setThreads(int threads) {
+        this.threads=threads;
+    }
+    
+    private String violationsFile;
+    
+    /**
+     * File in the output directory to write violations to, one violation per
+     * line: class, line, column, inspector, severity and message separated by
+     * tabs. The file is written in addition to HTML pages. Empty name is
+     * the same as no name, so build files can pass an unset property.
+     * @ant.non-required
+     */
+    public void setViolationsFile(String violationsFile) {
+        this.violationsFile=violationsFile==null || violationsFile.trim().length()==0 ? null : violationsFile;
+    }
+    
     private File javaDocDir;
     
     /**
@@ -380,14 +427,16 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
     
     private static TimeIntervalCategory tic=MeasurementCategoryFactory.getTimeIntervalCategory(Output.class);
     
-    private void render(AbstractRenderer renderer, String styleName, String inspectorsPath, String javaDocPath, File outFile) 
+    private void render(AbstractRenderer renderer, Object renderee, String profile, String styleName, String inspectorsPath, String javaDocPath, File outFile) 
     throws HammurapiException {    	
     	long start=tic.getTime();
         File outFileParent=outFile.getParentFile();
-        if (!outFileParent.exists()) {
-            if (!outFileParent.mkdirs()) {
-                throw new HammurapiException("Can't create "+outFileParent.getAbsolutePath());
-            }
+        synchronized (mkDirSynchronizationMonitor) {
+	        if (!outFileParent.exists()) {
+	            if (!outFileParent.mkdirs()) {
+	                throw new HammurapiException("Can't create "+outFileParent.getAbsolutePath());
+	            }
+	        }
         }
         
         renderer.setEmbeddedStyle(embeddedStyle);
@@ -397,37 +446,186 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         	throw new HammurapiException("Stylesheet entry with name '"+styleName +"' not found");
         }
         
+        final Map parameters=new HashMap();
         try {
-			sse.setParameters(task.getProject(), renderer);
+			sse.setParameters(task.getProject(), new Parameterizable() {
+				public boolean setParameter(String name, Object value) {
+					parameters.put(name, value);
+					return true;
+				}
+			});
 		} catch (ConfigurationException ce) {
 			throw new HammurapiException("setParameters() failed", ce);
 		}
         
         if (inspectorsPath!=null) {
-            renderer.setParameter("inspectorsPath", inspectorsPath);
+            parameters.put("inspectorsPath", inspectorsPath);
         }
         
         if (javaDocPath!=null) {
-            renderer.setParameter("javaDocPath", javaDocPath);
+            parameters.put("javaDocPath", javaDocPath);
         }
         
-        try {
-            if (sse.getFile()==null) {
-                renderer.render(new FileOutputStream(outFile));
-            } else {
-                renderer.render(new FileInputStream(sse.getFile()), new FileOutputStream(outFile));
-            }
-        } catch (FileNotFoundException e) {
-            throw new HammurapiException(e.toString(), e);
-        } catch (RenderingException e) {
-            throw new HammurapiException(e.toString(), e);
-		}
+        Templates templates;
+        if (sse.getFile()!=null) {
+        	templates=StyleSheetCache.getTemplates(sse.getFile());
+        } else if (embeddedStyle) {
+        	templates=StyleSheetCache.getEmbeddedTemplates(renderee, profile);
+        } else {
+        	templates=null;
+        }
+        
+        if (templates==null) {
+        	// Plain XML or no embedded stylesheet found - renderer does it all
+	        Iterator it=parameters.entrySet().iterator();
+	        while (it.hasNext()) {
+	        	Map.Entry entry=(Map.Entry) it.next();
+	        	renderer.setParameter((String) entry.getKey(), entry.getValue());
+	        }
+	        
+	        try {
+	        	OutputStream out=new BufferedOutputStream(new FileOutputStream(outFile));
+	        	try {
+	        		renderer.render(out);
+	        	} finally {
+	        		out.close();
+	        	}
+	        } catch (IOException e) {
+	            throw new HammurapiException(e.toString(), e);
+	        } catch (RenderingException e) {
+	            throw new HammurapiException(e.toString(), e);
+			}
+        } else {
+        	Document document=newDocument();
+        	try {
+				document.appendChild(renderer.render(document));
+			} catch (RenderingException e) {
+	            throw new HammurapiException(e.toString(), e);
+			}
+			transform(new Page(templates, parameters, document, outFile));
+        }
         tic.addInterval("render", start);
     }
     
+    private static DocumentBuilderFactory documentBuilderFactory=DocumentBuilderFactory.newInstance();
+    
+    private static Document newDocument() throws HammurapiException {
+    	synchronized (documentBuilderFactory) {
+    		try {
+				return documentBuilderFactory.newDocumentBuilder().newDocument();
+			} catch (ParserConfigurationException e) {
+				throw new HammurapiException(e.toString(), e);
+			}
+    	}
+    }
+    
+    /**
+     * Rendered page waiting for transformation.
+     */
+    private class Page implements Runnable {
+    	private Templates templates;
+    	private Map parameters;
+    	private Document document;
+    	private File outFile;
+    	
+		Page(Templates templates, Map parameters, Document document, File outFile) {
+			this.templates=templates;
+			this.parameters=parameters;
+			this.document=document;
+			this.outFile=outFile;
+		}
+
+		public void run() {
+			try {
+				Transformer transformer=templates.newTransformer();
+				Iterator it=parameters.entrySet().iterator();
+				while (it.hasNext()) {
+					Map.Entry entry=(Map.Entry) it.next();
+					transformer.setParameter((String) entry.getKey(), entry.getValue());
+				}
+				
+				OutputStream out=new BufferedOutputStream(new FileOutputStream(outFile));
+				try {
+					transformer.transform(new DOMSource(document), new StreamResult(out));
+				} finally {
+					out.close();
+				}
+			} catch (Exception e) {
+				renderingErrors.add(new HammurapiException("Can't write "+outFile.getAbsolutePath()+": "+e, e));
+			}
+			
+			// Page is not needed anymore
+			document=null;
+		}
+    }
+    
+    private ThreadPoolExecutor renderingPool;
+    private List renderingErrors=Collections.synchronizedList(new ArrayList());
+    
+    private void transform(Page page) throws HammurapiException {
+    	if (threads<=1) {
+    		page.run();
+    	} else {
+    		synchronized (this) {
+    			if (renderingPool==null) {
+    				// Bounded queue - rendering thread transforms page itself if transformers fall behind
+					renderingPool=new ThreadPoolExecutor(
+							threads, 
+							threads, 
+							1, 
+							TimeUnit.SECONDS, 
+							new ArrayBlockingQueue(threads*4), 
+							new ThreadFactory() {
+								private int counter;
+								
+								public synchronized Thread newThread(Runnable r) {
+									return new Thread(r, "Hammurapi output "+(++counter));
+								}
+							},
+							new ThreadPoolExecutor.CallerRunsPolicy());
+					renderingPool.allowCoreThreadTimeOut(true);
+    			}
+    		}
+    		renderingPool.execute(page);
+    	}
+    	
+    	checkRenderingErrors();
+    }
+    
+    private void checkRenderingErrors() throws HammurapiException {
+    	if (!renderingErrors.isEmpty()) {
+    		throw (HammurapiException) renderingErrors.get(0);
+    	}
+    }
+    
+    /**
+     * Waits until all pages are written.
+     * @throws HammurapiException
+     */
+    private void completeRendering() throws HammurapiException {
+    	ThreadPoolExecutor pool;
+    	synchronized (this) {
+    		pool=renderingPool;
+    		renderingPool=null;
+    	}
+    	
+    	if (pool!=null) {
+    		pool.shutdown();
+    		try {
+    			while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+    				task.log("Waiting for "+pool.getQueue().size()+" pages to be written", Project.MSG_VERBOSE);
+    			}
+    		} catch (InterruptedException e) {
+    			throw new HammurapiException(e);
+    		}
+    	}
+    	
+    	checkRenderingErrors();
+    }
+    
     private void writeUnitDoc(ReviewResults reviewResult, File outFile, String inspectorsPath, String javaDocPath) throws HammurapiException {
         task.getProject().log("Writing "+outFile.getAbsolutePath(), Project.MSG_VERBOSE);        
-        render(new ReviewResultsRenderer(new RenderRequest(reviewResult)), "compilation-unit", inspectorsPath, javaDocPath, outFile);
+        render(new ReviewResultsRenderer(new RenderRequest(reviewResult)), reviewResult, null, "compilation-unit", inspectorsPath, javaDocPath, outFile);
     }
         
     public void onSummary(CompositeResults summary, InspectorSet inspectorSet) throws HammurapiException {        
@@ -447,16 +645,17 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         String javaDocPath=javaDocDir==null ? null : getRelativePath()+"index.html";
         File summaryFile = new File(outDir, "summary"+extension);
         renderAnnotations(summary, summaryFile);
-		RenderRequest summaryRenderRequest = new RenderRequest(ReportMixer.mix(summary, task.reviewDescription));
-        render(new ReportRenderer(summaryRenderRequest, null), "summary", null, javaDocPath, summaryFile);
-        render(new CompositeResultsRenderer(summaryRenderRequest, "leftPanel"), "left-panel", null, javaDocPath, new File(outDir, "leftPanel"+extension));
-        render(new CompositeResultsRenderer(summaryRenderRequest, "waivedViolations"), "waived-violations", null, javaDocPath, new File(outDir, "waivedViolations"+extension));
-        render(new InspectorSetRenderer(new RenderRequest(inspectorSet)), "inspector-set", null, null, new File(outDir, "inspectors"+extension));        
+		Object report = ReportMixer.mix(summary, task.reviewDescription);
+		RenderRequest summaryRenderRequest = new RenderRequest(report);
+        render(new ReportRenderer(summaryRenderRequest, null), report, null, "summary", null, javaDocPath, summaryFile);
+        render(new CompositeResultsRenderer(summaryRenderRequest, "leftPanel"), report, "leftPanel", "left-panel", null, javaDocPath, new File(outDir, "leftPanel"+extension));
+        render(new CompositeResultsRenderer(summaryRenderRequest, "waivedViolations"), report, "waivedViolations", "waived-violations", null, javaDocPath, new File(outDir, "waivedViolations"+extension));
+        render(new InspectorSetRenderer(new RenderRequest(inspectorSet)), inspectorSet, null, "inspector-set", null, null, new File(outDir, "inspectors"+extension));        
 
         Iterator descriptors=inspectorSet.getDescriptors().iterator();
 		while (descriptors.hasNext()) {
 			InspectorDescriptor d =(InspectorDescriptor) descriptors.next();
-			render(new InspectorDescriptorRenderer(new RenderRequest(d)), "inspector-descriptor", null, null, new File(outDir, "inspectors/inspector_" + d.getName() + extension));
+			render(new InspectorDescriptorRenderer(new RenderRequest(d)), d, null, "inspector-descriptor", null, null, new File(outDir, "inspectors/inspector_" + d.getName() + extension));
 		}
 
         if (".HTML".equalsIgnoreCase(extension)) {
@@ -469,7 +668,7 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         	while (iit.hasNext()) {
         		InspectorSummary is=(InspectorSummary) iit.next();
         		if (is.getLocations()!=null) {
-        			render(new InspectorSummaryRenderer(new RenderRequest(is)), "inspector-summary", "source/", null, new File(outDir, "summary_"+is.getName()+extension));
+        			render(new InspectorSummaryRenderer(new RenderRequest(is)), is, null, "inspector-summary", "source/", null, new File(outDir, "summary_"+is.getName()+extension));
         		}
         	}
         }
@@ -478,9 +677,79 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         while (it.hasNext()) {
     		Metric metric = (Metric) it.next();
     		if (metric.getMeasurements()!=null) {
-    			render(new HammurapiMetricRenderer(new RenderRequest(metric)), "metric-details", "source/", null, new File(outDir, "metric_details_"+metric.getName()+extension));
+    			render(new HammurapiMetricRenderer(new RenderRequest(metric)), metric, null, "metric-details", "source/", null, new File(outDir, "metric_details_"+metric.getName()+extension));
     		}
-        }        
+        }
+        
+        if (violationsFile!=null) {
+        	writeViolations(summary, new File(outDir, violationsFile));
+        }
+        
+        completeRendering();
+    }
+    
+    private void writeViolations(CompositeResults summary, File file) throws HammurapiException {
+    	try {
+    		Writer out=new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+    		try {
+    			writeViolations(summary, out);
+    		} finally {
+    			out.close();
+    		}
+    	} catch (IOException e) {
+    		throw new HammurapiException("Can't write "+file.getAbsolutePath()+": "+e, e);
+    	}
+    }
+    
+    private void writeViolations(CompositeResults results, Writer out) throws IOException {
+    	Iterator it=results.getChildren().iterator();
+    	while (it.hasNext()) {
+    		Object child=it.next();
+    		if (child instanceof CompositeResults) {
+    			writeViolations((CompositeResults) child, out);
+    		} else if (child instanceof ReviewResults) {
+    			ReviewResults reviewResults=(ReviewResults) child;
+    			String packageName=reviewResults.getCompilationUnit().getPackage().getName();
+    			String className=reviewResults.getName();
+    			if (className.endsWith(".java")) {
+    				className=className.substring(0, className.length()-5);
+    			}
+    			if (packageName.length()>0) {
+    				className=packageName+"."+className;
+    			}
+    			
+    			Iterator vit=reviewResults.getViolations().iterator();
+    			while (vit.hasNext()) {
+    				Violation violation=(Violation) vit.next();
+    				out.write(className);
+    				out.write('\t');
+    				SourceMarker source=violation.getSource();
+    				if (source!=null) {
+    					out.write(String.valueOf(source.getLine()));
+    					out.write('\t');
+    					out.write(String.valueOf(source.getColumn()));
+    				} else {
+    					out.write('\t');
+    				}
+    				out.write('\t');
+    				InspectorDescriptor descriptor=violation.getDescriptor();
+    				if (descriptor!=null) {
+    					out.write(descriptor.getName());
+    					out.write('\t');
+    					if (descriptor.getSeverity()!=null) {
+    						out.write(descriptor.getSeverity().toString());
+    					}
+    				} else {
+    					out.write('\t');
+    				}
+    				out.write('\t');
+    				if (violation.getMessage()!=null) {
+    					out.write(violation.getMessage().replace('\t', ' ').replace('\r', ' ').replace('\n', ' '));
+    				}
+    				out.write('\n');
+    			}
+    		}
+    	}
     }
     
     private void writeFrame(File outDir) throws HammurapiException {
@@ -532,7 +801,7 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         
         File packageSummaryFile = new File(outDir, summaryPath+extension);
         renderAnnotations(packageResults, packageSummaryFile);
-		render(new CompositeResultsRenderer(new RenderRequest(packageResults), "packageSummary"), "package", inspectorsPath.toString(), getJavaDocPath(packageResults), packageSummaryFile);
+		render(new CompositeResultsRenderer(new RenderRequest(packageResults), "packageSummary"), packageResults, "packageSummary", "package", inspectorsPath.toString(), getJavaDocPath(packageResults), packageSummaryFile);
         
         Iterator it=packageResults.getSeveritySummary().values().iterator();
         while (it.hasNext()) {
@@ -540,7 +809,7 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         	while (iit.hasNext()) {
         		InspectorSummary is=(InspectorSummary) iit.next();
         		if (is.getLocations()!=null) {
-        			render(new InspectorSummaryRenderer(new RenderRequest(is)), "inspector-summary", inspectorsPath.toString()+"source/", null, new File(outDir, summaryPath+"_"+is.getName()+extension));
+        			render(new InspectorSummaryRenderer(new RenderRequest(is)), is, null, "inspector-summary", inspectorsPath.toString()+"source/", null, new File(outDir, summaryPath+"_"+is.getName()+extension));
         		}
         	}
         }
@@ -549,7 +818,7 @@ public class Output implements Listener /*, ReviewUnitFilter*/ {
         while (it.hasNext()) {
     		Metric metric = (Metric) it.next();
     		if (metric.getMeasurements()!=null) {
-    			render(new HammurapiMetricRenderer(new RenderRequest(metric)), "metric-details", inspectorsPath.toString()+"source/", null, new File(outDir, summaryPath+"_metric_details_"+metric.getName()+extension));
+    			render(new HammurapiMetricRenderer(new RenderRequest(metric)), metric, null, "metric-details", inspectorsPath.toString()+"source/", null, new File(outDir, summaryPath+"_metric_details_"+metric.getName()+extension));
     		}
         }                
     }    
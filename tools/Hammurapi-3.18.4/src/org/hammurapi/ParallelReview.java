@@ -0,0 +1,565 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.sql.DataSource;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Project;
+import org.hammurapi.results.AggregatedResults;
+import org.hammurapi.results.Annotation;
+import org.hammurapi.results.BasicResults;
+import org.hammurapi.results.DetailedResults;
+import org.hammurapi.results.ResultsFactory;
+import org.hammurapi.results.ReviewResults;
+
+import com.pavelvlasov.config.ConfigurationException;
+import com.pavelvlasov.jsel.CompilationUnit;
+import com.pavelvlasov.jsel.Package;
+import com.pavelvlasov.jsel.Repository;
+import com.pavelvlasov.logging.Logger;
+import com.pavelvlasov.review.SourceMarker;
+import com.pavelvlasov.util.DispatchingVisitor;
+import com.pavelvlasov.util.OrderedTarget;
+import com.pavelvlasov.util.VisitorStack;
+import com.pavelvlasov.util.VisitorStackSource;
+import com.pavelvlasov.util.DispatchingVisitor.Stats;
+
+/**
+ * Parallel review mode of {@link SimpleReviewEngine}.
+ * <p>
+ * Compilation units are reviewed by a pool of workers. Each worker has its
+ * own instances of inspectors, its own dispatching visitor (and visitor stack)
+ * and pushes its own results to thread results while it reviews a unit.
+ * Workers take units from a shared queue, so a thread which is done with a
+ * small unit picks up the next one while another thread is still busy with
+ * a big one.
+ * <p>
+ * Inspectors which look at the repository or packages, waive, filter or
+ * order other inspectors, or persist their data stay with the main visitor,
+ * which still walks the whole repository. Units of a package are submitted
+ * to workers when the main visitor enters the package. The main visitor 
+ * enters a unit only after its worker is done with it, so a unit is never 
+ * walked by two threads at once. When the main visitor leaves a unit,
+ * violations, warnings, metrics, annotations and aggregations recorded by
+ * the worker are replayed into results of the unit. Therefore results are
+ * merged in repository order regardless of which worker finished first.
+ * @version $Revision: 1.1 $
+ */
+public class ParallelReview implements OrderedTarget {
+	// Last to visit, first to leave
+	private static final Integer ORDER=new Integer(Integer.MAX_VALUE);
+
+	private final HammurapiTask task;
+	private final ResultsCollector collector;
+	private final BlockingQueue idleWorkers;
+	private final ExecutorService executor;
+	private final Map pending=new HashMap();
+	private final Map completed=new HashMap();
+	private final Set mainInspectors;
+
+	/**
+	 * @param task Task
+	 * @param inspectorSet Inspectors of the main visitor
+	 * @param collector Results collector of the main visitor
+	 * @param threads Number of workers
+	 * @param dataSource Data source to be shared by worker sessions
+	 * @param logger Logger
+	 * @throws HammurapiException
+	 * @throws ConfigurationException
+	 */
+	public ParallelReview(
+			final HammurapiTask task,
+			InspectorSet inspectorSet,
+			ResultsCollector collector,
+			int threads,
+			DataSource dataSource,
+			Logger logger) throws ConfigurationException, HammurapiException {
+		this.task=task;
+		this.collector=collector;
+
+		mainInspectors=getMainInspectorNames(inspectorSet);
+		Map mainInstances=new IdentityHashMap();
+		Iterator it=inspectorSet.getInspectors().iterator();
+		while (it.hasNext()) {
+			mainInstances.put(it.next(), Boolean.TRUE);
+		}
+
+		idleWorkers=new ArrayBlockingQueue(threads);
+		for (int i=0; i<threads; i++) {
+			final Worker worker=new Worker();
+			final SessionImpl session=new SessionImpl();
+			session.setDatasource(dataSource);
+			InspectorSet workerSet=task.createInspectorSet(
+					new InspectorContextFactory() {
+						public InspectorContext newContext(InspectorDescriptor descriptor, Logger logger) {
+							return new InspectorContextImpl(
+									descriptor,
+									logger,
+									worker,
+									session,
+									task.violationFilters);
+						}
+					},
+					logger);
+			session.setInspectors(workerSet);
+
+			Collection inspectors=new ArrayList();
+			Iterator wit=workerSet.getInspectors().iterator();
+			while (wit.hasNext()) {
+				Inspector inspector=(Inspector) wit.next();
+				String name=inspector.getContext().getDescriptor().getName();
+				if (mainInspectors.contains(name)) {
+					continue;
+				}
+
+				if (mainInstances.containsKey(inspector)) {
+					// Descriptor hands out the same instance - it can't be shared between threads
+					mainInspectors.add(name);
+					continue;
+				}
+
+				inspectors.add(inspector);
+			}
+
+			worker.visitor=task.newDispatchingVisitor(inspectors, workerSet, SimpleReviewEngine.getExceptionSink(task), SimpleReviewEngine.getListener(task));
+			session.setVisitor(worker.visitor);
+			idleWorkers.add(worker);
+		}
+
+		task.log("Parallel review: "+threads+" threads, "+mainInspectors.size()+" inspectors in the main thread", Project.MSG_VERBOSE);
+
+		executor=Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int counter;
+
+			public synchronized Thread newThread(Runnable r) {
+				Thread ret=new Thread(r, "Hammurapi review worker "+(++counter));
+				ret.setDaemon(true);
+				return ret;
+			}
+		});
+	}
+
+	/**
+	 * @param inspectors Targets of the main visitor
+	 * @return Targets left for the main visitor, i.e. without inspectors 
+	 * run by workers.
+	 */
+	public Collection getMainTargets(Collection inspectors) {
+		Collection ret=new LinkedList();
+		Iterator it=inspectors.iterator();
+		while (it.hasNext()) {
+			Object o=it.next();
+			if (!(o instanceof Inspector) || mainInspectors.contains(((Inspector) o).getContext().getDescriptor().getName())) {
+				ret.add(o);
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return Names of inspectors which can't review compilation units
+	 * independently from each other and from other inspectors.
+	 */
+	static Set getMainInspectorNames(InspectorSet inspectorSet) throws ConfigurationException, HammurapiException {
+		Set ret=new HashSet();
+		Iterator it=inspectorSet.getInspectors().iterator();
+		while (it.hasNext()) {
+			Inspector inspector=(Inspector) it.next();
+			InspectorDescriptor descriptor=inspector.getContext().getDescriptor();
+			String name=descriptor.getName();
+
+			if (inspector instanceof FilteringInspector
+					|| inspector instanceof PersistingInspectorBase
+					|| isRepositoryInspector(inspector.getClass())) {
+				ret.add(name);
+			}
+
+			Collection waived=descriptor.getWaivedInspectorNames();
+			if (waived!=null && !waived.isEmpty()) {
+				ret.add(name);
+				ret.addAll(waived);
+			}
+
+			Collection after=descriptor.getAfterInspectorNames();
+			if (after!=null && !after.isEmpty()) {
+				ret.add(name);
+				ret.addAll(after);
+			}
+
+			Collection filtered=descriptor.getFilteredInspectorDesriptors(inspectorSet, null);
+			if (filtered!=null && !filtered.isEmpty()) {
+				ret.add(name);
+				Iterator fit=filtered.iterator();
+				while (fit.hasNext()) {
+					ret.add(((InspectorDescriptor) fit.next()).getName());
+				}
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * @return true if inspector class has visit() or leave() method which
+	 * would be invoked for a repository or a package. Such inspectors
+	 * usually accumulate data across compilation units.
+	 */
+	static boolean isRepositoryInspector(Class inspectorClass) {
+		Method[] methods=inspectorClass.getMethods();
+		for (int i=0; i<methods.length; i++) {
+			String name=methods[i].getName();
+			Class[] parameterTypes=methods[i].getParameterTypes();
+			if (("visit".equals(name) || "leave".equals(name))
+					&& parameterTypes.length==1
+					&& (parameterTypes[0].isAssignableFrom(Repository.class)
+							|| parameterTypes[0].isAssignableFrom(Package.class))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public Integer getOrder() {
+		return ORDER;
+	}
+
+	public void visit(Package pkg) {
+		Iterator it=pkg.getCompilationUnits().iterator();
+		while (it.hasNext()) {
+			CompilationUnit compilationUnit=(CompilationUnit) it.next();
+			if (collector.isReviewRequired(compilationUnit)) {
+				pending.put(compilationUnit.getRelativeName(), submit(compilationUnit));
+			}
+		}
+	}
+
+	public void leave(final CompilationUnit compilationUnit) throws HammurapiException {
+		final DetailedResults results=ResultsFactory.getThreadResults();
+		Object outcome=completed.remove(compilationUnit.getRelativeName());
+		if (outcome==null) {
+			return;
+		}
+
+		if (outcome instanceof Throwable) {
+			Throwable cause=(Throwable) outcome;
+			task.log("WARN: Exception in "+compilationUnit.getRelativeName()+": "+cause, Project.MSG_WARN);
+			cause.printStackTrace();
+			if (task.failOnFirstException) {
+				throw new BuildException("Cause: "+cause, cause);
+			}
+
+			results.addWarning(new SimpleViolation(compilationUnit instanceof SourceMarker ? (SourceMarker) compilationUnit : null, "Exception "+cause, null));
+			return;
+		}
+
+		final RecordedResults recorded=(RecordedResults) outcome;
+		collector.addWorkerStats(recorded.visits, recorded.invocations);
+
+		// Worker's own tasks are queued before this one
+		ResultsFactory.getInstance().execute(
+				new ResultsFactory.Task() {
+					public void execute() throws HammurapiException {
+						recorded.replay(results);
+					}
+				});
+	}
+
+	/**
+	 * @return Target which makes the main visitor wait for the worker 
+	 * before it enters a compilation unit.
+	 */
+	public OrderedTarget getGate() {
+		return gate;
+	}
+
+	private final Gate gate=new Gate();
+
+	/**
+	 * Waits for the worker to finish the unit before inspectors of the main 
+	 * visitor get to it. This way the main visitor and a worker never walk
+	 * the same compilation unit at the same time, while workers keep 
+	 * reviewing units which follow.
+	 */
+	public class Gate implements OrderedTarget {
+		// Third to visit, right after results collector
+		private final Integer order=new Integer(Integer.MIN_VALUE+2);
+
+		public Integer getOrder() {
+			return order;
+		}
+
+		public void visit(CompilationUnit compilationUnit) throws HammurapiException {
+			Future future=(Future) pending.remove(compilationUnit.getRelativeName());
+			if (future==null) {
+				if (!(ResultsFactory.getThreadResults() instanceof ReviewResults)) {
+					// Skipped by results collector
+					return;
+				}
+
+				future=submit(compilationUnit);
+			}
+
+			try {
+				completed.put(compilationUnit.getRelativeName(), future.get());
+			} catch (InterruptedException e) {
+				throw new HammurapiException(e);
+			} catch (ExecutionException e) {
+				completed.put(compilationUnit.getRelativeName(), e.getCause());
+			}
+		}
+	}
+
+	public void leave(Repository repository) {
+		shutdown();
+	}
+
+	/**
+	 * Stops workers. Invoked at the end of review, also if review failed.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+		pending.clear();
+		completed.clear();
+	}
+
+	private Future submit(final CompilationUnit compilationUnit) {
+		return executor.submit(
+				new Callable() {
+					public Object call() throws Exception {
+						Worker worker=(Worker) idleWorkers.take();
+						RecordedResults recorded=new RecordedResults(compilationUnit.getRelativeName());
+						ResultsFactory.pushThreadResults(recorded);
+						try {
+							Stats stats=worker.visitor.getThreadStats();
+							stats.reset();
+							compilationUnit.accept(worker.visitor);
+							recorded.visits=stats.getVisits();
+							recorded.invocations=stats.getInvocations();
+						} finally {
+							ResultsFactory.popThreadResults();
+							idleWorkers.add(worker);
+						}
+						return recorded;
+					}
+				});
+	}
+
+	private static class Worker implements VisitorStackSource {
+		DispatchingVisitor visitor;
+
+		public VisitorStack getVisitorStack() {
+			return visitor.getVisitorStack();
+		}
+	}
+
+	/**
+	 * Thread results of a worker. Records what inspectors report so it can
+	 * be replayed into results of the compilation unit in the main thread.
+	 */
+	static class RecordedResults implements DetailedResults {
+		private final String name;
+		private final List calls=Collections.synchronizedList(new ArrayList());
+		private final WaiverSet waiverSet=new WaiverSet();
+		private final Date date=new Date();
+		long visits;
+		long invocations;
+
+		RecordedResults(String name) {
+			this.name=name;
+		}
+
+		private interface Call {
+			void replay(AggregatedResults target) throws HammurapiException;
+		}
+
+		void replay(AggregatedResults target) throws HammurapiException {
+			synchronized (calls) {
+				Iterator it=calls.iterator();
+				while (it.hasNext()) {
+					((Call) it.next()).replay(target);
+				}
+				calls.clear();
+			}
+		}
+
+		public Waiver addViolation(final Violation violation) {
+			calls.add(new Call() {
+				public void replay(AggregatedResults target) throws HammurapiException {
+					target.addViolation(violation);
+				}
+			});
+			return null;
+		}
+
+		public void addWarning(final Violation warning) {
+			calls.add(new Call() {
+				public void replay(AggregatedResults target) {
+					target.addWarning(warning);
+				}
+			});
+		}
+
+		public void addMetric(final SourceMarker source, final String name, final double value) {
+			calls.add(new Call() {
+				public void replay(AggregatedResults target) {
+					target.addMetric(source, name, value);
+				}
+			});
+		}
+
+		public void addAnnotation(final Annotation annotation) {
+			calls.add(new Call() {
+				public void replay(AggregatedResults target) {
+					target.addAnnotation(annotation);
+				}
+			});
+		}
+
+		/**
+		 * Waivers are not replayed - inspectors which waive other inspectors
+		 * run in the main thread.
+		 */
+		public WaiverSet getWaiverSet() {
+			return waiverSet;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Date getDate() {
+			return date;
+		}
+
+		public Collection getViolations() {
+			return Collections.EMPTY_LIST;
+		}
+
+		public Collection getWaivedViolations() {
+			return Collections.EMPTY_LIST;
+		}
+
+		public Collection getWarnings() {
+			return Collections.EMPTY_LIST;
+		}
+
+		public boolean hasWarnings() {
+			return false;
+		}
+
+		public Collection getAnnotations() {
+			return Collections.EMPTY_LIST;
+		}
+
+		public Map getSeveritySummary() {
+			return Collections.EMPTY_MAP;
+		}
+
+		public Map getMetrics() {
+			return Collections.EMPTY_MAP;
+		}
+
+		public void aggregate(final AggregatedResults agregee) {
+			calls.add(new Call() {
+				public void replay(AggregatedResults target) {
+					target.aggregate(agregee);
+				}
+			});
+		}
+
+		public void setReviewsNumber(long reviews) {
+			// Set by results collector
+		}
+
+		public void setCodeBase(long codeBase) {
+			// Set by results collector
+		}
+
+		public void commit() {
+			// Committed in the main thread
+		}
+
+		public boolean isNew() {
+			return true;
+		}
+
+		public BasicResults getBaseLine() {
+			return null;
+		}
+
+		public long getCodeBase() {
+			return 0;
+		}
+
+		public String getDPMO() {
+			return null;
+		}
+
+		public Number getMaxSeverity() {
+			return null;
+		}
+
+		public long getReviewsNumber() {
+			return 0;
+		}
+
+		public String getSigma() {
+			return null;
+		}
+
+		public double getViolationLevel() {
+			return 0;
+		}
+
+		public int getViolationsNumber() {
+			return 0;
+		}
+
+		public int getWaivedViolationsNumber() {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.text.MessageFormat;
+
+/**
+ * Counts parsed files and lines and reports parsing throughput.
+ * Can be updated from several parsing threads. Throughput is computed from
+ * the time spent in parsing itself, wall time between {@link #start()} and
+ * {@link #stop()} is reported separately because parsing can be held back
+ * by the review.
+ * @version $Revision: 1.1 $
+ */
+class ParseStatistics {
+	private int threads;
+	private int files;
+	private long lines;
+	private long parseNanos;
+	private long started;
+	private long finished;
+	private boolean linesUnknown;
+
+	/**
+	 * @param threads Number of parsing threads, for the report only
+	 */
+	ParseStatistics(int threads) {
+		this.threads=threads;
+	}
+
+	/**
+	 * Starts timing. Files counted before start are included in the report.
+	 */
+	synchronized void start() {
+		started=System.currentTimeMillis();
+		finished=started;
+	}
+
+	/**
+	 * Stops timing.
+	 */
+	synchronized void stop() {
+		finished=System.currentTimeMillis();
+	}
+
+	/**
+	 * Records parsed file.
+	 * @param lines Number of lines in the file
+	 * @param parseNanos Time spent parsing the file
+	 */
+	synchronized void add(long lines, long parseNanos) {
+		++files;
+		this.lines+=lines;
+		this.parseNanos+=parseNanos;
+	}
+
+	/**
+	 * Records files parsed elsewhere, e.g. by the repository. Their lines
+	 * and parse time are not known, so the report shows only files and
+	 * the time between start and stop, which shall bracket parsing only.
+	 * @param files
+	 */
+	synchronized void addFiles(int files) {
+		this.files+=files;
+		linesUnknown=true;
+	}
+
+	public synchronized String toString() {
+		long elapsed=Math.max(1, finished-started);
+		if (linesUnknown) {
+			return MessageFormat.format(
+					"Parsed {0} files in {1,number,0.000} sec. ({2} thread(s)): {3,number,0.0} files/s",
+					new Object[] {
+							new Integer(files),
+							new Double(elapsed/1000.0),
+							new Integer(threads),
+							new Double(files*1000.0/elapsed)});
+		}
+		
+		double parseSec=Math.max(1, parseNanos)/1000000000.0;
+		return MessageFormat.format(
+				"Parsed {0} files, {1} lines in {2,number,0.000} sec. of parsing: {3,number,0.0} files/s, {4,number,0} lines/s per thread. " +
+				"Wall time {5,number,0.000} sec. with review, {6} parsing thread(s)",
+				new Object[] {
+						new Integer(files),
+						new Long(lines),
+						new Double(parseSec),
+						new Double(files/parseSec),
+						new Double(lines/parseSec),
+						new Double(elapsed/1000.0),
+						new Integer(threads)});
+	}
+
+	/**
+	 * @param chars
+	 * @param length
+	 * @return Number of lines in the character buffer
+	 */
+	static long countLines(char[] chars, int length) {
+		long ret=0;
+		for (int i=0; i<length; i++) {
+			if (chars[i]=='\n') {
+				++ret;
+			}
+		}
+		return length>0 && chars[length-1]!='\n' ? ret+1 : ret;
+	}
+}
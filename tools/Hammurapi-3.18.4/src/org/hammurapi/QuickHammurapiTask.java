@@ -23,11 +23,14 @@
  */
 package org.hammurapi;
 
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.sql.SQLException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
@@ -36,6 +39,12 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -52,6 +61,7 @@ import org.hammurapi.results.simple.QuickResultsFactory;
 
 import com.pavelvlasov.config.Component;
 import com.pavelvlasov.config.ConfigurationException;
+import com.pavelvlasov.jsel.CompilationUnit;
 import com.pavelvlasov.jsel.JselException;
 import com.pavelvlasov.jsel.impl.CompilationUnitImpl;
 import com.pavelvlasov.logging.AntLogger;
@@ -216,10 +226,11 @@ public class QuickHammurapiTask extends TaskBase {
 				try {
 					inspectors.add(collector);
 					
-					QuickReviewEngine engine=new QuickReviewEngine(inspectors, this, collector);
+					QuickReviewEngine engine=new QuickReviewEngine(inspectors, inspectorSet, this, collector);
 					visitorStack[0]=engine.getVisitorStack();
 					session.setVisitor(engine.getVisitor());
 											
+					List files=new ArrayList();
 					it=srcFileSets.iterator();
 					while (it.hasNext()) {
 						HammurapiFileSet fs=(HammurapiFileSet) it.next();
@@ -227,15 +238,19 @@ public class QuickHammurapiTask extends TaskBase {
 						DirectoryScanner scanner=fs.getDirectoryScanner(project);
 						String[] includedFiles=scanner.getIncludedFiles();
 						for (int i=0; i<includedFiles.length; i++) {
-							review(new File(scanner.getBasedir(), includedFiles[i]), engine, classLoader, logger);
+							files.add(new File(scanner.getBasedir(), includedFiles[i]));
 						}
 					}
 					
 					it=srcFiles.iterator();
 					while (it.hasNext()) {
-						review((File) it.next(), engine, classLoader, logger);
+						collectFiles((File) it.next(), files);
 					}
 					
+					ParseStatistics parseStatistics=new ParseStatistics(parseThreads);
+					review(files, engine, classLoader, logger, parseStatistics);
+					log(parseStatistics.toString());
+					
 					collector.getEngine().deleteOld();
 					
 					Collection packageResults=new ArrayList();
@@ -265,6 +280,9 @@ public class QuickHammurapiTask extends TaskBase {
 						}
 		 			}																					
 					
+					// QuickSummary doesn't take annotations
+					completeProfile(null);
+					
 					Iterator slit=listeners.iterator();
 					while (slit.hasNext()) {
 						((Listener) slit.next()).onSummary(summary, inspectorSet);
@@ -371,37 +389,155 @@ public class QuickHammurapiTask extends TaskBase {
 		} 
 	}
 	
+	private int parseThreads=1;
+	
+	/**
+	 * Number of threads to parse source files. Defaults to 1. With more 
+	 * threads files are parsed ahead of the review, 
+	 * compilation units are reviewed in the main thread in the order of 
+	 * files. Types referenced from other files are resolved when the 
+	 * compilation unit is reviewed. 1 - parse and review files one by one. 
+	 * @ant.non-required
+	 * @param parseThreads
+	 */
+	public void setParseThreads(int parseThreads) {
+		this.parseThreads=parseThreads;
+	}
+	
 	/**
+	 * Adds file or files in the directory and its subdirectories to the list.
 	 * @param file
+	 * @param files
+	 */
+	private static void collectFiles(File file, List files) {
+		if (file.isFile()) {
+			files.add(file);
+		} else if (file.isDirectory()) {
+			File[] children=file.listFiles();
+			for (int i=0; i<children.length; i++) {
+				collectFiles(children[i], files);
+			}
+		}		
+	}
+
+	/**
+	 * Parses files in parseThreads threads and reviews parsed compilation units
+	 * in the current thread. Not more than parseThreads*4 parsed compilation 
+	 * units are kept in memory waiting for review.
+	 * @param files
 	 * @param engine
 	 * @param classLoader
 	 * @param logger
+	 * @param statistics
 	 * @throws JselException
-	 * @throws FileNotFoundException
+	 * @throws IOException
 	 * @throws SQLException
 	 */
-	private void review(File file, QuickReviewEngine engine, ClassLoader classLoader, Logger logger) throws JselException, FileNotFoundException, SQLException {
-		if (file.isFile()) {
-			_review(file, engine, classLoader, logger);
-		} else if (file.isDirectory()) {
-			File[] files=file.listFiles();
-			for (int i=0; i<files.length; i++) {
-				review(files[i], engine, classLoader, logger);
+	private void review(List files, QuickReviewEngine engine, final ClassLoader classLoader, final Logger logger, final ParseStatistics statistics) throws JselException, IOException, SQLException {
+		statistics.start();
+		try {
+			parseAndReview(files, engine, classLoader, logger, statistics);
+		} finally {
+			statistics.stop();
+		}
+	}
+	
+	private void parseAndReview(List files, QuickReviewEngine engine, final ClassLoader classLoader, final Logger logger, final ParseStatistics statistics) throws JselException, IOException, SQLException {
+		if (parseThreads<=1 || files.size()<2) {
+			Iterator it=files.iterator();
+			while (it.hasNext()) {
+				engine.review(parse((File) it.next(), classLoader, logger, statistics));
 			}
-		}		
+			return;
+		}
+		
+		ExecutorService pool=Executors.newFixedThreadPool(
+				Math.min(parseThreads, files.size()),
+				new ThreadFactory() {
+					private int counter;
+					
+					public synchronized Thread newThread(Runnable r) {
+						Thread ret=new Thread(r, "Hammurapi parser "+(++counter));
+						ret.setDaemon(true);
+						return ret;
+					}
+				});
+		
+		try {
+			LinkedList pending=new LinkedList();
+			Iterator it=files.iterator();
+			while (it.hasNext() || !pending.isEmpty()) {
+				while (it.hasNext() && pending.size()<parseThreads*4) {
+					final File file=(File) it.next();
+					pending.add(pool.submit(new Callable() {
+						public Object call() throws Exception {
+							return parse(file, classLoader, logger, statistics);
+						}
+					}));
+				}
+				
+				engine.review(getParsed((Future) pending.removeFirst()));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	private static CompilationUnit getParsed(Future future) throws JselException, IOException {
+		try {
+			return (CompilationUnit) future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuildException("Parsing interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause=e.getCause();
+			if (cause instanceof JselException) {
+				throw (JselException) cause;
+			}
+			
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			
+			throw new BuildException(cause);
+		}
 	}
 
 	/**
 	 * @param file
-	 * @param engine
 	 * @param classLoader
 	 * @param logger
+	 * @param statistics
+	 * @return Parsed compilation unit
 	 * @throws JselException
-	 * @throws FileNotFoundException
-	 * @throws SQLException
+	 * @throws IOException
 	 */
-	private void _review(File file, QuickReviewEngine engine, ClassLoader classLoader, Logger logger) throws JselException, FileNotFoundException, SQLException {
-		engine.review(new CompilationUnitImpl(new FileReader(file), null, file.getAbsolutePath(), tabSize, classLoader, logger));
+	private CompilationUnit parse(File file, ClassLoader classLoader, Logger logger, ParseStatistics statistics) throws JselException, IOException {
+		long start=System.nanoTime();
+		CharArrayWriter content=new CharArrayWriter((int) file.length());
+		Reader reader=new FileReader(file);
+		try {
+			char[] buf=new char[8192];
+			int l;
+			while ((l=reader.read(buf))!=-1) {
+				content.write(buf, 0, l);
+			}
+		} finally {
+			reader.close();
+		}
+		
+		char[] chars=content.toCharArray();
+		CompilationUnit ret=new CompilationUnitImpl(new CharArrayReader(chars), null, file.getAbsolutePath(), tabSize, classLoader, logger);
+		statistics.add(ParseStatistics.countLines(chars, chars.length), System.nanoTime()-start);
+		return ret;
 	}
 	
 	/**
@@ -458,7 +594,7 @@ public class QuickHammurapiTask extends TaskBase {
 			throw new BuildException("Cannot load quick embedded inspectors");
 		}
 		
-		DomInspectorSource source=new DomInspectorSource(inspectorStream, "Hammurapi.jar");
+		InspectorSource source=CachedInspectorSource.load(inspectorStream, "Hammurapi.jar");
 		source.loadInspectors(inspectorSet);
 	}	
 }
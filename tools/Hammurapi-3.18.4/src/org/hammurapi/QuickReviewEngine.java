@@ -51,12 +51,13 @@ public class QuickReviewEngine implements VisitorStackSource {
 	private QuickHammurapiTask task;
 
 	/**
+	 * @param inspectorSet Set with dispatch table for inspectors
 	 * @param task
 	 * @param rules
 	 * @param poolSize If > 1 then multithreaded processing will be used.
 	 * @throws SQLException
 	 */
-	public QuickReviewEngine(Collection inspectors, final QuickHammurapiTask task, QuickResultsCollector collector) throws SQLException {
+	public QuickReviewEngine(Collection inspectors, InspectorSet inspectorSet, final QuickHammurapiTask task, QuickResultsCollector collector) throws SQLException {
 		super();
 		VisitorExceptionSink esink=new VisitorExceptionSink() {
 
@@ -83,7 +84,7 @@ public class QuickReviewEngine implements VisitorStackSource {
 				}
 			}			
 		};
-		visitor = new DispatchingVisitor(inspectors, esink, getListener(task));			
+		visitor = task.newDispatchingVisitor(inspectors, inspectorSet, esink, getListener(task));			
 		this.collector=collector;
 		collector.getEngine().init();
 		this.task=task;
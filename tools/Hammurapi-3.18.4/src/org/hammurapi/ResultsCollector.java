@@ -84,7 +84,11 @@ public class ResultsCollector implements DispatcherAware, OrderedTarget {
 		return order;
 	}
 	
-	public boolean visit(CompilationUnit compilationUnit) {		
+	/**
+	 * @return Results of the previous review if the compilation unit
+	 * doesn't need to be reviewed again, null otherwise.
+	 */
+	private ReviewResults findIntactResults(CompilationUnit compilationUnit) {
 		ReviewResults result = task.isForce() ? null : ResultsFactory.getInstance().findReviewResults(compilationUnit);
 		if (result!=null) {
 			if (task.isForceOnWarnings() && result.hasWarnings()) {
@@ -101,7 +105,48 @@ public class ResultsCollector implements DispatcherAware, OrderedTarget {
 				}
 			}
 		}
-		
+		return result;
+	}
+	
+	private static final Object NO_RESULTS=new Object();
+	
+	private Map prefetchedResults=new HashMap();
+	
+	/**
+	 * Decides ahead of the visit if compilation unit is to be reviewed. 
+	 * Used by parallel review to submit units to workers before the 
+	 * visitor gets to them. The decision is kept until the unit is visited.
+	 * @param compilationUnit
+	 * @return true if compilation unit will be reviewed.
+	 */
+	boolean isReviewRequired(CompilationUnit compilationUnit) {
+		ReviewResults result=findIntactResults(compilationUnit);
+		prefetchedResults.put(compilationUnit.getRelativeName(), result==null ? NO_RESULTS : result);
+		return result==null;
+	}
+	
+	private long workerVisits;
+	private long workerInvocations;
+	
+	/**
+	 * Adds visits and invocations made by a parallel review worker to 
+	 * statistics of the compilation unit to be left.
+	 * @param visits
+	 * @param invocations
+	 */
+	void addWorkerStats(long visits, long invocations) {
+		workerVisits+=visits;
+		workerInvocations+=invocations;
+	}
+	
+	public boolean visit(CompilationUnit compilationUnit) {		
+		Object prefetched=prefetchedResults.remove(compilationUnit.getRelativeName());
+		ReviewResults result;
+		if (prefetched==null) {
+			result=findIntactResults(compilationUnit);
+		} else {
+			result=prefetched==NO_RESULTS ? null : (ReviewResults) prefetched;
+		}
 		
 		if (result==null) {
 			ResultsFactory.getThreadResults().addMetric(null, "Change ratio", 1);
@@ -135,8 +180,10 @@ public class ResultsCollector implements DispatcherAware, OrderedTarget {
 		
 		Stats threadStats = dispatcher==null ? null : dispatcher.getThreadStats();
 		
-		final long visits = threadStats==null ? 0 : threadStats.getVisits();
-		final long invocations = threadStats==null ? 0 : threadStats.getInvocations();
+		final long visits = (threadStats==null ? 0 : threadStats.getVisits())+workerVisits;
+		final long invocations = (threadStats==null ? 0 : threadStats.getInvocations())+workerInvocations;
+		workerVisits=0;
+		workerInvocations=0;
 		
 		final CompositeResults packageResult = getPackageResult(compilationUnit.getPackage().getName());
 		ResultsFactory.getInstance().execute(
@@ -228,6 +275,8 @@ public class ResultsCollector implements DispatcherAware, OrderedTarget {
 		
 		log(new Date()+" Building summary");
 		
+		task.completeProfile(summary);
+		
 		if (!task.skipIntactPackages || summary.isNew()) {
 			Iterator it=listeners.iterator();
 			while (it.hasNext()) {
@@ -0,0 +1,471 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+
+package org.hammurapi;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import com.pavelvlasov.logging.Logger;
+import com.pavelvlasov.review.SourceMarker;
+
+/**
+ * Long lived reviewer. Keeps a pool of {@link Reviewer}s with loaded
+ * inspector descriptors and waivers, so single file reviews requested by IDE
+ * builders and by incremental runs do not pay for parsing inspector and
+ * waiver configuration. Requests are processed concurrently by checking out
+ * an idle reviewer.
+ * <p>
+ * Inspectors keep state between compilation units, so a reviewer which has
+ * processed a request is {@link Reviewer#reset() reset} before the next one:
+ * inspectors are instantiated again from the cached descriptors and waivers
+ * created by inspectors are dropped. A request gets the same result as from
+ * a new reviewer.
+ * <p>
+ * Daemon can be embedded ({@link #process(ReviewRequest)}) or run as
+ * a process which talks line protocol over a local socket or over standard
+ * input and output. Requests:
+ * <ul>
+ * <li>CLASSPATH &lt;path&gt; - classpath of sources reviewed by subsequent
+ * requests of the connection, entries separated by path separator.</li>
+ * <li>FILE &lt;root dir&gt;TAB&lt;name&gt; - reviews file name relative to
+ * root dir.</li>
+ * <li>SOURCE &lt;name&gt;TAB&lt;lines&gt; - reviews source which follows the
+ * request in the given number of lines, e.g. unsaved editor buffer.</li>
+ * <li>QUIT - closes connection.</li>
+ * <li>SHUTDOWN - closes connection and stops the daemon.</li>
+ * </ul>
+ * Review response is a line per violation in violations.tsv format
+ * (name, line, column, inspector, severity and message separated by tabs)
+ * prefixed with V, a line per warning prefixed with W and either
+ * OK TAB &lt;violations&gt; TAB &lt;milliseconds&gt; or ERROR TAB &lt;message&gt;.
+ * <p>
+ * Usage: ReviewDaemon [-port &lt;port&gt;] [-reviewers &lt;n&gt;]
+ * [-inspectors &lt;file&gt;]
+ * [-waivers &lt;file&gt;] [-noEmbeddedInspectors].
+ * Without port the daemon serves standard input. Socket is bound to loopback
+ * address.
+ * @version $Revision: 1.1 $
+ */
+public class ReviewDaemon {
+	/**
+	 * Reviewer and whether its inspectors have reviewed a request since 
+	 * they were created
+	 */
+	private static class PooledReviewer {
+		Reviewer reviewer;
+		boolean used;
+
+		PooledReviewer(Reviewer reviewer) {
+			this.reviewer=reviewer;
+		}
+	}
+
+	private final BlockingQueue idleReviewers=new LinkedBlockingQueue();
+	private final List reviewers=new ArrayList();
+
+	private final Logger logger;
+
+	/**
+	 * Classpath -> ClassLoader
+	 */
+	private final Map classLoaders=new ConcurrentHashMap();
+
+	private ExecutorService connectionPool;
+	private ServerSocket serverSocket;
+	private volatile boolean shutdown;
+
+	/**
+	 * Creates reviewers up front.
+	 * @param logger Receives connection failures, can be null
+	 * @param reviewers Number of requests which can be processed concurrently
+	 * @param embeddedInspectors
+	 * @param inspectorSource Can be null
+	 * @param waiverSource Can be null
+	 * @throws HammurapiException
+	 */
+	public ReviewDaemon(
+			Logger logger,
+			int reviewers,
+			boolean embeddedInspectors,
+			InspectorSource inspectorSource,
+			WaiverSource waiverSource) throws HammurapiException {
+
+		if (reviewers<1) {
+			throw new HammurapiException("Number of reviewers shall be positive: "+reviewers);
+		}
+
+		this.logger=logger;
+
+		for (int i=0; i<reviewers; i++) {
+			PooledReviewer pooled=new PooledReviewer(new Reviewer(logger, embeddedInspectors, inspectorSource, waiverSource));
+			this.reviewers.add(pooled);
+			idleReviewers.add(pooled);
+		}
+	}
+
+	/**
+	 * Reviews source with an idle reviewer, waits for one if all reviewers
+	 * are busy. Reviewer is reset before the review if it has reviewed
+	 * another request. Can be invoked from several threads.
+	 * @param request
+	 * @throws HammurapiException
+	 */
+	public void process(ReviewRequest request) throws HammurapiException {
+		if (shutdown) {
+			throw new HammurapiException("Review daemon is shut down");
+		}
+
+		PooledReviewer pooled;
+		try {
+			pooled=(PooledReviewer) idleReviewers.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new HammurapiException("Interrupted while waiting for reviewer", e);
+		}
+
+		try {
+			// Reviewer stays used if reset fails, so the next request retries it
+			if (pooled.used) {
+				pooled.reviewer.reset();
+			}
+			
+			pooled.used=true;
+			pooled.reviewer.process(request);
+		} finally {
+			idleReviewers.add(pooled);
+		}
+	}
+
+	/**
+	 * @param classPath Entries separated by path separator, null or empty for
+	 * classloader of the daemon.
+	 * @return Cached classloader
+	 * @throws MalformedURLException
+	 */
+	private ClassLoader getClassLoader(String classPath) throws MalformedURLException {
+		if (classPath==null || classPath.length()==0) {
+			return getClass().getClassLoader();
+		}
+
+		ClassLoader ret=(ClassLoader) classLoaders.get(classPath);
+		if (ret==null) {
+			List urls=new ArrayList();
+			StringTokenizer st=new StringTokenizer(classPath, File.pathSeparator);
+			while (st.hasMoreTokens()) {
+				urls.add(new File(st.nextToken()).toURL());
+			}
+			ret=new URLClassLoader((URL[]) urls.toArray(new URL[urls.size()]), getClass().getClassLoader());
+			classLoaders.put(classPath, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Accepts connections until the daemon is shut down. Connections are
+	 * served in separate threads.
+	 * @param port
+	 * @throws IOException
+	 */
+	public void serve(int port) throws IOException {
+		synchronized (this) {
+			serverSocket=new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+			connectionPool=Executors.newCachedThreadPool(
+					new ThreadFactory() {
+						private int counter;
+
+						public synchronized Thread newThread(Runnable r) {
+							Thread ret=new Thread(r, "Hammurapi review connection "+(++counter));
+							ret.setDaemon(true);
+							return ret;
+						}
+					});
+		}
+
+		try {
+			while (!shutdown) {
+				final Socket socket;
+				try {
+					socket=serverSocket.accept();
+				} catch (SocketException e) {
+					if (shutdown) {
+						break;
+					}
+					throw e;
+				}
+
+				connectionPool.execute(new Runnable() {
+					public void run() {
+						try {
+							try {
+								serve(socket.getInputStream(), socket.getOutputStream());
+							} finally {
+								socket.close();
+							}
+						} catch (IOException e) {
+							connectionFailed(e);
+						}
+					}
+				});
+			}
+		} finally {
+			connectionPool.shutdown();
+			serverSocket.close();
+		}
+	}
+
+	/**
+	 * Invoked when a socket connection fails. Reports the failure to the
+	 * logger, subclasses can report it elsewhere.
+	 * @param e
+	 */
+	protected void connectionFailed(IOException e) {
+		if (logger!=null) {
+			logger.warn(this, "Review connection failed: "+e);
+		}
+	}
+
+	/**
+	 * Serves requests of one connection until QUIT, SHUTDOWN or end of input.
+	 * @param in
+	 * @param out
+	 * @throws IOException
+	 */
+	public void serve(InputStream in, OutputStream out) throws IOException {
+		BufferedReader reader=new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		Writer writer=new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+		String classPath=null;
+
+		String line;
+		while ((line=reader.readLine())!=null) {
+			int idx=line.indexOf(' ');
+			String command=idx==-1 ? line : line.substring(0, idx);
+			String argument=idx==-1 ? "" : line.substring(idx+1);
+
+			if ("QUIT".equals(command)) {
+				break;
+			} else if ("SHUTDOWN".equals(command)) {
+				shutdown();
+				break;
+			} else if ("CLASSPATH".equals(command)) {
+				classPath=argument;
+				writer.write("OK\n");
+			} else if ("FILE".equals(command) || "SOURCE".equals(command)) {
+				int tab=argument.indexOf('\t');
+				if (tab==-1) {
+					writer.write("ERROR\tMalformed request: "+escape(line)+"\n");
+				} else if ("FILE".equals(command)) {
+					File rootDir=new File(argument.substring(0, tab));
+					String name=argument.substring(tab+1);
+					try {
+						review(new FileReader(new File(rootDir, name)), name, rootDir, classPath, writer);
+					} catch (IOException e) {
+						writer.write("ERROR\t"+escape(e.toString())+"\n");
+					}
+				} else {
+					String name=argument.substring(0, tab);
+					int lines;
+					try {
+						lines=Integer.parseInt(argument.substring(tab+1).trim());
+					} catch (NumberFormatException e) {
+						throw new IOException("Malformed request, connection is out of sync: "+line);
+					}
+					StringWriter sw=new StringWriter();
+					for (int i=0; i<lines; i++) {
+						String sourceLine=reader.readLine();
+						if (sourceLine==null) {
+							throw new IOException("Unexpected end of input in source of "+name);
+						}
+						sw.write(sourceLine);
+						sw.write('\n');
+					}
+					review(new StringReader(sw.toString()), name, null, classPath, writer);
+				}
+			} else {
+				writer.write("ERROR\tUnknown request: "+escape(line)+"\n");
+			}
+			writer.flush();
+		}
+		writer.flush();
+	}
+
+	private void review(Reader source, final String name, final File rootDir, String classPath, final Writer writer) throws IOException {
+		final int[] violations={0};
+		final IOException[] writeException={null};
+		long start=System.currentTimeMillis();
+		try {
+			process(new BufferedReviewRequest(getClassLoader(classPath), source, name) {
+				public void onViolation(Violation violation) {
+					++violations[0];
+					write("V", violation);
+				}
+
+				public void onWarning(Violation warning) {
+					write("W", warning);
+				}
+
+				public File getRootDir() {
+					return rootDir;
+				}
+
+				private void write(String prefix, Violation violation) {
+					SourceMarker source=violation.getSource();
+					InspectorDescriptor descriptor=violation.getDescriptor();
+					StringBuffer sb=new StringBuffer(prefix);
+					sb.append('\t').append(name);
+					sb.append('\t').append(source==null ? 0 : source.getLine());
+					sb.append('\t').append(source==null ? 0 : source.getColumn());
+					sb.append('\t').append(descriptor==null ? "" : descriptor.getName());
+					sb.append('\t').append(descriptor==null || descriptor.getSeverity()==null ? "" : descriptor.getSeverity().toString());
+					sb.append('\t').append(escape(violation.getMessage()));
+					sb.append('\n');
+					try {
+						writer.write(sb.toString());
+					} catch (IOException e) {
+						writeException[0]=e;
+					}
+				}
+			});
+		} catch (HammurapiException e) {
+			writer.write("ERROR\t"+escape(e.getMessage())+"\n");
+			return;
+		}
+
+		if (writeException[0]!=null) {
+			throw writeException[0];
+		}
+		writer.write("OK\t"+violations[0]+"\t"+(System.currentTimeMillis()-start)+"\n");
+	}
+
+	/**
+	 * Replaces tabs and line breaks, which are field and record separators.
+	 * @param str
+	 * @return Escaped string, empty string for null
+	 */
+	private static String escape(String str) {
+		if (str==null) {
+			return "";
+		}
+		return str.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+	}
+
+	/**
+	 * Stops accepting connections and shuts down reviewers once they are idle.
+	 * @throws HammurapiException
+	 */
+	public void shutdown() throws HammurapiException {
+		synchronized (this) {
+			if (shutdown) {
+				return;
+			}
+			shutdown=true;
+			if (serverSocket!=null) {
+				try {
+					serverSocket.close();
+				} catch (IOException e) {
+					throw new HammurapiException("Cannot close server socket", e);
+				}
+			}
+		}
+
+		for (int i=0, size=reviewers.size(); i<size; i++) {
+			PooledReviewer pooled;
+			try {
+				pooled=(PooledReviewer) idleReviewers.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new HammurapiException("Interrupted while waiting for reviewers", e);
+			}
+			pooled.reviewer.shutdown();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int port=-1;
+		int reviewers=Runtime.getRuntime().availableProcessors();
+		boolean embeddedInspectors=true;
+		InspectorSource inspectorSource=null;
+		WaiverSource waiverSource=null;
+
+		for (int i=0; i<args.length; i++) {
+			if ("-port".equals(args[i]) && i+1<args.length) {
+				port=Integer.parseInt(args[++i]);
+			} else if ("-reviewers".equals(args[i]) && i+1<args.length) {
+				reviewers=Integer.parseInt(args[++i]);
+			} else if ("-inspectors".equals(args[i]) && i+1<args.length) {
+				File file=new File(args[++i]);
+				inspectorSource=CachedInspectorSource.load(new FileInputStream(file), file.getAbsolutePath());
+			} else if ("-waivers".equals(args[i]) && i+1<args.length) {
+				waiverSource=new DomWaiverSource(new File(args[++i]));
+			} else if ("-noEmbeddedInspectors".equals(args[i])) {
+				embeddedInspectors=false;
+			} else {
+				System.err.println("Usage: ReviewDaemon [-port <port>] [-reviewers <n>] [-inspectors <file>] [-waivers <file>] [-noEmbeddedInspectors]");
+				System.exit(1);
+			}
+		}
+
+		ReviewDaemon daemon=new ReviewDaemon(null, port==-1 ? 1 : reviewers, embeddedInspectors, inspectorSource, waiverSource) {
+			protected void connectionFailed(IOException e) {
+				System.err.println("Review connection failed: "+e);
+			}
+		};
+		if (port==-1) {
+			daemon.serve(System.in, System.out);
+		} else {
+			System.err.println("Hammurapi review daemon is listening on 127.0.0.1:"+port+" with "+reviewers+" reviewers");
+			daemon.serve(port);
+		}
+		daemon.shutdown();
+	}
+}
@@ -65,9 +65,21 @@ public class Reviewer {
 	private Logger logger;
 	private InspectorSet inspectorSet;
 	private WaiverSet waiverSet=new WaiverSet();
-	private CompositeStorage storage=new CompositeStorage();
+	
+	/**
+	 * Waivers loaded at construction, autowaivers are not included
+	 */
+	private Collection configuredWaivers;
+	private CompositeStorage storage;
 	private DispatchingVisitor visitor;
-	private SessionImpl session=new SessionImpl();
+	private SessionImpl session;
+	
+	/**
+	 * Sources of descriptors, read again by {@link #reset()}
+	 */
+	private InspectorSource embeddedSource;
+	private InspectorSource inspectorSource;
+	private Collection inspectorDescriptors;
 	private int tabSize=8;
 	
 	private class ReviewerInspectorContext extends InspectorContextBase {
@@ -187,27 +199,11 @@ public class Reviewer {
 	}
 
 	public Reviewer(
-				final Logger logger,
+				Logger logger,
 				boolean embeddedInspectors,
 				Collection inspectors,
 				Collection waivers) throws HammurapiException {
 		this.logger=logger;
-		final VisitorStack[] visitorStack={null};
-		
-		final VisitorStackSource delegatingVisitorStackSource = new VisitorStackSource() {
-
-			public VisitorStack getVisitorStack() {
-				return visitorStack[0];
-			}
-		}; 
-		
-		inspectorSet=new InspectorSet(
-			new InspectorContextFactory() {
-				public InspectorContext newContext(final InspectorDescriptor descriptor, final Logger logger) {
-					return new ReviewerInspectorContext(descriptor, logger, delegatingVisitorStackSource);
-				}
-			},
-			logger);
 		
 		if (embeddedInspectors) {
 			InputStream inspectorStream=HammurapiTask.class.getResourceAsStream("inspectors.xml");
@@ -215,20 +211,10 @@ public class Reviewer {
 				throw new HammurapiException("Cannot load embedded inspectors");
 			}
 			
-			DomInspectorSource source=new DomInspectorSource(inspectorStream, "Hammurapi.jar");
-			source.loadInspectors(inspectorSet);
+			embeddedSource=CachedInspectorSource.load(inspectorStream, "Hammurapi.jar");
 		}
 		
-		if (inspectors!=null) {
-			Iterator it=inspectors.iterator();
-			while (it.hasNext()) {
-				try {
-					inspectorSet.addDescriptor((InspectorDescriptor) it.next());
-				} catch (ConfigurationException e) {
-					throw new HammurapiException(e);
-				}
-			}
-		}
+		inspectorDescriptors=inspectors;
 
 		if (waivers!=null) {
 			Date now=new Date();
@@ -238,42 +224,44 @@ public class Reviewer {
 			}
 		}		
 		
-		storage.addStorage("file", new FileStorage(new File(System.getProperties().getProperty("java.io.tmpdir"))));
-		storage.addStorage("memory", new MemoryStorage());	
-		session.setStorage(storage);
-		
-		try {
-			Collection ic = inspectorSet.getInspectors();
-			
-			visitor = new DispatchingVisitor(
-					ic, 
-					new VisitorExceptionSink() {
-						public void consume(DispatchingVisitor dispatcher, Object visitor, Method method, Object visitee, Exception e) {
-							if (logger!=null) {
-								logger.warn(visitee, "Exception: "+e);
-							}
-							
-							e.printStackTrace();
-			
-							getRequest().onWarning(new SimpleViolation(visitee instanceof SourceMarker ? (SourceMarker) visitee : null, "Exception: "+e, null));
-						}			
-					}, 
-					null);
-			session.setInspectors(inspectorSet);
-			visitorStack[0]=visitor.getVisitorStack();
-		} catch (ConfigurationException e) {
-			throw new HammurapiException(e);
-		}	
-		
-		session.setVisitor(visitor);
+		configuredWaivers=waiverSet.getWaivers();
+		initInspectors();
 	}
 	
 	public Reviewer(
-			final Logger logger,
+			Logger logger,
 			boolean embeddedInspectors,
 			InspectorSource inspectorSource,
 			WaiverSource waiverSource) throws HammurapiException {
 		this.logger=logger;
+		
+		if (embeddedInspectors) {
+			ClassResourceLoader crl=new ClassResourceLoader(TaskBase.class);
+			InputStream inspectorStream=crl.getResourceAsStream(null,null,"xml");
+			if (inspectorStream==null) {
+				throw new HammurapiException("Cannot load embedded inspectors");
+			}
+			
+			embeddedSource=CachedInspectorSource.load(inspectorStream, "Hammurapi.jar");
+		}
+		
+		this.inspectorSource=inspectorSource;
+	
+		if (waiverSource!=null) {
+			Date now=new Date();
+			waiverSource.loadWaivers(waiverSet, now);
+		}		
+		
+		configuredWaivers=waiverSet.getWaivers();
+		initInspectors();
+	}
+	
+	/**
+	 * Loads descriptors into a new inspector set and creates session and
+	 * visitor with new inspector instances.
+	 * @throws HammurapiException
+	 */
+	private void initInspectors() throws HammurapiException {
 		final VisitorStack[] visitorStack={null};
 		
 		final VisitorStackSource delegatingVisitorStackSource = new VisitorStackSource() {
@@ -291,28 +279,29 @@ public class Reviewer {
 			},
 			logger);
 		
-		if (embeddedInspectors) {
-			ClassResourceLoader crl=new ClassResourceLoader(TaskBase.class);
-			InputStream inspectorStream=crl.getResourceAsStream(null,null,"xml");
-			if (inspectorStream==null) {
-				throw new HammurapiException("Cannot load embedded inspectors");
-			}
-			
-			DomInspectorSource source=new DomInspectorSource(inspectorStream, "Hammurapi.jar");
-			source.loadInspectors(inspectorSet);
+		if (embeddedSource!=null) {
+			embeddedSource.loadInspectors(inspectorSet);
 		}
 		
 		if (inspectorSource!=null) {
 			inspectorSource.loadInspectors(inspectorSet);
 		}
-	
-		if (waiverSource!=null) {
-			Date now=new Date();
-			waiverSource.loadWaivers(waiverSet, now);
-		}		
 		
+		if (inspectorDescriptors!=null) {
+			Iterator it=inspectorDescriptors.iterator();
+			while (it.hasNext()) {
+				try {
+					inspectorSet.addDescriptor((InspectorDescriptor) it.next());
+				} catch (ConfigurationException e) {
+					throw new HammurapiException(e);
+				}
+			}
+		}
+		
+		storage=new CompositeStorage();
 		storage.addStorage("file", new FileStorage(new File(System.getProperties().getProperty("java.io.tmpdir"))));
 		storage.addStorage("memory", new MemoryStorage());	
+		session=new SessionImpl();
 		session.setStorage(storage);
 		
 		try {
@@ -359,6 +348,42 @@ public class Reviewer {
 		}		
 	}
 
+	/**
+	 * Drops waivers created by inspectors during previous reviews and keeps
+	 * waivers loaded at construction. Long lived reviewers shall invoke this
+	 * method between requests, otherwise the waiver set grows with every
+	 * autowaiver.
+	 */
+	public void clearAutoWaivers() {
+		WaiverSet ws=new WaiverSet();
+		Date now=new Date();
+		Iterator it=configuredWaivers.iterator();
+		while (it.hasNext()) {
+			ws.addWaiver((Waiver) it.next(), now);
+		}
+		waiverSet=ws;
+	}
+
+	/**
+	 * Drops autowaivers and replaces inspectors with new instances created
+	 * from descriptors read again from inspector sources, so the next review
+	 * gives the same result as a review by a new reviewer. Reading descriptors
+	 * from {@link CachedInspectorSource} is cheap, configured waivers are kept.
+	 * Descriptors passed to the constructor as a collection are reused with
+	 * their inspectors.
+	 * @throws HammurapiException
+	 */
+	public void reset() throws HammurapiException {
+		clearAutoWaivers();
+		SessionImpl oldSession=session;
+		initInspectors();
+		try {
+			oldSession.shutdown();
+		} catch (SQLException e) {
+			throw new HammurapiException("Cannot shutdown session", e);
+		}
+	}
+
 	private void addViolation(Violation violation) {
 		getRequest().onViolation(violation);		
 	}
@@ -25,6 +25,7 @@ package org.hammurapi;
 
 import java.lang.reflect.Method;
 import java.util.Collection;
+import java.util.LinkedList;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Project;
@@ -41,14 +42,43 @@ import com.pavelvlasov.util.VisitorStackSource;
 
 /**
  * Pool of review threads. Delegates review work to threads.
+ * Compilation units are reviewed in the calling thread unless engine is
+ * created with {@link ParallelReview}.
  * @author Pavel Vlasov	
  * @version $Revision: 1.8 $
  */
 public class SimpleReviewEngine implements VisitorStackSource {
 	private DispatchingVisitor visitor;
 
-	public SimpleReviewEngine(Collection inspectors, final HammurapiTask task) {
-		VisitorExceptionSink esink=new VisitorExceptionSink() {
+	private ParallelReview parallelReview;
+
+	/**
+	 * @param inspectors
+	 * @param task
+	 * @param inspectorSet Set with dispatch table for inspectors
+	 */
+	public SimpleReviewEngine(Collection inspectors, final HammurapiTask task, InspectorSet inspectorSet) {
+		visitor = task.newDispatchingVisitor(inspectors, inspectorSet, getExceptionSink(task), getListener(task));			
+	}
+	
+	/**
+	 * Parallel review mode. Compilation units are reviewed by workers of
+	 * parallelReview, inspectors is what's left for the main visitor.
+	 * @param inspectors
+	 * @param task
+	 * @param inspectorSet Set with dispatch table for inspectors
+	 * @param parallelReview
+	 */
+	public SimpleReviewEngine(Collection inspectors, final HammurapiTask task, InspectorSet inspectorSet, ParallelReview parallelReview) {
+		Collection targets=new LinkedList(inspectors);
+		targets.add(parallelReview.getGate());
+		targets.add(parallelReview);
+		visitor = task.newDispatchingVisitor(targets, inspectorSet, getExceptionSink(task), getListener(task));
+		this.parallelReview=parallelReview;
+	}
+	
+	protected static VisitorExceptionSink getExceptionSink(final HammurapiTask task) {
+		return new VisitorExceptionSink() {
 
 			public void consume(DispatchingVisitor dispatcher, Object visitor, Method method, Object visitee, Exception e) {
 				task.log("WARN: Exception in "+visitee, Project.MSG_WARN);
@@ -72,11 +102,16 @@ public class SimpleReviewEngine implements VisitorStackSource {
 				}
 			}
 		};
-		visitor = new DispatchingVisitor(inspectors, esink, getListener(task));			
 	}
 	
 	public void review(Repository repository) {
-		repository.accept(visitor);
+		try {
+			repository.accept(visitor);
+		} finally {
+			if (parallelReview!=null) {
+				parallelReview.shutdown();
+			}
+		}
 	}
 	
 	protected static DispatchingVisitor.Listener getListener(final HammurapiTask task) {
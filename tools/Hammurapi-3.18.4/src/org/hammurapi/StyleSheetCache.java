@@ -0,0 +1,134 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.io.File;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/**
+ * Compiled stylesheets shared by all pages of a report. Templates are
+ * thread-safe, so one instance serves all rendering threads.
+ * @version $Revision: 1.1 $
+ */
+class StyleSheetCache {
+	private static final Object NOT_FOUND=new Object();
+
+	private static TransformerFactory transformerFactory=TransformerFactory.newInstance();
+
+	/**
+	 * Stylesheet URL -> Templates
+	 */
+	private static Map templates=new HashMap();
+
+	/**
+	 * Renderee class + profile -> embedded stylesheet URL or NOT_FOUND
+	 */
+	private static Map embedded=new HashMap();
+
+	private StyleSheetCache() {
+		// Static methods only
+	}
+
+	/**
+	 * @param file Stylesheet file
+	 * @return Compiled stylesheet
+	 * @throws HammurapiException
+	 */
+	static Templates getTemplates(File file) throws HammurapiException {
+		try {
+			return getTemplates(file.toURI().toURL());
+		} catch (java.net.MalformedURLException e) {
+			throw new HammurapiException("Invalid stylesheet file "+file.getAbsolutePath(), e);
+		}
+	}
+
+	/**
+	 * Embedded stylesheet is a resource named after the renderee class or
+	 * one of its interfaces, e.g. org/hammurapi/results/CompositeResults!leftPanel.xsl
+	 * @param renderee Object being rendered
+	 * @param profile Rendering profile, can be null
+	 * @return Compiled stylesheet or null if there is no embedded stylesheet for the renderee
+	 * @throws HammurapiException
+	 */
+	static Templates getEmbeddedTemplates(Object renderee, String profile) throws HammurapiException {
+		String key=renderee.getClass().getName()+(profile==null ? "" : "!"+profile);
+		Object url;
+		synchronized (embedded) {
+			url=embedded.get(key);
+			if (url==null) {
+				url=findStyleSheet(renderee.getClass(), profile);
+				embedded.put(key, url==null ? NOT_FOUND : url);
+			}
+		}
+		return url==NOT_FOUND || url==null ? null : getTemplates((URL) url);
+	}
+
+	private static URL findStyleSheet(Class rendereeClass, String profile) {
+		LinkedList classes=new LinkedList();
+		classes.add(rendereeClass);
+		while (!classes.isEmpty()) {
+			Class c=(Class) classes.removeFirst();
+			if (c.getClassLoader()!=null) {
+				URL ret=c.getClassLoader().getResource(c.getName().replace('.', '/')+(profile==null ? "" : "!"+profile)+".xsl");
+				if (ret!=null) {
+					return ret;
+				}
+			}
+
+			if (c.getSuperclass()!=null) {
+				classes.add(c.getSuperclass());
+			}
+
+			Class[] interfaces=c.getInterfaces();
+			for (int i=0; i<interfaces.length; i++) {
+				classes.add(interfaces[i]);
+			}
+		}
+		return null;
+	}
+
+	private static Templates getTemplates(URL url) throws HammurapiException {
+		String key=url.toExternalForm();
+		synchronized (templates) {
+			Templates ret=(Templates) templates.get(key);
+			if (ret==null) {
+				try {
+					ret=transformerFactory.newTemplates(new StreamSource(key));
+				} catch (TransformerConfigurationException e) {
+					throw new HammurapiException("Can't compile stylesheet "+key+": "+e.getMessageAndLocation(), e);
+				}
+				templates.put(key, ret);
+			}
+			return ret;
+		}
+	}
+}
@@ -63,6 +63,7 @@ import org.apache.tools.ant.types.FileSet;
 import org.apache.tools.ant.types.Path;
 import org.apache.xpath.CachedXPathAPI;
 import org.hammurapi.render.dom.DetailedResultsRenderer;
+import org.hammurapi.results.AggregatedResults;
 import org.hammurapi.results.persistent.jdbc.BaselineSetupViolationFilter;
 import org.hammurapi.results.persistent.jdbc.BaselineViolationFilter;
 import org.w3c.dom.Document;
@@ -78,6 +79,8 @@ import com.pavelvlasov.render.RenderingException;
 import com.pavelvlasov.render.dom.AbstractRenderer;
 import com.pavelvlasov.review.Signed;
 import com.pavelvlasov.util.ClassResourceLoader;
+import com.pavelvlasov.util.DispatchingVisitor;
+import com.pavelvlasov.util.VisitorExceptionSink;
 import com.pavelvlasov.xml.dom.AbstractDomObject;
 
 /**
@@ -150,6 +153,19 @@ public class TaskBase extends Task {
 	public void setUnpackDir(File unpackDir) {
 		this.unpackDir=unpackDir;
 	}
+	
+	private File archiveCache;
+	
+	/**
+	 * Archive cache directory. Classpath entries which archive refers to 
+	 * by digest are taken from the cache. Shall be the same directory as
+	 * archiveCache attribute of the archiver.
+	 * @ant.non-required
+	 * @param archiveCache
+	 */
+	public void setArchiveCache(File archiveCache) {
+		this.archiveCache=archiveCache;
+	}
 
 	/**
 	 * @return  Returns the debugType.
@@ -168,7 +184,7 @@ public class TaskBase extends Task {
 			throw new BuildException("Cannot load embedded inspectors");
 		}
 		
-		DomInspectorSource source=new DomInspectorSource(inspectorStream, "Hammurapi.jar");
+		InspectorSource source=CachedInspectorSource.load(inspectorStream, "Hammurapi.jar");
 		source.loadInspectors(inspectorSet);
 	}
 
@@ -230,6 +246,15 @@ public class TaskBase extends Task {
         
         options.addOption(unpackDirOption);
         
+        Option archiveCacheOption=OptionBuilder
+        .withDescription("Archive cache directory")
+		.withArgName("directory")
+		.hasArg()
+        .isRequired(false)
+        .create("C");
+        
+        options.addOption(archiveCacheOption);
+        
         Option excludeInspectorOption=OptionBuilder
         .withDescription("Disable inspector")
 		.withArgName("inspector name")
@@ -628,12 +653,23 @@ public class TaskBase extends Task {
 		        NodeIterator nit=cxpa.selectNodeIterator(config, "sources/source");
 		        Element element;
 		        while ((element=(Element) nit.nextNode())!=null) {
-		        	srcFiles.add(new File(workDir, AbstractDomObject.getElementText(element)));
+		        	// Archives made with changedSince may list sources without files
+		        	File source=new File(workDir, AbstractDomObject.getElementText(element));
+		        	if (source.exists()) {
+		        		srcFiles.add(source);
+		        	} else {
+		        		log("Source "+source.getAbsolutePath()+" is not in the archive", Project.MSG_VERBOSE);
+		        	}
 		        }
 		        
 		        nit=cxpa.selectNodeIterator(config, "classpath/path");
 		        while ((element=(Element) nit.nextNode())!=null) {
-		        	File cpe = new File(workDir, AbstractDomObject.getElementText(element));
+		        	String path=AbstractDomObject.getElementText(element);
+		        	File cpe = new File(workDir, path);
+		        	if (!cpe.exists() && archiveCache!=null && element.hasAttribute("digest")) {
+		        		cpe=HammurapiArchiver.getCacheFile(archiveCache, element.getAttribute("digest"), path);
+		        	}
+		        	
 		        	if (cpe.exists()) {		        		
 		        		createClasspath().setLocation(cpe);
 		        		log("File "+cpe.getAbsolutePath()+" added to classpath", Project.MSG_DEBUG);
@@ -709,6 +745,17 @@ public class TaskBase extends Task {
 		return historyOutput;
 	}
 	
+	/**
+	 * Defines WarningsFIX output, which writes violations
+	 * into warning table of WarningsFIX database.
+	 * @ant.non-required
+	 */
+	public WarningsFixOutput createWarningsFixOutput() {
+		WarningsFixOutput warningsFixOutput=new WarningsFixOutput();
+		outputs.add(warningsFixOutput);
+		return warningsFixOutput;
+	}
+	
 	protected List outputs = new LinkedList();
 	protected boolean hadExceptions;
 
@@ -962,6 +1009,10 @@ public class TaskBase extends Task {
 		if (line.hasOption('r')) {
 			setUnpackDir(new File(line.getOptionValue('r')));
 		}
+		
+		if (line.hasOption('C')) {
+			setArchiveCache(new File(line.getOptionValue('C')));
+		}
 				
 		if (line.hasOption('T')) {
 			setTitle(line.getOptionValue('T'));
@@ -1098,6 +1149,96 @@ public class TaskBase extends Task {
 		this.evictBadInspectors=evictBadInspectors;
 	}
 
+	protected boolean methodHandleDispatch = true;
+
+	/**
+	 * Invoke inspectors through method handles prepared when inspectors 
+	 * are initialized instead of reflection. Defaults to true.
+	 * @param methodHandleDispatch
+	 * @ant.non-required
+	 */
+	public void setMethodHandleDispatch(boolean methodHandleDispatch) {
+		this.methodHandleDispatch=methodHandleDispatch;
+	}
+
+	private boolean profile;
+	private int profileSampleRate=1;
+	private File profileCsv;
+	private InspectorProfiler profiler;
+
+	/**
+	 * Record number of invocations and time of inspectors per node type.
+	 * Profile is added to the review summary and logged. Defaults to false.
+	 * @param profile
+	 * @ant.non-required
+	 */
+	public void setProfile(boolean profile) {
+		this.profile=profile;
+	}
+
+	/**
+	 * Time only every N-th invocation to lower profiling overhead, time of 
+	 * other invocations is estimated. Defaults to 1 - time all invocations.
+	 * @param profileSampleRate
+	 * @ant.non-required
+	 */
+	public void setProfileSampleRate(int profileSampleRate) {
+		this.profileSampleRate=profileSampleRate;
+	}
+
+	/**
+	 * File to export inspector profile to in CSV format.
+	 * @param profileCsv
+	 * @ant.non-required
+	 */
+	public void setProfileCsv(File profileCsv) {
+		this.profileCsv=profileCsv;
+	}
+
+	/**
+	 * Adds inspector profile to the summary, exports it to CSV and logs
+	 * top inspectors. Does nothing if profiling is off.
+	 * @param summary Summary to annotate, null if summary doesn't take annotations.
+	 */
+	void completeProfile(AggregatedResults summary) {
+		if (profiler==null) {
+			return;
+		}
+		
+		if (summary!=null) {
+			summary.addAnnotation(profiler.getAnnotation());
+		}
+		
+		if (profileCsv!=null) {
+			try {
+				profiler.writeCsv(profileCsv);
+				log("Inspector profile saved to "+profileCsv.getAbsolutePath(), Project.MSG_INFO);
+			} catch (IOException e) {
+				throw new BuildException("Cannot save "+profileCsv.getAbsolutePath(), e);
+			}
+		}
+		
+		log("Top inspectors:\n"+profiler.getTopInspectors(10), Project.MSG_INFO);
+	}
+
+	/**
+	 * Creates visitor for targets. Inspectors from the set are dispatched
+	 * through its dispatch table unless methodHandleDispatch is false.
+	 */
+	DispatchingVisitor newDispatchingVisitor(Collection targets, InspectorSet inspectorSet, VisitorExceptionSink exceptionSink, DispatchingVisitor.Listener listener) {
+		if (profile) {
+			if (profiler==null) {
+				profiler=new InspectorProfiler(profileSampleRate);
+			}
+			listener=profiler.newListener(listener);
+		}
+		
+		if (methodHandleDispatch && inspectorSet!=null && inspectorSet.getDispatchTable()!=null) {
+			return new HandleDispatchingVisitor(targets, inspectorSet.getDispatchTable(), exceptionSink, listener);
+		}
+		return new DispatchingVisitor(targets, exceptionSink, listener);
+	}
+
 	/**
 	 * Force review even if the file is not changed
 	 * @param force
@@ -24,11 +24,13 @@
 
 package org.hammurapi;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
 import com.pavelvlasov.review.Signed;
@@ -43,26 +45,70 @@ public class WaiverSet {
 	 * Comment for <code>serialVersionUID</code>
 	 */
 	private static final long serialVersionUID = 4873150699959326186L;
-	private Map signatureMap=new HashMap();	
+	
+	/**
+	 * Waivers for particular signatures, WaiverKey -> Waiver
+	 */
+	private Map signatureMap=new HashMap();
+	
+	/**
+	 * Waivers without signatures, inspector name -> List of waivers
+	 */
+	private Map wildcardMap=new HashMap();
+	
 	private Collection rejectedRequests=new LinkedList();
+	
+	/**
+	 * Inspector name and signature. Hash code is calculated once.
+	 */
+	private static class WaiverKey {
+		private final String inspectorName;
+		private final String signature;
+		private final int hashCode;
+		
+		WaiverKey(String inspectorName, String signature) {
+			this.inspectorName=inspectorName;
+			this.signature=signature;
+			hashCode=(inspectorName==null ? 0 : inspectorName.hashCode())*31+signature.hashCode();
+		}
+		
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		public boolean equals(Object obj) {
+			if (obj==this) {
+				return true;
+			}
+			
+			if (obj instanceof WaiverKey) {
+				WaiverKey key=(WaiverKey) obj;
+				return hashCode==key.hashCode 
+					&& signature.equals(key.signature) 
+					&& (inspectorName==null ? key.inspectorName==null : inspectorName.equals(key.inspectorName));
+			}
+			
+			return false;
+		}
+	}
 
 	/**
 	 * @return Collection of waivers remaining in the set
 	 */
 	public Collection getWaivers() {
-		Collection ret=new LinkedList();
-		Iterator it=signatureMap.values().iterator();
+		Collection ret=new LinkedList(signatureMap.values());
+		Iterator it=wildcardMap.values().iterator();
 		while (it.hasNext()) {
-			ret.addAll(((Map) it.next()).values());
+			ret.addAll((List) it.next());
 		}
 		return ret;
 	}
 	
 	public int size() {
-		int ret=0;
-		Iterator it=signatureMap.values().iterator();
+		int ret=signatureMap.size();
+		Iterator it=wildcardMap.values().iterator();
 		while (it.hasNext()) {
-			ret+=((Map) it.next()).size();
+			ret+=((List) it.next()).size();
 		}
 		return ret;		
 	}
@@ -78,43 +124,43 @@ public class WaiverSet {
 	/**
 	 * Requests and removes a waiver from the set. Waivers with signature==null
 	 * aren't removed as they apply to multiple violations.
+	 * Waiver for violation signature is looked up by inspector name and 
+	 * signature, then waivers without signatures for the inspector are tried 
+	 * in the order they were added.
 	 * @param violation
 	 * @param peek Just peek for waiver.
 	 * @return Waiver if there is one for the violation, null otherwise.
 	 */
 	public Waiver requestWaiver(Violation violation, boolean peek) {		
 		if (Boolean.TRUE.equals(violation.getDescriptor().isWaivable())) {
+			String inspectorName=violation.getDescriptor().getName();
 			SourceMarker sm=violation.getSource();
 			String signature= sm instanceof Signed ? ((Signed) sm).getSignature() : null;
-			if (signature!=null) {
-				Map nameMap=(Map) signatureMap.get(signature);
-				Waiver ret = nameMap==null ? null : (Waiver) nameMap.get(violation.getDescriptor().getName());
-								
-				if (ret!=null) {
-					if (!peek) {
-						nameMap.remove(violation.getDescriptor().getName());						
+			if (signature!=null && !signatureMap.isEmpty()) {
+				WaiverKey key=new WaiverKey(inspectorName, signature);
+				Waiver ret = (Waiver) (peek ? signatureMap.get(key) : signatureMap.remove(key));
+				if (ret!=null && ret.waive(violation, peek)) {
+					return ret;
+				}
+			}
+			
+			List wildcards=(List) wildcardMap.get(inspectorName);
+			if (wildcards!=null) {
+				Iterator it=wildcards.iterator();
+				while (it.hasNext()) {
+					Waiver ret=(Waiver) it.next();
+					boolean waived=ret.waive(violation, peek);
+					if (!ret.isActive()) {
+						it.remove();
 					}
 					
-					if (ret.waive(violation, peek)) {
+					if (waived) {
 						return ret;
 					}
 				}
 			}
-
-			
-			Map nameMap=(Map) signatureMap.get(null);
-			Waiver ret = nameMap==null ? null : (Waiver) nameMap.get(violation.getDescriptor().getName());
-			boolean waived = ret!=null && ret.waive(violation, peek);
-			
-			if (!waived) {
-				rejectedRequests.add(violation);
-			} 
-			
-			if (ret!=null && !ret.isActive()) {
-				nameMap.remove(ret.getInspectorName());
-			}
 			
-			return waived ? ret : null;
+			rejectedRequests.add(violation);
 		}
 		
 		return null;		
@@ -127,24 +173,16 @@ public class WaiverSet {
 				Iterator it=signatures.iterator();
 				while (it.hasNext()) {
 					String signature=(String) it.next();
-					getNameMap(signature).put(waiver.getInspectorName(), waiver);
+					signatureMap.put(new WaiverKey(waiver.getInspectorName(), signature), waiver);
 				}
 			} else {
-				getNameMap(null).put(waiver.getInspectorName(), waiver);
+				List wildcards=(List) wildcardMap.get(waiver.getInspectorName());
+				if (wildcards==null) {
+					wildcards=new ArrayList();
+					wildcardMap.put(waiver.getInspectorName(), wildcards);
+				}
+				wildcards.add(waiver);
 			}
 		}
 	}
-
-	/**
-	 * @param signature
-	 * @return name map
-	 */
-	private Map getNameMap(String signature) {
-		Map nameMap=(Map) signatureMap.get(signature);
-		if (nameMap==null) {
-			nameMap=new HashMap();
-			signatureMap.put(signature, nameMap);
-		}
-		return nameMap;
-	}
 }
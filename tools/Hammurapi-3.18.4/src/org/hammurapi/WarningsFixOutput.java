@@ -0,0 +1,362 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.hammurapi.results.CompositeResults;
+import org.hammurapi.results.ReviewResults;
+
+import com.pavelvlasov.ant.ConnectionEntry;
+import com.pavelvlasov.review.SourceMarker;
+
+/**
+ * Writes violations to the warning table of WarningsFIX database as
+ * compilation units are reviewed, without HTML report. Classes and the
+ * tool are registered in arquivo and ferramenta tables, warning types and
+ * messages in warning_type and warning_description dictionaries.
+ * Warnings are inserted in JDBC batches.
+ * <p>
+ * Units which were not reviewed because their results were found in the
+ * database are written when review completes.
+ * @ant.element parent="hammurapi" name="warningsFixOutput" display-name="WarningsFIX output subelement"
+ * @ant.non-required
+ * @version $Revision: 1.1 $
+ */
+public class WarningsFixOutput extends ConnectionEntry implements Listener {
+	private static final String UNIQUE_VIOLATION="23505";
+
+	private static final String INSERT_WARNING=
+		"INSERT INTO warning (tool, nameprogram, nameclass, namemethod, beginline, endline, begincolumn, endcolumn, " +
+		"typeid, descriptionid, priority, externalinfourl, ruleset) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?)";
+
+	private String program;
+	private String tool="HA0001";
+	private int batchSize=1000;
+
+	private Connection connection;
+	private PreparedStatement insert;
+	private int pending;
+	private long rows;
+
+	private Set classes=new HashSet();
+	private Map types=new HashMap();
+	private Map descriptions=new HashMap();
+
+	public synchronized void onBegin(InspectorSet inspectorSet) throws HammurapiException {
+		if (program==null) {
+			throw new HammurapiException("program attribute is mandatory");
+		}
+
+		try {
+			connection=getConnection();
+			connection.setAutoCommit(false);
+			insert=connection.prepareStatement(INSERT_WARNING);
+
+			PreparedStatement ps=connection.prepareStatement("SELECT id FROM ferramenta WHERE id=?");
+			try {
+				ps.setString(1, tool);
+				if (id(ps)==null) {
+					PreparedStatement ips=connection.prepareStatement("INSERT INTO ferramenta (id, descricao, linguagem, nome, tipo, versao) VALUES (?,?,?,?,?,?)");
+					try {
+						ips.setString(1, tool);
+						ips.setString(2, "");
+						ips.setString(3, "java");
+						ips.setString(4, "hammurapi");
+						ips.setString(5, "codigo fonte");
+						ips.setString(6, "");
+						ips.executeUpdate();
+					} finally {
+						ips.close();
+					}
+				}
+			} finally {
+				ps.close();
+			}
+			connection.commit();
+		} catch (SQLException e) {
+			throw new HammurapiException(e);
+		} catch (ClassNotFoundException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	public synchronized void onReview(ReviewResults reviewResult) throws HammurapiException {
+		try {
+			writeWarnings(reviewResult);
+		} catch (SQLException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	public void onPackage(CompositeResults packageResults) {
+		// Nothing
+	}
+
+	public synchronized void onSummary(CompositeResults summary, InspectorSet inspectorSet) throws HammurapiException {
+		if (connection==null) {
+			return;
+		}
+
+		try {
+			try {
+				writeSkipped(summary);
+				flush();
+			} finally {
+				insert.close();
+				connection.close();
+				connection=null;
+			}
+		} catch (SQLException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	/**
+	 * @return Number of warnings written.
+	 */
+	public long getRows() {
+		return rows;
+	}
+
+	private void writeSkipped(CompositeResults results) throws SQLException {
+		Iterator it=results.getChildren().iterator();
+		while (it.hasNext()) {
+			Object child=it.next();
+			if (child instanceof CompositeResults) {
+				writeSkipped((CompositeResults) child);
+			} else if (child instanceof ReviewResults && !classes.contains(getClassName((ReviewResults) child))) {
+				writeWarnings((ReviewResults) child);
+			}
+		}
+	}
+
+	private static String getClassName(ReviewResults reviewResult) {
+		String packageName=reviewResult.getCompilationUnit().getPackage().getName();
+		String ret=reviewResult.getName();
+		if (ret.endsWith(".java")) {
+			ret=ret.substring(0, ret.length()-5);
+		}
+		return packageName.length()==0 ? ret : packageName+"."+ret;
+	}
+
+	private void writeWarnings(ReviewResults reviewResult) throws SQLException {
+		String className=getClassName(reviewResult);
+		registerClass(className);
+
+		Iterator it=reviewResult.getViolations().iterator();
+		while (it.hasNext()) {
+			Violation violation=(Violation) it.next();
+			InspectorDescriptor descriptor=violation.getDescriptor();
+			SourceMarker source=violation.getSource();
+			int line=source==null ? -1 : source.getLine();
+			int column=source==null ? -1 : source.getColumn();
+
+			insert.setString(1, tool);
+			insert.setString(2, program);
+			insert.setString(3, className);
+			insert.setString(4, "");
+			insert.setInt(5, line);
+			insert.setInt(6, line);
+			insert.setInt(7, column);
+			insert.setInt(8, column);
+			insert.setInt(9, typeId(descriptor==null ? null : descriptor.getName()));
+			insert.setInt(10, descriptionId(violation.getMessage()));
+			insert.setInt(11, descriptor==null || descriptor.getSeverity()==null ? 0 : descriptor.getSeverity().intValue());
+			insert.setString(12, "");
+			insert.setString(13, "");
+			insert.addBatch();
+			++rows;
+			if (++pending>=batchSize) {
+				flush();
+			}
+		}
+	}
+
+	private void flush() throws SQLException {
+		if (pending>0) {
+			insert.executeBatch();
+			pending=0;
+		}
+		connection.commit();
+	}
+
+	/**
+	 * Inserts class into arquivo table if it is not there yet.
+	 */
+	private void registerClass(String className) throws SQLException {
+		if (!classes.add(className)) {
+			return;
+		}
+
+		PreparedStatement ps=connection.prepareStatement("SELECT nomearquivo FROM arquivo WHERE nomeprograma=? AND nomearquivo=?");
+		try {
+			ps.setString(1, program);
+			ps.setString(2, className);
+			ResultSet rs=ps.executeQuery();
+			try {
+				if (rs.next()) {
+					return;
+				}
+			} finally {
+				rs.close();
+			}
+		} finally {
+			ps.close();
+		}
+
+		int idx=className.lastIndexOf('.');
+		ps=connection.prepareStatement("INSERT INTO arquivo (nomeprograma, nomepacote, nomearquivo, versaoprograma, descricaoarquivo, localizacao, fonte) VALUES (?,?,?,?,?,?,?)");
+		try {
+			ps.setString(1, program);
+			ps.setString(2, idx==-1 ? "No Package" : className.substring(0, idx));
+			ps.setString(3, className);
+			ps.setString(4, "");
+			ps.setString(5, "");
+			ps.setString(6, "");
+			ps.setString(7, "");
+			ps.executeUpdate();
+		} finally {
+			ps.close();
+		}
+	}
+
+	private int typeId(String type) throws SQLException {
+		String key=type==null ? "" : type;
+		Integer ret=(Integer) types.get(key);
+		if (ret==null) {
+			ret=resolve(
+					"SELECT id FROM warning_type WHERE tool=? AND typewarning=?",
+					new String[] {tool, key},
+					"INSERT INTO warning_type (tool, typewarning) VALUES (?,?) RETURNING id",
+					new String[] {tool, key});
+			types.put(key, ret);
+		}
+		return ret.intValue();
+	}
+
+	private int descriptionId(String description) throws SQLException {
+		String key=description==null ? "" : description;
+		Integer ret=(Integer) descriptions.get(key);
+		if (ret==null) {
+			ret=resolve(
+					"SELECT id FROM warning_description WHERE md5(description)=md5(?) AND description=?",
+					new String[] {key, key},
+					"INSERT INTO warning_description (description) VALUES (?) RETURNING id",
+					new String[] {key});
+			descriptions.put(key, ret);
+		}
+		return ret.intValue();
+	}
+
+	/**
+	 * Selects dictionary id and inserts the entry if it doesn't exist.
+	 * Entries are inserted in a savepoint, if other process inserted the
+	 * same entry in between then insert fails on the unique index and id is
+	 * selected again.
+	 */
+	private Integer resolve(String select, String[] selectParameters, String insert, String[] insertParameters) throws SQLException {
+		PreparedStatement ps=connection.prepareStatement(select);
+		try {
+			for (int i=0; i<selectParameters.length; i++) {
+				ps.setString(i+1, selectParameters[i]);
+			}
+			Integer ret=id(ps);
+			if (ret!=null) {
+				return ret;
+			}
+
+			Savepoint savepoint=connection.setSavepoint();
+			PreparedStatement ips=connection.prepareStatement(insert);
+			try {
+				for (int i=0; i<insertParameters.length; i++) {
+					ips.setString(i+1, insertParameters[i]);
+				}
+				ret=id(ips);
+				connection.releaseSavepoint(savepoint);
+				return ret;
+			} catch (SQLException e) {
+				if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+					throw e;
+				}
+				connection.rollback(savepoint);
+			} finally {
+				ips.close();
+			}
+
+			ret=id(ps);
+			if (ret==null) {
+				throw new SQLException("Dictionary entry not found after "+UNIQUE_VIOLATION+": "+select);
+			}
+			return ret;
+		} finally {
+			ps.close();
+		}
+	}
+
+	private static Integer id(PreparedStatement ps) throws SQLException {
+		ResultSet rs=ps.executeQuery();
+		try {
+			return rs.next() ? new Integer(rs.getInt(1)) : null;
+		} finally {
+			rs.close();
+		}
+	}
+
+	/**
+	 * Name of the analyzed program, nameprogram column.
+	 * @ant.required
+	 * @param program
+	 */
+	public void setProgram(String program) {
+		this.program=program;
+	}
+
+	/**
+	 * Tool id in ferramenta table. Defaults to HA0001.
+	 * @ant.non-required
+	 * @param tool
+	 */
+	public void setTool(String tool) {
+		this.tool=tool;
+	}
+
+	/**
+	 * Number of warnings inserted in one batch. Defaults to 1000.
+	 * @ant.non-required
+	 * @param batchSize
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize=Math.max(1, batchSize);
+	}
+}
@@ -63,8 +63,8 @@ import org.eclipse.jdt.core.JavaModelException;
 import org.eclipse.jface.operation.IRunnableWithProgress;
 import org.hammurapi.HammurapiException;
 import org.hammurapi.InspectorSource;
+import org.hammurapi.ReviewDaemon;
 import org.hammurapi.ReviewRequestBase;
-import org.hammurapi.Reviewer;
 import org.hammurapi.Violation;
 
 /**
@@ -74,6 +74,20 @@ import org.hammurapi.Violation;
  */
 public class HammurapiBuilder extends IncrementalProjectBuilder
 {
+  /**
+   * Reviewers with loaded inspectors, shared by builds of all projects.
+   */
+  private static ReviewDaemon reviewDaemon;
+
+  private static synchronized ReviewDaemon getReviewDaemon() throws HammurapiException
+  {
+    if (reviewDaemon == null)
+    {
+      reviewDaemon = new ReviewDaemon(null, 1, true, (InspectorSource) null, null);
+    }
+    return reviewDaemon;
+  }
+
   private void performBuild(IProgressMonitor progressMonitor) throws CoreException
   {
     final IProject project = getProject();
@@ -102,10 +116,10 @@ public class HammurapiBuilder extends IncrementalProjectBuilder
         progressMonitor.beginTask("Hammurapi", 100); //files.size());
         try
         {
-          Reviewer reviewer = null;
+          ReviewDaemon reviewer = null;
           try
           {
-            reviewer = new Reviewer(null, true, (InspectorSource) null, null);
+            reviewer = getReviewDaemon();
           }
           catch (HammurapiException e)
           {
@@ -531,9 +545,9 @@ public class HammurapiBuilder extends IncrementalProjectBuilder
     private int severity;
     private int lineNo;
     private String reviewMessage;
-    private Reviewer reviewer;
+    private ReviewDaemon reviewer;
 
-    private HammurapiChecker(Reviewer reviewer)
+    private HammurapiChecker(ReviewDaemon reviewer)
     {
       this.reviewer = reviewer;
     }
@@ -24,16 +24,27 @@
 package org.hammurapi.inspectors.history;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.MessageFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.FactoryConfigurationError;
@@ -143,19 +154,112 @@ public class HistoryInspector extends PersistingInspectorBase {
         }
     }
     
-    private static abstract class TimeChartGenerator {
+    private File chartCache;
+    
+    private boolean jsonCharts;
+    
+    /**
+     * Supported parameters:
+     * <ul>
+     * <li>chart-cache - directory to keep rendered charts in. Chart is 
+     * rendered only if there is no chart for the same series in the cache.
+     * Only the latest chart of each title and series is kept.</li>
+     * <li>chart-format - png (default) or json. json charts are files with 
+     * chart title and series, to be rendered by the report viewer.</li>
+     * </ul>
+     */
+    public boolean setParameter(String name, Object value) throws ConfigurationException {
+        if ("chart-cache".equals(name)) {
+            chartCache=new File(value.toString());
+        } else if ("chart-format".equals(name)) {
+            if ("json".equalsIgnoreCase(value.toString())) {
+                jsonCharts=true;
+            } else if ("png".equalsIgnoreCase(value.toString())) {
+                jsonCharts=false;
+            } else {
+                throw new ConfigurationException("Unsupported chart format: "+value);
+            }
+        } else {
+            return super.setParameter(name, value);
+        }
+        return true;
+    }
+    
+    private abstract class TimeChartGenerator {
         
         abstract Number getValue(JoinedHistoryImplEx jhie);
-                
-        TimeSeries createTimeSeries(Collection series, String title) {
-            TimeSeries timeSeries = new TimeSeries(title);
+        
+        /**
+         * @return Value of the last review of each day, reviews are ordered by date.
+         */
+        Map rollup(Collection series) {
+            Map ret=new TreeMap();
             Iterator sit=series.iterator();
             while (sit.hasNext()) {
                 JoinedHistoryImplEx jhie=(JoinedHistoryImplEx) sit.next();
-                timeSeries.add(new Day(new Date(jhie.getReportDate().getTime())), getValue(jhie));
+                ret.put(new Day(new Date(jhie.getReportDate().getTime())), getValue(jhie));
+            }
+            return ret;
+        }
+                
+        TimeSeries createTimeSeries(Map points, String title) {
+            TimeSeries timeSeries = new TimeSeries(title);
+            Iterator it=points.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry entry=(Map.Entry) it.next();
+                timeSeries.add((Day) entry.getKey(), (Number) entry.getValue());
             }
             return timeSeries;
         }
+        
+        /**
+         * Renders chart, or writes its series if chart format is json, and
+         * sets chart path to the attribute of the root element.
+         * @param attribute Attribute name prefix, e.g. nodes
+         * @param bar Bar chart if true, line chart otherwise
+         */
+        void generate(AnnotationContext context, Element root, Collection series, String attribute, String seriesName, String title, boolean bar) throws HammurapiException, IOException {
+            Map points=rollup(series);
+            if (jsonCharts) {
+                FileEntry fileEntry=context.getNextFile(".json");
+                writeJson(title, seriesName, points, bar, fileEntry.getFile());
+                root.setAttribute(attribute+"-series", fileEntry.getPath());
+                return;
+            }
+            
+            FileEntry fileEntry=context.getNextFile(".png");
+            File cacheFile=null;
+            String chartPrefix=null;
+            if (chartCache!=null) {
+                // <chart digest>-<points digest>.png, so the entry superseded
+                // by a new point can be found and deleted
+                chartPrefix=digest(title+'|'+seriesName+'|'+bar)+"-";
+                StringBuffer key=new StringBuffer();
+                Iterator it=points.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry entry=(Map.Entry) it.next();
+                    key.append('|').append(((Day) entry.getKey()).getFirstMillisecond()).append('=').append(entry.getValue());
+                }
+                cacheFile=new File(chartCache, chartPrefix+digest(key.toString())+".png");
+            }
+            
+            if (cacheFile!=null && cacheFile.isFile()) {
+                copy(cacheFile, fileEntry.getFile());
+            } else {
+                TimeSeries timeSeries=createTimeSeries(points, seriesName);
+                if (bar) {
+                    createPngBarChart(title, timeSeries, fileEntry.getFile());
+                } else {
+                    createPngChart(title, timeSeries, fileEntry.getFile());
+                }
+                
+                if (cacheFile!=null && (chartCache.isDirectory() || chartCache.mkdirs())) {
+                    deleteCachedCharts(chartPrefix);
+                    copy(fileEntry.getFile(), cacheFile);
+                }
+            }
+            root.setAttribute(attribute+"-chart", fileEntry.getPath());
+        }
                 
         void createPngChart(String title, TimeSeries timeSeries, File out) throws IOException {
             TimeSeriesCollection timeDataset = new TimeSeriesCollection(timeSeries);
@@ -191,6 +295,114 @@ public class HistoryInspector extends PersistingInspectorBase {
             ChartUtilities.saveChartAsPNG(out, chart, 500, 300 );
         }
         
+        /**
+         * Writes {"title":..., "series":..., "type":"line"|"bar", "points":[["yyyy-MM-dd", value], ...]}
+         */
+        void writeJson(String title, String seriesName, Map points, boolean bar, File out) throws IOException {
+            SimpleDateFormat sdf=new SimpleDateFormat("yyyy-MM-dd");
+            Writer w=new OutputStreamWriter(new FileOutputStream(out), "UTF-8");
+            try {
+                w.write("{\"title\":"+jsonString(title)+",\"series\":"+jsonString(seriesName)+",\"type\":\""+(bar ? "bar" : "line")+"\",\"points\":[");
+                Iterator it=points.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry entry=(Map.Entry) it.next();
+                    w.write("[\""+sdf.format(new Date(((Day) entry.getKey()).getFirstMillisecond()))+"\","+jsonNumber((Number) entry.getValue())+"]");
+                    if (it.hasNext()) {
+                        w.write(",");
+                    }
+                }
+                w.write("]}");
+            } finally {
+                w.close();
+            }
+        }
+    }
+    
+    /**
+     * Deletes cached charts with the given title and series prefix.
+     */
+    private void deleteCachedCharts(final String chartPrefix) {
+        File[] superseded=chartCache.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith(chartPrefix) && name.endsWith(".png");
+            }
+        });
+        
+        if (superseded!=null) {
+            for (int i=0; i<superseded.length; i++) {
+                superseded[i].delete();
+            }
+        }
+    }
+    
+    /**
+     * @return Number as JSON, null for missing, NaN and infinite values 
+     * which JSON cannot express
+     */
+    private static String jsonNumber(Number value) {
+        if (value==null) {
+            return "null";
+        }
+        
+        double d=value.doubleValue();
+        return Double.isNaN(d) || Double.isInfinite(d) ? "null" : value.toString();
+    }
+    
+    /**
+     * @return Quoted and escaped JSON string, null for null
+     */
+    private static String jsonString(String str) {
+        if (str==null) {
+            return "null";
+        }
+        
+        StringBuffer ret=new StringBuffer(str.length()+2).append('"');
+        for (int i=0; i<str.length(); i++) {
+            char ch=str.charAt(i);
+            if (ch=='"' || ch=='\\') {
+                ret.append('\\').append(ch);
+            } else if (ch<' ') {
+                String hex=Integer.toHexString(ch);
+                ret.append("\\u0000".substring(0, 6-hex.length())).append(hex);
+            } else {
+                ret.append(ch);
+            }
+        }
+        return ret.append('"').toString();
+    }
+    
+    private static String digest(String str) {
+        try {
+            byte[] digest=MessageDigest.getInstance("MD5").digest(str.getBytes("UTF-8"));
+            StringBuffer ret=new StringBuffer(digest.length*2);
+            for (int i=0; i<digest.length; i++) {
+                ret.append(Character.forDigit((digest[i]>>4) & 0xF, 16));
+                ret.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return ret.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new HammurapiRuntimeException(e);
+        } catch (IOException e) {
+            throw new HammurapiRuntimeException(e);
+        }
+    }
+    
+    private static void copy(File from, File to) throws IOException {
+        InputStream in=new FileInputStream(from);
+        try {
+            OutputStream out=new FileOutputStream(to);
+            try {
+                byte[] buf=new byte[8192];
+                int l;
+                while ((l=in.read(buf))!=-1) {
+                    out.write(buf, 0, l);
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
     }
     
     public void leave(Repository repository) {
@@ -299,10 +511,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry codeBaseNodesChart=context.getNextFile(".png");
-                TimeSeries cbtn = codeBaseChartGenerator.createTimeSeries(series, "Nodes");
-                codeBaseChartGenerator.createPngChart("Codebase history (nodes)", cbtn, codeBaseNodesChart.getFile());
-                root.setAttribute("nodes-chart", codeBaseNodesChart.getPath());
+                codeBaseChartGenerator.generate(context, root, series, "nodes", "Nodes", "Codebase history (nodes)", false);
             }
 
             /**
@@ -319,10 +528,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry codeBaseChart=context.getNextFile(".png");
-                TimeSeries cbtn = codeBaseChartGenerator.createTimeSeries(series, "Files");
-                codeBaseChartGenerator.createPngChart("Codebase history (files)", cbtn, codeBaseChart.getFile());
-                root.setAttribute("files-chart", codeBaseChart.getPath());
+                codeBaseChartGenerator.generate(context, root, series, "files", "Files", "Codebase history (files)", false);
             }
             
             /**
@@ -339,10 +545,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry fileEntry=context.getNextFile(".png");
-                TimeSeries cbtn = chartGenerator.createTimeSeries(series, "Activity (%)");
-                chartGenerator.createPngBarChart("Activity history", cbtn, fileEntry.getFile());
-                root.setAttribute("activity-chart", fileEntry.getPath());
+                chartGenerator.generate(context, root, series, "activity", "Activity (%)", "Activity history", true);
             }
             
             /**
@@ -365,10 +568,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry fileEntry=context.getNextFile(".png");
-                TimeSeries cbtn = chartGenerator.createTimeSeries(series, "Sigma");
-                chartGenerator.createPngChart("Sigma history", cbtn, fileEntry.getFile());
-                root.setAttribute("sigma-chart", fileEntry.getPath());
+                chartGenerator.generate(context, root, series, "sigma", "Sigma", "Sigma history", false);
             }
             
             /**
@@ -391,10 +591,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry fileEntry=context.getNextFile(".png");
-                TimeSeries cbtn = chartGenerator.createTimeSeries(series, "DPMO");
-                chartGenerator.createPngChart("DPMO history", cbtn, fileEntry.getFile());
-                root.setAttribute("dpmo-chart", fileEntry.getPath());
+                chartGenerator.generate(context, root, series, "dpmo", "DPMO", "DPMO history", false);
             }
             
             /**
@@ -411,10 +608,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry fileEntry=context.getNextFile(".png");
-                TimeSeries cbtn = chartGenerator.createTimeSeries(series, "Violations");
-                chartGenerator.createPngChart("Violations history", cbtn, fileEntry.getFile());
-                root.setAttribute("violations-chart", fileEntry.getPath());
+                chartGenerator.generate(context, root, series, "violations", "Violations", "Violations history", false);
             }
             
             /**
@@ -431,10 +625,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry fileEntry=context.getNextFile(".png");
-                TimeSeries cbtn = chartGenerator.createTimeSeries(series, "Max severity");
-                chartGenerator.createPngChart("Max severity history", cbtn, fileEntry.getFile());
-                root.setAttribute("max-severity-chart", fileEntry.getPath());
+                chartGenerator.generate(context, root, series, "max-severity", "Max severity", "Max severity history", false);
             }
             
             /**
@@ -451,10 +642,7 @@ public class HistoryInspector extends PersistingInspectorBase {
                     }
                 };
                 
-                FileEntry fileEntry=context.getNextFile(".png");
-                TimeSeries cbtn = chartGenerator.createTimeSeries(series, "Reviews");
-                chartGenerator.createPngChart("Reviews history", cbtn, fileEntry.getFile());
-                root.setAttribute("reviews-chart", fileEntry.getPath());
+                chartGenerator.generate(context, root, series, "reviews", "Reviews", "Reviews history", false);
             }
             
             public Properties getProperties() {
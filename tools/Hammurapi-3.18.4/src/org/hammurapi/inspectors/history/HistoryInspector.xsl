@@ -104,6 +104,20 @@
 				</xsl:attribute>
 			</img>
 		</xsl:if>			
+		
+		<xsl:if test="@*[contains(name(), '-series')]">
+			<p/>
+			Chart series:
+			<xsl:for-each select="@*[contains(name(), '-series')]">
+				<xsl:text> </xsl:text>
+				<a>
+					<xsl:attribute name="href">
+						<xsl:value-of select="."/>
+					</xsl:attribute>
+					<xsl:value-of select="substring-before(name(), '-series')"/>
+				</a>
+			</xsl:for-each>
+		</xsl:if>
     </xsl:template>
     
     <xsl:template match="element">
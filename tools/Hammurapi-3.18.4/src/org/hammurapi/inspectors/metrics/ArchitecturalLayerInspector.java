@@ -29,12 +29,15 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.net.URL;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hammurapi.HammurapiException;
 import org.hammurapi.InspectorBase;
@@ -70,13 +73,18 @@ public class ArchitecturalLayerInspector
 	
 	private ArchitecturalLayerMappingTable architecturalLayerMappingTable = null;
 	private ArchitecturalLayerExtensionsMap extensionMap =  new ArchitecturalLayerExtensionsMap();
-	private Hashtable allCategorizedPackages = new Hashtable();
-	private Hashtable allCategorizedClasses = new Hashtable();
-	private Hashtable allGetterSetterCounterForClasses = new Hashtable();
+	private ConcurrentHashMap allCategorizedPackages = new ConcurrentHashMap();
+	private ConcurrentHashMap allCategorizedClasses = new ConcurrentHashMap();
+	private ConcurrentHashMap allGetterSetterCounterForClasses = new ConcurrentHashMap();
 	private ListOfLayers listOfLayers = null;
 	private Hashtable allTechStackEntitiesTable = new Hashtable();
 	private ArchitecturalComplexityMappingTable complexityMappingTable = null;
-	private HashSet unknownVariableList = new HashSet();
+	private Set unknownVariableList = Collections.synchronizedSet(new HashSet());
+	
+	/**
+	 * Variable mappings of all tech stack entities, built in init()
+	 */
+	private TypeNameIndex typeNameIndex = null;
 
 	private Coupling coupling = new Coupling();
 	private CodeMetric projectMetric = new CodeMetric();
@@ -146,6 +154,7 @@ public class ArchitecturalLayerInspector
 						allTechStackEntitiesTable.put( te.getName(), te);
 					}
 				 }
+				 typeNameIndex = new TypeNameIndex(architecturalLayerMappingTable);
 				
 		} catch (IOException e) {
 			throw new HammurapiException("Cannot load mapping configuration: "+e, e);
@@ -164,6 +173,7 @@ public class ArchitecturalLayerInspector
 	public void visit(TypeDefinition p)  throws JselException, ClassNotFoundException {
 		
 		this.coupling.classCouplingMetric.put( p.getFcn(), new CouplingMetricOfClass(p));
+		this.coupling.declareType(p.getFcn());
 		allCategorizedClasses.put(p.getFcn(), new ListOfCategories( p.getFcn(), ((SourceMarker)p).getSourceURL(), ((SourceMarker)p).getLine(), ((SourceMarker)p).getColumn() ));
 		this.identifyCategories(p);
 
@@ -171,6 +181,7 @@ public class ArchitecturalLayerInspector
 
 	public void visit(Interface p)  throws JselException, ClassNotFoundException {
 		this.coupling.classCouplingMetric.put( p.getFcn(), new CouplingMetricOfClass(p));
+		this.coupling.declareType(p.getFcn());
 		allCategorizedClasses.put(p.getFcn(),  new ListOfCategories( p.getFcn(), ((SourceMarker)p).getSourceURL(),((SourceMarker)p).getLine(), ((SourceMarker)p).getColumn() ));
 		addCategory("Interface", p.getName(), p);
 	}
@@ -213,48 +224,23 @@ public class ArchitecturalLayerInspector
 	 *
 	 */
 	public void checkVariableType(TypeSpecification typDef, TypeDefinition declarationType ) throws JselException, ClassNotFoundException {
-		boolean foundAnyCategory = false;
-		Iterator it = this.architecturalLayerMappingTable.values().iterator();
-		
-		while (it.hasNext() && !foundAnyCategory){
-			
-			ArchitecturalLayerMapping alm = (ArchitecturalLayerMapping)it.next();
-			Iterator stackEnum = alm.getTechStackEntityListValues().iterator();
-			while (stackEnum.hasNext() && !foundAnyCategory){	
-				TechStackEntity tse = (TechStackEntity)stackEnum.next();
-				foundAnyCategory = iterateThroughVarDefSearchStrings(tse.getVariableMapping(), typDef, tse.getName(), declarationType);
-			}
+		TypeNameIndex.Entry[] entries = typeNameIndex.lookup(typDef.getName());
+		for (int i=0; i<entries.length; i++) {
+			addCategory(entries[i].getCategory(), entries[i].isPrefix() ? typDef.getName() : entries[i].getMapping(), typDef, declarationType);
 		}
-		if ( foundAnyCategory ){
-			// I have a dam clue about this var
-		} else {
-			if ( nonTrivialTypeFilter( typDef ) ){
+		if ( entries.length==0 && nonTrivialTypeFilter( typDef ) ){
 			unknownVariableList.add( typDef.getName() );
 		} 
-		} 
-
 	}
+
 	public void checkVariableType(TypeSpecification typDef, TypeBody declarationType ) throws JselException, ClassNotFoundException {
-		boolean foundAnyCategory = false;
-		Iterator it = this.architecturalLayerMappingTable.values().iterator();
-	
-		while (it.hasNext() && !foundAnyCategory){
-			
-			ArchitecturalLayerMapping alm = (ArchitecturalLayerMapping)it.next();
-			Iterator stackEnum = alm.getTechStackEntityListValues().iterator();
-			while (stackEnum.hasNext() && !foundAnyCategory){	
-				TechStackEntity tse = (TechStackEntity)stackEnum.next();
-				foundAnyCategory = iterateThroughVarDefSearchStrings(tse.getVariableMapping(), typDef, tse.getName(), declarationType);
-		}
+		TypeNameIndex.Entry[] entries = typeNameIndex.lookup(typDef.getName());
+		for (int i=0; i<entries.length; i++) {
+			addCategory(entries[i].getCategory(), entries[i].isPrefix() ? typDef.getName() : entries[i].getMapping(), typDef, declarationType);
 		}
-		if ( foundAnyCategory ){
-			// THIS means, I have a dam clue about this var
-		} else {
-			if ( nonTrivialTypeFilter( typDef ) ) {
+		if ( entries.length==0 && nonTrivialTypeFilter( typDef ) ){
 			unknownVariableList.add( typDef.getName() );
 		} 
-		} 
-
 	}
 
 	public boolean iterateThroughVarDefSearchStrings( Vector searchList, TypeSpecification typeDef, String category, TypeDefinition declarationType)
@@ -485,37 +471,28 @@ public class ArchitecturalLayerInspector
 		if (((end - start) < 3)
 				&& (p.getName().toString().startsWith("get") || p.getName()
 						.toString().startsWith("set"))) {
-			try {
-				String keyGetterSetter = fcn + GETTERSETTER;
-				Integer getterCounter = (Integer) allGetterSetterCounterForClasses
-						.get(keyGetterSetter);
-				if (getterCounter == null) {
-					allGetterSetterCounterForClasses.put(keyGetterSetter, new Integer(1));
-					ListOfCategories typeLoc = (ListOfCategories) allCategorizedClasses.get(fcn);
-					if (typeLoc!=null) {
-						typeLoc.setType(fcn);
-					}
-				} else {
-					allGetterSetterCounterForClasses.put(keyGetterSetter, new Integer(getterCounter.intValue() + 1));
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
+			incrementCounter(fcn + GETTERSETTER, fcn);
+		} else {
+			incrementCounter(fcn, fcn);
+		}
+	}
+	
+	/**
+	 * Increments getter/setter or method counter. Counter is replaced atomically,
+	 * so methods can be visited by several threads.
+	 * @param key Counter key
+	 * @param fcn Enclosing type
+	 */
+	private void incrementCounter(String key, String fcn) {
+		Integer counter = (Integer) allGetterSetterCounterForClasses.putIfAbsent(key, new Integer(1));
+		if (counter == null) {
+			ListOfCategories typeLoc = (ListOfCategories) allCategorizedClasses.get(fcn);
+			if (typeLoc!=null) {
+				typeLoc.setType(fcn);
 			}
-
 		} else {
-			try {
-				Integer getterCounter = (Integer) allGetterSetterCounterForClasses.get(fcn);
-				if (getterCounter == null) {
-					allGetterSetterCounterForClasses.put(fcn, new Integer(1));
-					ListOfCategories typeLoc = (ListOfCategories) allCategorizedClasses.get(fcn);
-					if (typeLoc!=null) {
-						typeLoc.setType(fcn);
-					}
-				} else {
-					allGetterSetterCounterForClasses.put(fcn, new Integer(getterCounter.intValue() + 1));
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
+			while (!allGetterSetterCounterForClasses.replace(key, counter, new Integer(counter.intValue() + 1))) {
+				counter = (Integer) allGetterSetterCounterForClasses.get(key);
 			}
 		}
 	}
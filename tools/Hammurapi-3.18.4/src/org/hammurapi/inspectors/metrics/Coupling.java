@@ -25,12 +25,19 @@
  */
 package org.hammurapi.inspectors.metrics;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.Iterator;
+import java.util.List;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.pavelvlasov.jsel.JselException;
 import com.pavelvlasov.jsel.Parameter;
 import com.pavelvlasov.jsel.Type;
 import com.pavelvlasov.jsel.TypeBody;
@@ -68,6 +75,76 @@ public class Coupling {
 	//!! tbd: Set an meaningful name to the CouplingMetricOfPackage or use a different class
 	private CouplingMetricOfPackage totalCouplingMetricOfProject = new CouplingMetricOfPackage("Project");
 
+	/**
+	 * Type references, one matrix per visiting thread
+	 */
+	private final List matrices = Collections.synchronizedList(new ArrayList());
+
+	private final ThreadLocal threadMatrix = new ThreadLocal() {
+		protected Object initialValue() {
+			CouplingMatrix ret = new CouplingMatrix();
+			matrices.add(ret);
+			return ret;
+		}
+	};
+
+	private CouplingMatrix getThreadMatrix() {
+		return (CouplingMatrix) threadMatrix.get();
+	}
+
+	/**
+	 * Registers reviewed type. Package coupling is reported for packages
+	 * of reviewed types.
+	 * @param fcn
+	 */
+	public void declareType(String fcn) {
+		getThreadMatrix().declare(fcn);
+	}
+
+	/**
+	 * Adds reference from the type declaring the parameter to the 
+	 * parameter type
+	 * @param parameter
+	 * @throws JselException
+	 */
+	public void addReference(Parameter parameter) throws JselException {
+		if (parameter.getTypeSpecification() instanceof ClassTypeSpecificationImpl) {
+			TypeBody enclosingType = parameter.getParent().getEnclosingType();
+			if (enclosingType != null) {
+				getThreadMatrix().add(enclosingType.getFcn(), parameter.getTypeSpecification().getName());
+			}
+		}
+	}
+
+	/**
+	 * Adds reference from the type declaring the variable to the 
+	 * variable type
+	 * @param var
+	 * @throws JselException
+	 */
+	public void addReference(VariableDefinition var) throws JselException {
+		if (var.getTypeSpecification() instanceof ClassTypeSpecificationImpl) {
+			TypeBody enclosingType = var.getParent().getEnclosingType();
+			if (enclosingType != null) {
+				getThreadMatrix().add(enclosingType.getFcn(), var.getTypeSpecification().getName());
+			}
+		}
+	}
+
+	/**
+	 * @return Type references of all threads merged
+	 */
+	public CouplingMatrix getMatrix() {
+		CouplingMatrix ret = new CouplingMatrix();
+		synchronized (matrices) {
+			Iterator it = matrices.iterator();
+			while (it.hasNext()) {
+				ret.merge((CouplingMatrix) it.next());
+			}
+		}
+		return ret;
+	}
+
 /*	public Coupling(ClassMap _classes,   File _projectBaseDir){
 		super();
 		allClasses =  _classes;
@@ -97,6 +174,7 @@ public class Coupling {
 		try {
 		if (parameter.getTypeSpecification() instanceof ClassTypeSpecificationImpl ) {
 				TypeSpecification ts = parameter.getTypeSpecification();
+				addReference(parameter);
 				CouplingMetricOfClass cmcParent = 
 					(CouplingMetricOfClass)classCouplingMetric.get(	parameter.getParent().getEnclosingType().getFcn() );
 				CouplingMetricOfClass cmcVar = (CouplingMetricOfClass)classCouplingMetric.get(	ts.getName() );
@@ -143,6 +221,7 @@ public class Coupling {
 			if( var != null){
 		
 				String key = determineKey( var) ; 
+				addReference(var);
 			CouplingMetricOfClass cmcParent = (CouplingMetricOfClass)classCouplingMetric.get(	key );
 			CouplingMetricOfClass cmcVar = (CouplingMetricOfClass)classCouplingMetric.get(	var.getTypeSpecification().getName() );
 			if( cmcVar == null){
@@ -446,8 +525,46 @@ public void determineMethodMetricForClass(Type c, CouplingMetricOfClass thisCmc)
 				(CouplingMetricOfClass) enumc.nextElement();
 			ret.appendChild(cmc.toDom(document));
 		}
-		return ret;
 		
+		CouplingMatrix.PackageCoupling[] packages = getMatrix().getPackageCoupling();
+		Element lp=document.createElement("ListCouplingMetricOfPackages");
+		lp.setAttribute("size", String.valueOf(packages.length));
+		root.appendChild(lp);
+		for (int i=0; i<packages.length; i++) {
+			Element pe=document.createElement("CouplingMetricOfPackage");
+			pe.setAttribute("package", packages[i].getName());
+			pe.setAttribute("classes", String.valueOf(packages[i].getClasses()));
+			pe.setAttribute("afferent", String.valueOf(packages[i].getAfferent()));
+			pe.setAttribute("efferent", String.valueOf(packages[i].getEfferent()));
+			pe.setAttribute("afferentReferences", String.valueOf(packages[i].getAfferentReferences()));
+			pe.setAttribute("efferentReferences", String.valueOf(packages[i].getEfferentReferences()));
+			pe.setAttribute("instability", String.valueOf(packages[i].getInstability()));
+			lp.appendChild(pe);
+		}
+		return root;
+		
+	}
+	
+	/**
+	 * Writes package coupling as tab separated values: package, number of
+	 * classes, afferent coupling, efferent coupling and instability. 
+	 * @param w
+	 * @throws IOException
+	 */
+	public void writePackageCoupling(Writer w) throws IOException {
+		CouplingMatrix.PackageCoupling[] packages = getMatrix().getPackageCoupling();
+		for (int i=0; i<packages.length; i++) {
+			w.write(packages[i].getName());
+			w.write('\t');
+			w.write(String.valueOf(packages[i].getClasses()));
+			w.write('\t');
+			w.write(String.valueOf(packages[i].getAfferent()));
+			w.write('\t');
+			w.write(String.valueOf(packages[i].getEfferent()));
+			w.write('\t');
+			w.write(String.valueOf(packages[i].getInstability()));
+			w.write('\n');
+		}
 	}
 	
 }
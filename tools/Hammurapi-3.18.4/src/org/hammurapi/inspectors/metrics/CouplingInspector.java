@@ -0,0 +1,101 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@gmail.com
+ */
+package org.hammurapi.inspectors.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.hammurapi.InspectorBase;
+
+import com.pavelvlasov.config.ConfigurationException;
+import com.pavelvlasov.config.Parameterizable;
+import com.pavelvlasov.jsel.JselException;
+import com.pavelvlasov.jsel.Parameter;
+import com.pavelvlasov.jsel.Repository;
+import com.pavelvlasov.jsel.TypeDefinition;
+import com.pavelvlasov.jsel.VariableDefinition;
+
+/**
+ * Package coupling (classes, Ca, Ce, instability) of reviewed packages.
+ * Unlike ArchitecturalLayerInspector it needs no layer mapping.
+ * Parameters:
+ * <ul>
+ * <li>coupling-file - file to write package coupling to as tab separated
+ * values, e.g. for the coupling treemap of WarningsFIX</li>
+ * </ul>
+ */
+public class CouplingInspector extends InspectorBase implements Parameterizable {
+	private Coupling coupling = new Coupling();
+	private String couplingFile;
+
+	public void visit(TypeDefinition typeDefinition) throws JselException {
+		coupling.declareType(typeDefinition.getFcn());
+	}
+
+	public void visit(VariableDefinition variableDefinition) {
+		try {
+			coupling.addReference(variableDefinition);
+		} catch (JselException e) {
+			context.warn(variableDefinition, e);
+		}
+	}
+
+	public void visit(Parameter parameter) {
+		try {
+			coupling.addReference(parameter);
+		} catch (JselException e) {
+			context.warn(parameter, e);
+		}
+	}
+
+	public void leave(Repository repository) {
+		if (couplingFile != null) {
+			try {
+				File out = new File(couplingFile);
+				if (out.getParentFile() != null) {
+					out.getParentFile().mkdirs();
+				}
+				Writer w = new OutputStreamWriter(new FileOutputStream(out), "UTF-8");
+				try {
+					coupling.writePackageCoupling(w);
+				} finally {
+					w.close();
+				}
+			} catch (IOException e) {
+				context.warn(null, "Cannot write package coupling to "+couplingFile+": "+e);
+			}
+		}
+	}
+
+	public boolean setParameter(String name, Object value) throws ConfigurationException {
+		if ("coupling-file".equals(name)) {
+			couplingFile=value.toString();
+		} else {
+			throw new ConfigurationException("Parameter '"+name+"' is not supported");
+		}
+		return true;
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@gmail.com
+ */
+package org.hammurapi.inspectors.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Type references of a review in primitive arrays. Types and packages are
+ * mapped to int ids, references between types are counted in a hash table
+ * keyed by pair of type ids. Each review thread shall have its own matrix,
+ * matrices are merged with {@link #merge(CouplingMatrix)} when threads
+ * complete.
+ * <p>
+ * {@link #getPackageCoupling()} computes afferent and efferent coupling
+ * and instability of all reviewed packages in one pass over references.
+ * @version $Revision: 1.1 $
+ */
+public class CouplingMatrix {
+	private static final String DEFAULT_PACKAGE="<default>";
+
+	/**
+	 * Coupling of a package, as in JDepend
+	 */
+	public static class PackageCoupling {
+		private final String name;
+		private int classes;
+		private int afferent;
+		private int efferent;
+		private int afferentReferences;
+		private int efferentReferences;
+
+		PackageCoupling(String name) {
+			this.name=name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return Number of reviewed types in the package
+		 */
+		public int getClasses() {
+			return classes;
+		}
+
+		/**
+		 * @return Afferent coupling (Ca), number of other packages which
+		 * depend on types of the package
+		 */
+		public int getAfferent() {
+			return afferent;
+		}
+
+		/**
+		 * @return Efferent coupling (Ce), number of other packages which
+		 * types of the package depend on
+		 */
+		public int getEfferent() {
+			return efferent;
+		}
+
+		/**
+		 * @return Number of references to types of the package from other
+		 * packages
+		 */
+		public int getAfferentReferences() {
+			return afferentReferences;
+		}
+
+		/**
+		 * @return Number of references from types of the package to other
+		 * packages
+		 */
+		public int getEfferentReferences() {
+			return efferentReferences;
+		}
+
+		/**
+		 * @return Ce/(Ca+Ce), 0 if package is not coupled
+		 */
+		public float getInstability() {
+			return afferent+efferent==0 ? 0 : (float) efferent/(afferent+efferent);
+		}
+	}
+
+	/**
+	 * Open addressing hash table long -> int. Values are positive, slot is
+	 * free if its value is 0.
+	 */
+	private static class LongIntMap {
+		long[] keys=new long[64];
+		int[] values=new int[64];
+		int size;
+
+		private int slot(long key) {
+			int mask=keys.length-1;
+			long hash=key*0x9E3779B97F4A7C15L;
+			int idx=(int) (hash ^ hash>>>32) & mask;
+			while (values[idx]!=0 && keys[idx]!=key) {
+				idx=(idx+1) & mask;
+			}
+			return idx;
+		}
+
+		/**
+		 * @return true if key was not in the table
+		 */
+		boolean add(long key, int value) {
+			int idx=slot(key);
+			if (values[idx]!=0) {
+				values[idx]+=value;
+				return false;
+			}
+
+			if ((size+1)*2>keys.length) {
+				rehash();
+				idx=slot(key);
+			}
+			keys[idx]=key;
+			values[idx]=value;
+			++size;
+			return true;
+		}
+
+		private void rehash() {
+			long[] oldKeys=keys;
+			int[] oldValues=values;
+			keys=new long[oldKeys.length*2];
+			values=new int[oldKeys.length*2];
+			for (int i=0; i<oldKeys.length; i++) {
+				if (oldValues[i]!=0) {
+					int idx=slot(oldKeys[i]);
+					keys[idx]=oldKeys[i];
+					values[idx]=oldValues[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Type name -> Integer id
+	 */
+	private final Map typeIds=new HashMap();
+	private final List typeNames=new ArrayList();
+	private int[] typePackages=new int[64];
+	private boolean[] declared=new boolean[64];
+
+	/**
+	 * Package name -> Integer id
+	 */
+	private final Map packageIds=new HashMap();
+	private final List packageNames=new ArrayList();
+
+	/**
+	 * (from type id &lt;&lt; 32 | to type id) -> number of references
+	 */
+	private final LongIntMap references=new LongIntMap();
+
+	/**
+	 * @param fcn Type name
+	 * @return Type id
+	 */
+	public int typeId(String fcn) {
+		Integer ret=(Integer) typeIds.get(fcn);
+		if (ret==null) {
+			int id=typeNames.size();
+			if (id==typePackages.length) {
+				int[] newPackages=new int[id*2];
+				System.arraycopy(typePackages, 0, newPackages, 0, id);
+				typePackages=newPackages;
+				boolean[] newDeclared=new boolean[id*2];
+				System.arraycopy(declared, 0, newDeclared, 0, id);
+				declared=newDeclared;
+			}
+			typePackages[id]=packageId(getPackageName(fcn));
+			typeNames.add(fcn);
+			ret=new Integer(id);
+			typeIds.put(fcn, ret);
+		}
+		return ret.intValue();
+	}
+
+	private int packageId(String name) {
+		Integer ret=(Integer) packageIds.get(name);
+		if (ret==null) {
+			ret=new Integer(packageNames.size());
+			packageNames.add(name);
+			packageIds.put(name, ret);
+		}
+		return ret.intValue();
+	}
+
+	/**
+	 * @param fcn Type name
+	 * @return Part of the name before the last dot
+	 */
+	public static String getPackageName(String fcn) {
+		int idx=fcn.lastIndexOf('.');
+		return idx==-1 ? DEFAULT_PACKAGE : fcn.substring(0, idx);
+	}
+
+	/**
+	 * Marks type as reviewed. Coupling is reported for packages with
+	 * reviewed types.
+	 * @param fcn Type name
+	 */
+	public void declare(String fcn) {
+		declared[typeId(fcn)]=true;
+	}
+
+	/**
+	 * Counts reference, e.g. variable or parameter of type to in type from.
+	 * References of type to itself are not counted.
+	 * @param from Referencing type
+	 * @param to Referenced type
+	 */
+	public void add(String from, String to) {
+		add(typeId(from), typeId(to), 1);
+	}
+
+	private void add(int from, int to, int count) {
+		if (from!=to) {
+			references.add((long) from<<32 | to, count);
+		}
+	}
+
+	/**
+	 * Adds types and references of other matrix to this one.
+	 * @param other
+	 */
+	public void merge(CouplingMatrix other) {
+		int[] ids=new int[other.typeNames.size()];
+		for (int i=0; i<ids.length; i++) {
+			ids[i]=typeId((String) other.typeNames.get(i));
+			if (other.declared[i]) {
+				declared[ids[i]]=true;
+			}
+		}
+
+		for (int i=0; i<other.references.keys.length; i++) {
+			int count=other.references.values[i];
+			if (count!=0) {
+				long key=other.references.keys[i];
+				add(ids[(int) (key>>>32)], ids[(int) key], count);
+			}
+		}
+	}
+
+	/**
+	 * @return Number of known types, reviewed and referenced
+	 */
+	public int getTypeCount() {
+		return typeNames.size();
+	}
+
+	/**
+	 * @return Number of distinct references between types
+	 */
+	public int getReferenceCount() {
+		return references.size;
+	}
+
+	/**
+	 * @return Coupling of packages with reviewed types, ordered by name
+	 */
+	public PackageCoupling[] getPackageCoupling() {
+		int packages=packageNames.size();
+		PackageCoupling[] all=new PackageCoupling[packages];
+		for (int i=0; i<packages; i++) {
+			all[i]=new PackageCoupling((String) packageNames.get(i));
+		}
+
+		for (int i=0, types=typeNames.size(); i<types; i++) {
+			if (declared[i]) {
+				++all[typePackages[i]].classes;
+			}
+		}
+
+		LongIntMap packageReferences=new LongIntMap();
+		for (int i=0; i<references.keys.length; i++) {
+			int count=references.values[i];
+			if (count!=0) {
+				long key=references.keys[i];
+				int from=typePackages[(int) (key>>>32)];
+				int to=typePackages[(int) key];
+				if (from!=to) {
+					all[from].efferentReferences+=count;
+					all[to].afferentReferences+=count;
+					if (packageReferences.add((long) from<<32 | to, 1)) {
+						++all[from].efferent;
+						++all[to].afferent;
+					}
+				}
+			}
+		}
+
+		List ret=new ArrayList();
+		for (int i=0; i<packages; i++) {
+			if (all[i].classes>0) {
+				ret.add(all[i]);
+			}
+		}
+
+		PackageCoupling[] retArray=(PackageCoupling[]) ret.toArray(new PackageCoupling[ret.size()]);
+		Arrays.sort(retArray, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				return ((PackageCoupling) o1).name.compareTo(((PackageCoupling) o2).name);
+			}
+		});
+		return retArray;
+	}
+}
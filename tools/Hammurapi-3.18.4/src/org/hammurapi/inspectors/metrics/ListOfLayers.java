@@ -29,6 +29,7 @@ import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Vector;
 
 import org.w3c.dom.Document;
@@ -42,12 +43,12 @@ public class ListOfLayers {
 
 	private Hashtable layers = new Hashtable();
 
-	public ListOfLayers( Hashtable allCategorizedPackages){
+	public ListOfLayers( Map allCategorizedPackages){
 
 		Vector alreadyVisitedPackages = new Vector(); 
-		Enumeration enumKeys = allCategorizedPackages.keys();
-		while( enumKeys.hasMoreElements()){
-			String key = (String)enumKeys.nextElement();
+		Iterator itKeys = allCategorizedPackages.keySet().iterator();
+		while( itKeys.hasNext()){
+			String key = (String)itKeys.next();
 //!! job: not all packages are reported in Tiers
 						
 			ListOfPackageCategories lopc =  (ListOfPackageCategories)allCategorizedPackages.get(key);
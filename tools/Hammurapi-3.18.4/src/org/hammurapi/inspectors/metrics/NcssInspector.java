@@ -28,18 +28,14 @@ package org.hammurapi.inspectors.metrics;
 
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.util.Enumeration;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
-import java.util.Vector;
 
 import org.hammurapi.InspectorBase;
 import org.hammurapi.HammurapiException;
 import org.hammurapi.inspectors.metrics.reporting.LocReporter;
-import org.hammurapi.inspectors.metrics.statistics.DescriptiveStatistic;
-import org.hammurapi.inspectors.metrics.statistics.IntVector;
+import org.hammurapi.inspectors.metrics.statistics.StreamingStatistic;
 import org.hammurapi.results.AnnotationContext;
 import org.hammurapi.results.LinkedAnnotation;
 import org.w3c.dom.Document;
@@ -58,16 +54,16 @@ import com.pavelvlasov.review.SourceMarker;
 public class NcssInspector extends InspectorBase implements Parameterizable {
 
 	/**
-     * A sorted distribution list of class NCSS
+     * Distribution of class NCSS
      *
      */
-	private IntVector ncssClassList = new IntVector();
+	private StreamingStatistic ncssClassStatistic = new StreamingStatistic();
 
 	/**
-     * A sorted distribution list of function NCSS
+     * Distribution of function NCSS
      *
      */
-	private IntVector ncssFunctionList = new IntVector();
+	private StreamingStatistic ncssFunctionStatistic = new StreamingStatistic();
 
     /**
      * Stores the setting form the configuration for the maximum allowed
@@ -101,8 +97,10 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 	double functionAvg = 0.0;
 	double classAvg = 0.0;
 
-    private Vector packageCodeMetricList = new Vector();
-    private Vector functionCodeMetricList = new Vector();
+	/**
+	 * Metrics of types being visited, by FCN. Types leave the map when
+	 * they are left, so it doesn't grow with the repository.
+	 */
 	private Map types = new HashMap();
 	private Map packages = new HashMap();
 	private CodeMetric projectMetric = new CodeMetric();
@@ -142,6 +140,7 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 		typeCodeMetric.source_col= ((SourceMarker) typeDefinition).getColumn();
 
   		typeCodeMetric.setNcss ( end - start);
+  		ncssClassStatistic.add( typeCodeMetric.getNcss() );
 
 		types.put((String) typeDefinition.getFcn(), typeCodeMetric);
 
@@ -151,11 +150,6 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 		packageCodeMetric.setNcss( sum );
 
 		packageCodeMetric.setNumber( packageCodeMetric.getNumber() + 1);
-		sum = packageCodeMetric.getFunction() +typeCodeMetric.getFunction();
-		packageCodeMetric.setFunction( sum );
-
-		sum = projectMetric.getFunction() +packageCodeMetric.getFunction();
-		projectMetric.setFunction( sum );
 
 		packageCodeMetric.getChildren().add( typeCodeMetric );
 
@@ -166,6 +160,17 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 
 	}
 
+	/**
+	 * Adds functions of the type to its package, the type is complete now.
+	 */
+	public void leave(TypeDefinition typeDefinition) {
+		CodeMetric typeCodeMetric = (CodeMetric) types.remove(typeDefinition.getFcn());
+		if (typeCodeMetric != null) {
+			CodeMetric packageCodeMetric = (CodeMetric) packages.get( typeDefinition.getCompilationUnit().getPackage().getName() );
+			packageCodeMetric.setFunction( packageCodeMetric.getFunction() + typeCodeMetric.getFunction() );
+		}
+	}
+
 	public void visit(Method code) {
 		int start = code.getAst().getFirstToken().getLine();
 		int end = code.getAst().getLastToken().getLine();
@@ -187,6 +192,7 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 		} else {
 		classCodeMetric.setFunction( classCodeMetric.getFunction() +1) ;
 		classCodeMetric.getChildren().add(methodCodeMetrics);
+		ncssFunctionStatistic.add( methodCodeMetrics.getNcss() );
 		context.addMetric(code, "NCSS Method p Class Inspector", classCodeMetric.getFunction());
 		}
     	context.addMetric(code, "NCSS Method Inspector", methodCodeMetrics.getNcss());
@@ -201,46 +207,8 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 	}
 
 	private void aggregate() {
-
-
-		Iterator it=types.values().iterator();
-		while(it.hasNext()) {
-			CodeMetric classCodeMetric = (CodeMetric) it.next();
-			int last  = classCodeMetric.getName().lastIndexOf('.');
-			String packg = last==-1 ? "" : classCodeMetric.getName().substring(0,last);
-			CodeMetric packageCodeMetric = (CodeMetric)packages.get(packg);
-			int sum = packageCodeMetric.getFunction() +classCodeMetric.getFunction();
-			packageCodeMetric.setFunction ( sum );
-
-	//		this.projectMetric.function += packCm.function;
-		}
-		this.copyDeepCodeMetric();
-		functionAvg = DescriptiveStatistic.mean(ncssFunctionList);
-		classAvg =   DescriptiveStatistic.mean(ncssClassList);
-		return;
-	}
-
-
-	private void copyDeepCodeMetric() {
-
-		Enumeration enumP = projectMetric.getChildren().elements();
-		while (enumP.hasMoreElements()) {
-			CodeMetric cmP = (CodeMetric) enumP.nextElement();
-			// Classes
-			Enumeration enumC = cmP.getChildren().elements();
-			while (enumC.hasMoreElements()) {
-				CodeMetric cmC = (CodeMetric) enumC.nextElement();
-				this.packageCodeMetricList.add(cmC);
-				this.ncssClassList.addElement( cmC.getNcss() ) ;
-				// Functions
-				Enumeration enumF = cmC.getChildren().elements();
-				while (enumF.hasMoreElements()) {
-					CodeMetric cmF = (CodeMetric) enumF.nextElement();
-					this.functionCodeMetricList.add(cmF);
-					this.ncssFunctionList.addElement( cmF.getNcss() );
-				}
-			}
-		}
+		functionAvg = ncssFunctionStatistic.getMean();
+		classAvg =   ncssClassStatistic.getMean();
 	}
 
 
@@ -315,8 +283,8 @@ public class NcssInspector extends InspectorBase implements Parameterizable {
 				} //-- end class NcssInspectorRenderer
 
 				locReport = new LocReporter( context, classMaxLoc, functionMaxLoc, ncssReport, chartDebugWindow  );
-				locReport.setNcssClassList( ncssClassList );
-				locReport.setNcssFunctionList( ncssFunctionList );
+				locReport.setNcssClassStatistic( ncssClassStatistic );
+				locReport.setNcssFunctionStatistic( ncssFunctionStatistic );
 
 				locReport.doIt( projectMetric) ;
 
@@ -0,0 +1,190 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@gmail.com
+ */
+package org.hammurapi.inspectors.metrics;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.pavelvlasov.review.SourceMarker;
+
+/**
+ * Collects string variables of SQL string extractor storages and writes
+ * them to the variable table in JDBC batches. A variable which is saved
+ * several times before flush is written once with the last value. Variables
+ * which are already in the table are updated, others are inserted, so the
+ * table content is the same as with a select and an insert or update per
+ * variable.
+ * @version $Revision: 1.1 $
+ */
+class SqlExtractorBatch {
+	static final int BATCH_SIZE=500;
+
+	private static class Row {
+		final StringVariableKey key;
+		String value;
+		final String source;
+		final int line;
+		final int col;
+
+		Row(StringVariableKey key, StringVariable strVar) {
+			this.key=key;
+			this.value=strVar.varValue.toString();
+			SourceMarker sourceMarker=(SourceMarker) strVar.langElement;
+			this.source=sourceMarker.getSourceURL();
+			this.line=sourceMarker.getLine();
+			this.col=sourceMarker.getColumn();
+		}
+	}
+
+	private final String varTableName;
+	private final String insertSql;
+	private final String updateSql;
+
+	/**
+	 * StringVariableKey -> Row
+	 */
+	private final Map pending=new LinkedHashMap();
+
+	/**
+	 * Keys of flushed rows
+	 */
+	private final Set stored=new HashSet();
+
+	/**
+	 * @param varTableName Variable table
+	 */
+	SqlExtractorBatch(String varTableName) {
+		this.varTableName=varTableName;
+		insertSql="INSERT INTO "+varTableName+" (VAR_NAME, VAR_VALUE, SOURCE, LINE, COL, CLASS_NAME, CLASS_FCN) VALUES (?,?,?,?,?,?,?)";
+		updateSql="UPDATE "+varTableName+" SET VAR_VALUE=? WHERE VAR_NAME=? AND CLASS_NAME=? AND CLASS_FCN=?";
+	}
+
+	/**
+	 * @param strVar
+	 * @return true if batch is full and shall be flushed
+	 */
+	boolean add(StringVariable strVar) {
+		StringVariableKey key=new StringVariableKey(strVar);
+		Row row=(Row) pending.get(key);
+		if (row==null) {
+			pending.put(key, new Row(key, strVar));
+		} else {
+			row.value=strVar.varValue.toString();
+		}
+		return pending.size()>=BATCH_SIZE;
+	}
+
+	/**
+	 * Reads keys of variables which are already in the table, so they are
+	 * updated rather than inserted again. Shall be invoked before the first
+	 * flush if the table is not empty.
+	 * @param con Connection
+	 * @throws SQLException
+	 */
+	void loadStored(Connection con) throws SQLException {
+		Statement stmt=con.createStatement();
+		try {
+			ResultSet rs=stmt.executeQuery("SELECT VAR_NAME, CLASS_NAME, CLASS_FCN FROM "+varTableName);
+			try {
+				while (rs.next()) {
+					String name=rs.getString(1);
+					String className=rs.getString(2);
+					String classFcn=rs.getString(3);
+					if (name!=null && className!=null && classFcn!=null) {
+						stored.add(new StringVariableKey(name, className, classFcn));
+					}
+				}
+			} finally {
+				rs.close();
+			}
+		} finally {
+			stmt.close();
+		}
+	}
+
+	boolean isEmpty() {
+		return pending.isEmpty();
+	}
+
+	/**
+	 * Writes pending variables.
+	 * @param con Connection
+	 * @throws SQLException
+	 */
+	void flush(Connection con) throws SQLException {
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		PreparedStatement insert=con.prepareStatement(insertSql);
+		try {
+			PreparedStatement update=con.prepareStatement(updateSql);
+			try {
+				int inserts=0;
+				int updates=0;
+				Iterator it=pending.values().iterator();
+				while (it.hasNext()) {
+					Row row=(Row) it.next();
+					if (stored.add(row.key)) {
+						insert.setString(1, row.key.name);
+						insert.setString(2, row.value);
+						insert.setString(3, row.source);
+						insert.setInt(4, row.line);
+						insert.setInt(5, row.col);
+						insert.setString(6, row.key.className);
+						insert.setString(7, row.key.classFcn);
+						insert.addBatch();
+						++inserts;
+					} else {
+						update.setString(1, row.value);
+						update.setString(2, row.key.name);
+						update.setString(3, row.key.className);
+						update.setString(4, row.key.classFcn);
+						update.addBatch();
+						++updates;
+					}
+				}
+
+				if (inserts>0) {
+					insert.executeBatch();
+				}
+				if (updates>0) {
+					update.executeBatch();
+				}
+			} finally {
+				update.close();
+			}
+		} finally {
+			insert.close();
+		}
+		pending.clear();
+	}
+}
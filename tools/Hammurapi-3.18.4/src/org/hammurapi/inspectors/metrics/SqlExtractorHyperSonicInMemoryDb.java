@@ -9,7 +9,7 @@ package org.hammurapi.inspectors.metrics;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.sql.PreparedStatement;
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -19,12 +19,9 @@ import org.hammurapi.InspectorContext;
 import org.hammurapi.results.AnnotationContext;
 import org.hammurapi.results.AnnotationContext.FileEntry;
 
-import com.pavelvlasov.jsel.Parameter;
-import com.pavelvlasov.jsel.VariableDefinition;
 import com.pavelvlasov.persistence.CompositeStorage;
 import com.pavelvlasov.review.SourceMarker;
 import com.pavelvlasov.sql.JdbcStorage;
-import com.pavelvlasov.sql.Parameterizer;
 import com.pavelvlasov.sql.RowProcessor;
 import com.pavelvlasov.sql.SQLProcessor;
 
@@ -55,13 +52,12 @@ public class SqlExtractorHyperSonicInMemoryDb
 		
 			};
 	protected String[] destroySQL = {
-					"CREATE INDEX IX_"+sqlTableName,	
 					"DROP TABLE "+sqlTableName,
-					
-					"CREATE INDEX IX_"+varTableName,	
 					"DROP TABLE "+varTableName
 			};
 	
+	private SqlExtractorBatch batch = new SqlExtractorBatch(varTableName);
+	
 	public SqlExtractorHyperSonicInMemoryDb(InspectorContext _context)
 	throws HammurapiException {
 	super();
@@ -87,103 +83,37 @@ public class SqlExtractorHyperSonicInMemoryDb
 	}
 
 	public void saveLanguageElement(final StringVariable strVar ) {
-        System.out.println("** saveLanguageElement "+ strVar.langElement.toString() );
-        
-        
-    	final boolean[] ret={false};
-        SQLProcessor processor = getProcessor((SourceMarker) strVar.langElement);
-        if (processor != null) {
-            try {
-                 String templangElementName = "<unresolved>";
-                if(  strVar.langElement instanceof VariableDefinition) {
-                    templangElementName = ((VariableDefinition) strVar.langElement).getName();
-                } else if (  strVar.langElement instanceof Parameter ) {
-                    templangElementName = ((Parameter) strVar.langElement).getName();
-                } 
-                final String langElementName = templangElementName;
-               // System.out.println(langElementName + " :- "+ currentStringValue );
-                // check for String Only !
-                
-                //-- is entry already available?
-                processor.processSelect(
-						"SELECT 'variable', SOURCE, LINE, COL,  VAR_NAME, VAR_VALUE , CLASS_NAME, CLASS_FCN FROM "+varTableName
-						+ " WHERE VAR_NAME = ? " +
-								"AND CLASS_NAME = ?" +
-								"AND CLASS_FCN  = ?",
-								(new Parameterizer() {
-				                    public void parameterize(PreparedStatement ps)
-				                            throws SQLException {
-				                        ps.setString(1, langElementName);
-				                        ps.setString(2, strVar.className);
-				                        ps.setString(3, strVar.classFcn);
-				                    }}),
-				            new RowProcessor() {
-							public boolean process(ResultSet rs) throws SQLException {
-								try {
-								    String tmpStr = rs.getString( "VAR_NAME");
-								    // System.out.println (" KKKKKKK " + tmpStr + " --"+ currentStringValue );
-								    
-								    ret[0] =  langElementName.equals(tmpStr) ;
-								    return true;
-								} catch (Exception e) {
-									throw new HammurapiRuntimeException(e);
-								}
-							}
-						});	
-				
-                
-                //-- update entry
-                
-                if( ret[0] ){
-                    // System.out.println (" KKKKKKK UPDATE" );
-                    processor.processUpdate(
-
-                            "UPDATE " + varTableName
-                                    + " SET "
-                                    + " VAR_VALUE =  ?"
-            						+ " WHERE VAR_NAME = ? " +
-    								"AND CLASS_NAME = ?" +
-    								"AND CLASS_FCN  = ?",
-                                    
-                                     new Parameterizer() {
-                                public void parameterize(PreparedStatement ps)
-                                        throws SQLException {
-                                    ps.setString(1, strVar.varValue.toString());
-			                        ps.setString(2, langElementName);
-			                        ps.setString(3, strVar.className);
-			                        ps.setString(4, strVar.classFcn);
-                                }
-                            });
-
-                } else {
-                 //   System.out.println (" KKKKKKK INSERT" );
-                //-- insert entry
-                processor.processUpdate(
-
-                "INSERT INTO " + varTableName
-                        + " (VAR_NAME, VAR_VALUE, SOURCE, LINE, COL,  CLASS_NAME, CLASS_FCN) "
-                        + "VALUES (?,?,?,?,?,?,?)", new Parameterizer() {
-                    public void parameterize(PreparedStatement ps)
-                            throws SQLException {
-                        ps.setString(1, langElementName);
-                        ps.setString(2, strVar.varValue.toString());
-                        SourceMarker sourceMarker = (SourceMarker) strVar.langElement;
-                        ps.setString(3, sourceMarker.getSourceURL());
-                        ps.setInt(4, sourceMarker.getLine());
-                        ps.setInt(5, sourceMarker.getColumn());
-                        ps.setString(6, strVar.className);
-                        ps.setString(7, strVar.classFcn);
-                    }
-                });
-                } //fi
-            } catch (SQLException e) {
-                context.warn((SourceMarker) strVar.langElement, e);
-            }
-        }
+		if (batch.add(strVar)) {
+			flush((SourceMarker) strVar.langElement);
+		}
+	}
 
-    }
+	/**
+	 * Writes pending variables to the variable table
+	 * @param marker Source marker for warnings
+	 */
+	private void flush(SourceMarker marker) {
+		if (batch.isEmpty()) {
+			return;
+		}
+		
+		SQLProcessor processor = getProcessor(marker);
+		if (processor != null) {
+			try {
+				Connection con = processor.getConnection();
+				try {
+					batch.flush(con);
+				} finally {
+					processor.releaseConnection(con);
+				}
+			} catch (SQLException e) {
+				context.warn(marker, e);
+			}
+		}
+	}
 
     public void render(AnnotationContext context, String path) throws HammurapiException{
+    	flush(null);
     	final SQLProcessor processor=getProcessor(null);
     	
 	try {
@@ -275,11 +205,12 @@ public class SqlExtractorHyperSonicInMemoryDb
 	SQLProcessor processor=getProcessor(null);
 	if (processor==null) {
 		System.err.println("Could not obtain SQLProcessor");
+		return;
 	}
 	
 	for (int i=0; i<destroySQL.length; i++) {
 		try {
-			processor.processUpdate(initSQL[i], null);
+			processor.processUpdate(destroySQL[i], null);
 		} catch (SQLException e) {
 			System.err.println("Could not delete tables");
 			e.printStackTrace();
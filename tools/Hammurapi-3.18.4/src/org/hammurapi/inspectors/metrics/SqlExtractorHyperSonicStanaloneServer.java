@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.io.Writer;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -22,8 +21,6 @@ import org.hammurapi.InspectorContext;
 import org.hammurapi.results.AnnotationContext;
 import org.hammurapi.results.AnnotationContext.FileEntry;
 
-import com.pavelvlasov.jsel.Parameter;
-import com.pavelvlasov.jsel.VariableDefinition;
 import com.pavelvlasov.review.SourceMarker;
 import com.pavelvlasov.sql.Parameterizer;
 import com.pavelvlasov.sql.RowProcessor;
@@ -57,12 +54,11 @@ public class SqlExtractorHyperSonicStanaloneServer
 		
 			};
 	protected String[] destroySQL = {
-			"CREATE INDEX IX_"+sqlTableName,	
-			"DELETE * FROM "+sqlTableName,
-			
-			"CREATE INDEX IX_"+varTableName,	
-			"DELETE *  FROM "+varTableName
+			"DELETE FROM "+sqlTableName,
+			"DELETE FROM "+varTableName
 	};
+	
+	private SqlExtractorBatch batch = new SqlExtractorBatch(varTableName);
 	 
 	public SqlExtractorHyperSonicStanaloneServer(InspectorContext _context)
 	throws HammurapiException {
@@ -81,6 +77,7 @@ public class SqlExtractorHyperSonicStanaloneServer
 			// "sa", "");
 			c = DriverManager.getConnection("jdbc:hsqldb:hsql://localhost/job",
 					"sa", "");
+			batch.loadStored(c);
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -93,81 +90,22 @@ public class SqlExtractorHyperSonicStanaloneServer
 	 * @see org.hammurapi.inspectors.metrics.SqlExtractorPersistencyService#saveLanguageElement(org.hammurapi.inspectors.metrics.StringVariable)
 	 */
 	public void saveLanguageElement(StringVariable strVar) {
-        System.out.println("** saveLanguageElement "+ strVar.langElement.toString() );
-        
-        
-    	final boolean[] ret={false};
-            try {
-                 String templangElementName = "<unresolved>";
-                if(  strVar.langElement instanceof VariableDefinition) {
-                    templangElementName = ((VariableDefinition) strVar.langElement).getName();
-                } else if (  strVar.langElement instanceof Parameter ) {
-                    templangElementName = ((Parameter) strVar.langElement).getName();
-                } 
-                final String langElementName = templangElementName;
-               // System.out.println(langElementName + " :- "+ currentStringValue );
-                // check for String Only !
-                
-                //-- is entry already available?
-                
-                SourceMarker sourceMarker = (SourceMarker) strVar.langElement;
-                
-					String sqlQuery=
-						"SELECT 'variable', SOURCE, LINE, COL,  VAR_NAME, VAR_VALUE , CLASS_NAME, CLASS_FCN FROM "+varTableName
-						+ " WHERE VAR_NAME = '" + langElementName +"'" +
-								"AND CLASS_NAME = '" + strVar.className +"'" +
-								"AND CLASS_FCN  = '" + strVar.classFcn +"'" ;
+		if (batch.add(strVar)) {
+			flush((SourceMarker) strVar.langElement);
+		}
+	}
 
-					Statement stmt = c.createStatement();
-					ResultSet rs = stmt.executeQuery(sqlQuery); 
-					
-			   				    try {
-									String tmpStr = rs.getString( "VAR_NAME");
-									    ret[0] =  langElementName.equals(tmpStr) ;
-								} catch (Exception e1) {
-									// TODO Auto-generated catch block
-									// e1.printStackTrace();
-								}
-				
-								rs.close();
-								stmt.close();
-                //-- update entry
-                
-				stmt = c.createStatement();								
-                if( ret[0] ){
-                  sqlQuery=
-                            "UPDATE " + varTableName
-                                    + " SET "
-                                    + " VAR_VALUE =  '" + strVar.varValue.toString() +"'" 
-            						+ " WHERE VAR_NAME = '" + langElementName +"'" +
-    								"AND CLASS_NAME = '" + strVar.className +"'" +
-    								"AND CLASS_FCN  = '" +  strVar.classFcn +"'" ;
-                	stmt.executeQuery(sqlQuery); 
-					stmt.close();
-               	
-                } else {
-                 //   System.out.println (" KKKKKKK INSERT" );
-                //-- insert entry
-                	sqlQuery=
-                "INSERT INTO " + varTableName
-                        + " (VAR_NAME, VAR_VALUE, SOURCE, LINE, COL,  CLASS_NAME, CLASS_FCN) "
-                        + "VALUES ("
-                        + "'" + langElementName +"'," 
-                        + "'" + strVar.varValue.toString() +"',"                        		
-                        
-                        + "'" + sourceMarker.getSourceURL() +"',"						
-                        + "'" + sourceMarker.getLine() +"',"						
-                        + "'" + sourceMarker.getColumn() +"',"
-                        + "'" + strVar.className +"',"	
-                        + "'" + strVar.classFcn +"')"	;
-                	stmt.executeQuery(sqlQuery);        
-					stmt.close();
-                	
-                } //fi
-            } catch (SQLException e) {
-                context.warn((SourceMarker) strVar.langElement, e);
-            }
-        }
+	/**
+	 * Writes pending variables to the variable table
+	 * @param marker Source marker for warnings
+	 */
+	private void flush(SourceMarker marker) {
+		try {
+			batch.flush(c);
+		} catch (SQLException e) {
+			context.warn(marker, e);
+		}
+	}
 
 
 	/* (non-Javadoc)
@@ -175,6 +113,7 @@ public class SqlExtractorHyperSonicStanaloneServer
 	 */
 	public void render(AnnotationContext context, String path)
 			throws HammurapiException {
+		flush(null);
 		try {
 			FileEntry a = context.getNextFile(".html");
 			path=a.getPath();
@@ -243,7 +182,7 @@ public class SqlExtractorHyperSonicStanaloneServer
 		Statement stmt = c.createStatement();
 		for (int i=0; i<destroySQL.length; i++) {
 			try {
-				ResultSet rs = stmt.executeQuery(destroySQL[i]); 
+				stmt.executeUpdate(destroySQL[i]);
 				
 			} catch (SQLException e) {
 				System.err.println("Could not delete tables");
@@ -0,0 +1,221 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@gmail.com
+ */
+package org.hammurapi.inspectors.metrics;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hammurapi.HammurapiException;
+import org.hammurapi.results.AnnotationContext;
+import org.hammurapi.results.AnnotationContext.FileEntry;
+
+import com.pavelvlasov.review.SourceMarker;
+
+/**
+ * Keeps string variables of SQL string extractor in memory, without a
+ * database. Variables are stored column-wise in int arrays. Strings are
+ * deduplicated: each distinct string (variable name, value, source, class)
+ * is kept once and rows refer to it by index, so memory is proportional to
+ * the number of distinct strings rather than to the number of variables.
+ * <p>
+ * A variable saved again with the same name, class name and class FCN
+ * replaces the value of the stored one, as with database storages.
+ * @version $Revision: 1.1 $
+ */
+public class SqlExtractorMemoryStore implements SqlExtractorPersistencyService {
+	private static final int INITIAL_CAPACITY=1024;
+
+	/**
+	 * String -> Integer index in strings
+	 */
+	private Map stringIndex=new HashMap();
+	private List strings=new ArrayList();
+
+	/**
+	 * StringVariableKey -> Integer row
+	 */
+	private Map rowIndex=new HashMap();
+
+	private int rows;
+	private int[] varName=new int[INITIAL_CAPACITY];
+	private int[] varValue=new int[INITIAL_CAPACITY];
+	private int[] source=new int[INITIAL_CAPACITY];
+	private int[] line=new int[INITIAL_CAPACITY];
+	private int[] col=new int[INITIAL_CAPACITY];
+	private int[] className=new int[INITIAL_CAPACITY];
+	private int[] classFcn=new int[INITIAL_CAPACITY];
+
+	public void init() throws HammurapiException {
+		// Nothing to create
+	}
+
+	/**
+	 * @param str
+	 * @return Index of the string in the pool
+	 */
+	private int intern(String str) {
+		if (str==null) {
+			str="";
+		}
+
+		Integer idx=(Integer) stringIndex.get(str);
+		if (idx==null) {
+			idx=new Integer(strings.size());
+			strings.add(str);
+			stringIndex.put(str, idx);
+		}
+		return idx.intValue();
+	}
+
+	private String string(int idx) {
+		return (String) strings.get(idx);
+	}
+
+	public void saveLanguageElement(StringVariable strVar) {
+		StringVariableKey key=new StringVariableKey(strVar);
+		Integer row=(Integer) rowIndex.get(key);
+		if (row!=null) {
+			varValue[row.intValue()]=intern(strVar.varValue.toString());
+			return;
+		}
+
+		if (rows==varName.length) {
+			int capacity=rows*2;
+			varName=grow(varName, capacity);
+			varValue=grow(varValue, capacity);
+			source=grow(source, capacity);
+			line=grow(line, capacity);
+			col=grow(col, capacity);
+			className=grow(className, capacity);
+			classFcn=grow(classFcn, capacity);
+		}
+
+		SourceMarker sourceMarker=(SourceMarker) strVar.langElement;
+		varName[rows]=intern(key.name);
+		varValue[rows]=intern(strVar.varValue.toString());
+		source[rows]=intern(sourceMarker.getSourceURL());
+		line[rows]=sourceMarker.getLine();
+		col[rows]=sourceMarker.getColumn();
+		className[rows]=intern(key.className);
+		classFcn[rows]=intern(key.classFcn);
+		rowIndex.put(key, new Integer(rows));
+		++rows;
+	}
+
+	private static int[] grow(int[] column, int capacity) {
+		int[] ret=new int[capacity];
+		System.arraycopy(column, 0, ret, 0, column.length);
+		return ret;
+	}
+
+	/**
+	 * @return Number of stored variables
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * @return Number of distinct strings
+	 */
+	public int getStringCount() {
+		return strings.size();
+	}
+
+	/**
+	 * Renders variables ordered by source, line and column
+	 */
+	public void render(AnnotationContext context, String path) throws HammurapiException {
+		Integer[] order=new Integer[rows];
+		for (int i=0; i<rows; i++) {
+			order[i]=new Integer(i);
+		}
+
+		Arrays.sort(order, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				int r1=((Integer) o1).intValue();
+				int r2=((Integer) o2).intValue();
+				if (source[r1]!=source[r2]) {
+					int ret=string(source[r1]).compareTo(string(source[r2]));
+					if (ret!=0) {
+						return ret;
+					}
+				}
+				if (line[r1]!=line[r2]) {
+					return line[r1]<line[r2] ? -1 : 1;
+				}
+				if (col[r1]!=col[r2]) {
+					return col[r1]<col[r2] ? -1 : 1;
+				}
+				return 0;
+			}
+		});
+
+		try {
+			FileEntry a=context.getNextFile(".html");
+			path=a.getPath();
+
+			Writer w=new FileWriter(a.getFile());
+			try {
+				w.write("<HTML><BODY><TABLE border=\"1\"><TR><TH>Var Name</TH><TH>Var Value</TH><TH>File</TH><TH>Line</TH><TH>Column</TH><TH>Class</TH><TH>FCN</TH></TR>");
+				for (int i=0; i<order.length; i++) {
+					int row=order[i].intValue();
+					w.write("<TR><TD>");
+					w.write(string(varName[row]));
+					w.write("</TD><TD>");
+					w.write(string(varValue[row]));
+					w.write("</TD><TD>");
+					w.write(string(source[row]));
+					w.write("</TD><TD aligh=\"right\">");
+					w.write(String.valueOf(line[row]));
+					w.write("</TD><TD aligh=\"right\">");
+					w.write(String.valueOf(col[row]));
+					w.write("</TD><TD>");
+					w.write(string(className[row]));
+					w.write("</TD><TD>");
+					w.write(string(classFcn[row]));
+					w.write("</TD></TR>");
+				}
+				w.write("</TABLE></BODY></HTML>");
+			} finally {
+				w.close();
+			}
+		} catch (IOException e) {
+			throw new HammurapiException(e);
+		}
+	}
+
+	public void destroy() {
+		stringIndex=new HashMap();
+		strings=new ArrayList();
+		rowIndex=new HashMap();
+		rows=0;
+	}
+}
@@ -78,6 +78,8 @@ import org.hammurapi.InspectorBase;
 import org.hammurapi.results.AnnotationContext;
 import org.hammurapi.results.LinkedAnnotation;
 
+import com.pavelvlasov.config.ConfigurationException;
+import com.pavelvlasov.config.Parameterizable;
 import com.pavelvlasov.jsel.Constructor;
 import com.pavelvlasov.jsel.Interface;
 import com.pavelvlasov.jsel.JselException;
@@ -103,7 +105,7 @@ import com.pavelvlasov.jsel.statements.ForInitializer;
  * TODO To change the template for this generated type comment go to
  * Window - Preferences - Java - Code Style - Code Templates
  */
-public class SqlStringExtractor extends InspectorBase {
+public class SqlStringExtractor extends InspectorBase implements Parameterizable {
 
     //-- everything with prefix current* represents the current source
     private StringVariable currentVariable =null;
@@ -114,13 +116,37 @@ public class SqlStringExtractor extends InspectorBase {
 	
 	public SqlExtractorPersistencyService persistencyService = null;
 	
+	/**
+	 * memory (default), hypersonic (session database) or server (standalone
+	 * Hypersonic server)
+	 */
+	private String storage = "memory";
+	
 	//!! memory greed prob .. pass to DB; reinitalized in visit(TypeDef)
 	private Hashtable variableTable = new Hashtable();
 	
 	public void init() throws HammurapiException{
 		super.init();
-		// persistencyService = new SqlExtractorHyperSonicInMemoryDb(context);
-		persistencyService = new SqlExtractorHyperSonicStanaloneServer(context);
+		if ("hypersonic".equals(storage)) {
+			persistencyService = new SqlExtractorHyperSonicInMemoryDb(context);
+		} else if ("server".equals(storage)) {
+			persistencyService = new SqlExtractorHyperSonicStanaloneServer(context);
+		} else {
+			persistencyService = new SqlExtractorMemoryStore();
+		}
+	}
+	
+	public boolean setParameter(String name, Object value) throws ConfigurationException {
+		if ("storage".equals(name)) {
+			String str = value.toString();
+			if (!"memory".equals(str) && !"hypersonic".equals(str) && !"server".equals(str)) {
+				throw new ConfigurationException("Invalid storage '"+str+"', shall be memory, hypersonic or server");
+			}
+			storage = str;
+			return true;
+		} else {
+			throw new ConfigurationException("Parameter '" + name + "' is not supported");
+		}
 	}
 	
 	public void visit(TypeDefinition p){
@@ -7,6 +7,8 @@
 package org.hammurapi.inspectors.metrics;
 
 import com.pavelvlasov.jsel.LanguageElement;
+import com.pavelvlasov.jsel.Parameter;
+import com.pavelvlasov.jsel.VariableDefinition;
 
 /**
  * @author Johannes
@@ -38,6 +40,18 @@ public class StringVariable {
     public String type = "<undefined>";
 
 
+	/**
+	 * @return Name of variable or parameter, &lt;unresolved&gt; for other elements
+	 */
+	public String getLanguageElementName() {
+		if (langElement instanceof VariableDefinition) {
+			return ((VariableDefinition) langElement).getName();
+		} else if (langElement instanceof Parameter) {
+			return ((Parameter) langElement).getName();
+		}
+		return "<unresolved>";
+	}
+
 	public String toString(){
 	    return name + " <-- " + varValue;
 	}
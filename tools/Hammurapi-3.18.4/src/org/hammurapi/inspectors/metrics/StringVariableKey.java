@@ -0,0 +1,79 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@gmail.com
+ */
+package org.hammurapi.inspectors.metrics;
+
+/**
+ * Identity of a stored string variable: variable name, class name and
+ * class FCN. A variable saved again with the same identity replaces the
+ * value of the stored one.
+ * @version $Revision: 1.1 $
+ */
+class StringVariableKey {
+	final String name;
+	final String className;
+	final String classFcn;
+	private final int hash;
+
+	StringVariableKey(String name, String className, String classFcn) {
+		this.name=name;
+		this.className=className;
+		this.classFcn=classFcn;
+		this.hash=(hashCode(name)*31+hashCode(className))*31+hashCode(classFcn);
+	}
+
+	StringVariableKey(StringVariable strVar) {
+		this(strVar.getLanguageElementName(), strVar.className, strVar.classFcn);
+	}
+
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * Class name and FCN may be null, e.g. when the extractor hasn't
+	 * seen the enclosing class.
+	 */
+	private static int hashCode(String str) {
+		return str==null ? 0 : str.hashCode();
+	}
+
+	private static boolean equals(String str1, String str2) {
+		return str1==null ? str2==null : str1.equals(str2);
+	}
+
+	public boolean equals(Object obj) {
+		if (this==obj) {
+			return true;
+		}
+
+		if (!(obj instanceof StringVariableKey)) {
+			return false;
+		}
+
+		StringVariableKey other=(StringVariableKey) obj;
+		return hash==other.hash
+			&& equals(name, other.name)
+			&& equals(className, other.className)
+			&& equals(classFcn, other.classFcn);
+	}
+}
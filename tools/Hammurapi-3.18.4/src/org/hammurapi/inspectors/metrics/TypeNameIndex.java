@@ -0,0 +1,234 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@gmail.com
+ */
+package org.hammurapi.inspectors.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Variable mappings of tech stack entities compiled into a lookup table.
+ * Mappings ending with * are package prefixes and are kept in a character
+ * trie, other mappings are exact type names and are kept in a hash map.
+ * <p>
+ * Lookup returns the same matches as scanning variable mappings of tech stack
+ * entities in mapping table order: matches of the first entity with any
+ * matching mapping, in mapping order. Results are cached per type name.
+ * Instances are immutable once built and can be shared between threads.
+ * @version $Revision: 1.1 $
+ */
+public class TypeNameIndex {
+
+	/**
+	 * Variable mapping of a tech stack entity
+	 */
+	public static class Entry {
+		private final String category;
+		private final String mapping;
+		private final boolean prefix;
+		private final int entityOrder;
+		private final int mappingOrder;
+
+		Entry(String category, String mapping, boolean prefix, int entityOrder, int mappingOrder) {
+			this.category=category;
+			this.mapping=mapping;
+			this.prefix=prefix;
+			this.entityOrder=entityOrder;
+			this.mappingOrder=mappingOrder;
+		}
+
+		/**
+		 * @return Tech stack entity name
+		 */
+		public String getCategory() {
+			return category;
+		}
+
+		/**
+		 * @return Mapping as configured, e.g. java.sql.* or java.sql.Connection
+		 */
+		public String getMapping() {
+			return mapping;
+		}
+
+		/**
+		 * @return true if mapping is a package prefix
+		 */
+		public boolean isPrefix() {
+			return prefix;
+		}
+	}
+
+	private static final Entry[] NO_MATCHES=new Entry[0];
+
+	private static class Node {
+		Map children;
+
+		/**
+		 * Prefix entries which end at this node
+		 */
+		List entries;
+
+		Node child(char c, boolean create) {
+			if (children==null) {
+				if (!create) {
+					return null;
+				}
+				children=new HashMap();
+			}
+
+			Character key=new Character(c);
+			Node ret=(Node) children.get(key);
+			if (ret==null && create) {
+				ret=new Node();
+				children.put(key, ret);
+			}
+			return ret;
+		}
+	}
+
+	private final Node root=new Node();
+
+	/**
+	 * Type name -> List of entries
+	 */
+	private final Map exactMappings=new HashMap();
+
+	/**
+	 * Type name -> Entry[]
+	 */
+	private final Map cache=new ConcurrentHashMap();
+
+	private int entities;
+
+	/**
+	 * @param mappingTable Mapping table. Tech stack entities are indexed in
+	 * the order in which they are iterated.
+	 */
+	public TypeNameIndex(ArchitecturalLayerMappingTable mappingTable) {
+		Iterator it=mappingTable.values().iterator();
+		while (it.hasNext()) {
+			ArchitecturalLayerMapping alm=(ArchitecturalLayerMapping) it.next();
+			Iterator stackIt=alm.getTechStackEntityListValues().iterator();
+			while (stackIt.hasNext()) {
+				TechStackEntity tse=(TechStackEntity) stackIt.next();
+				add(tse.getName(), tse.getVariableMapping(), entities++);
+			}
+		}
+	}
+
+	private void add(String category, Vector mappings, int entityOrder) {
+		if (mappings==null) {
+			return;
+		}
+
+		for (int i=0, size=mappings.size(); i<size; i++) {
+			String mapping=(String) mappings.elementAt(i);
+			if (mapping==null || mapping.length()==0) {
+				continue;
+			}
+
+			if (mapping.endsWith("*")) {
+				Node node=root;
+				for (int j=0, l=mapping.length()-1; j<l; j++) {
+					node=node.child(mapping.charAt(j), true);
+				}
+				if (node.entries==null) {
+					node.entries=new ArrayList();
+				}
+				node.entries.add(new Entry(category, mapping, true, entityOrder, i));
+			} else {
+				List entries=(List) exactMappings.get(mapping);
+				if (entries==null) {
+					entries=new ArrayList();
+					exactMappings.put(mapping, entries);
+				}
+				entries.add(new Entry(category, mapping, false, entityOrder, i));
+			}
+		}
+	}
+
+	/**
+	 * @param typeName Fully qualified type name
+	 * @return Matching mappings of the first matching tech stack entity in
+	 * mapping order, empty array if there are no matches.
+	 */
+	public Entry[] lookup(String typeName) {
+		Entry[] ret=(Entry[]) cache.get(typeName);
+		if (ret==null) {
+			ret=match(typeName);
+			cache.put(typeName, ret);
+		}
+		return ret;
+	}
+
+	private Entry[] match(String typeName) {
+		List candidates=new ArrayList();
+		Node node=root;
+		for (int i=0, l=typeName.length(); node!=null; i++) {
+			if (node.entries!=null) {
+				candidates.addAll(node.entries);
+			}
+			node=i<l ? node.child(typeName.charAt(i), false) : null;
+		}
+
+		List exact=(List) exactMappings.get(typeName);
+		if (exact!=null) {
+			candidates.addAll(exact);
+		}
+
+		if (candidates.isEmpty()) {
+			return NO_MATCHES;
+		}
+
+		int firstEntity=Integer.MAX_VALUE;
+		for (int i=0, size=candidates.size(); i<size; i++) {
+			firstEntity=Math.min(firstEntity, ((Entry) candidates.get(i)).entityOrder);
+		}
+
+		// Candidates are few, insertion sort by mapping order
+		List ret=new ArrayList();
+		for (int i=0, size=candidates.size(); i<size; i++) {
+			Entry entry=(Entry) candidates.get(i);
+			if (entry.entityOrder==firstEntity) {
+				int pos=ret.size();
+				while (pos>0 && ((Entry) ret.get(pos-1)).mappingOrder>entry.mappingOrder) {
+					--pos;
+				}
+				ret.add(pos, entry);
+			}
+		}
+		return (Entry[]) ret.toArray(new Entry[ret.size()]);
+	}
+
+	/**
+	 * @return Number of indexed tech stack entities
+	 */
+	public int getEntityCount() {
+		return entities;
+	}
+}
@@ -0,0 +1,322 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.com
+ * e-Mail: Johannes.Bellert@ercgroup.com
+ */
+package org.hammurapi.inspectors.metrics.callertrace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Directed graph of method keys. Keys are interned to int ids, edges are
+ * kept in compressed sparse row form: successors of node n are
+ * targets[offsets[n]] .. targets[offsets[n+1]-1], sorted and without
+ * duplicates. Edge index is the position in targets array, so per-edge
+ * flags can be kept in a BitSet.
+ * <p>
+ * Edges are added first, then the graph is compiled. Adding an edge after
+ * compilation invalidates compiled form, it is rebuilt on next query.
+ * @version $Revision: 1.1 $
+ */
+public class CallGraph {
+	private Map ids=new HashMap();
+	private String[] names=new String[16];
+	private int nodeCount;
+
+	private int[] from=new int[16];
+	private int[] to=new int[16];
+	private int addedEdges;
+
+	private int[] offsets;
+	private int[] targets;
+
+	/**
+	 * Node name without hash code prefix -> int[] of node ids
+	 */
+	private Map shortNames;
+
+	/**
+	 * @param name Method key
+	 * @return Node id, node is created if it doesn't exist.
+	 */
+	public int intern(String name) {
+		Integer id=(Integer) ids.get(name);
+		if (id!=null) {
+			return id.intValue();
+		}
+
+		if (nodeCount==names.length) {
+			String[] newNames=new String[nodeCount*2];
+			System.arraycopy(names, 0, newNames, 0, nodeCount);
+			names=newNames;
+		}
+
+		names[nodeCount]=name;
+		ids.put(name, new Integer(nodeCount));
+		offsets=null;
+		shortNames=null;
+		return nodeCount++;
+	}
+
+	/**
+	 * @param name Method key
+	 * @return Node id or -1 if there is no such node
+	 */
+	public int getId(String name) {
+		Integer id=(Integer) ids.get(name);
+		return id==null ? -1 : id.intValue();
+	}
+
+	public String getName(int node) {
+		return names[node];
+	}
+
+	/**
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return nodeCount;
+	}
+
+	public void addEdge(String nodeA, String nodeB) {
+		addEdge(intern(nodeA), intern(nodeB));
+	}
+
+	public void addEdge(int nodeA, int nodeB) {
+		if (addedEdges==from.length) {
+			int[] newFrom=new int[addedEdges*2];
+			System.arraycopy(from, 0, newFrom, 0, addedEdges);
+			from=newFrom;
+			int[] newTo=new int[addedEdges*2];
+			System.arraycopy(to, 0, newTo, 0, addedEdges);
+			to=newTo;
+		}
+
+		from[addedEdges]=nodeA;
+		to[addedEdges++]=nodeB;
+		offsets=null;
+	}
+
+	/**
+	 * @return Number of distinct edges
+	 */
+	public int getEdgeCount() {
+		compile();
+		return offsets[nodeCount];
+	}
+
+	/**
+	 * @param node
+	 * @return Index of the first outgoing edge of the node
+	 */
+	public int getFirstEdge(int node) {
+		compile();
+		return offsets[node];
+	}
+
+	/**
+	 * @param node
+	 * @return Index after the last outgoing edge of the node
+	 */
+	public int getEndEdge(int node) {
+		compile();
+		return offsets[node+1];
+	}
+
+	/**
+	 * @param edge Edge index
+	 * @return Node the edge points to
+	 */
+	public int getTarget(int edge) {
+		compile();
+		return targets[edge];
+	}
+
+	/**
+	 * @param node
+	 * @return Ids of nodes the node has edges to
+	 */
+	public int[] getSuccessors(int node) {
+		compile();
+		int[] ret=new int[offsets[node+1]-offsets[node]];
+		System.arraycopy(targets, offsets[node], ret, 0, ret.length);
+		return ret;
+	}
+
+	/**
+	 * Builds compressed sparse row form from added edges.
+	 */
+	public void compile() {
+		if (offsets!=null) {
+			return;
+		}
+
+		// Counting sort by source node
+		int[] start=new int[nodeCount+1];
+		for (int i=0; i<addedEdges; i++) {
+			++start[from[i]+1];
+		}
+		for (int i=0; i<nodeCount; i++) {
+			start[i+1]+=start[i];
+		}
+
+		int[] sorted=new int[addedEdges];
+		int[] position=new int[nodeCount];
+		System.arraycopy(start, 0, position, 0, nodeCount);
+		for (int i=0; i<addedEdges; i++) {
+			sorted[position[from[i]]++]=to[i];
+		}
+
+		// Sort each row and drop duplicate edges
+		int[] newOffsets=new int[nodeCount+1];
+		int size=0;
+		for (int n=0; n<nodeCount; n++) {
+			newOffsets[n]=size;
+			Arrays.sort(sorted, start[n], start[n+1]);
+			for (int i=start[n]; i<start[n+1]; i++) {
+				if (i==start[n] || sorted[i]!=sorted[i-1]) {
+					sorted[size++]=sorted[i];
+				}
+			}
+		}
+		newOffsets[nodeCount]=size;
+
+		if (size<sorted.length) {
+			targets=new int[size];
+			System.arraycopy(sorted, 0, targets, 0, size);
+		} else {
+			targets=sorted;
+		}
+		offsets=newOffsets;
+	}
+
+	/**
+	 * @param name Method key without hash code prefix, e.g. java.sql.Connection>>close()
+	 * @return Ids of nodes which names are equal to the name after removal of hash code prefix
+	 */
+	public int[] findNodes(String name) {
+		if (shortNames==null) {
+			shortNames=new HashMap();
+		}
+
+		int[] ret=(int[]) shortNames.get(name);
+		if (ret==null) {
+			List found=new ArrayList();
+			for (int i=0; i<nodeCount; i++) {
+				if (name.equals(AdjacencyMatrix.nodeNameWithoutHashcode(names[i]))) {
+					found.add(new Integer(i));
+				}
+			}
+			ret=new int[found.size()];
+			for (int i=0; i<ret.length; i++) {
+				ret[i]=((Integer) found.get(i)).intValue();
+			}
+			shortNames.put(name, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * @param node Start node
+	 * @return Nodes reachable from the start node, including the start node.
+	 */
+	public BitSet reachableFrom(int node) {
+		BitSet ret=new BitSet(nodeCount);
+		breadthFirst(node, ret);
+		return ret;
+	}
+
+	/**
+	 * @param node Start node
+	 * @return Nodes reachable from the start node in breadth first order.
+	 */
+	public int[] breadthFirst(int node) {
+		return breadthFirst(node, new BitSet(nodeCount));
+	}
+
+	private int[] breadthFirst(int node, BitSet visited) {
+		compile();
+		int[] queue=new int[nodeCount];
+		int head=0;
+		int tail=0;
+		queue[tail++]=node;
+		visited.set(node);
+		while (head<tail) {
+			int n=queue[head++];
+			for (int e=offsets[n], end=offsets[n+1]; e<end; e++) {
+				int t=targets[e];
+				if (!visited.get(t)) {
+					visited.set(t);
+					queue[tail++]=t;
+				}
+			}
+		}
+
+		int[] ret=new int[tail];
+		System.arraycopy(queue, 0, ret, 0, tail);
+		return ret;
+	}
+
+	/**
+	 * @param node Start node
+	 * @return Nodes reachable from the start node in depth first pre-order.
+	 * Successors are visited in ascending order of their ids.
+	 */
+	public int[] depthFirst(int node) {
+		compile();
+		BitSet visited=new BitSet(nodeCount);
+		int[] ret=new int[nodeCount];
+		int count=0;
+
+		// Explicit stack of nodes and next edges to follow
+		int[] nodeStack=new int[nodeCount];
+		int[] edgeStack=new int[nodeCount];
+		int top=0;
+
+		nodeStack[0]=node;
+		edgeStack[0]=offsets[node];
+		visited.set(node);
+		ret[count++]=node;
+		while (top>=0) {
+			int n=nodeStack[top];
+			if (edgeStack[top]<offsets[n+1]) {
+				int t=targets[edgeStack[top]++];
+				if (!visited.get(t)) {
+					visited.set(t);
+					ret[count++]=t;
+					++top;
+					nodeStack[top]=t;
+					edgeStack[top]=offsets[t];
+				}
+			} else {
+				--top;
+			}
+		}
+
+		int[] order=new int[count];
+		System.arraycopy(ret, 0, order, 0, count);
+		return order;
+	}
+}
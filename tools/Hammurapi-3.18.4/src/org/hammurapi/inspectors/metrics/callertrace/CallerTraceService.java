@@ -33,7 +33,8 @@ public class CallerTraceService {
 	private MethodMap allMethodsImplementedButNotInvoked = new MethodMap();
 
 	// private AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(new DepthFirstSearch(	));
-	private AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(new BreadthSearch(	));
+	// private AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(new BreadthSearch(	));
+	private AdjacencyMatrix adjacencyMatrix = new AdjacencyMatrix(new GraphSearch());
 	private MethodMap allMethods = new MethodMap();
 	private TraceTable traceTable = new TraceTable();
 
@@ -0,0 +1,240 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.com
+ * e-Mail: Johannes.Bellert@ercgroup.com
+ */
+package org.hammurapi.inspectors.metrics.callertrace;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.Vector;
+
+/**
+ * Breadth search over {@link CallGraph} built from the adjacency matrix.
+ * Follows the rules of {@link BreadthSearch}: every edge is followed once
+ * per search, a trace forks when its last method has more than one not yet
+ * followed edge. Visited edges are kept in a BitSet instead of the matrix,
+ * so each step costs the number of successors of the method instead of the
+ * number of edges in the matrix. Unlike BreadthSearch, each matching start
+ * method gives one initial trace and duplicate edges are followed once.
+ * <p>
+ * Graph is built on the first search, after all edges are in the matrix
+ * and invokees are resolved to implementors. Call {@link #reset()} if the
+ * matrix is modified afterwards without changing its size.
+ * @version $Revision: 1.1 $
+ */
+public class GraphSearch implements SearchMethod {
+	private TraceList resultTraceList = new TraceList( "init" );
+	private AdjacencyMatrix adjacencyMatrix = null;
+	private CallGraph graph;
+	private int graphMatrixSize;
+	private BitSet visitedEdges;
+
+	/**
+	 * @return Graph of the adjacency matrix
+	 */
+	public CallGraph getGraph() {
+		if (graph==null || graphMatrixSize!=adjacencyMatrix.size()) {
+			int size=adjacencyMatrix.size();
+			String[] nodesA=new String[size];
+			String[] nodesB=new String[size];
+			int edges=0;
+			Enumeration keys=adjacencyMatrix.getAllKeys();
+			while (keys.hasMoreElements() && edges<size) {
+				Object key=keys.nextElement();
+				if (key instanceof EdgeImpl) {
+					EdgeImpl edge=(EdgeImpl) key;
+					nodesA[edges]=edge.getNodeA().toString();
+					nodesB[edges]=edge.getNodeB().toString();
+				} else {
+					nodesA[edges]=adjacencyMatrix.extractStartingNode(key);
+					nodesB[edges]=adjacencyMatrix.extractSuccessorNode(key);
+				}
+				++edges;
+			}
+
+			// Matrix enumeration order is arbitrary. Nodes are interned in
+			// name order, so successors and traces come in name order.
+			String[] names=new String[edges*2];
+			System.arraycopy(nodesA, 0, names, 0, edges);
+			System.arraycopy(nodesB, 0, names, edges, edges);
+			Arrays.sort(names);
+
+			CallGraph newGraph=new CallGraph();
+			for (int i=0; i<names.length; i++) {
+				newGraph.intern(names[i]);
+			}
+			for (int i=0; i<edges; i++) {
+				newGraph.addEdge(newGraph.getId(nodesA[i]), newGraph.getId(nodesB[i]));
+			}
+			newGraph.compile();
+			graph=newGraph;
+			graphMatrixSize=size;
+		}
+		return graph;
+	}
+
+	/**
+	 * Discards graph, it will be rebuilt from the matrix on next search.
+	 */
+	public void reset() {
+		graph=null;
+	}
+
+	/**
+	 * @param key Method key, with or without hash code prefix
+	 * @return Graph nodes matching the key
+	 */
+	private int[] findNodes(String key) {
+		if (AdjacencyMatrix.isKeyHashCode(key)) {
+			int id=graph.getId(key);
+			return id==-1 ? new int[0] : new int[] {id};
+		}
+
+		return graph.findNodes(key);
+	}
+
+	/**
+	 * Depth first traversal from the node.
+	 * @return Method keys in the order of traversal
+	 */
+	public Vector traverseFor( Object nodeA ) {
+		getGraph();
+		Vector ret=new Vector();
+		int[] nodes=findNodes(nodeA.toString());
+		BitSet seen=new BitSet(graph.size());
+		for (int i=0; i<nodes.length; i++) {
+			int[] order=graph.depthFirst(nodes[i]);
+			for (int j=0; j<order.length; j++) {
+				if (!seen.get(order[j])) {
+					seen.set(order[j]);
+					ret.add(graph.getName(order[j]));
+				}
+			}
+		}
+		return ret;
+	}
+
+	/*
+	 * 	Extract all starting point methods which fitting to key
+	 */
+	public TraceList extractTraceListForKey( String key ) {
+		getGraph();
+		setResultTraceList( new TraceList(key) );
+		visitedEdges=new BitSet(graph.getEdgeCount());
+
+		int[] startNodes=findNodes(key);
+		for (int i=0; i<startNodes.length; i++) {
+			int node=startNodes[i];
+			if (graph.getFirstEdge(node)<graph.getEndEdge(node)) {
+				Trace t = new Trace();
+				TracedMethod tm = traceMethodFactory(graph.getName(node));
+				tm.setIsKeyTrue();
+				t.add(tm);
+				resultTraceList.add(t);
+			}
+		}
+
+		// Forked traces are appended to the list and extended in turn
+		for (int i=0; i<resultTraceList.size(); i++) {
+			Trace t = resultTraceList.traceElementAt(i);
+			extendTrace(t);
+		}
+
+		return getResultTraceList();
+	}
+
+	/**
+	 * Follows not visited edges from the last method of the trace until
+	 * there are no more. Other successors fork the trace.
+	 * @param t
+	 */
+	private void extendTrace(Trace t) {
+		while (true) {
+			TracedMethod tm = t.traceElementAt(t.size() - 1);
+			if (tm.isEndpoint()) {
+				return;
+			}
+
+			int first=-1;
+			int[] nodes=findNodes(tm.toKey());
+			for (int i=0; i<nodes.length; i++) {
+				for (int e=graph.getFirstEdge(nodes[i]), end=graph.getEndEdge(nodes[i]); e<end; e++) {
+					if (!visitedEdges.get(e)) {
+						visitedEdges.set(e);
+						if (first==-1) {
+							first=graph.getTarget(e);
+						} else {
+							Trace fork = resultTraceList.cloneTraceFor( t );
+							fork.add(traceMethodFactory(graph.getName(graph.getTarget(e))));
+							resultTraceList.add(fork);
+						}
+					}
+				}
+			}
+
+			if (first==-1) {
+				tm.setEndpointTrue();
+				return;
+			}
+
+			t.add(traceMethodFactory(graph.getName(first)));
+		}
+	}
+
+	private TracedMethod traceMethodFactory(String methodName) {
+		MethodWrapper m = adjacencyMatrix.getMethodFor(methodName);
+		TracedMethod tm = new TracedMethod(m);
+		if ( m == null ) {
+			tm.setSearchKey( methodName );
+		}
+		return tm;
+	}
+
+	/**
+	 * @return Returns the adjacencyMatrix.
+	 */
+	public AdjacencyMatrix getAdjacencyMatrix() {
+		return adjacencyMatrix;
+	}
+
+	/**
+	 * @param adjacencyMatrix The adjacencyMatrix to set.
+	 */
+	public void setAdjacencyMatrix(AdjacencyMatrix adjacencyMatrix) {
+		this.adjacencyMatrix = adjacencyMatrix;
+		graph=null;
+	}
+
+	/**
+	 * @return Returns the resultTraceList.
+	 */
+	public TraceList getResultTraceList() {
+		return resultTraceList;
+	}
+
+	/**
+	 * @param resultTraceList The resultTraceList to set.
+	 */
+	public void setResultTraceList(TraceList resultTraceList) {
+		this.resultTraceList = resultTraceList;
+	}
+}
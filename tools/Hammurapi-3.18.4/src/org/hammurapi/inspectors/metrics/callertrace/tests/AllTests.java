@@ -24,6 +24,7 @@ public class AllTests {
     suite.addTest(TracedMethodLocComparatorTest.suite());
     suite.addTest(TraceCaller.suite());
 	suite.addTest(AdjacencyMatrixTest.suite());
+	suite.addTest(CallGraphTest.suite());
 
 
 
@@ -0,0 +1,135 @@
+package org.hammurapi.inspectors.metrics.callertrace.tests;
+
+import java.util.BitSet;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.hammurapi.inspectors.metrics.callertrace.AdjacencyMatrix;
+import org.hammurapi.inspectors.metrics.callertrace.CallGraph;
+import org.hammurapi.inspectors.metrics.callertrace.GraphSearch;
+import org.hammurapi.inspectors.metrics.callertrace.Trace;
+import org.hammurapi.inspectors.metrics.callertrace.TraceList;
+
+public class CallGraphTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(CallGraphTest.class);
+	}
+
+	public void testIntern() {
+		CallGraph g = new CallGraph();
+		int a = g.intern("(1)A>>a()");
+		int b = g.intern("(2)B>>b()");
+		assertEquals(a, g.intern("(1)A>>a()"));
+		assertTrue(a != b);
+		assertEquals(b, g.getId("(2)B>>b()"));
+		assertEquals(-1, g.getId("(3)C>>c()"));
+		assertEquals("(2)B>>b()", g.getName(b));
+		assertEquals(2, g.size());
+	}
+
+	public void testDuplicateEdges() {
+		CallGraph g = new CallGraph();
+		g.addEdge("1", "3");
+		g.addEdge("1", "2");
+		g.addEdge("1", "3");
+		g.addEdge("2", "1");
+
+		assertEquals(3, g.getEdgeCount());
+		int[] successors = g.getSuccessors(g.getId("1"));
+		assertEquals(2, successors.length);
+		assertEquals("3", g.getName(successors[0]));
+		assertEquals("2", g.getName(successors[1]));
+		assertEquals(0, g.getSuccessors(g.getId("3")).length);
+
+		// Edge added after compilation
+		g.addEdge("3", "1");
+		assertEquals(4, g.getEdgeCount());
+		assertEquals(1, g.getSuccessors(g.getId("3")).length);
+	}
+
+	public void testTraversal() {
+		CallGraph g = new CallGraph();
+		int n0 = g.intern("0");
+		int n1 = g.intern("1");
+		int n2 = g.intern("2");
+		int n3 = g.intern("3");
+		int n4 = g.intern("4");
+		g.addEdge(n0, n1);
+		g.addEdge(n0, n2);
+		g.addEdge(n1, n3);
+		g.addEdge(n3, n0);
+		g.addEdge(n2, n3);
+
+		int[] bfs = g.breadthFirst(n0);
+		assertEquals(4, bfs.length);
+		assertEquals(n0, bfs[0]);
+		assertEquals(n1, bfs[1]);
+		assertEquals(n2, bfs[2]);
+		assertEquals(n3, bfs[3]);
+
+		int[] dfs = g.depthFirst(n0);
+		assertEquals(4, dfs.length);
+		assertEquals(n0, dfs[0]);
+		assertEquals(n1, dfs[1]);
+		assertEquals(n3, dfs[2]);
+		assertEquals(n2, dfs[3]);
+
+		BitSet reachable = g.reachableFrom(n2);
+		assertTrue(reachable.get(n0));
+		assertTrue(reachable.get(n3));
+		assertFalse(reachable.get(n4));
+	}
+
+	public void testFindNodes() {
+		CallGraph g = new CallGraph();
+		g.addEdge("(1)A>>a()", "(2)B>>b()");
+		g.addEdge("(3)A>>a()", "(2)B>>b()");
+		assertEquals(2, g.findNodes("A>>a()").length);
+		assertEquals(1, g.findNodes("B>>b()").length);
+		assertEquals(0, g.findNodes("C>>c()").length);
+	}
+
+	public void testGraphSearch() {
+		AdjacencyMatrix a = new AdjacencyMatrix(new GraphSearch());
+		a.put("(1)A>>a()", "(2)B>>b()");
+		a.put("(1)A>>a()", "(3)C>>c()");
+		a.put("(2)B>>b()", "(4)D>>d()");
+		a.put("(5)E>>e()", "(4)D>>d()");
+
+		TraceList traces = a.getSearchMethod().extractTraceListForKey("A>>a()");
+		assertEquals(2, traces.size());
+
+		Trace t = traces.traceElementAt(0);
+		assertEquals(3, t.size());
+		assertTrue(t.traceElementAt(0).isKey());
+		assertEquals("(1)A>>a()", t.traceElementAt(0).toKey());
+		assertEquals("(2)B>>b()", t.traceElementAt(1).toKey());
+		assertEquals("(4)D>>d()", t.traceElementAt(2).toKey());
+		assertTrue(t.traceElementAt(2).isEndpoint());
+
+		t = traces.traceElementAt(1);
+		assertEquals(2, t.size());
+		assertEquals("(1)A>>a()", t.traceElementAt(0).toKey());
+		assertEquals("(3)C>>c()", t.traceElementAt(1).toKey());
+
+		// Search with hash code prefix, visit flags are reset
+		traces = a.getSearchMethod().extractTraceListForKey("(2)B>>b()");
+		assertEquals(1, traces.size());
+		assertEquals(2, traces.traceElementAt(0).size());
+
+		assertEquals(0, a.getSearchMethod().extractTraceListForKey("X>>x()").size());
+	}
+
+	public void testGraphSearchCycle() {
+		AdjacencyMatrix a = new AdjacencyMatrix(new GraphSearch());
+		a.put("(1)A>>a()", "(2)B>>b()");
+		a.put("(2)B>>b()", "(1)A>>a()");
+
+		TraceList traces = a.getSearchMethod().extractTraceListForKey("A>>a()");
+		assertEquals(1, traces.size());
+		assertEquals(3, traces.traceElementAt(0).size());
+	}
+}
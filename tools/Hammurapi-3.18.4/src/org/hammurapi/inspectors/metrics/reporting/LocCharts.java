@@ -25,8 +25,8 @@ package org.hammurapi.inspectors.metrics.reporting;
 import java.awt.Color;
 import java.awt.GradientPaint;
 
-import org.hammurapi.inspectors.metrics.statistics.DescriptiveStatistic;
 import org.hammurapi.inspectors.metrics.statistics.IntVector;
+import org.hammurapi.inspectors.metrics.statistics.StreamingStatistic;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -46,7 +46,7 @@ import org.jfree.ui.RefineryUtilities;
 //!! job variablize criteria and job Path program and for XSL
 public class LocCharts extends ApplicationFrame {
 
-	private IntVector locList = new IntVector();
+	private StreamingStatistic distribution = new StreamingStatistic();
 	IntVector distinctValues = new IntVector();
 	IntVector frequencies = new IntVector();
 	String chartName = "NA";
@@ -55,20 +55,27 @@ public class LocCharts extends ApplicationFrame {
 	private int graphicDimY = 300;
 	private Integer chartDebugWindow;
 
-	public LocCharts( String _chartName, int _defectCriteria, IntVector _locList, Integer _chartDebugWindow) {
+	public LocCharts( String _chartName, int _defectCriteria, StreamingStatistic _distribution, Integer _chartDebugWindow) {
 		//!! job: Wrong super type .
 		super(_chartName);
 		chartName = _chartName;
 
 		defectCriteria = _defectCriteria;
-		locList = _locList;
+		distribution = _distribution;
 		chartDebugWindow = _chartDebugWindow;
 	}
 
+	public LocCharts( String _chartName, int _defectCriteria, IntVector _locList, Integer _chartDebugWindow) {
+		this(_chartName, _defectCriteria, new StreamingStatistic(), _chartDebugWindow);
+		for (int i=0; i<_locList.size(); i++) {
+			distribution.add(_locList.elementAt(i));
+		}
+	}
+
 	public JFreeChart generateChart() {
 		JFreeChart chart;
 
-		new DescriptiveStatistic().frequencies(locList, distinctValues, frequencies);
+		distribution.frequencies(distinctValues, frequencies);
 		//!! job: wrong method name and tailoring
 		chart = this.copyDeepXYSeries(distinctValues, frequencies);
 		// System.out.println( distinctValues );
@@ -420,10 +427,10 @@ public class LocCharts extends ApplicationFrame {
 		return frequencies;
 	}
 	/**
-	 * @return Returns the locList.
+	 * @return Returns the distribution.
 	 */
-	public IntVector getLocList() {
-		return locList;
+	public StreamingStatistic getDistribution() {
+		return distribution;
 	}
 
 }
@@ -26,7 +26,7 @@ import java.io.FileOutputStream;
 import java.io.OutputStream;
 
 import org.hammurapi.inspectors.metrics.CodeMetric;
-import org.hammurapi.inspectors.metrics.statistics.IntVector;
+import org.hammurapi.inspectors.metrics.statistics.StreamingStatistic;
 import org.hammurapi.results.AnnotationContext;
 import org.jfree.chart.ChartUtilities;
 import org.jfree.chart.JFreeChart;
@@ -49,16 +49,16 @@ public class LocReporter {
 
 
 	/**
-     * A sorted distribution list of class NCSS
+     * Distribution of class NCSS
      *
      */
-	private IntVector ncssClassList = new IntVector();
+	private StreamingStatistic ncssClassStatistic = new StreamingStatistic();
 
 	/**
-     * A sorted distribution list of function NCSS
+     * Distribution of function NCSS
      *
      */
-	private IntVector ncssFunctionList = new IntVector();
+	private StreamingStatistic ncssFunctionStatistic = new StreamingStatistic();
 
 
 
@@ -78,13 +78,13 @@ public class LocReporter {
 		//!! job: refactor to Visitor traversing
 		//		 packages
 		if (ncssReport.intValue() > 0) {
-			LocCharts locClassCharts = new LocCharts("NCSS: Classes", classMaxLoc.intValue(), this.ncssClassList,
+			LocCharts locClassCharts = new LocCharts("NCSS: Classes", classMaxLoc.intValue(), this.ncssClassStatistic,
 					chartDebugWindow);
 			locClassCharts.setGraphicDimX(350);
 			locClassCharts.setGraphicDimY(250);
 			this.jFreeChartClasses = locClassCharts.generateChart();
 			LocCharts locFunctionCharts = new LocCharts("NCSS: Functions", functionMaxLoc.intValue(),
-					this.ncssFunctionList, chartDebugWindow);
+					this.ncssFunctionStatistic, chartDebugWindow);
 			locFunctionCharts.setGraphicDimX(350);
 			locFunctionCharts.setGraphicDimY(250);
 			this.jFreeChartFunctions = locFunctionCharts.generateChart();
@@ -118,27 +118,27 @@ public class LocReporter {
 		return jpgFunctionFileEntry;
 	}
 	/**
-	 * @return Returns the ncssClassList.
+	 * @return Returns the ncssClassStatistic.
 	 */
-	public IntVector getNcssClassList() {
-		return ncssClassList;
+	public StreamingStatistic getNcssClassStatistic() {
+		return ncssClassStatistic;
 	}
 	/**
-	 * @param ncssClassList The ncssClassList to set.
+	 * @param ncssClassStatistic The ncssClassStatistic to set.
 	 */
-	public void setNcssClassList(IntVector ncssClassList) {
-		this.ncssClassList = ncssClassList;
+	public void setNcssClassStatistic(StreamingStatistic ncssClassStatistic) {
+		this.ncssClassStatistic = ncssClassStatistic;
 	}
 	/**
-	 * @return Returns the ncssFunctionList.
+	 * @return Returns the ncssFunctionStatistic.
 	 */
-	public IntVector getNcssFunctionList() {
-		return ncssFunctionList;
+	public StreamingStatistic getNcssFunctionStatistic() {
+		return ncssFunctionStatistic;
 	}
 	/**
-	 * @param ncssFunctionList The ncssFunctionList to set.
+	 * @param ncssFunctionStatistic The ncssFunctionStatistic to set.
 	 */
-	public void setNcssFunctionList(IntVector ncssFunctionList) {
-		this.ncssFunctionList = ncssFunctionList;
+	public void setNcssFunctionStatistic(StreamingStatistic ncssFunctionStatistic) {
+		this.ncssFunctionStatistic = ncssFunctionStatistic;
 	}
 }
@@ -20,30 +20,40 @@
 
 package org.hammurapi.inspectors.metrics.statistics;
 
+import java.util.Arrays;
+
 /**
  * A very simple table that stores a list of int.
  *
- * This version is based on a "realloc" strategy -- a simle array is
- * used, and when more storage is needed, a larger array is obtained
- * and all existing data is recopied into it. As a result, read/write
- * access to existing nodes is O(1) fast but appending may be O(N**2)
- * slow. See also SuballocatedIntVector.
+ * This version is based on a "realloc" strategy -- a simple array is
+ * used, and when more storage is needed, an array twice as large (but
+ * at least one block larger) is obtained and all existing data is
+ * recopied into it. Read/write access to existing elements is O(1) and
+ * appending is amortized O(1).
+ *
+ * Vector can be a view of a range of another vector, see
+ * {@link #view(int, int)}. Both share the same array until either of
+ * them is structurally modified (its size changes), at that point the
+ * modified vector copies its elements into its own array.
  * @xsl.usage internal
  */
 public class IntVector implements Cloneable
 {
 
-  /** Size of blocks to allocate          */
+  /** Minimal number of slots added when the array grows */
   protected int m_blocksize;
 
   /** Array of ints          */
   protected int m_map[]; // IntStack is trying to see this directly
 
+  /** Index of the first int in array, not 0 for views  */
+  protected int m_offset = 0;
+
   /** Number of ints in array          */
   protected int m_firstFree = 0;
 
-  /** Size of array          */
-  protected int m_mapSize;
+  /** Array is shared with a view or with the vector of a view */
+  private boolean m_shared = false;
 
   /**
    * Default constructor.  Note that the default
@@ -51,20 +61,15 @@ public class IntVector implements Cloneable
    */
   public IntVector()
   {
-
-    m_blocksize = 32;
-    m_mapSize = m_blocksize;
-    m_map = new int[m_blocksize];
+    this(32);
   }
 
   public IntVector(int[] intarray )
   {
     m_blocksize = 32;
-    m_mapSize = m_blocksize;
-    m_map = new int[m_blocksize];
-    for( int i=0; i< intarray.length; i++){
-    	 this.addElement(intarray[i]);
-    	 }
+    m_map = new int[Math.max(m_blocksize, intarray.length)];
+    System.arraycopy(intarray, 0, m_map, 0, intarray.length);
+    m_firstFree = intarray.length;
   }
 
   /**
@@ -74,22 +79,18 @@ public class IntVector implements Cloneable
    */
   public IntVector(int blocksize)
   {
-
-    m_blocksize = blocksize;
-    m_mapSize = blocksize;
-    m_map = new int[blocksize];
+    this(blocksize, blocksize);
   }
 
   /**
    * Construct a IntVector, using the given block size.
    *
    * @param blocksize Size of block to allocate
+   * @param increaseSize Minimal number of slots added when the array grows
    */
   public IntVector(int blocksize, int increaseSize)
   {
-
-    m_blocksize = increaseSize;
-    m_mapSize = blocksize;
+    m_blocksize = Math.max(1, increaseSize);
     m_map = new int[blocksize];
   }
 
@@ -100,11 +101,22 @@ public class IntVector implements Cloneable
    */
   public IntVector(IntVector v)
   {
-  	m_map = new int[v.m_mapSize];
-    m_mapSize = v.m_mapSize;
+    m_blocksize = v.m_blocksize;
+    m_map = new int[Math.max(v.m_firstFree, m_blocksize)];
     m_firstFree = v.m_firstFree;
-  	m_blocksize = v.m_blocksize;
-  	System.arraycopy(v.m_map, 0, m_map, 0, m_firstFree);
+    System.arraycopy(v.m_map, v.m_offset, m_map, 0, m_firstFree);
+  }
+
+  /**
+   * View constructor
+   */
+  private IntVector(int map[], int offset, int size, int blocksize)
+  {
+    m_map = map;
+    m_offset = offset;
+    m_firstFree = size;
+    m_blocksize = blocksize;
+    m_shared = true;
   }
 
   /**
@@ -122,197 +134,122 @@ public class IntVector implements Cloneable
   }
 
   /**
-   * Get the length of the list.
+   * Set the length of the list. Slots added to the list are not
+   * initialized.
    *
-   * @return length of the list
+   * @param sz New length of the list
    */
   public final void setSize(int sz)
   {
+    ensureCapacity(sz);
     m_firstFree = sz;
   }
 
-
   /**
-   * Append a int onto the vector.
+   * Makes sure that the array has room for the given number of ints and
+   * is not shared with other vectors.
    *
-   * @param value Int to add to the list
+   * @param minCapacity Required capacity
    */
-  public final void addElement(int value)
+  public final void ensureCapacity(int minCapacity)
   {
 
-    if ((m_firstFree + 1) >= m_mapSize)
+    if (m_shared || (m_offset + minCapacity) > m_map.length)
     {
-      m_mapSize += m_blocksize;
+      int newSize = Math.max(minCapacity, m_firstFree + Math.max(m_firstFree, m_blocksize));
 
-      int newMap[] = new int[m_mapSize];
+      int newMap[] = new int[newSize];
 
-      System.arraycopy(m_map, 0, newMap, 0, m_firstFree + 1);
+      System.arraycopy(m_map, m_offset, newMap, 0, m_firstFree);
 
       m_map = newMap;
+      m_offset = 0;
+      m_shared = false;
     }
-
-    m_map[m_firstFree] = value;
-
-    m_firstFree++;
   }
 
   /**
-   * Append several int values onto the vector.
+   * Append a int onto the vector.
    *
    * @param value Int to add to the list
    */
-  public final void addElements(int value, int numberOfElements)
+  public final void addElement(int value)
   {
 
-    if ((m_firstFree + numberOfElements) >= m_mapSize)
+    if (m_shared || (m_offset + m_firstFree) == m_map.length)
     {
-      m_mapSize += (m_blocksize+numberOfElements);
-
-      int newMap[] = new int[m_mapSize];
-
-      System.arraycopy(m_map, 0, newMap, 0, m_firstFree + 1);
-
-      m_map = newMap;
+      ensureCapacity(m_firstFree + 1);
     }
 
-    for (int i = 0; i < numberOfElements; i++)
-    {
-      m_map[m_firstFree] = value;
-      m_firstFree++;
-    }
-  }
+    m_map[m_offset + m_firstFree] = value;
 
-  /*
-  Copyright  1999 CERN - European Organization for Nuclear Research.
-  Permission to use, copy, modify, distribute and sell this software and its documentation for any purpose
-  is hereby granted without fee, provided that the above copyright notice appear in all copies and
-  that both that copyright notice and this permission notice appear in supporting documentation.
-  CERN makes no representations about the suitability of this software for any purpose.
-  It is provided "as is" without expressed or implied warranty.
-  */
-
-  public void sort(){
-
-  	 quickSort1( this.m_map, 0, this.m_firstFree);
+    m_firstFree++;
   }
 
   /**
-   * Sorts the specified sub-array of chars into ascending order.
+   * Append several int values onto the vector.
+   *
+   * @param value Int to add to the list
+   * @param numberOfElements Number of times the value is added
    */
-  private static void quickSort1( final int x[], int off, int len) {
-	int SMALL = 7;
-	int MEDIUM = 40;
-
-	IntComparator comp = new IntComparator() {
-		public int compare(int a, int b) {
-			// return x[a]==x[b] ? 0 : (x[a]<x[b] ? -1 : 1);
-			return a==b ? 0 : (a<b ? -1 : 1);
-		}
-	};
-
-  	// Insertion sort on smallest arrays
-  	if (len < SMALL) {
-  		for (int i=off; i<len+off; i++)
-  		for (int j=i; j>off && comp.compare(x[j-1],x[j])>0; j--)
-  		    swap(x, j, j-1);
-  		return;
-  	}
+  public final void addElements(int value, int numberOfElements)
+  {
 
-  	// Choose a partition element, v
-  	int m = off + len/2;       // Small arrays, middle element
-  	if (len > SMALL) {
-  		int l = off;
-  		int n = off + len - 1;
-  		if (len > MEDIUM) {        // Big arrays, pseudomedian of 9
-  		int s = len/8;
-  		l = med3(x, l,     l+s, l+2*s, comp);
-  		m = med3(x, m-s,   m,   m+s, comp);
-  		n = med3(x, n-2*s, n-s, n, comp);
-  		}
-  		m = med3(x, l, m, n, comp); // Mid-size, med of 3
-  	}
-  	int v = x[m];
-
-  	// Establish Invariant: v* (<v)* (>v)* v*
-  	int a = off, b = a, c = off + len - 1, d = c;
-  	while(true) {
-  		int comparison;
-  		while (b <= c && (comparison=comp.compare(x[b],v))<=0) {
-  		if (comparison == 0)
-  		    swap(x, a++, b);
-  		b++;
-  		}
-  		while (c >= b && (comparison=comp.compare(x[c],v))>=0) {
-  		if (comparison == 0)
-  		    swap(x, c, d--);
-  		c--;
-  		}
-  		if (b > c)
-  		break;
-  		swap(x, b++, c--);
-  	}
+    ensureCapacity(m_firstFree + numberOfElements);
 
-  	// Swap partition elements back to middle
-  	int s, n = off + len;
-  	s = Math.min(a-off, b-a  );  vecswap(x, off, b-s, s);
-  	s = Math.min(d-c,   n-d-1);  vecswap(x, b,   n-s, s);
+    int start = m_offset + m_firstFree;
+    Arrays.fill(m_map, start, start + numberOfElements, value);
 
-  	// Recursively sort non-partition-elements
-  	if ((s = b-a) > 1)
-  		quickSort1(x, off, s);
-  	if ((s = d-c) > 1)
-  		quickSort1(x, n-s, s);
+    m_firstFree += numberOfElements;
   }
 
   /**
-   * Swaps x[a] with x[b].
+   * Append several slots onto the vector, but do not set the values.
+   *
+   * @param numberOfElements Number of slots to add
    */
-  private static void swap(int x[], int a, int b) {
-  	int t = x[a];
-  	x[a] = x[b];
-  	x[b] = t;
+  public final void addElements(int numberOfElements)
+  {
+
+    ensureCapacity(m_firstFree + numberOfElements);
+
+    m_firstFree += numberOfElements;
   }
 
   /**
-	 * Returns the index of the median of the three indexed chars.
-	 */
-	private static int med3(int x[], int a, int b, int c, IntComparator comp) {
-		int ab = comp.compare(x[a],x[b]);
-		int ac = comp.compare(x[a],x[c]);
-		int bc = comp.compare(x[b],x[c]);
-		return (ab<0 ?
-		(bc<0 ? b : ac<0 ? c : a) :
-		(bc>0 ? b : ac>0 ? c : a));
-	}
-	/**
-	 * Swaps x[a .. (a+n-1)] with x[b .. (b+n-1)].
-	 */
-	private static void vecswap(int x[], int a, int b, int n) {
-	for (int i=0; i<n; i++, a++, b++)
-	    swap(x, a, b);
-	}
-  /**
-   * Append several slots onto the vector, but do not set the values.
+   * Append a range of an array onto the vector.
    *
-   * @param value Int to add to the list
+   * @param values Array to copy ints from
+   * @param offset Index of the first int to copy
+   * @param length Number of ints to copy
    */
-  public final void addElements(int numberOfElements)
+  public final void addElements(int[] values, int offset, int length)
   {
 
-    if ((m_firstFree + numberOfElements) >= m_mapSize)
-    {
-      m_mapSize += (m_blocksize+numberOfElements);
-
-      int newMap[] = new int[m_mapSize];
+    ensureCapacity(m_firstFree + length);
 
-      System.arraycopy(m_map, 0, newMap, 0, m_firstFree + 1);
+    System.arraycopy(values, offset, m_map, m_offset + m_firstFree, length);
 
-      m_map = newMap;
-    }
+    m_firstFree += length;
+  }
 
-    m_firstFree += numberOfElements;
+  /**
+   * Append all ints of another vector onto the vector.
+   *
+   * @param v Vector to copy ints from, can be this vector
+   */
+  public final void addElements(IntVector v)
+  {
+    addElements(v.m_map, v.m_offset, v.m_firstFree);
   }
 
+  /**
+   * Sorts the vector into ascending order.
+   * Sorting a view sorts the range of the vector it shares the array with.
+   */
+  public void sort(){
+  	Arrays.sort(m_map, m_offset, m_offset + m_firstFree);
+  }
 
   /**
    * Inserts the specified node in this vector at the specified index.
@@ -326,42 +263,47 @@ public class IntVector implements Cloneable
   public final void insertElementAt(int value, int at)
   {
 
-    if ((m_firstFree + 1) >= m_mapSize)
-    {
-      m_mapSize += m_blocksize;
-
-      int newMap[] = new int[m_mapSize];
+    ensureCapacity(m_firstFree + 1);
 
-      System.arraycopy(m_map, 0, newMap, 0, m_firstFree + 1);
-
-      m_map = newMap;
-    }
-
-    if (at <= (m_firstFree - 1))
+    if (at < m_firstFree)
     {
-      System.arraycopy(m_map, at, m_map, at + 1, m_firstFree - at);
+      System.arraycopy(m_map, m_offset + at, m_map, m_offset + at + 1, m_firstFree - at);
     }
 
-    m_map[at] = value;
+    m_map[m_offset + at] = value;
 
     m_firstFree++;
   }
 
   /**
-   * Inserts the specified node in this vector at the specified index.
-   * Each component in this vector with an index greater or equal to
-   * the specified index is shifted upward to have an index one greater
-   * than the value it had previously.
+   * Removes all elements from the vector.
    */
   public final void removeAllElements()
   {
+    m_firstFree = 0;
+  }
 
-    for (int i = 0; i < m_firstFree; i++)
+  /**
+   * Removes elements in the given range. Each component in this vector
+   * with an index greater or equal to the end of the range is shifted
+   * downward by the length of the range.
+   *
+   * @param from Index of the first element to remove
+   * @param to Index after the last element to remove
+   */
+  public final void removeElements(int from, int to)
+  {
+
+    if (from < 0 || to > m_firstFree || from > to)
     {
-      m_map[i] = java.lang.Integer.MIN_VALUE;
+      throw new ArrayIndexOutOfBoundsException("Range " + from + ".." + to + " is out of 0.." + m_firstFree);
     }
 
-    m_firstFree = 0;
+    ensureCapacity(m_firstFree);
+
+    System.arraycopy(m_map, m_offset + to, m_map, m_offset + from, m_firstFree - to);
+
+    m_firstFree -= to - from;
   }
 
   /**
@@ -378,22 +320,15 @@ public class IntVector implements Cloneable
   public final boolean removeElement(int s)
   {
 
-    for (int i = 0; i < m_firstFree; i++)
+    int i = indexOf(s);
+    if (i == java.lang.Integer.MIN_VALUE)
     {
-      if (m_map[i] == s)
-      {
-        if ((i + 1) < m_firstFree)
-          System.arraycopy(m_map, i + 1, m_map, i - 1, m_firstFree - i);
-        else
-          m_map[i] = java.lang.Integer.MIN_VALUE;
-
-        m_firstFree--;
-
-        return true;
-      }
+      return false;
     }
 
-    return false;
+    removeElements(i, i + 1);
+
+    return true;
   }
 
   /**
@@ -406,13 +341,7 @@ public class IntVector implements Cloneable
    */
   public final void removeElementAt(int i)
   {
-
-    if (i > m_firstFree)
-      System.arraycopy(m_map, i + 1, m_map, i, m_firstFree);
-    else
-      m_map[i] = java.lang.Integer.MIN_VALUE;
-
-    m_firstFree--;
+    removeElements(i, i + 1);
   }
 
   /**
@@ -422,12 +351,12 @@ public class IntVector implements Cloneable
    * The index must be a value greater than or equal to 0 and less
    * than the current size of the vector.
    *
-   * @param node object to set
+   * @param value object to set
    * @param index Index of where to set the object
    */
   public final void setElementAt(int value, int index)
   {
-    m_map[index] = value;
+    m_map[m_offset + index] = value;
   }
 
   /**
@@ -439,90 +368,104 @@ public class IntVector implements Cloneable
    */
   public final int elementAt(int i)
   {
-    return m_map[i];
+    return m_map[m_offset + i];
   }
 
   /**
-   * Tell if the table contains the given node.
+   * Returns a view of the given range of this vector without copying
+   * elements. Changes of elements of either vector are visible in the other
+   * until either of them is structurally modified.
    *
-   * @param s object to look for
+   * @param from Index of the first element of the view
+   * @param to Index after the last element of the view
    *
-   * @return true if the object is in the list
+   * @return View of the range
    */
-  public final boolean contains(int s)
+  public final IntVector view(int from, int to)
   {
 
-    for (int i = 0; i < m_firstFree; i++)
+    if (from < 0 || to > m_firstFree || from > to)
     {
-      if (m_map[i] == s)
-        return true;
+      throw new ArrayIndexOutOfBoundsException("Range " + from + ".." + to + " is out of 0.." + m_firstFree);
     }
 
-    return false;
+    m_shared = true;
+
+    return new IntVector(m_map, m_offset + from, to - from, m_blocksize);
+  }
+
+  /**
+   * @return Copy of elements
+   */
+  public final int[] toArray()
+  {
+    int ret[] = new int[m_firstFree];
+    System.arraycopy(m_map, m_offset, ret, 0, m_firstFree);
+    return ret;
+  }
+
+  /**
+   * Tell if the table contains the given node.
+   *
+   * @param s object to look for
+   *
+   * @return true if the object is in the list
+   */
+  public final boolean contains(int s)
+  {
+    return indexOf(s, 0) != java.lang.Integer.MIN_VALUE;
   }
 
   /**
    * Searches for the first occurence of the given argument,
-   * beginning the search at index, and testing for equality
-   * using the equals method.
+   * beginning the search at index.
    *
    * @param elem object to look for
    * @param index Index of where to begin search
    * @return the index of the first occurrence of the object
    * argument in this vector at position index or later in the
-   * vector; returns -1 if the object is not found.
+   * vector; returns Integer.MIN_VALUE if the object is not found.
    */
   public final int indexOf(int elem, int index)
   {
 
-    for (int i = index; i < m_firstFree; i++)
+    for (int i = m_offset + index, end = m_offset + m_firstFree; i < end; i++)
     {
       if (m_map[i] == elem)
-        return i;
+        return i - m_offset;
     }
 
     return java.lang.Integer.MIN_VALUE;
   }
 
   /**
-   * Searches for the first occurence of the given argument,
-   * beginning the search at index, and testing for equality
-   * using the equals method.
+   * Searches for the first occurence of the given argument.
    *
    * @param elem object to look for
    * @return the index of the first occurrence of the object
-   * argument in this vector at position index or later in the
-   * vector; returns -1 if the object is not found.
+   * argument in this vector; returns Integer.MIN_VALUE if the object
+   * is not found.
    */
   public final int indexOf(int elem)
   {
-
-    for (int i = 0; i < m_firstFree; i++)
-    {
-      if (m_map[i] == elem)
-        return i;
-    }
-
-    return java.lang.Integer.MIN_VALUE;
+    return indexOf(elem, 0);
   }
 
   /**
-   * Searches for the first occurence of the given argument,
-   * beginning the search at index, and testing for equality
-   * using the equals method.
+   * Searches backwards for the last occurence of the given argument.
    *
    * @param elem Object to look for
-   * @return the index of the first occurrence of the object
-   * argument in this vector at position index or later in the
-   * vector; returns -1 if the object is not found.
+   * @return the index of the last occurrence of the object
+   * argument in this vector; returns Integer.MIN_VALUE if the object
+   * is not found.
    */
   public final int lastIndexOf(int elem)
   {
 
-    for (int i = (m_firstFree - 1); i >= 0; i--)
+    for (int i = m_offset + m_firstFree - 1; i >= m_offset; i--)
     {
       if (m_map[i] == elem)
-        return i;
+        return i - m_offset;
     }
 
     return java.lang.Integer.MIN_VALUE;
@@ -544,13 +487,12 @@ public class IntVector implements Cloneable
   	StringBuffer strb = new StringBuffer();
   	strb.append ( "[");
   	for ( int i= 0; i< m_firstFree; i++){
-  		strb.append ( this.elementAt(i) );
-  		if( i+1 == m_firstFree){
-  			strb.append ( "]");
-  		}else{
+  		if ( i > 0 ){
   			strb.append ( "," );
   		}
-  }
+  		strb.append ( this.elementAt(i) );
+  	}
+  	strb.append ( "]");
 
   	return strb.toString();
   	}
@@ -0,0 +1,268 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Johannes Bellert
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.pavelvlasov.com/pv/content/menu.show?id=products.jtaste
+ * e-Mail: Johannes.Bellert@ercgroup.com
+ */
+package org.hammurapi.inspectors.metrics.statistics;
+
+import java.util.Arrays;
+
+/**
+ * Descriptive statistic of an int metric which is updated one sample at a
+ * time. Keeps count, sum, min, max, running mean and variance (Welford) and
+ * a histogram of distinct values. Samples themselves are not retained, so
+ * memory depends on the number of distinct values, which is small for
+ * metrics like NCSS or cyclomatic complexity, not on the number of samples.
+ * Quantiles and frequencies are exact.
+ * <p>
+ * Instances are not thread-safe. Use one instance per review thread and
+ * {@link #merge(StreamingStatistic)} them when threads complete.
+ * @version $Revision: 1.1 $
+ */
+public class StreamingStatistic {
+	private long count;
+	private long sum;
+	private double mean;
+	private double m2;
+	private int min=Integer.MAX_VALUE;
+	private int max=Integer.MIN_VALUE;
+
+	/**
+	 * Histogram, open addressing hash of value -> frequency.
+	 * Slot is free if its frequency is 0.
+	 */
+	private int[] values=new int[16];
+	private long[] frequencies=new long[16];
+	private int distinct;
+
+	public void add(int value) {
+		add(value, 1);
+	}
+
+	/**
+	 * Adds the same value several times.
+	 * @param value
+	 * @param frequency
+	 */
+	public void add(int value, long frequency) {
+		if (frequency<=0) {
+			return;
+		}
+
+		long newCount=count+frequency;
+		double delta=value-mean;
+		mean+=delta*frequency/newCount;
+		m2+=delta*(value-mean)*frequency;
+		count=newCount;
+		sum+=(long) value*frequency;
+
+		if (value<min) {
+			min=value;
+		}
+		if (value>max) {
+			max=value;
+		}
+
+		addToHistogram(value, frequency);
+	}
+
+	/**
+	 * Adds samples of other statistic to this one.
+	 * @param other
+	 */
+	public void merge(StreamingStatistic other) {
+		if (other.count==0) {
+			return;
+		}
+
+		if (count==0) {
+			mean=other.mean;
+			m2=other.m2;
+		} else {
+			long newCount=count+other.count;
+			double delta=other.mean-mean;
+			mean+=delta*other.count/newCount;
+			m2+=other.m2+delta*delta*count*other.count/newCount;
+		}
+		count+=other.count;
+		sum+=other.sum;
+		min=Math.min(min, other.min);
+		max=Math.max(max, other.max);
+
+		for (int i=0; i<other.values.length; i++) {
+			if (other.frequencies[i]!=0) {
+				addToHistogram(other.values[i], other.frequencies[i]);
+			}
+		}
+	}
+
+	private void addToHistogram(int value, long frequency) {
+		int idx=slot(values, frequencies, value);
+		if (frequencies[idx]==0) {
+			if ((distinct+1)*2>values.length) {
+				rehash();
+				idx=slot(values, frequencies, value);
+			}
+			values[idx]=value;
+			++distinct;
+		}
+		frequencies[idx]+=frequency;
+	}
+
+	private static int slot(int[] values, long[] frequencies, int value) {
+		int mask=values.length-1;
+		int hash=value*0x9E3779B9;
+		int idx=(hash ^ hash>>>16) & mask;
+		while (frequencies[idx]!=0 && values[idx]!=value) {
+			idx=(idx+1) & mask;
+		}
+		return idx;
+	}
+
+	private void rehash() {
+		int[] newValues=new int[values.length*2];
+		long[] newFrequencies=new long[values.length*2];
+		for (int i=0; i<values.length; i++) {
+			if (frequencies[i]!=0) {
+				int idx=slot(newValues, newFrequencies, values[i]);
+				newValues[idx]=values[i];
+				newFrequencies[idx]=frequencies[i];
+			}
+		}
+		values=newValues;
+		frequencies=newFrequencies;
+	}
+
+	/**
+	 * @return Distinct values in ascending order
+	 */
+	private int[] sortedValues() {
+		int[] ret=new int[distinct];
+		int j=0;
+		for (int i=0; i<values.length; i++) {
+			if (frequencies[i]!=0) {
+				ret[j++]=values[i];
+			}
+		}
+		Arrays.sort(ret);
+		return ret;
+	}
+
+	/**
+	 * @param value
+	 * @return Number of times the value was added
+	 */
+	public long getFrequency(int value) {
+		return frequencies[slot(values, frequencies, value)];
+	}
+
+	/**
+	 * Fills distinct values in ascending order and their frequencies, like
+	 * {@link DescriptiveStatistic#frequencies(IntVector, IntVector, IntVector)}
+	 * @param distinctValues
+	 * @param frequencies Can be null
+	 */
+	public void frequencies(IntVector distinctValues, IntVector frequencies) {
+		int[] sorted=sortedValues();
+		for (int i=0; i<sorted.length; i++) {
+			distinctValues.addElement(sorted[i]);
+			if (frequencies!=null) {
+				frequencies.addElement((int) getFrequency(sorted[i]));
+			}
+		}
+	}
+
+	/**
+	 * @param quantile Between 0 and 1, e.g. 0.5 for median
+	 * @return Smallest value such that at least given share of samples are
+	 * less or equal to it, 0 if there are no samples.
+	 */
+	public int getQuantile(double quantile) {
+		if (count==0) {
+			return 0;
+		}
+
+		long rank=Math.max(1, (long) Math.ceil(quantile*count));
+		int[] sorted=sortedValues();
+		long cumulative=0;
+		for (int i=0; i<sorted.length; i++) {
+			cumulative+=getFrequency(sorted[i]);
+			if (cumulative>=rank) {
+				return sorted[i];
+			}
+		}
+		return max;
+	}
+
+	public int getMedian() {
+		return getQuantile(0.5);
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return Arithmetic mean, 0 if there are no samples
+	 */
+	public double getMean() {
+		return mean;
+	}
+
+	/**
+	 * @return Population variance, 0 if there are no samples
+	 */
+	public double getVariance() {
+		return count==0 ? 0 : m2/count;
+	}
+
+	public double getStandardDeviation() {
+		return Math.sqrt(getVariance());
+	}
+
+	/**
+	 * @return Minimum value, 0 if there are no samples
+	 */
+	public int getMin() {
+		return count==0 ? 0 : min;
+	}
+
+	/**
+	 * @return Maximum value, 0 if there are no samples
+	 */
+	public int getMax() {
+		return count==0 ? 0 : max;
+	}
+
+	/**
+	 * @return Number of distinct values
+	 */
+	public int getDistinctCount() {
+		return distinct;
+	}
+
+	public String toString() {
+		return "count="+count+", mean="+getMean()+", sd="+getStandardDeviation()+", min="+getMin()+", median="+getMedian()+", max="+getMax();
+	}
+}
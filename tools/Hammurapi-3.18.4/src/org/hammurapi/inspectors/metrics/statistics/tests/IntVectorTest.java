@@ -0,0 +1,117 @@
+package org.hammurapi.inspectors.metrics.statistics.tests;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.hammurapi.inspectors.metrics.statistics.IntVector;
+
+public class IntVectorTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(IntVectorTest.class);
+	}
+
+	public static void main(String[] strArgsArr) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	private static void assertElements(int[] expected, IntVector v) {
+		assertEquals(expected.length, v.size());
+		assertTrue(v.toString(), Arrays.equals(expected, v.toArray()));
+	}
+
+	public void testGrowth() {
+		IntVector v = new IntVector(2);
+		for (int i = 0; i < 10000; i++) {
+			v.addElement(i);
+		}
+		assertEquals(10000, v.size());
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(i, v.elementAt(i));
+		}
+	}
+
+	public void testBulkAdd() {
+		IntVector v = new IntVector(new int[] { 1, 2 });
+		v.addElements(7, 3);
+		v.addElements(new int[] { 0, 4, 5, 0 }, 1, 2);
+		v.addElements(v);
+		assertElements(new int[] { 1, 2, 7, 7, 7, 4, 5, 1, 2, 7, 7, 7, 4, 5 }, v);
+	}
+
+	public void testSort() {
+		Random random = new Random(1);
+		int[] data = new int[1000];
+		IntVector v = new IntVector();
+		for (int i = 0; i < data.length; i++) {
+			data[i] = random.nextInt(200) - 100;
+			v.addElement(data[i]);
+		}
+		v.sort();
+		Arrays.sort(data);
+		assertElements(data, v);
+	}
+
+	public void testRemove() {
+		IntVector v = new IntVector(new int[] { 1, 2, 3, 4, 5, 6 });
+		v.removeElements(1, 3);
+		assertElements(new int[] { 1, 4, 5, 6 }, v);
+		v.removeElementAt(0);
+		assertElements(new int[] { 4, 5, 6 }, v);
+		assertTrue(v.removeElement(5));
+		assertFalse(v.removeElement(5));
+		assertElements(new int[] { 4, 6 }, v);
+		v.insertElementAt(5, 1);
+		assertElements(new int[] { 4, 5, 6 }, v);
+		try {
+			v.removeElements(2, 4);
+			fail("Range out of bounds");
+		} catch (ArrayIndexOutOfBoundsException e) {
+			// Expected
+		}
+		v.removeAllElements();
+		assertTrue(v.isEmpty());
+		assertEquals("[]", v.toString());
+	}
+
+	public void testIndexOf() {
+		IntVector v = new IntVector(new int[] { 3, 1, 3 });
+		assertEquals(0, v.indexOf(3));
+		assertEquals(2, v.indexOf(3, 1));
+		assertEquals(2, v.lastIndexOf(3));
+		assertEquals(Integer.MIN_VALUE, v.indexOf(7));
+		assertTrue(v.contains(1));
+		assertFalse(v.contains(7));
+	}
+
+	public void testView() {
+		IntVector v = new IntVector(new int[] { 1, 2, 3, 4, 5, 6 });
+		IntVector view = v.view(2, 5);
+		assertElements(new int[] { 3, 4, 5 }, view);
+		assertEquals(1, view.indexOf(4));
+
+		// Element changes are shared
+		view.setElementAt(9, 0);
+		assertEquals(9, v.elementAt(2));
+		view.sort();
+		assertElements(new int[] { 1, 2, 4, 5, 9, 6 }, v);
+
+		// Structural changes of the view detach it
+		view.addElement(7);
+		assertElements(new int[] { 4, 5, 9, 7 }, view);
+		assertElements(new int[] { 1, 2, 4, 5, 9, 6 }, v);
+
+		// Structural changes of the vector detach it from its views
+		IntVector head = v.view(0, 2);
+		v.removeElements(0, 1);
+		assertElements(new int[] { 1, 2 }, head);
+		assertElements(new int[] { 2, 4, 5, 9, 6 }, v);
+
+		IntVector copy = new IntVector(v.view(1, 3));
+		assertElements(new int[] { 4, 5 }, copy);
+	}
+}
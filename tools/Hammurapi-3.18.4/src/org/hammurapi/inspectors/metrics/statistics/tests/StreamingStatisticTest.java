@@ -0,0 +1,116 @@
+package org.hammurapi.inspectors.metrics.statistics.tests;
+
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import org.hammurapi.inspectors.metrics.statistics.DescriptiveStatistic;
+import org.hammurapi.inspectors.metrics.statistics.IntVector;
+import org.hammurapi.inspectors.metrics.statistics.StreamingStatistic;
+
+public class StreamingStatisticTest extends TestCase {
+
+	public static Test suite() {
+		return new TestSuite(StreamingStatisticTest.class);
+	}
+
+	public static void main(String[] strArgsArr) throws Exception {
+		junit.textui.TestRunner.run(suite());
+	}
+
+	public void testEmpty() {
+		StreamingStatistic s = new StreamingStatistic();
+		assertEquals(0, s.getCount());
+		assertEquals(0.0, s.getMean(), 0.0);
+		assertEquals(0.0, s.getVariance(), 0.0);
+		assertEquals(0, s.getMin());
+		assertEquals(0, s.getMax());
+		assertEquals(0, s.getMedian());
+	}
+
+	public void testMeanAndVariance() {
+		int[] data = { 2, 4, 4, 4, 5, 5, 7, 9 };
+		StreamingStatistic s = new StreamingStatistic();
+		for (int i = 0; i < data.length; i++) {
+			s.add(data[i]);
+		}
+		assertEquals(8, s.getCount());
+		assertEquals(40, s.getSum());
+		assertEquals(5.0, s.getMean(), 1e-9);
+		assertEquals(4.0, s.getVariance(), 1e-9);
+		assertEquals(2.0, s.getStandardDeviation(), 1e-9);
+		assertEquals(2, s.getMin());
+		assertEquals(9, s.getMax());
+		assertEquals(5, s.getDistinctCount());
+		assertEquals(3, s.getFrequency(4));
+		assertEquals(0, s.getFrequency(3));
+	}
+
+	public void testQuantile() {
+		StreamingStatistic s = new StreamingStatistic();
+		for (int i = 100; i >= 1; i--) {
+			s.add(i);
+		}
+		assertEquals(50, s.getMedian());
+		assertEquals(90, s.getQuantile(0.9));
+		assertEquals(1, s.getQuantile(0));
+		assertEquals(100, s.getQuantile(1));
+	}
+
+	public void testMerge() {
+		Random random = new Random(1);
+		StreamingStatistic all = new StreamingStatistic();
+		StreamingStatistic a = new StreamingStatistic();
+		StreamingStatistic b = new StreamingStatistic();
+		for (int i = 0; i < 10000; i++) {
+			int value = random.nextInt(500) - 100;
+			all.add(value);
+			(i % 3 == 0 ? a : b).add(value);
+		}
+		a.merge(b);
+		a.merge(new StreamingStatistic());
+
+		assertEquals(all.getCount(), a.getCount());
+		assertEquals(all.getSum(), a.getSum());
+		assertEquals(all.getMean(), a.getMean(), 1e-9);
+		assertEquals(all.getVariance(), a.getVariance(), 1e-6);
+		assertEquals(all.getMin(), a.getMin());
+		assertEquals(all.getMax(), a.getMax());
+		assertEquals(all.getDistinctCount(), a.getDistinctCount());
+		assertEquals(all.getMedian(), a.getMedian());
+		assertEquals(all.getFrequency(42), a.getFrequency(42));
+	}
+
+	public void testFrequencies() {
+		IntVector sortedData = new IntVector();
+		StreamingStatistic s = new StreamingStatistic();
+		int[] data = { 7, 1, 3, 5, 1, 3, 1, 5 };
+		for (int i = 0; i < data.length; i++) {
+			s.add(data[i]);
+		}
+		sortedData.addElement(1);
+		sortedData.addElement(1);
+		sortedData.addElement(1);
+		sortedData.addElement(3);
+		sortedData.addElement(3);
+		sortedData.addElement(5);
+		sortedData.addElement(5);
+		sortedData.addElement(7);
+
+		IntVector expectedValues = new IntVector();
+		IntVector expectedFrequencies = new IntVector();
+		new DescriptiveStatistic().frequencies(sortedData, expectedValues, expectedFrequencies);
+
+		IntVector distinctValues = new IntVector();
+		IntVector frequencies = new IntVector();
+		s.frequencies(distinctValues, frequencies);
+
+		assertEquals(expectedValues.size(), distinctValues.size());
+		for (int i = 0; i < expectedValues.size(); i++) {
+			assertEquals(expectedValues.elementAt(i), distinctValues.elementAt(i));
+			assertEquals(expectedFrequencies.elementAt(i), frequencies.elementAt(i));
+		}
+	}
+}
@@ -56,9 +56,7 @@ import org.hammurapi.results.InspectorSummary;
 import org.hammurapi.results.persistent.jdbc.sql.AggregatedResultsInspectorViolations;
 import org.hammurapi.results.persistent.jdbc.sql.AggregatedResultsMetric;
 import org.hammurapi.results.persistent.jdbc.sql.AggregatedResultsMetricMeasurement;
-import org.hammurapi.results.persistent.jdbc.sql.MeasurementImpl;
 import org.hammurapi.results.persistent.jdbc.sql.ResultsEngine;
-import org.hammurapi.results.persistent.jdbc.sql.ViolationImpl;
 import org.hammurapi.results.persistent.jdbc.sql.ViolationJoined;
 
 import com.pavelvlasov.config.ConfigurationException;
@@ -137,7 +135,7 @@ public class AggregatedResults extends BasicResults implements org.hammurapi.res
     public Waiver addViolation(final Violation violation) throws HammurapiException {
 		final Waiver ret = waiverSet==null ? null : waiverSet.requestWaiver(violation, false);		
 		try {
-    		ResultsEngine resultsEngine = factory.getResultsEngine();
+    		ResultsEngine resultsEngine = factory.getUpdateEngine();
 	    	if (ret==null) {
 	    		severitySummary=null;
 	    		InspectorDescriptor descriptor = insertViolation(violation, VIOLATION, null);
@@ -168,7 +166,7 @@ public class AggregatedResults extends BasicResults implements org.hammurapi.res
     }
     
     protected interface ViolationConfigurator {
-    	void setViolationInfo(org.hammurapi.results.persistent.jdbc.sql.Violation sqlViolation) throws SQLException;
+    	void setViolationInfo(WriteBehindBuffer.ViolationRow row) throws SQLException;
     }
     
 	protected InspectorDescriptor insertViolation(final Violation violation, byte type, ViolationConfigurator configurator) {
@@ -176,40 +174,41 @@ public class AggregatedResults extends BasicResults implements org.hammurapi.res
 		try {
 			maybeInsertInspector(descriptor);
 			
-			ViolationImpl sqlViolation=new ViolationImpl(true);
-			sqlViolation.setId(factory.getSQLProcessor().nextPK("PRIMARY_KEY", "VIOLATION"));
-			sqlViolation.setViolationType(type);
+			WriteBehindBuffer buffer=factory.getWriteBehindBuffer();
+			WriteBehindBuffer.ViolationRow row=new WriteBehindBuffer.ViolationRow();
+			row.id=buffer.nextPK("VIOLATION");
+			row.violationType=type;
 
-			sqlViolation.setResultId(getId());
-			sqlViolation.setReportId(factory.getReportId());
+			row.resultId=getId();
+			row.reportId=factory.getReportId();
 			if (descriptor!=null) {
-				sqlViolation.setInspector(descriptor.getName()); // INSPECTOR
+				row.inspector=descriptor.getName(); // INSPECTOR
 			}
 			
 			String message = violation.getMessage();
 			if (message!=null) {
-				sqlViolation.setMessageId(new Integer(factory.addMessage(message))); // MESSAGE
+				row.messageId=new Integer(factory.addMessage(message)); // MESSAGE
 			}
 			
 			SourceMarker source = violation.getSource();
 			if (source!=null) {
-				sqlViolation.setSourceId(source.getSourceId()); // SOURCE
-				sqlViolation.setLine(source.getLine()); // LINE
-				sqlViolation.setCol(source.getColumn()); // COL
+				row.sourceId=source.getSourceId(); // SOURCE
+				row.line=source.getLine(); // LINE
+				row.col=source.getColumn(); // COL
 			
 				if (source instanceof Signed) {
 					 String signature = ((Signed) source).getSignature();
 					 if (signature!=null && signature.startsWith(source.getSourceURL())) {
-					 	sqlViolation.setSignaturePostfix(signature.substring(source.getSourceURL().length())); // SOURCE_SIGNATURE
+					 	row.signaturePostfix=signature.substring(source.getSourceURL().length()); // SOURCE_SIGNATURE
 					 }
 				}
 			}
 			
 			if (configurator!=null) {
-				configurator.setViolationInfo(sqlViolation);
+				configurator.setViolationInfo(row);
 			}
 			
-			factory.getResultsEngine().insertViolation(sqlViolation);
+			buffer.add(row);
 		} catch (SQLException e1) {
 			throw new HammurapiRuntimeException(e1);
 		}
@@ -244,7 +243,7 @@ public class AggregatedResults extends BasicResults implements org.hammurapi.res
     
     public void addMetric(final SourceMarker source, final String name, final double value) {
     	try {
-        	ResultsEngine engine = factory.getResultsEngine();
+        	ResultsEngine engine = factory.getUpdateEngine();
         	MetricEntry metricEntry = new MetricEntry(getId(), name);
 			if (!metricIds.contains(metricEntry)) {
         		org.hammurapi.results.persistent.jdbc.sql.Metric dbMetric = engine.getMetric(getId(), name);
@@ -254,17 +253,18 @@ public class AggregatedResults extends BasicResults implements org.hammurapi.res
         		metricIds.add(metricEntry);
         	}
         	
-        	MeasurementImpl measurement = new MeasurementImpl(true);
-			measurement.setId(factory.getSQLProcessor().nextPK("PRIMARY_KEY", "MEASUREMENT"));
+        	WriteBehindBuffer buffer=factory.getWriteBehindBuffer();
+        	WriteBehindBuffer.MeasurementRow measurement=new WriteBehindBuffer.MeasurementRow();
+			measurement.id=buffer.nextPK("MEASUREMENT");
         	if (source!=null) {
-        		measurement.setCol(source.getColumn());
-        		measurement.setLine(source.getLine());
-        		measurement.setSource(source.getSourceURL());
+        		measurement.col=source.getColumn();
+        		measurement.line=source.getLine();
+        		measurement.source=source.getSourceURL();
         	}
-    		measurement.setResultId(getId());
-    		measurement.setMeasurementValue(value);
-    		measurement.setName(name);
-    		engine.insertMeasurement(measurement);
+    		measurement.resultId=getId();
+    		measurement.value=value;
+    		measurement.name=name;
+    		buffer.add(measurement);
     		
     		metrics=null;
     	} catch (SQLException e) {
@@ -520,7 +520,7 @@ public class AggregatedResults extends BasicResults implements org.hammurapi.res
 	 * @throws SQLException
 	 */
 	protected void maybeInsertInspector(final InspectorDescriptor descriptor) throws SQLException {
-		if (descriptor!=null) {
+		if (descriptor!=null && factory.markInspectorInserted(descriptor.getName())) {
 			factory.getSQLProcessor().processSelect(
 					"SELECT * FROM INSPECTOR WHERE REPORT_ID=? AND NAME=?",
 					new Parameterizer() {
@@ -68,15 +68,15 @@ public class DetailedResults extends NamedResults implements org.hammurapi.resul
     				violation, 
 					WAIVED_VIOLATION, 
 					new ViolationConfigurator() {
-						public void setViolationInfo(org.hammurapi.results.persistent.jdbc.sql.Violation sqlViolation) {							
+						public void setViolationInfo(WriteBehindBuffer.ViolationRow row) {							
 							String reason = waiver.getReason();
 							if (reason!=null) {
-								sqlViolation.setWaiverReason(new Integer(factory.addMessage(reason)));
+								row.waiverReason=new Integer(factory.addMessage(reason));
 							}
 							
 							Date expirationDate = waiver.getExpirationDate();
 							if (expirationDate!=null) {
-								sqlViolation.setWaiverExpires(new java.sql.Date(expirationDate.getTime()));
+								row.waiverExpires=new java.sql.Date(expirationDate.getTime());
 							}
 						}
     		});
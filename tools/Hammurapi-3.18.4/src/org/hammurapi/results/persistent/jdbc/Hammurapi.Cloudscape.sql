@@ -25,8 +25,12 @@ CREATE TABLE RESULT (
      , COMMITED SMALLINT DEFAULT 0 NOT NULL
      , COMPILATION_UNIT INTEGER
      , IS_NEW SMALLINT DEFAULT 0 NOT NULL
+     , PACKAGE_NAME VARCHAR(250)
+     , CU_SIZE BIGINT
+     , CU_CHECKSUM BIGINT
      , PRIMARY KEY (ID)
 );
+CREATE INDEX IX_RESULT_NAME_SIZE_CHECKSUM ON RESULT (NAME, PACKAGE_NAME, CU_SIZE, CU_CHECKSUM);
 
 CREATE TABLE METRIC (
        RESULT_ID INTEGER DEFAULT 0 NOT NULL
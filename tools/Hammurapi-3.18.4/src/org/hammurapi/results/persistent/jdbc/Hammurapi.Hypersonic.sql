@@ -21,8 +21,12 @@ CREATE CACHED TABLE RESULT (
      , COMMITED BIT DEFAULT '0' NOT NULL
      , COMPILATION_UNIT INTEGER
      , IS_NEW BIT DEFAULT 'false' NOT NULL
+     , PACKAGE_NAME VARCHAR(250)
+     , CU_SIZE BIGINT
+     , CU_CHECKSUM BIGINT
      , PRIMARY KEY (ID)
 );
+CREATE INDEX "IX_RESULT_SQLC$E_NAME_SIZE_CHECKSUM" ON RESULT (NAME, PACKAGE_NAME, CU_SIZE, CU_CHECKSUM);
 
 CREATE CACHED TABLE METRIC (
        RESULT_ID INTEGER DEFAULT '0' NOT NULL
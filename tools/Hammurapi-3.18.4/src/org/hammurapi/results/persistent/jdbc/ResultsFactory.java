@@ -33,6 +33,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Set;
 
@@ -169,14 +170,57 @@ public class ResultsFactory extends org.hammurapi.results.ResultsFactory {
 	private Number baseLineId;
 	private String name;
 	
+	/**
+	 * Results engine for queries. Buffered rows are inserted first, so
+	 * queries see all results added so far.
+	 */
 	ResultsEngine getResultsEngine() {
+		try {
+			writeBehindBuffer.flush();
+		} catch (SQLException e) {
+			throw new HammurapiRuntimeException(e);
+		}
+		return getUpdateEngine();
+	}
+	
+	/**
+	 * Results engine for updates which don't depend on buffered rows.
+	 */
+	ResultsEngine getUpdateEngine() {
 		if (resultsEngine==null) {
 			resultsEngine=new ResultsEngine(getSQLProcessor());
 		}
 		return resultsEngine;
 	}
 	
+	private WriteBehindBuffer writeBehindBuffer=new WriteBehindBuffer(this);
+	
+	WriteBehindBuffer getWriteBehindBuffer() {
+		return writeBehindBuffer;
+	}
+	
+	private Set insertedInspectors=new HashSet();
+	
+	/**
+	 * @param name
+	 * @return true if inspector was not marked as inserted into INSPECTOR table before.
+	 */
+	synchronized boolean markInspectorInserted(String name) {
+		return insertedInspectors.add(name);
+	}
+	
 	int nextPK(final String keyName) throws SQLException {
+		return nextPK(keyName, 1);
+	}
+	
+	/**
+	 * Reserves a block of primary keys.
+	 * @param keyName
+	 * @param count Number of keys to reserve
+	 * @return First key of the block
+	 * @throws SQLException
+	 */
+	int nextPK(final String keyName, final int count) throws SQLException {
 		Connection con=sqlProcessor.getConnection();
 		try {
 			boolean ac=con.getAutoCommit();
@@ -196,12 +240,12 @@ public class ResultsFactory extends org.hammurapi.results.ResultsFactory {
 						new RowProcessorEx() {
 							public boolean process(ResultSet resultSet) throws SQLException {
 								value[0]=resultSet.getInt("KEY_VALUE")+1;
-								sqlProcessor.processUpdate("UPDATE PRIMARY_KEY SET KEY_VALUE=KEY_VALUE+1 WHERE KEY_NAME=?", parameterizer);
+								sqlProcessor.processUpdate("UPDATE PRIMARY_KEY SET KEY_VALUE=KEY_VALUE+"+count+" WHERE KEY_NAME=?", parameterizer);
 								return false;
 							}
 
 							public void onEmptyResultSet() throws SQLException {
-								sqlProcessor.processUpdate("INSERT INTO PRIMARY_KEY (KEY_NAME, KEY_VALUE) VALUES (?, 0)", parameterizer);
+								sqlProcessor.processUpdate("INSERT INTO PRIMARY_KEY (KEY_NAME, KEY_VALUE) VALUES (?, "+(count-1)+")", parameterizer);
 							}							
 						});
 				
@@ -223,6 +267,7 @@ public class ResultsFactory extends org.hammurapi.results.ResultsFactory {
 		this.storage=config.getStorage();
 		this.name=config.getName();
 		
+		upgradeSchema();
 		reportId=nextPK("REPORT");
 		Report report=new ReportImpl(true);
 		report.setId(reportId);
@@ -241,6 +286,52 @@ public class ResultsFactory extends org.hammurapi.results.ResultsFactory {
 		}
 	}
 	
+	private static final String CHECKSUM_INDEX="IX_RESULT_SQLC$E_NAME_SIZE_CHECKSUM";
+	
+	/**
+	 * Adds checksum columns and their index to RESULT table of databases 
+	 * created by previous versions.
+	 */
+	private void upgradeSchema() throws SQLException {
+		try {
+			sqlProcessor.processSelect(
+					"SELECT CU_CHECKSUM FROM RESULT WHERE ID=-1", 
+					null, 
+					new RowProcessor() {
+						public boolean process(ResultSet rs) {
+							return false;
+						}
+					});
+		} catch (SQLException e) {
+			sqlProcessor.processUpdate("ALTER TABLE RESULT ADD COLUMN PACKAGE_NAME VARCHAR(250)", null);
+			sqlProcessor.processUpdate("ALTER TABLE RESULT ADD COLUMN CU_SIZE BIGINT", null);
+			sqlProcessor.processUpdate("ALTER TABLE RESULT ADD COLUMN CU_CHECKSUM BIGINT", null);
+		}
+		
+		if (!hasIndex("RESULT", CHECKSUM_INDEX)) {
+			sqlProcessor.processUpdate("CREATE INDEX \""+CHECKSUM_INDEX+"\" ON RESULT (NAME, PACKAGE_NAME, CU_SIZE, CU_CHECKSUM)", null);
+		}
+	}
+	
+	private boolean hasIndex(String table, String index) throws SQLException {
+		Connection con=sqlProcessor.getConnection();
+		try {
+			ResultSet rs=con.getMetaData().getIndexInfo(null, null, table, false, true);
+			try {
+				while (rs.next()) {
+					if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+						return true;
+					}
+				}
+				return false;
+			} finally {
+				rs.close();
+			}
+		} finally {
+			sqlProcessor.releaseConnection(con);
+		}
+	}
+	
 	public void setSummary(final org.hammurapi.results.AggregatedResults results) {
 		try {
 			AggregatedResults aggregatedResults = unWrap(results);
@@ -328,16 +419,63 @@ public class ResultsFactory extends org.hammurapi.results.ResultsFactory {
 		return repository.getCompilationUnit(id);
 	}
 
+	/**
+	 * Finds results of previous review of compilation unit. Units are matched
+	 * by source id first. If repository was rebuilt and source got a new id,
+	 * unit is matched by name, package, size and checksum, and result
+	 * is re-attached to the new source id. 
+	 */
 	public org.hammurapi.results.ReviewResults findReviewResults(final CompilationUnit cu) {
-    	try {
-        	final ReviewResults[] ret={null};
-	    	getSQLProcessor().processSelect(
-	    			"SELECT ID, TYPE FROM RESULT WHERE COMPILATION_UNIT=? AND COMMITED=1",
+		final int cuId=cu.getSourceId().intValue();
+		ReviewResults ret=findReviewResults(
+				"SELECT ID, TYPE FROM RESULT WHERE COMPILATION_UNIT=? AND COMMITED=1",
+				new Parameterizer() {
+					public void parameterize(PreparedStatement ps) throws SQLException {
+						ps.setInt(1, cuId);
+					}
+    			});
+		
+		if (ret==null) {
+			final String packageName=cu.getPackage().getName();
+			final long size=cu.getSize();
+			final long checkSum=cu.getCheckSum();
+			ret=findReviewResults(
+					"SELECT ID, TYPE FROM RESULT WHERE NAME=? AND PACKAGE_NAME=? AND CU_SIZE=? AND CU_CHECKSUM=? AND COMMITED=1 ORDER BY ID DESC",
 					new Parameterizer() {
 						public void parameterize(PreparedStatement ps) throws SQLException {
-							ps.setInt(1, cu.getSourceId().intValue());
+							ps.setString(1, cu.getName());
+							ps.setString(2, packageName);
+							ps.setLong(3, size);
+							ps.setLong(4, checkSum);
 						}
-	    			},
+	    			});
+			
+			if (ret!=null) {
+				final int resultId=ret.getId();
+				try {
+					sqlProcessor.processUpdate(
+							"UPDATE RESULT SET COMPILATION_UNIT=? WHERE ID=?",
+							new Parameterizer() {
+								public void parameterize(PreparedStatement ps) throws SQLException {
+									ps.setInt(1, cuId);
+									ps.setInt(2, resultId);
+								}											
+							});
+				} catch (SQLException e) {
+					throw new HammurapiRuntimeException(e);
+				}
+			}
+		}
+		
+		return ret;
+	}
+	
+	private ReviewResults findReviewResults(String sql, Parameterizer parameterizer) {
+    	try {
+        	final ReviewResults[] ret={null};
+	    	getSQLProcessor().processSelect(
+	    			sql,
+					parameterizer,
 					new RowProcessor() {
 						public boolean process(final ResultSet rs) {
 							try {
@@ -528,6 +666,12 @@ public class ResultsFactory extends org.hammurapi.results.ResultsFactory {
 		}
 		
 		joined=true;
+		
+		try {
+			writeBehindBuffer.flush();
+		} catch (SQLException e) {
+			throw new HammurapiException(e);
+		}
 	}
 	
 	String getName() {
@@ -47,12 +47,18 @@ public class ReviewResults extends DetailedResults implements org.hammurapi.resu
 	ReviewResults(CompilationUnit cu, WaiverSet waiverSet, ResultsFactory factory) throws SQLException {
 		super(cu.getName(), waiverSet, factory);
 		final int cuId = cu.getSourceId().intValue();
+		final String packageName = cu.getPackage().getName();
+		final long size = cu.getSize();
+		final long checkSum = cu.getCheckSum();
 		factory.getSQLProcessor().processUpdate(
-				"UPDATE RESULT SET COMPILATION_UNIT=?, IS_NEW=1 WHERE ID=?",
+				"UPDATE RESULT SET COMPILATION_UNIT=?, IS_NEW=1, PACKAGE_NAME=?, CU_SIZE=?, CU_CHECKSUM=? WHERE ID=?",
 				new Parameterizer() {
 					public void parameterize(PreparedStatement ps) throws SQLException {
 						ps.setInt(1, cuId);
-						ps.setInt(2, getId());
+						ps.setString(2, packageName);
+						ps.setLong(3, size);
+						ps.setLong(4, checkSum);
+						ps.setInt(5, getId());
 					}
 				});
 	}
@@ -0,0 +1,207 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.results.persistent.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects VIOLATION and MEASUREMENT rows and inserts them in JDBC batches.
+ * Rows are flushed when the buffer is full, when results are committed and
+ * before results are queried, so queries see the same data as with
+ * immediate inserts. Primary keys are reserved in blocks.
+ * @version $Revision: 1.1 $
+ */
+class WriteBehindBuffer {
+	static final int BATCH_SIZE=500;
+
+	private static final String INSERT_VIOLATION=
+		"INSERT INTO VIOLATION (ID, RESULT_ID, REPORT_ID, INSPECTOR, MESSAGE_ID, SOURCE_ID, LINE, COL, " +
+		"SIGNATURE_POSTFIX, WAIVER_REASON, WAIVER_EXPIRES, VIOLATION_TYPE) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String INSERT_MEASUREMENT=
+		"INSERT INTO MEASUREMENT (ID, RESULT_ID, NAME, MEASUREMENT_VALUE, SOURCE, LINE, COL) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * VIOLATION row.
+	 */
+	static class ViolationRow {
+		int id;
+		int resultId;
+		int reportId;
+		String inspector;
+		Integer messageId;
+		Integer sourceId;
+		int line;
+		int col;
+		String signaturePostfix;
+		Integer waiverReason;
+		java.sql.Date waiverExpires;
+		byte violationType;
+	}
+
+	/**
+	 * MEASUREMENT row.
+	 */
+	static class MeasurementRow {
+		int id;
+		int resultId;
+		String name;
+		double value;
+		String source;
+		int line;
+		int col;
+	}
+
+	private static class KeyBlock {
+		int next;
+		int last;
+	}
+
+	private ResultsFactory factory;
+	private List violations=new ArrayList();
+	private List measurements=new ArrayList();
+	private Map keyBlocks=new HashMap();
+
+	WriteBehindBuffer(ResultsFactory factory) {
+		this.factory=factory;
+	}
+
+	/**
+	 * @param keyName
+	 * @return Next primary key, taken from a block reserved in PRIMARY_KEY table.
+	 * @throws SQLException
+	 */
+	synchronized int nextPK(String keyName) throws SQLException {
+		KeyBlock block=(KeyBlock) keyBlocks.get(keyName);
+		if (block==null) {
+			block=new KeyBlock();
+			keyBlocks.put(keyName, block);
+		}
+
+		if (block.next>block.last) {
+			block.next=factory.nextPK(keyName, BATCH_SIZE);
+			block.last=block.next+BATCH_SIZE-1;
+		}
+
+		return block.next++;
+	}
+
+	synchronized void add(ViolationRow violation) throws SQLException {
+		violations.add(violation);
+		if (violations.size()>=BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	synchronized void add(MeasurementRow measurement) throws SQLException {
+		measurements.add(measurement);
+		if (measurements.size()>=BATCH_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Inserts buffered rows.
+	 * @throws SQLException
+	 */
+	synchronized void flush() throws SQLException {
+		if (violations.isEmpty() && measurements.isEmpty()) {
+			return;
+		}
+
+		Connection con=factory.getSQLProcessor().getConnection();
+		try {
+			if (!violations.isEmpty()) {
+				PreparedStatement ps=con.prepareStatement(INSERT_VIOLATION);
+				try {
+					Iterator it=violations.iterator();
+					while (it.hasNext()) {
+						ViolationRow row=(ViolationRow) it.next();
+						ps.setInt(1, row.id);
+						ps.setInt(2, row.resultId);
+						ps.setInt(3, row.reportId);
+						ps.setString(4, row.inspector);
+						setInteger(ps, 5, row.messageId);
+						setInteger(ps, 6, row.sourceId);
+						ps.setInt(7, row.line);
+						ps.setInt(8, row.col);
+						ps.setString(9, row.signaturePostfix);
+						setInteger(ps, 10, row.waiverReason);
+						if (row.waiverExpires==null) {
+							ps.setNull(11, Types.DATE);
+						} else {
+							ps.setDate(11, row.waiverExpires);
+						}
+						ps.setByte(12, row.violationType);
+						ps.addBatch();
+					}
+					ps.executeBatch();
+				} finally {
+					ps.close();
+				}
+				violations.clear();
+			}
+
+			if (!measurements.isEmpty()) {
+				PreparedStatement ps=con.prepareStatement(INSERT_MEASUREMENT);
+				try {
+					Iterator it=measurements.iterator();
+					while (it.hasNext()) {
+						MeasurementRow row=(MeasurementRow) it.next();
+						ps.setInt(1, row.id);
+						ps.setInt(2, row.resultId);
+						ps.setString(3, row.name);
+						ps.setDouble(4, row.value);
+						ps.setString(5, row.source);
+						ps.setInt(6, row.line);
+						ps.setInt(7, row.col);
+						ps.addBatch();
+					}
+					ps.executeBatch();
+				} finally {
+					ps.close();
+				}
+				measurements.clear();
+			}
+		} finally {
+			factory.getSQLProcessor().releaseConnection(con);
+		}
+	}
+
+	private static void setInteger(PreparedStatement ps, int idx, Integer value) throws SQLException {
+		if (value==null) {
+			ps.setNull(idx, Types.INTEGER);
+		} else {
+			ps.setInt(idx, value.intValue());
+		}
+	}
+}
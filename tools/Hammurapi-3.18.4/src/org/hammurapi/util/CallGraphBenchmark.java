@@ -0,0 +1,115 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.util;
+
+import java.text.MessageFormat;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.hammurapi.inspectors.metrics.callertrace.AdjacencyMatrix;
+import org.hammurapi.inspectors.metrics.callertrace.BreadthSearch;
+import org.hammurapi.inspectors.metrics.callertrace.CallGraph;
+import org.hammurapi.inspectors.metrics.callertrace.GraphSearch;
+import org.hammurapi.inspectors.metrics.callertrace.MethodWrapper;
+import org.hammurapi.inspectors.metrics.callertrace.MethodWrapperDeclaration;
+import org.hammurapi.inspectors.metrics.callertrace.SearchMethod;
+
+/**
+ * Caller trace cost of {@link BreadthSearch} and {@link GraphSearch} on a
+ * generated call graph. Method keys look like keys produced by the caller
+ * trace inspector, methods are arranged in layers and call random methods
+ * of the layer below.
+ * <p>
+ * Usage: CallGraphBenchmark [edges [keys [breadthSearchEdges]]], defaults
+ * are 1000000 edges, 10 traced keys and 2000 edges for BreadthSearch, which
+ * scans the whole matrix on each step and can't handle large graphs.
+ * @version $Revision: 1.1 $
+ */
+public class CallGraphBenchmark {
+	/**
+	 * Depth of generated call graph
+	 */
+	private static final int LAYERS=12;
+
+	public static void main(String[] args) {
+		int edges=args.length>0 ? Integer.parseInt(args[0]) : 1000000;
+		int keys=args.length>1 ? Integer.parseInt(args[1]) : 10;
+		int breadthSearchEdges=args.length>2 ? Integer.parseInt(args[2]) : 2000;
+
+		System.out.println("Small graph, "+breadthSearchEdges+" edges");
+		run("BreadthSearch", new BreadthSearch(), breadthSearchEdges, keys);
+		run("GraphSearch", new GraphSearch(), breadthSearchEdges, keys);
+
+		System.out.println("Large graph, "+edges+" edges");
+		GraphSearch graphSearch=new GraphSearch();
+		run("GraphSearch", graphSearch, edges, keys);
+
+		CallGraph graph=graphSearch.getGraph();
+		long start=System.currentTimeMillis();
+		long reached=0;
+		for (int i=0; i<keys; i++) {
+			BitSet reachable=graph.reachableFrom(i*graph.size()/keys);
+			reached+=reachable.cardinality();
+			reached+=graph.depthFirst(i*graph.size()/keys).length;
+		}
+		System.out.println(MessageFormat.format(
+				"  BFS + DFS: {0,number,#} ms per key, {1,number,#} nodes reached",
+				new Object[] {new Long((System.currentTimeMillis()-start)/keys), new Long(reached)}));
+	}
+
+	private static void run(String name, SearchMethod searchMethod, int edges, int tracedKeys) {
+		AdjacencyMatrix matrix=new AdjacencyMatrix(searchMethod);
+		int methods=Math.max(2, edges/8/LAYERS)*LAYERS;
+		String[] keys=new String[methods];
+		for (int i=0; i<methods; i++) {
+			MethodWrapper method=new MethodWrapperDeclaration("method"+(i%16)+"()", "org.hammurapi.generated.Type"+(i/16));
+			keys[i]=method.getMethodKey();
+			matrix.getAllMethods().put(keys[i], method);
+		}
+		Random random=new Random(edges);
+
+		// Method m is in layer m%LAYERS. Methods of layer l are called by 
+		// methods of layer l+1, edges go from invoked method to caller as 
+		// in caller trace inspector.
+		long start=System.currentTimeMillis();
+		for (int i=0; i<edges; i++) {
+			int invoked=random.nextInt(methods/LAYERS)*LAYERS+random.nextInt(LAYERS-1);
+			int caller=random.nextInt(methods/LAYERS)*LAYERS+invoked%LAYERS+1;
+			matrix.put(keys[invoked], keys[caller]);
+		}
+		long loaded=System.currentTimeMillis();
+
+		long traces=0;
+		for (int i=0; i<tracedKeys; i++) {
+			matrix.clearAllVisitFlags();
+			String key=AdjacencyMatrix.nodeNameWithoutHashcode(keys[i*methods/tracedKeys]);
+			traces+=searchMethod.extractTraceListForKey(key).size();
+		}
+		long finished=System.currentTimeMillis();
+
+		System.out.println(MessageFormat.format(
+				"  {0}: load {1,number,#} ms, trace {2,number,#} ms per key, {3,number,#} traces",
+				new Object[] {name, new Long(loaded-start), new Long((finished-loaded)/tracedKeys), new Long(traces)}));
+	}
+}
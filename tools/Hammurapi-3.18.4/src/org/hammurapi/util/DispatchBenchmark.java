@@ -0,0 +1,134 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.util;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.hammurapi.DispatchTable;
+import org.hammurapi.HandleDispatchingVisitor;
+
+import com.pavelvlasov.util.DispatchingVisitor;
+import com.pavelvlasov.util.OrderedTarget;
+
+/**
+ * Per-node dispatch cost of reflective DispatchingVisitor and of
+ * {@link HandleDispatchingVisitor} over the same targets.
+ * <p>
+ * Usage: DispatchBenchmark [targets [nodes [rounds]]], defaults are 130
+ * targets (size of the embedded inspector set), 10000 nodes, 20 rounds.
+ * @version $Revision: 1.1 $
+ */
+public class DispatchBenchmark {
+
+	/**
+	 * Target with visit and leave methods for some of the node types, like
+	 * an inspector interested in a few kinds of AST nodes.
+	 */
+	public static class Target implements OrderedTarget {
+		private Integer order;
+		long counter;
+
+		Target(int order) {
+			this.order=new Integer(order);
+		}
+
+		public Integer getOrder() {
+			return order;
+		}
+
+		public void visit(Integer i) {
+			counter+=i.intValue();
+		}
+
+		public void visit(CharSequence s) {
+			counter+=s.length();
+		}
+
+		public void leave(CharSequence s) {
+			counter--;
+		}
+
+		public void visit(List l) {
+			counter+=l.size();
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		int targetsNumber=args.length>0 ? Integer.parseInt(args[0]) : 130;
+		int nodesNumber=args.length>1 ? Integer.parseInt(args[1]) : 10000;
+		int rounds=args.length>2 ? Integer.parseInt(args[2]) : 20;
+
+		Collection targets=new ArrayList();
+		for (int i=0; i<targetsNumber; i++) {
+			targets.add(new Target(i));
+		}
+
+		// Mix of node types, some of them not visited by targets at all
+		Object[] nodes=new Object[nodesNumber];
+		for (int i=0; i<nodesNumber; i++) {
+			switch (i % 5) {
+				case 0: nodes[i]=new Integer(i); break;
+				case 1: nodes[i]="node"+i; break;
+				case 2: nodes[i]=new StringBuffer("node"); break;
+				case 3: nodes[i]=new LinkedList(); break;
+				default: nodes[i]=new Double(i);
+			}
+		}
+
+		DispatchingVisitor reflection=new DispatchingVisitor(targets, null);
+		DispatchingVisitor handles=new HandleDispatchingVisitor(targets, new DispatchTable(targets), null, null);
+
+		// Warm-up
+		run(reflection, nodes, rounds);
+		run(handles, nodes, rounds);
+
+		double reflectionCost=run(reflection, nodes, rounds);
+		double handlesCost=run(handles, nodes, rounds);
+
+		System.out.println(MessageFormat.format(
+				"{0} targets, {1} nodes x {2} rounds",
+				new Object[] {new Integer(targetsNumber), new Integer(nodesNumber), new Integer(rounds)}));
+		System.out.println(MessageFormat.format("Reflection:     {0,number,#.#} ns/node", new Object[] {new Double(reflectionCost)}));
+		System.out.println(MessageFormat.format("Method handles: {0,number,#.#} ns/node", new Object[] {new Double(handlesCost)}));
+		System.out.println(MessageFormat.format("Speedup:        {0,number,#.##}x", new Object[] {new Double(reflectionCost/handlesCost)}));
+	}
+
+	/**
+	 * @return Average visit+leave cost per node in nanoseconds
+	 */
+	private static double run(DispatchingVisitor visitor, Object[] nodes, int rounds) {
+		long start=System.nanoTime();
+		for (int r=0; r<rounds; r++) {
+			for (int i=0; i<nodes.length; i++) {
+				visitor.visit(nodes[i]);
+				visitor.leave(nodes[i]);
+			}
+		}
+		return (double) (System.nanoTime()-start)/((double) rounds*nodes.length);
+	}
+}
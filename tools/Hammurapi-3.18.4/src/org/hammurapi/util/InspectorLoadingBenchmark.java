@@ -0,0 +1,115 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.MessageFormat;
+
+import org.hammurapi.CachedInspectorSource;
+import org.hammurapi.DomInspectorSource;
+import org.hammurapi.InspectorContext;
+import org.hammurapi.InspectorContextFactory;
+import org.hammurapi.InspectorContextImpl;
+import org.hammurapi.InspectorDescriptor;
+import org.hammurapi.InspectorSet;
+import org.hammurapi.InspectorSource;
+import org.hammurapi.TaskBase;
+
+import com.pavelvlasov.logging.Logger;
+
+/**
+ * Startup cost of inspector set: loading descriptors and instantiating
+ * enabled inspectors. Descriptors are loaded from inspector set XML with
+ * {@link DomInspectorSource} and from descriptor cache with
+ * {@link CachedInspectorSource}. The first cached load creates cache file if
+ * it doesn't exist and is not measured.
+ * <p>
+ * Usage: InspectorLoadingBenchmark [iterations [inspector set file]],
+ * defaults are 20 iterations and embedded inspector set.
+ * @version $Revision: 1.1 $
+ */
+public class InspectorLoadingBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int iterations=args.length>0 ? Integer.parseInt(args[0]) : 20;
+		byte[] content=read(args.length>1 ? new FileInputStream(args[1]) : TaskBase.class.getResourceAsStream("TaskBase.xml"));
+
+		// Warm-up, creates cache
+		run("XML", content, 1, false);
+		run("Cache", content, 1, true);
+
+		run("XML", content, iterations, false);
+		run("Cache", content, iterations, true);
+	}
+
+	private static void run(String name, byte[] content, int iterations, boolean cached) throws Exception {
+		long loadTime=0;
+		long instantiationTime=0;
+		int descriptors=0;
+		int inspectors=0;
+		for (int i=0; i<iterations; i++) {
+			long start=System.currentTimeMillis();
+			InspectorSet inspectorSet=new InspectorSet(
+					new InspectorContextFactory() {
+						public InspectorContext newContext(InspectorDescriptor descriptor, Logger logger) {
+							return new InspectorContextImpl(descriptor, logger, null, null, null);
+						}
+					},
+					null);
+
+			InspectorSource source=cached
+				? CachedInspectorSource.load(new ByteArrayInputStream(content), "Benchmark")
+				: new DomInspectorSource(new ByteArrayInputStream(content), "Benchmark");
+			source.loadInspectors(inspectorSet);
+			long loaded=System.currentTimeMillis();
+
+			inspectors=inspectorSet.getInspectors().size();
+			instantiationTime+=System.currentTimeMillis()-loaded;
+			loadTime+=loaded-start;
+			descriptors=inspectorSet.getDescriptors().size();
+		}
+
+		System.out.println(MessageFormat.format(
+				"{0}: {1,number,#} descriptors, {2,number,#} enabled inspectors, {3,number,#.#} ms load, {4,number,#.#} ms instantiation per inspector set",
+				new Object[] {name, new Integer(descriptors), new Integer(inspectors), new Double((double) loadTime/iterations), new Double((double) instantiationTime/iterations)}));
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream baos=new ByteArrayOutputStream();
+			byte[] buf=new byte[8192];
+			int l;
+			while ((l=in.read(buf))!=-1) {
+				baos.write(buf, 0, l);
+			}
+			return baos.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
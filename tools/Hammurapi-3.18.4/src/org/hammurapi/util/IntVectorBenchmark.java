@@ -0,0 +1,110 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.util;
+
+import java.text.MessageFormat;
+import java.util.Random;
+
+import org.hammurapi.inspectors.metrics.statistics.DescriptiveStatistic;
+import org.hammurapi.inspectors.metrics.statistics.IntVector;
+
+/**
+ * Cost of collecting a metric distribution in {@link IntVector}: appending
+ * samples one by one, sorting and computing frequencies. Appending is
+ * compared with growing an array by fixed blocks of 32 slots, which is how
+ * IntVector used to grow.
+ * <p>
+ * Usage: IntVectorBenchmark [samples [iterations]], defaults are 1000000
+ * samples and 10 iterations.
+ * @version $Revision: 1.1 $
+ */
+public class IntVectorBenchmark {
+
+	public static void main(String[] args) {
+		int samples=args.length>0 ? Integer.parseInt(args[0]) : 1000000;
+		int iterations=args.length>1 ? Integer.parseInt(args[1]) : 10;
+
+		// NCSS-like values, many duplicates
+		Random random=new Random(samples);
+		int[] data=new int[samples];
+		for (int i=0; i<samples; i++) {
+			data[i]=(int) Math.abs(random.nextGaussian()*50);
+		}
+
+		// Warm-up
+		run(data, 1, Math.min(samples, 50000));
+
+		run(data, iterations, Math.min(samples, 50000));
+	}
+
+	private static void run(int[] data, int iterations, int blockSamples) {
+		long appendTime=0;
+		long blockAppendTime=0;
+		long sortTime=0;
+		long frequenciesTime=0;
+		int distinct=0;
+		for (int i=0; i<iterations; i++) {
+			long start=System.currentTimeMillis();
+			IntVector v=new IntVector();
+			for (int j=0; j<data.length; j++) {
+				v.addElement(data[j]);
+			}
+			long appended=System.currentTimeMillis();
+			appendTime+=appended-start;
+
+			int[] map=new int[32];
+			for (int j=0; j<blockSamples; j++) {
+				if (j==map.length) {
+					int[] newMap=new int[map.length+32];
+					System.arraycopy(map, 0, newMap, 0, j);
+					map=newMap;
+				}
+				map[j]=data[j];
+			}
+			long blockAppended=System.currentTimeMillis();
+			blockAppendTime+=blockAppended-appended;
+
+			v.sort();
+			long sorted=System.currentTimeMillis();
+			sortTime+=sorted-blockAppended;
+
+			IntVector distinctValues=new IntVector();
+			IntVector frequencies=new IntVector();
+			new DescriptiveStatistic().frequencies(v, distinctValues, frequencies);
+			frequenciesTime+=System.currentTimeMillis()-sorted;
+			distinct=distinctValues.size();
+		}
+
+		System.out.println(MessageFormat.format(
+				"{0,number,#} samples, {1,number,#} distinct: append {2,number,#.#} ms, sort {3,number,#.#} ms, frequencies {4,number,#.#} ms; fixed block append of {5,number,#} samples {6,number,#.#} ms",
+				new Object[] {
+						new Integer(data.length),
+						new Integer(distinct),
+						new Double((double) appendTime/iterations),
+						new Double((double) sortTime/iterations),
+						new Double((double) frequenciesTime/iterations),
+						new Integer(blockSamples),
+						new Double((double) blockAppendTime/iterations)}));
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.util;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.text.MessageFormat;
+import java.util.Iterator;
+
+import org.apache.tools.ant.Project;
+import org.apache.tools.ant.types.FileSet;
+import org.hammurapi.HammurapiTask;
+
+/**
+ * Wall time and peak heap of a review with results in the database and of
+ * a review with results in memory
+ * ({@link HammurapiTask#setResultsInMemory(boolean)}) of the
+ * same sources. Only the results store differs: the source model is built
+ * the same way in both runs.
+ * <p>
+ * Usage: ResultsStoreBenchmark &lt;project dir&gt; [&lt;project dir&gt; ...],
+ * e.g. projects/pool1. Sources are taken from src and classpath from lib
+ * subdirectory of the project directory. Results database is created in a
+ * temporary directory and deleted after the run.
+ * @version $Revision: 1.1 $
+ */
+public class ResultsStoreBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length==0) {
+			System.out.println("Usage: ResultsStoreBenchmark <project dir> [<project dir> ...]");
+			return;
+		}
+
+		for (int i=0; i<args.length; i++) {
+			File projectDir=new File(args[i]);
+
+			// Warm-up
+			run(projectDir, true);
+
+			long[] resultsInDatabase=run(projectDir, false);
+			long[] resultsInMemory=run(projectDir, true);
+
+			System.out.println(projectDir.getAbsolutePath());
+			print("Results in database", resultsInDatabase);
+			print("Results in memory", resultsInMemory);
+		}
+	}
+
+	private static void print(String mode, long[] result) {
+		System.out.println(MessageFormat.format(
+				"  {0}: {1,number,#} ms, peak heap {2,number,#.#} Mb",
+				new Object[] {mode, new Long(result[0]), new Double(result[1]/1024.0/1024.0)}));
+	}
+
+	/**
+	 * @return Wall time in milliseconds and peak heap in bytes
+	 */
+	private static long[] run(File projectDir, boolean resultsInMemory) throws Exception {
+		Project project=new Project();
+		project.init();
+		project.setBaseDir(projectDir);
+
+		HammurapiTask task=new HammurapiTask();
+		task.setProject(project);
+		task.setTaskName("hammurapi");
+		task.setTitle(projectDir.getName());
+		task.createSrc().setDir(new File(projectDir, "src"));
+
+		File lib=new File(projectDir, "lib");
+		if (lib.isDirectory()) {
+			FileSet libFiles=new FileSet();
+			libFiles.setDir(lib);
+			task.createClasspath().addFileset(libFiles);
+		}
+
+		File databaseDir=null;
+		if (resultsInMemory) {
+			task.setResultsInMemory(true);
+		} else {
+			databaseDir=File.createTempFile("hammurapi-benchmark", "");
+			databaseDir.delete();
+			databaseDir.mkdir();
+			task.setDatabase(new File(databaseDir, projectDir.getName()));
+		}
+
+		try {
+			System.gc();
+			resetPeakHeap();
+			long start=System.currentTimeMillis();
+			task.execute();
+			return new long[] {System.currentTimeMillis()-start, getPeakHeap()};
+		} finally {
+			if (databaseDir!=null) {
+				delete(databaseDir);
+			}
+		}
+	}
+
+	private static void resetPeakHeap() {
+		Iterator it=ManagementFactory.getMemoryPoolMXBeans().iterator();
+		while (it.hasNext()) {
+			MemoryPoolMXBean pool=(MemoryPoolMXBean) it.next();
+			if (pool.getType()==MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	private static long getPeakHeap() {
+		long ret=0;
+		Iterator it=ManagementFactory.getMemoryPoolMXBeans().iterator();
+		while (it.hasNext()) {
+			MemoryPoolMXBean pool=(MemoryPoolMXBean) it.next();
+			if (pool.getType()==MemoryType.HEAP) {
+				ret+=pool.getPeakUsage().getUsed();
+			}
+		}
+		return ret;
+	}
+
+	private static void delete(File file) {
+		File[] children=file.listFiles();
+		if (children!=null) {
+			for (int i=0; i<children.length; i++) {
+				delete(children[i]);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Hammurapi
+ * Automated Java code review system.
+ * Copyright (C) 2004  Hammurapi Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ *  (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ * URL: http://www.hammurapi.org
+ * e-Mail: support@hammurapi.biz
+
+ */
+package org.hammurapi.util;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.hammurapi.InspectorEntry;
+import org.hammurapi.SimpleViolation;
+import org.hammurapi.Violation;
+import org.hammurapi.Waiver;
+import org.hammurapi.WaiverSet;
+
+import com.pavelvlasov.review.Signed;
+import com.pavelvlasov.review.SourceMarker;
+
+/**
+ * Cost of waiver requests for a baselined project: many waivers with
+ * signatures, like ones created by baseline setup, few waivers without
+ * signatures and many violations. {@link WaiverSet} is compared with
+ * a linear scan of all waivers.
+ * <p>
+ * Usage: WaiverBenchmark [waivers [violations [linearViolations]]],
+ * defaults are 10000 waivers, 100000 violations and 10000 violations for
+ * the linear scan.
+ * @version $Revision: 1.1 $
+ */
+public class WaiverBenchmark {
+	private static final int INSPECTORS=50;
+
+	private static final int WILDCARD_WAIVERS=20;
+
+	private static class SignedSourceMarker implements SourceMarker, Signed {
+		private String signature;
+
+		SignedSourceMarker(String signature) {
+			this.signature=signature;
+		}
+
+		public String getSignature() {
+			return signature;
+		}
+
+		public String getSourceURL() {
+			return "Benchmark.java";
+		}
+
+		public int getLine() {
+			return 0;
+		}
+
+		public int getColumn() {
+			return 0;
+		}
+
+		public Integer getSourceId() {
+			return null;
+		}
+	}
+
+	private static class SimpleWaiver implements Waiver {
+		private String inspectorName;
+		private String signature;
+		private boolean active=true;
+
+		/**
+		 * @param signature Waived signature, null to waive all violations
+		 * of the inspector.
+		 */
+		SimpleWaiver(String inspectorName, String signature) {
+			this.inspectorName=inspectorName;
+			this.signature=signature;
+		}
+
+		public String getInspectorName() {
+			return inspectorName;
+		}
+
+		public boolean waive(Violation violation, boolean peek) {
+			if (inspectorName.equals(violation.getDescriptor().getName())) {
+				if (signature==null) {
+					return false;
+				}
+
+				if (violation.getSource() instanceof Signed && signature.equals(((Signed) violation.getSource()).getSignature())) {
+					if (!peek) {
+						active=false;
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+
+		public Date getExpirationDate() {
+			return null;
+		}
+
+		public String getReason() {
+			return "Benchmark";
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public Collection getSignatures() {
+			return signature==null ? null : Collections.singleton(signature);
+		}
+	}
+
+	public static void main(String[] args) {
+		int waivers=args.length>0 ? Integer.parseInt(args[0]) : 10000;
+		int violations=args.length>1 ? Integer.parseInt(args[1]) : 100000;
+		int linearViolations=args.length>2 ? Integer.parseInt(args[2]) : 10000;
+
+		InspectorEntry[] inspectors=new InspectorEntry[INSPECTORS];
+		for (int i=0; i<INSPECTORS; i++) {
+			inspectors[i]=new InspectorEntry();
+			inspectors[i].setName("ER-"+(100+i));
+			inspectors[i].setWaivable(true);
+		}
+
+		// Every other violation has a waiver
+		Random random=new Random(waivers);
+		Violation[] allViolations=new Violation[violations];
+		for (int i=0; i<violations; i++) {
+			int n=i%2==0 ? random.nextInt(waivers) : waivers+i;
+			allViolations[i]=new SimpleViolation(new SignedSourceMarker("org.hammurapi.generated.Type"+n+">>method()"), "Benchmark", inspectors[n%INSPECTORS]);
+		}
+
+		// Warm-up
+		run("WaiverSet", waivers, allViolations, violations, false);
+
+		run("WaiverSet", waivers, allViolations, violations, false);
+		run("Linear scan", waivers, allViolations, Math.min(violations, linearViolations), true);
+	}
+
+	private static void run(String name, int waivers, Violation[] violations, int count, boolean linear) {
+		List allWaivers=new ArrayList();
+		for (int i=0; i<waivers; i++) {
+			allWaivers.add(new SimpleWaiver("ER-"+(100+i%INSPECTORS), "org.hammurapi.generated.Type"+i+">>method()"));
+		}
+		for (int i=0; i<WILDCARD_WAIVERS; i++) {
+			allWaivers.add(new SimpleWaiver("ER-"+(100+i%INSPECTORS), null));
+		}
+
+		WaiverSet waiverSet=new WaiverSet();
+		Date now=new Date();
+		Iterator it=allWaivers.iterator();
+		while (it.hasNext()) {
+			waiverSet.addWaiver((Waiver) it.next(), now);
+		}
+
+		long start=System.currentTimeMillis();
+		int waived=0;
+		for (int i=0; i<count; i++) {
+			if (linear) {
+				Iterator wit=allWaivers.iterator();
+				while (wit.hasNext()) {
+					if (((Waiver) wit.next()).waive(violations[i], true)) {
+						++waived;
+						break;
+					}
+				}
+			} else if (waiverSet.requestWaiver(violations[i], true)!=null) {
+				++waived;
+			}
+		}
+		long time=System.currentTimeMillis()-start;
+
+		System.out.println(MessageFormat.format(
+				"{0}: {1,number,#} waivers, {2,number,#} violations, {3,number,#} waived, {4,number,#} ms, {5,number,#.###} us per violation",
+				new Object[] {name, new Integer(allWaivers.size()), new Integer(count), new Integer(waived), new Long(time), new Double(time*1000.0/count)}));
+	}
+}